@@ -49,7 +49,7 @@ public class Cloudlet {
 	private int numberOfPes;
 
 	/** The cloudlet ID. */
-	private final int cloudletId;
+	private int cloudletId;
 
 	/** The status of this Cloudlet. */
 	private int status;
@@ -189,11 +189,6 @@ public class Cloudlet {
 				utilizationModelRam,
 				utilizationModelBw,
 				false);
-		vmId = -1;
-		accumulatedBwCost = 0.0;
-		costPerBw = 0.0;
-
-		requiredFiles = new LinkedList<String>();
 	}
 
 	/**
@@ -1219,6 +1214,17 @@ public class Cloudlet {
 		return cloudletId;
 	}
 
+	/**
+	 * Sets the ID of this Cloudlet, for subclasses whose IDs are given after they are created.
+	 * 
+	 * @param cloudletId the cloudlet ID
+	 * @pre cloudletId >= 0
+	 * @post $none
+	 */
+	protected void setCloudletId(int cloudletId) {
+		this.cloudletId = cloudletId;
+	}
+
 	/**
 	 * Gets the ID of the VM that will run this Cloudlet.
 	 * 
@@ -14,10 +14,13 @@ import java.util.Iterator;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
+import org.cloudbus.cloudsim.network.DelayProvider;
+import org.cloudbus.cloudsim.network.DijkstraDelayCache;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
 import org.cloudbus.cloudsim.network.TopologicalNode;
+import org.cloudbus.cloudsim.network.TreeDelays;
 
 /**
  * NetworkTopology is a class that implements network layer in CloudSim. It reads a BRITE file and
@@ -29,6 +32,13 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * The delays between the nodes are calculated when one of them is first asked for, after the
+ * topology is built or changed, by the first of these ways which fits the topology: Floyd-Warshall
+ * up to floydWarshallMaxNodes nodes, going up the trees to their common node if the topology has no
+ * cycle and its trees are no higher than treeMaxHeight, Floyd-Warshall run by several threads up to
+ * parallelFloydWarshallMaxNodes nodes, and otherwise Dijkstra's algorithm from the nodes sending
+ * events, keeping the delays from the last delayCacheRows of them.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -40,8 +50,35 @@ public class NetworkTopology {
 
 	private static boolean networkEnabled = false;
 
-	protected static DelayMatrix_Float delayMatrix = null;
+	/**
+	 * Maximum number of nodes whose delays are calculated by Floyd-Warshall in a single thread.
+	 */
+	public static int floydWarshallMaxNodes = 1000;
+
+	/**
+	 * Maximum number of nodes whose delays are calculated by Floyd-Warshall in several threads, and
+	 * whose bandwidth matrix is created.
+	 */
+	public static int parallelFloydWarshallMaxNodes = 4000;
+
+	/**
+	 * Maximum height of the trees of a topology without cycle whose delays are calculated by going
+	 * up the trees.
+	 */
+	public static int treeMaxHeight = 64;
 
+	/**
+	 * Number of nodes whose delays to all the others are kept, when they are calculated by
+	 * Dijkstra's algorithm.
+	 */
+	public static int delayCacheRows = 256;
+
+	protected static volatile DelayProvider delayMatrix = null;
+
+	/**
+	 * The bandwidth between the nodes, null if the topology has more than
+	 * parallelFloydWarshallMaxNodes nodes.
+	 */
 	protected static double[][] bwMatrix = null;
 
 	protected static TopologicalGraph graph = null;
@@ -75,18 +112,60 @@ public class NetworkTopology {
 	}
 
 	/**
-	 * Generates the matrices used internally to set latency and bandwidth between elements
+	 * Generates the matrices used internally to set latency and bandwidth between elements, which
+	 * are only created when a delay is first asked for
 	 */
-	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+	private static synchronized void generateMatrices() {
+		delayMatrix = null;
+		bwMatrix = null;
 
 		networkEnabled = true;
 	}
 
+	/**
+	 * Gets the delays between the nodes, creating them and the bw matrix if the topology was built or
+	 * changed since they were last created
+	 * 
+	 * @return the delays
+	 */
+	private static DelayProvider getDelayMatrix() {
+		DelayProvider delays = delayMatrix;
+		if (delays == null) {
+			synchronized (NetworkTopology.class) {
+				delays = delayMatrix;
+				if (delays == null) {
+					delays = createDelayMatrix(graph);
+					int nodes = graph.getNumberOfNodes();
+					bwMatrix = nodes <= parallelFloydWarshallMaxNodes ? createBwMatrix(graph, false) : null;
+					delayMatrix = delays;
+				}
+			}
+		}
+		return delays;
+	}
+
+	/**
+	 * Creates the delays between the nodes in the way which fits the size and the shape of the
+	 * topology
+	 * 
+	 * @param graph topological graph describing the topology
+	 * @return the delays
+	 */
+	private static DelayProvider createDelayMatrix(TopologicalGraph graph) {
+		int nodes = graph.getNumberOfNodes();
+		if (nodes <= floydWarshallMaxNodes) {
+			return new DelayMatrix_Float(graph, false);
+		}
+		DelayProvider delays = TreeDelays.create(graph, treeMaxHeight);
+		if (delays != null) {
+			return delays;
+		}
+		if (nodes <= parallelFloydWarshallMaxNodes) {
+			return new DelayMatrix_Float(graph, false, Runtime.getRuntime().availableProcessors());
+		}
+		return new DijkstraDelayCache(graph, false, delayCacheRows);
+	}
+
 	/**
 	 * Adds a new link in the network topology
 	 * 
@@ -222,7 +301,7 @@ public class NetworkTopology {
 		if (networkEnabled) {
 			try {
 				// add the network latency
-				double delay = delayMatrix.getDelay(map.get(srcID), map.get(destID));
+				double delay = getDelayMatrix().getDelay(map.get(srcID), map.get(destID));
 
 				return delay;
 			} catch (Exception e) {
@@ -17,6 +17,9 @@ package org.cloudbus.cloudsim;
  */
 public class UtilizationModelFull implements UtilizationModel {
 
+	/** A shared instance, which can be used by any number of cloudlets as the model has no state. */
+	public static final UtilizationModelFull INSTANCE = new UtilizationModelFull();
+
 	/*
 	 * (non-Javadoc)
 	 * @see cloudsim.power.UtilizationModel#getUtilization(double)
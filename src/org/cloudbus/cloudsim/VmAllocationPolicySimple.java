@@ -9,11 +9,11 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.VmMap;
 
 /**
  * VmAllocationPolicySimple is an VmAllocationPolicy that chooses, as the host for a VM, the host
@@ -26,10 +26,10 @@ import org.cloudbus.cloudsim.core.CloudSim;
 public class VmAllocationPolicySimple extends VmAllocationPolicy {
 
 	/** The vm table. */
-	private Map<String, Host> vmTable;
+	private VmMap<Host> vmTable;
 
 	/** The used pes. */
-	private Map<String, Integer> usedPes;
+	private VmMap<Integer> usedPes;
 
 	/** The free pes. */
 	private List<Integer> freePes;
@@ -50,8 +50,8 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 
 		}
 
-		setVmTable(new HashMap<String, Host>());
-		setUsedPes(new HashMap<String, Integer>());
+		setVmTable(new VmMap<Host>().asMap());
+		setUsedPes(new VmMap<Integer>().asMap());
 	}
 
 	/**
@@ -72,7 +72,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 			freePesTmp.add(freePes);
 		}
 
-		if (!getVmTable().containsKey(vm.getUid())) { // if this vm was not created
+		if (!vmTable.containsKey(vm)) { // if this vm was not created
 			do {// we still trying until we find a host or until we try all of them
 				int moreFree = Integer.MIN_VALUE;
 				int idx = -1;
@@ -89,8 +89,8 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 				result = host.vmCreate(vm);
 
 				if (result) { // if vm were succesfully created in the host
-					getVmTable().put(vm.getUid(), host);
-					getUsedPes().put(vm.getUid(), requiredPes);
+					vmTable.put(vm, host);
+					usedPes.put(vm, requiredPes);
 					getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
 					result = true;
 					break;
@@ -114,9 +114,9 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	@Override
 	public void deallocateHostForVm(Vm vm) {
-		Host host = getVmTable().remove(vm.getUid());
+		Host host = vmTable.remove(vm);
 		int idx = getHostList().indexOf(host);
-		int pes = getUsedPes().remove(vm.getUid());
+		int pes = usedPes.remove(vm);
 		if (host != null) {
 			host.vmDestroy(vm);
 			getFreePes().set(idx, getFreePes().get(idx) + pes);
@@ -133,7 +133,7 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(Vm vm) {
-		return getVmTable().get(vm.getUid());
+		return vmTable.get(vm);
 	}
 
 	/**
@@ -147,43 +147,43 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	 */
 	@Override
 	public Host getHost(int vmId, int userId) {
-		return getVmTable().get(Vm.getUid(userId, vmId));
+		return vmTable.get(userId, vmId);
 	}
 
 	/**
-	 * Gets the vm table.
+	 * Gets the vm table, keyed by the uids of the VMs.
 	 * 
 	 * @return the vm table
 	 */
 	public Map<String, Host> getVmTable() {
-		return vmTable;
+		return vmTable.asMap();
 	}
 
 	/**
-	 * Sets the vm table.
+	 * Sets the vm table. Its entries are copied, unless it was returned by {@link #getVmTable()}.
 	 * 
 	 * @param vmTable the vm table
 	 */
 	protected void setVmTable(Map<String, Host> vmTable) {
-		this.vmTable = vmTable;
+		this.vmTable = VmMap.fromMap(vmTable);
 	}
 
 	/**
-	 * Gets the used pes.
+	 * Gets the used pes, keyed by the uids of the VMs.
 	 * 
 	 * @return the used pes
 	 */
 	protected Map<String, Integer> getUsedPes() {
-		return usedPes;
+		return usedPes.asMap();
 	}
 
 	/**
-	 * Sets the used pes.
+	 * Sets the used pes. Its entries are copied, unless it was returned by {@link #getUsedPes()}.
 	 * 
 	 * @param usedPes the used pes
 	 */
 	protected void setUsedPes(Map<String, Integer> usedPes) {
-		this.usedPes = usedPes;
+		this.usedPes = VmMap.fromMap(usedPes);
 	}
 
 	/**
@@ -222,11 +222,11 @@ public class VmAllocationPolicySimple extends VmAllocationPolicy {
 	@Override
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
-			getVmTable().put(vm.getUid(), host);
+			vmTable.put(vm, host);
 
 			int requiredPes = vm.getNumberOfPes();
 			int idx = getHostList().indexOf(host);
-			getUsedPes().put(vm.getUid(), requiredPes);
+			usedPes.put(vm, requiredPes);
 			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
 
 			Log.formatLine(
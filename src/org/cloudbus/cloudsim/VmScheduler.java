@@ -8,11 +8,11 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.lists.PeList;
+import org.cloudbus.cloudsim.util.VmMap;
 
 /**
  * VmScheduler is an abstract class that represents the policy used by a VMM to share processing
@@ -28,10 +28,10 @@ public abstract class VmScheduler {
 	private List<? extends Pe> peList;
 
 	/** The map of VMs to PEs. */
-	private Map<String, List<Pe>> peMap;
+	private VmMap<List<Pe>> peMap;
 
 	/** The MIPS that are currently allocated to the VMs. */
-	private Map<String, List<Double>> mipsMap;
+	private VmMap<List<Double>> mipsMap;
 
 	/** The total available mips. */
 	private double availableMips;
@@ -51,8 +51,8 @@ public abstract class VmScheduler {
 	 */
 	public VmScheduler(List<? extends Pe> pelist) {
 		setPeList(pelist);
-		setPeMap(new HashMap<String, List<Pe>>());
-		setMipsMap(new HashMap<String, List<Double>>());
+		setPeMap(new VmMap<List<Pe>>().asMap());
+		setMipsMap(new VmMap<List<Double>>().asMap());
 		setAvailableMips(PeList.getTotalMips(getPeList()));
 		setVmsMigratingIn(new ArrayList<String>());
 		setVmsMigratingOut(new ArrayList<String>());
@@ -99,7 +99,7 @@ public abstract class VmScheduler {
 	 * @return the pes allocated for vm
 	 */
 	public List<Pe> getPesAllocatedForVM(Vm vm) {
-		return getPeMap().get(vm.getUid());
+		return getPeVmMap().get(vm);
 	}
 
 	/**
@@ -111,7 +111,7 @@ public abstract class VmScheduler {
 	 * @post $none
 	 */
 	public List<Double> getAllocatedMipsForVm(Vm vm) {
-		return getMipsMap().get(vm.getUid());
+		return getMipsVmMap().get(vm);
 	}
 
 	/**
@@ -188,21 +188,30 @@ public abstract class VmScheduler {
 	}
 
 	/**
-	 * Gets the mips map.
+	 * Gets the mips map, keyed by the uids of the VMs.
 	 * 
 	 * @return the mips map
 	 */
 	protected Map<String, List<Double>> getMipsMap() {
+		return mipsMap.asMap();
+	}
+
+	/**
+	 * Gets the mips map, keyed by the IDs of the VMs.
+	 * 
+	 * @return the mips map
+	 */
+	protected VmMap<List<Double>> getMipsVmMap() {
 		return mipsMap;
 	}
 
 	/**
-	 * Sets the mips map.
+	 * Sets the mips map. Its entries are copied, unless it was returned by {@link #getMipsMap()}.
 	 * 
 	 * @param mipsMap the mips map
 	 */
 	protected void setMipsMap(Map<String, List<Double>> mipsMap) {
-		this.mipsMap = mipsMap;
+		this.mipsMap = VmMap.fromMap(mipsMap);
 	}
 
 	/**
@@ -260,21 +269,30 @@ public abstract class VmScheduler {
 	}
 
 	/**
-	 * Gets the pe map.
+	 * Gets the pe map, keyed by the uids of the VMs.
 	 * 
 	 * @return the pe map
 	 */
 	public Map<String, List<Pe>> getPeMap() {
+		return peMap.asMap();
+	}
+
+	/**
+	 * Gets the pe map, keyed by the IDs of the VMs.
+	 * 
+	 * @return the pe map
+	 */
+	protected VmMap<List<Pe>> getPeVmMap() {
 		return peMap;
 	}
 
 	/**
-	 * Sets the pe map.
+	 * Sets the pe map. Its entries are copied, unless it was returned by {@link #getPeMap()}.
 	 * 
 	 * @param peMap the pe map
 	 */
 	protected void setPeMap(Map<String, List<Pe>> peMap) {
-		this.peMap = peMap;
+		this.peMap = VmMap.fromMap(peMap);
 	}
 
 }
@@ -9,11 +9,12 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.util.VmMap;
+
 /**
  * VmSchedulerSpaceShared is a VMM allocation policy that allocates one or more Pe to a VM, and
  * doesn't allow sharing of PEs. If there is no free PEs to the VM, allocation fails. Free PEs are
@@ -26,7 +27,7 @@ import java.util.Map;
 public class VmSchedulerSpaceShared extends VmScheduler {
 
 	/** Map containing VM ID and a vector of PEs allocated to this VM. */
-	private Map<String, List<Pe>> peAllocationMap;
+	private VmMap<List<Pe>> peAllocationMap;
 
 	/** The free pes vector. */
 	private List<Pe> freePes;
@@ -38,7 +39,7 @@ public class VmSchedulerSpaceShared extends VmScheduler {
 	 */
 	public VmSchedulerSpaceShared(List<? extends Pe> pelist) {
 		super(pelist);
-		setPeAllocationMap(new HashMap<String, List<Pe>>());
+		setPeAllocationMap(new VmMap<List<Pe>>().asMap());
 		setFreePes(new ArrayList<Pe>());
 		getFreePes().addAll(pelist);
 	}
@@ -75,8 +76,8 @@ public class VmSchedulerSpaceShared extends VmScheduler {
 
 		getFreePes().removeAll(selectedPes);
 
-		getPeAllocationMap().put(vm.getUid(), selectedPes);
-		getMipsMap().put(vm.getUid(), mipsShare);
+		getPeAllocationVmMap().put(vm, selectedPes);
+		getMipsVmMap().put(vm, mipsShare);
 		setAvailableMips(getAvailableMips() - totalMips);
 		return true;
 	}
@@ -87,33 +88,43 @@ public class VmSchedulerSpaceShared extends VmScheduler {
 	 */
 	@Override
 	public void deallocatePesForVm(Vm vm) {
-		getFreePes().addAll(getPeAllocationMap().get(vm.getUid()));
-		getPeAllocationMap().remove(vm.getUid());
+		getFreePes().addAll(getPeAllocationVmMap().get(vm));
+		getPeAllocationVmMap().remove(vm);
 
 		double totalMips = 0;
-		for (double mips : getMipsMap().get(vm.getUid())) {
+		for (double mips : getMipsVmMap().get(vm)) {
 			totalMips += mips;
 		}
 		setAvailableMips(getAvailableMips() + totalMips);
 
-		getMipsMap().remove(vm.getUid());
+		getMipsVmMap().remove(vm);
 	}
 
 	/**
-	 * Sets the pe allocation map.
+	 * Sets the pe allocation map. Its entries are copied, unless it was returned by
+	 * {@link #getPeAllocationMap()}.
 	 * 
 	 * @param peAllocationMap the pe allocation map
 	 */
 	protected void setPeAllocationMap(Map<String, List<Pe>> peAllocationMap) {
-		this.peAllocationMap = peAllocationMap;
+		this.peAllocationMap = VmMap.fromMap(peAllocationMap);
 	}
 
 	/**
-	 * Gets the pe allocation map.
+	 * Gets the pe allocation map, keyed by the uids of the VMs.
 	 * 
 	 * @return the pe allocation map
 	 */
 	protected Map<String, List<Pe>> getPeAllocationMap() {
+		return peAllocationMap.asMap();
+	}
+
+	/**
+	 * Gets the pe allocation map, keyed by the IDs of the VMs.
+	 * 
+	 * @return the pe allocation map
+	 */
+	protected VmMap<List<Pe>> getPeAllocationVmMap() {
 		return peAllocationMap;
 	}
 
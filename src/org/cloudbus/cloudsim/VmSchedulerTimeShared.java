@@ -8,7 +8,6 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -16,6 +15,7 @@ import java.util.Map;
 
 import org.cloudbus.cloudsim.lists.PeList;
 import org.cloudbus.cloudsim.provisioners.PeProvisioner;
+import org.cloudbus.cloudsim.util.VmMap;
 
 /**
  * VmSchedulerTimeShared is a VMM allocation policy that allocates one or more Pe to a VM, and
@@ -29,7 +29,7 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
 public class VmSchedulerTimeShared extends VmScheduler {
 
 	/** The mips map requested. */
-	private Map<String, List<Double>> mipsMapRequested;
+	private VmMap<List<Double>> mipsMapRequested;
 
 	/** The pes in use. */
 	private int pesInUse;
@@ -41,7 +41,7 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	 */
 	public VmSchedulerTimeShared(List<? extends Pe> pelist) {
 		super(pelist);
-		setMipsMapRequested(new HashMap<String, List<Double>>());
+		setMipsMapRequested(new VmMap<List<Double>>().asMap());
 	}
 
 	/*
@@ -62,7 +62,7 @@ public class VmSchedulerTimeShared extends VmScheduler {
 				getVmsMigratingOut().remove(vm.getUid());
 			}
 		}
-		boolean result = allocatePesForVm(vm.getUid(), mipsShareRequested);
+		boolean result = allocatePesForVm(vm.getUserId(), vm.getId(), mipsShareRequested);
 		updatePeProvisioning();
 		return result;
 	}
@@ -73,8 +73,26 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	 * @param vmUid the vm uid
 	 * @param mipsShareRequested the mips share requested
 	 * @return true, if successful
+	 * @deprecated use {@link #allocatePesForVm(int, int, List)}, which does not parse the uid
 	 */
+	@Deprecated
 	protected boolean allocatePesForVm(String vmUid, List<Double> mipsShareRequested) {
+		int separator = vmUid.indexOf('-');
+		return allocatePesForVm(
+				Integer.parseInt(vmUid.substring(0, separator)),
+				Integer.parseInt(vmUid.substring(separator + 1)),
+				mipsShareRequested);
+	}
+
+	/**
+	 * Allocate pes for vm.
+	 * 
+	 * @param userId the user id of the vm
+	 * @param vmId the vm id
+	 * @param mipsShareRequested the mips share requested
+	 * @return true, if successful
+	 */
+	protected boolean allocatePesForVm(int userId, int vmId, List<Double> mipsShareRequested) {
 		double totalRequestedMips = 0;
 		double peMips = getPeCapacity();
 		for (Double mips : mipsShareRequested) {
@@ -90,37 +108,63 @@ public class VmSchedulerTimeShared extends VmScheduler {
 			return false;
 		}
 
-		getMipsMapRequested().put(vmUid, mipsShareRequested);
+		mipsMapRequested.put(userId, vmId, mipsShareRequested);
 		setPesInUse(getPesInUse() + mipsShareRequested.size());
 
-		if (getVmsMigratingIn().contains(vmUid)) {
+		boolean migratingIn = isMigratingIn(userId, vmId);
+		boolean migratingOut = isMigratingOut(userId, vmId);
+		if (migratingIn) {
 			// the destination host only experience 10% of the migrating VM's MIPS
 			totalRequestedMips *= 0.1;
 		}
 
 		List<Double> mipsShareAllocated = new ArrayList<Double>();
 		for (Double mipsRequested : mipsShareRequested) {
-			if (getVmsMigratingOut().contains(vmUid)) {
+			if (migratingOut) {
 				// performance degradation due to migration = 10% MIPS
 				mipsRequested *= 0.9;
-			} else if (getVmsMigratingIn().contains(vmUid)) {
+			} else if (migratingIn) {
 				// the destination host only experience 10% of the migrating VM's MIPS
 				mipsRequested *= 0.1;
 			}
 			mipsShareAllocated.add(mipsRequested);
 		}
 
-		getMipsMap().put(vmUid, mipsShareAllocated);
+		getMipsVmMap().put(userId, vmId, mipsShareAllocated);
 		setAvailableMips(getAvailableMips() - totalRequestedMips);
 
 		return true;
 	}
 
+	/**
+	 * Checks whether a vm is migrating to the host.
+	 * 
+	 * @param userId the user id of the vm
+	 * @param vmId the vm id
+	 * @return true, if the vm is migrating in
+	 */
+	protected boolean isMigratingIn(int userId, int vmId) {
+		return !getVmsMigratingIn().isEmpty() && getVmsMigratingIn().contains(Vm.getUid(userId, vmId));
+	}
+
+	/**
+	 * Checks whether a vm is migrating from the host.
+	 * 
+	 * @param userId the user id of the vm
+	 * @param vmId the vm id
+	 * @return true, if the vm is migrating out
+	 */
+	protected boolean isMigratingOut(int userId, int vmId) {
+		return !getVmsMigratingOut().isEmpty() && getVmsMigratingOut().contains(Vm.getUid(userId, vmId));
+	}
+
 	/**
 	 * Update allocation of VMs on PEs.
 	 */
 	protected void updatePeProvisioning() {
-		getPeMap().clear();
+		VmMap<List<Double>> mipsMap = getMipsVmMap();
+		VmMap<List<Pe>> peMap = getPeVmMap();
+		peMap.clear();
 		for (Pe pe : getPeList()) {
 			pe.getPeProvisioner().deallocateMipsForAllVms();
 		}
@@ -130,20 +174,21 @@ public class VmSchedulerTimeShared extends VmScheduler {
 		PeProvisioner peProvisioner = pe.getPeProvisioner();
 		double availableMips = peProvisioner.getAvailableMips();
 
-		for (Map.Entry<String, List<Double>> entry : getMipsMap().entrySet()) {
-			String vmUid = entry.getKey();
-			getPeMap().put(vmUid, new LinkedList<Pe>());
+		for (int i = 0; i < mipsMap.size(); i++) {
+			String vmUid = mipsMap.getUid(i);
+			List<Pe> pes = new LinkedList<Pe>();
+			peMap.put(mipsMap.getUserId(i), mipsMap.getVmId(i), pes);
 
-			for (double mips : entry.getValue()) {
+			for (double mips : mipsMap.getValue(i)) {
 				while (mips >= 0.1) {
 					if (availableMips >= mips) {
 						peProvisioner.allocateMipsForVm(vmUid, mips);
-						getPeMap().get(vmUid).add(pe);
+						pes.add(pe);
 						availableMips -= mips;
 						break;
 					} else {
 						peProvisioner.allocateMipsForVm(vmUid, availableMips);
-						getPeMap().get(vmUid).add(pe);
+						pes.add(pe);
 						mips -= availableMips;
 						if (mips <= 0.1) {
 							break;
@@ -166,17 +211,17 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	 */
 	@Override
 	public void deallocatePesForVm(Vm vm) {
-		getMipsMapRequested().remove(vm.getUid());
+		mipsMapRequested.remove(vm);
 		setPesInUse(0);
-		getMipsMap().clear();
+		getMipsVmMap().clear();
 		setAvailableMips(PeList.getTotalMips(getPeList()));
 
 		for (Pe pe : getPeList()) {
 			pe.getPeProvisioner().deallocateMipsForVm(vm);
 		}
 
-		for (Map.Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()) {
-			allocatePesForVm(entry.getKey(), entry.getValue());
+		for (int i = 0; i < mipsMapRequested.size(); i++) {
+			allocatePesForVm(mipsMapRequested.getUserId(i), mipsMapRequested.getVmId(i), mipsMapRequested.getValue(i));
 		}
 
 		updatePeProvisioning();
@@ -191,7 +236,7 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	@Override
 	public void deallocatePesForAllVms() {
 		super.deallocatePesForAllVms();
-		getMipsMapRequested().clear();
+		mipsMapRequested.clear();
 		setPesInUse(0);
 	}
 
@@ -225,21 +270,31 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	}
 
 	/**
-	 * Gets the mips map requested.
+	 * Gets the mips map requested, keyed by the uids of the VMs.
 	 * 
 	 * @return the mips map requested
 	 */
 	protected Map<String, List<Double>> getMipsMapRequested() {
+		return mipsMapRequested.asMap();
+	}
+
+	/**
+	 * Gets the mips map requested, keyed by the user and VM ids.
+	 * 
+	 * @return the mips map requested
+	 */
+	protected VmMap<List<Double>> getMipsVmMapRequested() {
 		return mipsMapRequested;
 	}
 
 	/**
-	 * Sets the mips map requested.
+	 * Sets the mips map requested. Its entries are copied, unless it was returned by
+	 * {@link #getMipsMapRequested()}.
 	 * 
 	 * @param mipsMapRequested the mips map requested
 	 */
 	protected void setMipsMapRequested(Map<String, List<Double>> mipsMapRequested) {
-		this.mipsMapRequested = mipsMapRequested;
+		this.mipsMapRequested = VmMap.fromMap(mipsMapRequested);
 	}
 
 }
@@ -8,12 +8,10 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 
 import org.cloudbus.cloudsim.lists.PeList;
+import org.cloudbus.cloudsim.util.VmMap;
 
 /**
  * This is a Time-Shared VM Scheduler, which allows over-subscription. In other words, the scheduler
@@ -41,12 +39,13 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 	 * Oversubscription results in performance degradation. Each virtual PE cannot be allocated more
 	 * CPU capacity than MIPS of a single PE.
 	 * 
-	 * @param vmUid the vm uid
+	 * @param userId the user id of the vm
+	 * @param vmId the vm id
 	 * @param mipsShareRequested the mips share requested
 	 * @return true, if successful
 	 */
 	@Override
-	protected boolean allocatePesForVm(String vmUid, List<Double> mipsShareRequested) {
+	protected boolean allocatePesForVm(int userId, int vmId, List<Double> mipsShareRequested) {
 		double totalRequestedMips = 0;
 		
 		// if the requested mips is bigger than the capacity of a single PE, we cap
@@ -63,10 +62,12 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 			}
 		}
 
-		getMipsMapRequested().put(vmUid, mipsShareRequested);
+		getMipsVmMapRequested().put(userId, vmId, mipsShareRequested);
 		setPesInUse(getPesInUse() + mipsShareRequested.size());
 
-		if (getVmsMigratingIn().contains(vmUid)) {
+		boolean migratingIn = isMigratingIn(userId, vmId);
+		boolean migratingOut = isMigratingOut(userId, vmId);
+		if (migratingIn) {
 			// the destination host only experience 10% of the migrating VM's MIPS
 			totalRequestedMips *= 0.1;
 		}
@@ -74,10 +75,10 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 		if (getAvailableMips() >= totalRequestedMips) {
 			List<Double> mipsShareAllocated = new ArrayList<Double>();
 			for (Double mipsRequested : mipsShareRequestedCapped) {
-				if (getVmsMigratingOut().contains(vmUid)) {
+				if (migratingOut) {
 					// performance degradation due to migration = 10% MIPS
 					mipsRequested *= 0.9;
-				} else if (getVmsMigratingIn().contains(vmUid)) {
+				} else if (migratingIn) {
 					// the destination host only experience 10% of the migrating VM's MIPS
 					mipsRequested *= 0.1;
 				}
@@ -85,7 +86,7 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 			}
 			//System.out.println("Setting MIPS of "+vmUid+" to "+mipsShareAllocated);
 
-			getMipsMap().put(vmUid, mipsShareAllocated);
+			getMipsVmMap().put(userId, vmId, mipsShareAllocated);
 			setAvailableMips(getAvailableMips() - totalRequestedMips);
 		} else {
 			redistributeMipsDueToOverSubscription();
@@ -106,12 +107,14 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 		// proportionally
 		double totalRequiredMipsByAllVms = 0;
 
-		Map<String, List<Double>> mipsMapCapped = new HashMap<String, List<Double>>();
-		for (Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()) {
+		VmMap<List<Double>> mipsMapRequested = getMipsVmMapRequested();
+		VmMap<List<Double>> mipsMapCapped = new VmMap<List<Double>>();
+		for (int i = 0; i < mipsMapRequested.size(); i++) {
 
 			double requiredMipsByThisVm = 0.0;
-			String vmId = entry.getKey();
-			List<Double> mipsShareRequested = entry.getValue();
+			int userId = mipsMapRequested.getUserId(i);
+			int vmId = mipsMapRequested.getVmId(i);
+			List<Double> mipsShareRequested = mipsMapRequested.getValue(i);
 			List<Double> mipsShareRequestedCapped = new ArrayList<Double>();
 			double peMips = getPeCapacity();
 			for (Double mips : mipsShareRequested) {
@@ -124,9 +127,9 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 				}
 			}
 
-			mipsMapCapped.put(vmId, mipsShareRequestedCapped);
+			mipsMapCapped.put(userId, vmId, mipsShareRequestedCapped);
 
-			if (getVmsMigratingIn().contains(entry.getKey())) {
+			if (isMigratingIn(userId, vmId)) {
 				// the destination host only experience 10% of the migrating VM's MIPS
 				requiredMipsByThisVm *= 0.1;
 			}
@@ -138,20 +141,23 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 		double scalingFactor = totalAvailableMips / totalRequiredMipsByAllVms;
 
 		// Clear the old MIPS allocation
-		getMipsMap().clear();
+		getMipsVmMap().clear();
 
 		// Update the actual MIPS allocated to the VMs
-		for (Entry<String, List<Double>> entry : mipsMapCapped.entrySet()) {
-			String vmUid = entry.getKey();
-			List<Double> requestedMips = entry.getValue();
+		for (int i = 0; i < mipsMapCapped.size(); i++) {
+			int userId = mipsMapCapped.getUserId(i);
+			int vmId = mipsMapCapped.getVmId(i);
+			List<Double> requestedMips = mipsMapCapped.getValue(i);
+			boolean migratingIn = isMigratingIn(userId, vmId);
+			boolean migratingOut = isMigratingOut(userId, vmId);
 			List<Double> updatedMipsAllocation = new ArrayList<Double>();
 			for (Double mips : requestedMips) {
-				if (getVmsMigratingOut().contains(vmUid)) {
+				if (migratingOut) {
 					// the original amount is scaled
 					mips *= scalingFactor;
 					// performance degradation due to migration = 10% MIPS
 					mips *= 0.9;
-				} else if (getVmsMigratingIn().contains(vmUid)) {
+				} else if (migratingIn) {
 					// the destination host only experiences 10% of the migrating VM's MIPS
 					mips *= 0.1;
 					// the final 10% of the requested MIPS are scaled
@@ -165,7 +171,7 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 
 			// add in the new map
 			//System.out.println("Setting MIPS of "+vmUid+" to "+updatedMipsAllocation);
-			getMipsMap().put(vmUid, updatedMipsAllocation);
+			getMipsVmMap().put(userId, vmId, updatedMipsAllocation);
 
 		}
 
@@ -0,0 +1,305 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim} as a calendar queue
+ * (R. Brown, 1988). Time is divided in days of fixed width, normally
+ * {@link CloudSim#getMinTimeBetweenEvents()}, and each day is mapped to one of a power-of-two number
+ * of buckets. Each bucket keeps its events sorted in firing order, so that the events of a day are
+ * served exactly as in a {@link SortedSetFutureQueue}. The number of buckets follows the size of the
+ * queue, keeping enqueue and dequeue in amortised O(1) when events are spread over many days.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim
+ * @see FutureQueue
+ */
+public class CalendarFutureQueue implements FutureQueue {
+
+	/** The minimal number of buckets. */
+	private static final int MIN_BUCKETS = 16;
+
+	/** The width of a day. */
+	private final double dayWidth;
+
+	/** The buckets. */
+	private Bucket[] buckets;
+
+	/** The mask used to map a day to its bucket. */
+	private int mask;
+
+	/** The day that is currently being served. */
+	private long currentDay = 0;
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion counter, used to break ties between events added with the same serial. */
+	private long insertions = 0;
+
+	/**
+	 * Creates a calendar queue.
+	 *
+	 * @param dayWidth the width of a day, in simulation time units
+	 */
+	public CalendarFutureQueue(double dayWidth) {
+		if (dayWidth <= 0 || Double.isInfinite(dayWidth) || Double.isNaN(dayWidth)) {
+			throw new IllegalArgumentException("The width of a calendar day should be positive, but is:" + dayWidth);
+		}
+		this.dayWidth = dayWidth;
+		allocate(MIN_BUCKETS);
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		Bucket bucket = findFirst();
+		return bucket == null ? null : bucket.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		Bucket bucket = findFirst();
+		if (bucket == null) {
+			return null;
+		}
+		SimEvent first = bucket.removeFirst();
+		size--;
+		shrinkIfNeeded();
+		return first;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		SimEvent[] events = new SimEvent[size];
+		int i = 0;
+		for (Bucket bucket : buckets) {
+			i = bucket.copyTo(events, i);
+		}
+		return new HeapFutureQueue.SnapshotIterator(this, events);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (!buckets[bucketOf(dayOf(event))].remove(event)) {
+			return false;
+		}
+		size--;
+		shrinkIfNeeded();
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		allocate(MIN_BUCKETS);
+		size = 0;
+		currentDay = 0;
+	}
+
+	/**
+	 * Inserts an event whose serial has already been set.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		event.setInsertionOrder(insertions++);
+		long day = dayOf(event);
+		if (size == 0 || day < currentDay) {
+			currentDay = day;
+		}
+		buckets[bucketOf(day)].add(event);
+		size++;
+		if (size > 2 * buckets.length) {
+			resize(buckets.length * 2);
+		}
+	}
+
+	/**
+	 * Finds the bucket holding the first event of the queue, and moves the current day to the day of
+	 * that event.
+	 *
+	 * @return the bucket, or <tt>null</tt> if the queue is empty
+	 */
+	private Bucket findFirst() {
+		if (size == 0) {
+			return null;
+		}
+		// scan one year, day by day
+		for (int i = 0; i < buckets.length; i++) {
+			Bucket bucket = buckets[bucketOf(currentDay)];
+			if (bucket.size > 0 && dayOf(bucket.first()) <= currentDay) {
+				return bucket;
+			}
+			currentDay++;
+		}
+		// the next event is more than a year away: look for it directly
+		SimEvent first = null;
+		for (Bucket bucket : buckets) {
+			if (bucket.size > 0 && (first == null || bucket.first().compareFiringOrder(first) < 0)) {
+				first = bucket.first();
+			}
+		}
+		currentDay = dayOf(first);
+		return buckets[bucketOf(currentDay)];
+	}
+
+	private void shrinkIfNeeded() {
+		if (buckets.length > MIN_BUCKETS && size < buckets.length / 2) {
+			resize(buckets.length / 2);
+		}
+	}
+
+	private void resize(int numBuckets) {
+		Bucket[] old = buckets;
+		allocate(numBuckets);
+		for (Bucket bucket : old) {
+			for (int i = bucket.head; i < bucket.tail; i++) {
+				SimEvent event = bucket.events[i];
+				// when the calendar shrinks, several old buckets merge into one, so the events are not
+				// appended in order: Bucket.add sorts them by insertion
+				buckets[bucketOf(dayOf(event))].add(event);
+			}
+		}
+	}
+
+	private void allocate(int numBuckets) {
+		buckets = new Bucket[numBuckets];
+		for (int i = 0; i < numBuckets; i++) {
+			buckets[i] = new Bucket();
+		}
+		mask = numBuckets - 1;
+	}
+
+	private long dayOf(SimEvent event) {
+		return (long) Math.floor(event.eventTime() / dayWidth);
+	}
+
+	private int bucketOf(long day) {
+		return (int) (day & mask);
+	}
+
+	/**
+	 * A bucket of the calendar. The events are kept sorted in firing order between <tt>head</tt>
+	 * (inclusive) and <tt>tail</tt> (exclusive), so that both removing the first event and appending
+	 * the most recently scheduled one are O(1).
+	 */
+	private static class Bucket {
+
+		private SimEvent[] events = new SimEvent[4];
+
+		private int head = 0;
+
+		private int tail = 0;
+
+		private int size = 0;
+
+		SimEvent first() {
+			return events[head];
+		}
+
+		SimEvent removeFirst() {
+			SimEvent first = events[head];
+			events[head++] = null;
+			size--;
+			if (size == 0) {
+				head = 0;
+				tail = 0;
+			}
+			return first;
+		}
+
+		void add(SimEvent event) {
+			if (tail == events.length) {
+				if (head > events.length / 2) {
+					System.arraycopy(events, head, events, 0, size);
+					Arrays.fill(events, size, tail, null);
+				} else {
+					SimEvent[] grown = new SimEvent[events.length * 2];
+					System.arraycopy(events, head, grown, 0, size);
+					events = grown;
+				}
+				head = 0;
+				tail = size;
+			}
+			int pos = tail;
+			while (pos > head && events[pos - 1].compareFiringOrder(event) > 0) {
+				events[pos] = events[pos - 1];
+				pos--;
+			}
+			events[pos] = event;
+			tail++;
+			size++;
+		}
+
+		boolean remove(SimEvent event) {
+			int low = head;
+			int high = tail - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				int cmp = events[mid].compareFiringOrder(event);
+				if (cmp < 0) {
+					low = mid + 1;
+				} else if (cmp > 0) {
+					high = mid - 1;
+				} else if (events[mid] != event) {
+					return false;
+				} else {
+					System.arraycopy(events, mid + 1, events, mid, tail - mid - 1);
+					events[--tail] = null;
+					size--;
+					if (size == 0) {
+						head = 0;
+						tail = 0;
+					}
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int copyTo(SimEvent[] target, int offset) {
+			System.arraycopy(events, head, target, offset, size);
+			return offset + size;
+		}
+
+	}
+
+}
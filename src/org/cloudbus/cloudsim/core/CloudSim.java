@@ -8,16 +8,10 @@
 
 package org.cloudbus.cloudsim.core;
 
-import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
-import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -29,6 +23,10 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
  * network. Later, nodes in such file are mapped to CloudSim entities. Delay calculated from the
  * BRITE model are added to the messages send through CloudSim. Messages using the old model are
  * converted to the apropriate methods with the correct parameters.
+ * <p>
+ * The state of a simulation is kept in a {@link SimulationContext}. The static methods of this
+ * class act on the context of the calling thread, so that independent simulations can run at the
+ * same time on different threads.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -37,62 +35,123 @@ import org.cloudbus.cloudsim.core.predicates.PredicateNone;
 public class CloudSim {
 
 	/** The Constant CLOUDSIM_VERSION_STRING. */
-	private static final String CLOUDSIM_VERSION_STRING = "3.0";
+	static final String CLOUDSIM_VERSION_STRING = "3.0";
 
-	/** The id of CIS entity. */
-	private static int cisId = -1;
+	/** Future queue backed by a {@link java.util.TreeSet}, see {@link SortedSetFutureQueue}. */
+	public static final int FUTURE_QUEUE_SORTED_SET = 0;
 
-	/** The id of CloudSimShutdown entity. */
-	@SuppressWarnings("unused")
-	private static int shutdownId = -1;
+	/** Future queue backed by an array heap, see {@link HeapFutureQueue}. */
+	public static final int FUTURE_QUEUE_HEAP = 1;
 
-	/** The CIS object. */
-	private static CloudInformationService cis = null;
+	/** Future queue bucketed by the minimal time between events, see {@link CalendarFutureQueue}. */
+	public static final int FUTURE_QUEUE_CALENDAR = 2;
 
-	/** The Constant NOT_FOUND. */
-	private static final int NOT_FOUND = -1;
+	// The two standard predicates
 
-	/** The trace flag. */
-	@SuppressWarnings("unused")
-	private static boolean traceFlag = false;
+	/** A standard predicate that matches any event. */
+	public final static PredicateAny SIM_ANY = new PredicateAny();
 
-	/** The calendar. */
-	private static Calendar calendar = null;
+	/** A standard predicate that does not match any events. */
+	public final static PredicateNone SIM_NONE = new PredicateNone();
 
-	/** The termination time. */
-	private static double terminateAt = -1;
+	/**
+	 * The future event queue of the simulation initialised last.
+	 * 
+	 * @deprecated the future queue belongs to the {@link SimulationContext} of each simulation, so
+	 *             this field is only right while a single simulation runs at a time
+	 */
+	@Deprecated
+	protected static FutureQueue future;
 
-	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
-	private static double minTimeBetweenEvents = 0.1;
-	
 	/**
-	 * Initialises all the common attributes.
+	 * The deferred events of the simulation initialised last, which are now kept by their
+	 * destination entities.
 	 * 
-	 * @param _calendar the _calendar
-	 * @param _traceFlag the _trace flag
-	 * @param numUser number of users
-	 * @throws Exception This happens when creating this entity before initialising CloudSim package
-	 *             or this entity name is <tt>null</tt> or empty
-	 * @pre $none
-	 * @post $none
+	 * @deprecated the deferred queues belong to the entities of each simulation, so this field is
+	 *             only right while a single simulation runs at a time
 	 */
-	private static void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
-			throws Exception {
-		initialize();
-		// NOTE: the order for the below 3 lines are important
-		traceFlag = _traceFlag;
+	@Deprecated
+	protected static DeferredQueue deferred;
+
+	/** The context of the simulation of every thread. */
+	private static final ThreadLocal<SimulationContext> contexts = new ThreadLocal<SimulationContext>();
 
-		// Set the current Wall clock time as the starting time of
-		// simulation
-		if (_calendar == null) {
-			calendar = Calendar.getInstance();
+	/**
+	 * Gets the context of the simulation of the calling thread, on which all the static methods of
+	 * this class act. Every call to one of the <tt>init</tt> methods gives the thread a new context,
+	 * with the settings of the previous one, so that a simulation never sees the state of the
+	 * previous simulations of the thread.
+	 * 
+	 * @return the context
+	 */
+	public static SimulationContext getSimulationContext() {
+		SimulationContext context = contexts.get();
+		if (context == null) {
+			context = new SimulationContext();
+			contexts.set(context);
+		}
+		return context;
+	}
+
+	/**
+	 * Sets the context of the simulation of the calling thread, for instance to inspect from
+	 * another thread a simulation that has been initialised elsewhere.
+	 * 
+	 * @param context the context, or <tt>null</tt> to give the thread a new context on next use
+	 */
+	public static void setSimulationContext(SimulationContext context) {
+		if (context == null) {
+			contexts.remove();
 		} else {
-			calendar = _calendar;
+			contexts.set(context);
 		}
+	}
+
+	/**
+	 * Sets the context of the calling thread, returning the previous one.
+	 * 
+	 * @param context the context, or <tt>null</tt>
+	 * @return the previous context, or <tt>null</tt> if the thread had none
+	 */
+	static SimulationContext swapSimulationContext(SimulationContext context) {
+		SimulationContext previous = contexts.get();
+		setSimulationContext(context);
+		return previous;
+	}
 
-		// creates a CloudSimShutdown object
-		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
-		shutdownId = shutdown.getId();
+	/**
+	 * Gives the calling thread a new context, with the settings of its current one.
+	 * 
+	 * @return the new context
+	 */
+	private static SimulationContext newSimulationContext() {
+		SimulationContext context = new SimulationContext(getSimulationContext());
+		contexts.set(context);
+		return context;
+	}
+
+	/**
+	 * Initialise the simulation for stand alone simulations.
+	 * 
+	 * @deprecated the <tt>init</tt> methods give the thread a new context; this method resets the
+	 *             state of the current one
+	 */
+	@Deprecated
+	protected static void initialize() {
+		getSimulationContext().initialize();
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 * 
+	 * @param e The new entity
+	 * @deprecated use {@link #addEntity(SimEntity)}, which adds the entity dynamically while the
+	 *             simulation is running
+	 */
+	@Deprecated
+	protected static void addEntityDynamically(SimEntity e) {
+		getSimulationContext().addEntityDynamically(e);
 	}
 
 	/**
@@ -117,21 +176,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag) {
-		try {
-			initCommonVariable(cal, traceFlag, numUser);
-
-			// create a GIS object
-			cis = new CloudInformationService("CloudInformationService");
-
-			// set all the above entity IDs
-			cisId = cis.getId();
-		} catch (IllegalArgumentException s) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(s.getMessage());
-		} catch (Exception e) {
-			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
-			Log.printLine(e.getMessage());
-		}
+		newSimulationContext().init(numUser, cal, traceFlag);
 	}
 
 	/**
@@ -158,16 +203,114 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
-	    if (periodBetweenEvents <= 0) {
-		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
-	    }
-	    
-	    init(numUser, cal, traceFlag);
-	    minTimeBetweenEvents = periodBetweenEvents;
+		newSimulationContext().init(numUser, cal, traceFlag, periodBetweenEvents);
+	}
+
+	/**
+	 * Initialises CloudSim parameters, selecting the implementation of the future event queue. This
+	 * method should be called before creating any entities. The selected queue type is kept for the
+	 * subsequent simulations.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation. If it is <tt>null</tt>, then the time will be
+	 *            taken from <tt>Calendar.getInstance()</tt>
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events. Events within shorter periods
+	 * after the last event are discarded. It is also the width of a day of the calendar queue.
+	 * @param queueType one of {@link #FUTURE_QUEUE_SORTED_SET}, {@link #FUTURE_QUEUE_HEAP} or
+	 *            {@link #FUTURE_QUEUE_CALENDAR}
+	 * @see #init(int, Calendar, boolean, double)
+	 * @pre numUser >= 0
+	 * @post $none
+	 */
+	public static void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents, int queueType) {
+		newSimulationContext().init(numUser, cal, traceFlag, periodBetweenEvents, queueType);
+	}
+
+	/**
+	 * Selects the implementation of the future event queue used by the next simulations. All the
+	 * implementations deliver the events in the same order.
+	 * 
+	 * @param queueType one of {@link #FUTURE_QUEUE_SORTED_SET}, {@link #FUTURE_QUEUE_HEAP} or
+	 *            {@link #FUTURE_QUEUE_CALENDAR}
+	 */
+	public static void setFutureQueueType(int queueType) {
+		getSimulationContext().setFutureQueueType(queueType);
+	}
+
+	/**
+	 * Gets the implementation of the future event queue used by the simulations.
+	 * 
+	 * @return the future queue type
+	 */
+	public static int getFutureQueueType() {
+		return getSimulationContext().getFutureQueueType();
+	}
+
+	/**
+	 * Selects how entities are dispatched at each clock tick. When enabled (the default), only the
+	 * entities that received an event or whose hold expired since the previous tick are run, so a
+	 * tick costs O(events at this time) instead of O(all entities). When disabled, every runnable
+	 * entity is run at every tick, as needed by entities that override {@link SimEntity#run()} to
+	 * do work without receiving events.
+	 * 
+	 * @param enabled <tt>true</tt> to run only the entities that have something to process
+	 */
+	public static void setEventDrivenDispatch(boolean enabled) {
+		getSimulationContext().setEventDrivenDispatch(enabled);
+	}
+
+	/**
+	 * Checks whether only the entities that received an event are run at each clock tick.
+	 * 
+	 * @return <tt>true</tt> if the dispatch is event driven
+	 */
+	public static boolean isEventDrivenDispatch() {
+		return getSimulationContext().isEventDrivenDispatch();
 	}
-	
-	
-	
+
+	/**
+	 * Selects the parallel execution of the clock ticks. The entities run at a tick are grouped by
+	 * partition, and the partitions are run concurrently on the pool, each in id order. The events
+	 * sent, and the actions passed to {@link #runOrdered(Runnable)}, by every entity are kept aside
+	 * until all the partitions are done, and then applied in id order. Since no entity can observe
+	 * the events sent at the tick it is running, the simulation evolves exactly as with sequential
+	 * ticks, provided the partitioner follows the contract of {@link EntityPartitioner}. The ids that
+	 * entities take from an {@link IdSequence} during the tick are handed out with the ordered
+	 * actions, so they are those of sequential ticks too. Random numbers drawn from a generator
+	 * shared by several partitions, such as Math.random(), are however drawn in thread order. The
+	 * setting is kept for the subsequent simulations; the pool is not shut down by CloudSim.
+	 * 
+	 * @param pool the pool, or <tt>null</tt> to run the clock ticks sequentially
+	 * @param entityPartitioner the partitioner, or <tt>null</tt> to run the clock ticks sequentially
+	 */
+	public static void setParallelExecution(ForkJoinPool pool, EntityPartitioner entityPartitioner) {
+		getSimulationContext().setParallelExecution(pool, entityPartitioner);
+	}
+
+	/**
+	 * Checks whether the clock ticks are run in parallel.
+	 * 
+	 * @return <tt>true</tt> if the clock ticks are run in parallel
+	 */
+	public static boolean isParallelExecution() {
+		return getSimulationContext().isParallelExecution();
+	}
+
+	/**
+	 * Runs an action that changes state shared between entities, such as global statistics. When
+	 * called by an entity during a parallel clock tick, the action is run at the end of the tick,
+	 * after the actions of the entities with a lower id and in the order in which they were passed,
+	 * which is the order they would have been run in by a sequential tick. Otherwise the action is
+	 * run immediately. The action sees the clock of the tick, but must not rely on the effects of
+	 * other entities at the same tick.
+	 * 
+	 * @param action the action
+	 */
+	public static void runOrdered(Runnable action) {
+		getSimulationContext().runOrdered(action);
+	}
+
 	/**
 	 * Starts the execution of CloudSim simulation. It waits for complete execution of all entities,
 	 * i.e. until all entities threads reach non-RUNNABLE state or there are no more events in the
@@ -183,23 +326,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static double startSimulation() throws NullPointerException {
-		Log.printLine("Starting CloudSim version " + CLOUDSIM_VERSION_STRING);
-		try {
-			double clock = run();
-
-			// reset all static variables
-			cisId = -1;
-			shutdownId = -1;
-			cis = null;
-			calendar = null;
-			traceFlag = false;
-
-			return clock;
-		} catch (IllegalArgumentException e) {
-			e.printStackTrace();
-			throw new NullPointerException("CloudSim.startCloudSimulation() :"
-					+ " Error - you haven't initialized CloudSim.");
-		}
+		return getSimulationContext().startSimulation();
 	}
 
 	/**
@@ -215,12 +342,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static void stopSimulation() throws NullPointerException {
-		try {
-			runStop();
-		} catch (IllegalArgumentException e) {
-			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
-					+ "Error - can't stop Cloud Simulation.");
-		}
+		getSimulationContext().stopSimulation();
 	}
 
 	/**
@@ -229,9 +351,7 @@ public class CloudSim {
 	 * @return true, if successful; false otherwise.
 	 */
 	public static boolean terminateSimulation() {
-		running = false;
-		printMessage("Simulation: Reached termination time.");
-		return true;
+		return getSimulationContext().terminateSimulation();
 	}
 
 	/**
@@ -241,21 +361,15 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean terminateSimulation(double time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			terminateAt = time;
-		}
-		return true;
+		return getSimulationContext().terminateSimulation(time);
 	}
 
-	
 	/**
 	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
 	 * @return the minimum time between events.
 	 */
 	public static double getMinTimeBetweenEvents() {
-	    return minTimeBetweenEvents;
+		return getSimulationContext().getMinTimeBetweenEvents();
 	}
 
 	/**
@@ -268,13 +382,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static Calendar getSimulationCalendar() {
-		// make a new copy
-		Calendar clone = calendar;
-		if (calendar != null) {
-			clone = (Calendar) calendar.clone();
-		}
-
-		return clone;
+		return getSimulationContext().getSimulationCalendar();
 	}
 
 	/**
@@ -285,7 +393,7 @@ public class CloudSim {
 	 * @post $result >= -1
 	 */
 	public static int getCloudInfoServiceEntityId() {
-		return cisId;
+		return getSimulationContext().getCloudInfoServiceEntityId();
 	}
 
 	/**
@@ -298,78 +406,43 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static List<Integer> getCloudResourceList() {
-		if (cis == null) {
-			return null;
-		}
-
-		return cis.getList();
+		return getSimulationContext().getCloudResourceList();
 	}
 
-	// ======== SIMULATION METHODS ===============//
-
-	/** The entities. */
-	private static List<SimEntity> entities;
-
-	/** The future event queue. */
-	protected static FutureQueue future;
-
-	/** The deferred event queue. */
-	protected static DeferredQueue deferred;
-
-	/** The simulation clock. */
-	private static double clock;
-
-	/** Flag for checking if the simulation is running. */
-	private static boolean running;
-
-	/** The entities by name. */
-	private static Map<String, SimEntity> entitiesByName;
-
-	// The predicates used in entity wait methods
-	/** The wait predicates. */
-	private static Map<Integer, Predicate> waitPredicates;
-
-	/** The paused. */
-	private static boolean paused = false;
-
-	/** The pause at. */
-	private static long pauseAt = -1;
-
-	/** The abrupt terminate. */
-	private static boolean abruptTerminate = false;
-
 	/**
-	 * Initialise the simulation for stand alone simulations. This function should be called at the
-	 * start of the simulation.
+	 * Get the current simulation time.
+	 * 
+	 * @return the simulation time
 	 */
-	protected static void initialize() {
-		Log.printLine("Initialising...");
-		entities = new ArrayList<SimEntity>();
-		entitiesByName = new LinkedHashMap<String, SimEntity>();
-		future = new FutureQueue();
-		deferred = new DeferredQueue();
-		waitPredicates = new HashMap<Integer, Predicate>();
-		clock = 0;
-		running = false;
+	public static double clock() {
+		return getSimulationContext().clock();
 	}
 
-	// The two standard predicates
-
-	/** A standard predicate that matches any event. */
-	public final static PredicateAny SIM_ANY = new PredicateAny();
-
-	/** A standard predicate that does not match any events. */
-	public final static PredicateNone SIM_NONE = new PredicateNone();
+	/**
+	 * Get the number of events processed so far, that is taken from the future queue.
+	 * 
+	 * @return the number of events
+	 */
+	public static long getNumProcessedEvents() {
+		return getSimulationContext().getNumProcessedEvents();
+	}
 
-	// Public access methods
+	/**
+	 * Get the listener of the events processed by the current simulation.
+	 * 
+	 * @return the listener, null if none
+	 */
+	public static SimEventListener getEventListener() {
+		return getSimulationContext().getEventListener();
+	}
 
 	/**
-	 * Get the current simulation time.
+	 * Set the listener of the events processed by the current simulation.
 	 * 
-	 * @return the simulation time
+	 * @param eventListener the listener, null for none
 	 */
-	public static double clock() {
-		return clock;
+	public static void setEventListener(SimEventListener eventListener) {
+		getSimulationContext().setEventListener(eventListener);
 	}
 
 	/**
@@ -378,7 +451,7 @@ public class CloudSim {
 	 * @return The number of entities
 	 */
 	public static int getNumEntities() {
-		return entities.size();
+		return getSimulationContext().getNumEntities();
 	}
 
 	/**
@@ -388,7 +461,7 @@ public class CloudSim {
 	 * @return The entity, or if it could not be found
 	 */
 	public static SimEntity getEntity(int id) {
-		return entities.get(id);
+		return getSimulationContext().getEntity(id);
 	}
 
 	/**
@@ -398,7 +471,7 @@ public class CloudSim {
 	 * @return The entity
 	 */
 	public static SimEntity getEntity(String name) {
-		return entitiesByName.get(name);
+		return getSimulationContext().getEntity(name);
 	}
 
 	/**
@@ -408,12 +481,7 @@ public class CloudSim {
 	 * @return The entity's unique id number
 	 */
 	public static int getEntityId(String name) {
-		SimEntity obj = entitiesByName.get(name);
-		if (obj == null) {
-			return NOT_FOUND;
-		} else {
-			return obj.getId();
-		}
+		return getSimulationContext().getEntityId(name);
 	}
 
 	/**
@@ -425,13 +493,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(int entityID) {
-		try {
-			return getEntity(entityID).getName();
-		} catch (IllegalArgumentException e) {
-			return null;
-		} catch (Exception e) {
-			return null;
-		}
+		return getSimulationContext().getEntityName(entityID);
 	}
 
 	/**
@@ -443,10 +505,7 @@ public class CloudSim {
 	 * @post $none
 	 */
 	public static String getEntityName(Integer entityID) {
-		if (entityID != null) {
-			return getEntityName(entityID.intValue());
-		}
-		return null;
+		return getSimulationContext().getEntityName(entityID);
 	}
 
 	/**
@@ -455,15 +514,9 @@ public class CloudSim {
 	 * @return the entity iterator
 	 */
 	public static List<SimEntity> getEntityList() {
-		// create a new list to prevent the user from changing
-		// the list of entities used by Simulation
-		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
-		return list;
+		return getSimulationContext().getEntityList();
 	}
 
-	// Public update methods
-
 	/**
 	 * Add a new entity to the simulation. This is present for compatibility with existing
 	 * simulations since entities are automatically added to the simulation upon instantiation.
@@ -471,33 +524,7 @@ public class CloudSim {
 	 * @param e The new entity
 	 */
 	public static void addEntity(SimEntity e) {
-		SimEvent evt;
-		if (running) {
-			// Post an event to make this entity
-			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
-			future.addEvent(evt);
-		}
-		if (e.getId() == -1) { // Only add once!
-			int id = entities.size();
-			e.setId(id);
-			entities.add(e);
-			entitiesByName.put(e.getName(), e);
-		}
-	}
-
-	/**
-	 * Internal method used to add a new entity to the simulation when the simulation is running. It
-	 * should <b>not</b> be called from user simulations.
-	 * 
-	 * @param e The new entity
-	 */
-	protected static void addEntityDynamically(SimEntity e) {
-		if (e == null) {
-			throw new IllegalArgumentException("Adding null entity.");
-		} else {
-			printMessage("Adding: " + e.getName());
-		}
-		e.startEntity();
+		getSimulationContext().addEntity(e);
 	}
 
 	/**
@@ -507,58 +534,14 @@ public class CloudSim {
 	 * @return true, if successful otherwise
 	 */
 	public static boolean runClockTick() {
-		SimEntity ent;
-		boolean queue_empty;
-		
-		int entities_size = entities.size();
-
-		for (int i = 0; i < entities_size; i++) {
-			ent = entities.get(i);
-			if (ent.getState() == SimEntity.RUNNABLE) {
-				ent.run();
-			}
-		}
-				
-		// If there are more future events then deal with them
-		if (future.size() > 0) {
-			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
-			queue_empty = false;
-			SimEvent first = fit.next();
-			processEvent(first);
-			future.remove(first);
-
-			fit = future.iterator();
-
-			// Check if next events are at same time...
-			boolean trymore = fit.hasNext();
-			while (trymore) {
-				SimEvent next = fit.next();
-				if (next.eventTime() == first.eventTime()) {
-					processEvent(next);
-					toRemove.add(next);
-					trymore = fit.hasNext();
-				} else {
-					trymore = false;
-				}
-			}
-
-			future.removeAll(toRemove);
-
-		} else {
-			queue_empty = true;
-			running = false;
-			printMessage("Simulation: No more future events");
-		}
-
-		return queue_empty;
+		return getSimulationContext().runClockTick();
 	}
 
 	/**
 	 * Internal method used to stop the simulation. This method should <b>not</b> be used directly.
 	 */
 	public static void runStop() {
-		printMessage("Simulation completed.");
+		getSimulationContext().runStop();
 	}
 
 	/**
@@ -568,9 +551,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getSimulationContext().hold(src, delay);
 	}
 
 	/**
@@ -580,9 +561,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
-		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
-		future.addEvent(e);
-		entities.get(src).setState(SimEntity.HOLDING);
+		getSimulationContext().pause(src, delay);
 	}
 
 	/**
@@ -595,12 +574,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void send(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEvent(e);
+		getSimulationContext().send(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -613,12 +587,7 @@ public class CloudSim {
 	 * @param data the data
 	 */
 	public static void sendFirst(int src, int dest, double delay, int tag, Object data) {
-		if (delay < 0) {
-			throw new IllegalArgumentException("Send delay can't be negative.");
-		}
-
-		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
-		future.addEventFirst(e);
+		getSimulationContext().sendFirst(src, dest, delay, tag, data);
 	}
 
 	/**
@@ -630,51 +599,30 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
-		entities.get(src).setState(SimEntity.WAITING);
-		if (p != SIM_ANY) {
-			// If a predicate has been used store it in order to check it
-			waitPredicates.put(src, p);
-		}
+		getSimulationContext().wait(src, p);
 	}
 
 	/**
-	 * Checks if events for a specific entity are present in the deferred event queue.
+	 * Checks if events for a specific entity are present in the deferred event queue. Only the
+	 * deferred queue of the entity is searched.
 	 * 
 	 * @param d the d
 	 * @param p the p
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
-		int count = 0;
-		SimEvent event;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			event = iterator.next();
-			if ((event.getDestination() == d) && (p.match(event))) {
-				count++;
-			}
-		}
-		return count;
+		return getSimulationContext().waiting(d, p);
 	}
 
 	/**
-	 * Selects an event matching a predicate.
+	 * Selects an event matching a predicate from the deferred queue of an entity.
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent select(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				iterator.remove();
-				break;
-			}
-		}
-		return ev;
+		return getSimulationContext().select(src, p);
 	}
 
 	/**
@@ -682,18 +630,10 @@ public class CloudSim {
 	 * 
 	 * @param src the src
 	 * @param p the p
-	 * @return the sim event
+	 * @return the sim event, or <tt>null</tt> if no event matches
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iterator = deferred.iterator();
-		while (iterator.hasNext()) {
-			ev = iterator.next();
-			if (ev.getDestination() == src && p.match(ev)) {
-				break;
-			}
-		}
-		return ev;
+		return getSimulationContext().findFirstDeferred(src, p);
 	}
 
 	/**
@@ -704,17 +644,7 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
-		SimEvent ev = null;
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-				break;
-			}
-		}
-
-		return ev;
+		return getSimulationContext().cancel(src, p);
 	}
 
 	/**
@@ -726,82 +656,21 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
-		SimEvent ev = null;
-		int previousSize = future.size();
-		Iterator<SimEvent> iter = future.iterator();
-		while (iter.hasNext()) {
-			ev = iter.next();
-			if (ev.getSource() == src && p.match(ev)) {
-				iter.remove();
-			}
-		}
-		return previousSize < future.size();
+		return getSimulationContext().cancelAll(src, p);
 	}
 
-	//
-	// Private internal methods
-	//
-
 	/**
-	 * Processes an event.
+	 * Removes all the events scheduled by an entity with a given tag from the future event queue.
+	 * This is the same as {@link #cancelAll(int, Predicate)} with a {@link PredicateType}, without
+	 * creating the predicate. The events are looked up in an index by source and tag, so the cost
+	 * does not depend on the number of other events in the queue.
 	 * 
-	 * @param e the e
+	 * @param src the id of the entity that scheduled the events
+	 * @param tag the tag of the events
+	 * @return true, if at least one event has been cancelled
 	 */
-	private static void processEvent(SimEvent e) {
-		int dest, src;
-		SimEntity dest_ent;
-		// Update the system's clock
-		if (e.eventTime() < clock) {
-			throw new IllegalArgumentException("Past event detected.");
-		}
-		clock = e.eventTime();
-
-		// Ok now process it
-		switch (e.getType()) {
-			case SimEvent.ENULL:
-				throw new IllegalArgumentException("Event has a null type.");
-
-			case SimEvent.CREATE:
-				SimEntity newe = (SimEntity) e.getData();
-				addEntityDynamically(newe);
-				break;
-
-			case SimEvent.SEND:
-				// Check for matching wait
-				dest = e.getDestination();
-				if (dest < 0) {
-					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
-				} else {
-					int tag = e.getTag();
-					dest_ent = entities.get(dest);
-					if (dest_ent.getState() == SimEntity.WAITING) {
-						Integer destObj = Integer.valueOf(dest);
-						Predicate p = waitPredicates.get(destObj);
-						if ((p == null) || (tag == 9999) || (p.match(e))) {
-							dest_ent.setEventBuffer((SimEvent) e.clone());
-							dest_ent.setState(SimEntity.RUNNABLE);
-							waitPredicates.remove(destObj);
-						} else {
-							deferred.addEvent(e);
-						}
-					} else {
-						deferred.addEvent(e);
-					}
-				}
-				break;
-
-			case SimEvent.HOLD_DONE:
-				src = e.getSource();
-				if (src < 0) {
-					throw new IllegalArgumentException("Null entity holding.");
-				} else {
-					entities.get(src).setState(SimEntity.RUNNABLE);
-				}
-				break;
-
-			default:
-				break;
-		}
+	public static boolean cancelAll(int src, int tag) {
+		return getSimulationContext().cancelAll(src, tag);
 	}
 
 	/**
@@ -809,13 +678,7 @@ public class CloudSim {
 	 * simulations.
 	 */
 	public static void runStart() {
-		running = true;
-		// Start all the entities
-		for (SimEntity ent : entities) {
-			ent.startEntity();
-		}
-
-		printMessage("Entities started.");
+		getSimulationContext().runStart();
 	}
 
 	/**
@@ -825,7 +688,7 @@ public class CloudSim {
 	 * @return if the simulation is still running, otherwise
 	 */
 	public static boolean running() {
-		return running;
+		return getSimulationContext().running();
 	}
 
 	/**
@@ -834,8 +697,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation() {
-		paused = true;
-		return paused;
+		return getSimulationContext().pauseSimulation();
 	}
 
 	/**
@@ -845,12 +707,7 @@ public class CloudSim {
 	 * @return true, if successful otherwise.
 	 */
 	public static boolean pauseSimulation(long time) {
-		if (time <= clock) {
-			return false;
-		} else {
-			pauseAt = time;
-		}
-		return true;
+		return getSimulationContext().pauseSimulation(time);
 	}
 
 	/**
@@ -859,13 +716,7 @@ public class CloudSim {
 	 * @return if the simulation has been restarted or or otherwise.
 	 */
 	public static boolean resumeSimulation() {
-		paused = false;
-
-		if (pauseAt <= clock) {
-			pauseAt = -1;
-		}
-
-		return !paused;
+		return getSimulationContext().resumeSimulation();
 	}
 
 	/**
@@ -875,43 +726,7 @@ public class CloudSim {
 	 * @return the double last clock value
 	 */
 	public static double run() {
-		if (!running) {
-			runStart();
-		}
-		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
-			}
-
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
-
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
-
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
-		double clock = clock();
-
-		finishSimulation();
-		runStop();
-
-		return clock;
+		return getSimulationContext().run();
 	}
 
 	/**
@@ -919,48 +734,14 @@ public class CloudSim {
 	 * in user simulations.
 	 */
 	public static void finishSimulation() {
-		// Allow all entities to exit their body method
-		if (!abruptTerminate) {
-			for (SimEntity ent : entities) {
-				if (ent.getState() != SimEntity.FINISHED) {
-					ent.run();
-				}
-			}
-		}
-
-		for (SimEntity ent : entities) {
-			ent.shutdownEntity();
-		}
-
-		// reset all static variables
-		// Private data members
-		entities = null;
-		entitiesByName = null;
-		future = null;
-		deferred = null;
-		clock = 0L;
-		running = false;
-
-		waitPredicates = null;
-		paused = false;
-		pauseAt = -1;
-		abruptTerminate = false;
+		getSimulationContext().finishSimulation();
 	}
 
 	/**
 	 * Abruptally terminate.
 	 */
 	public static void abruptallyTerminate() {
-		abruptTerminate = true;
-	}
-
-	/**
-	 * Prints a message about the progress of the simulation.
-	 * 
-	 * @param message the message
-	 */
-	private static void printMessage(String message) {
-		Log.printLine(message);
+		getSimulationContext().abruptallyTerminate();
 	}
 
 	/**
@@ -969,7 +750,7 @@ public class CloudSim {
 	 * @return true, if is paused
 	 */
 	public static boolean isPaused() {
-		return paused;
+		return getSimulationContext().isPaused();
 	}
 
 }
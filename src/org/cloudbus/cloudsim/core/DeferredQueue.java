@@ -10,22 +10,24 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.List;
 import java.util.ListIterator;
 
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
+ * This class implements the deferred event queue used by {@link CloudSim}. The event queue uses a
+ * linked list to store the events. Every {@link SimEntity} owns one, holding only the events
+ * delivered to that entity, so that selecting an event never looks at the events of other entities.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
- * @see Simulation
+ * @see CloudSim
  * @see SimEvent
  */
 public class DeferredQueue {
 
 	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	private final LinkedList<SimEvent> list = new LinkedList<SimEvent>();
 
 	/** The max time. */
 	private double maxTime = -1;
@@ -60,6 +62,70 @@ public class DeferredQueue {
 		list.add(newEvent);
 	}
 
+	/**
+	 * Removes and returns the first event matching a predicate.
+	 * 
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent select(Predicate p) {
+		if (list.isEmpty()) {
+			return null;
+		}
+		if (p == CloudSim.SIM_ANY) {
+			return list.removeFirst();
+		}
+		Iterator<SimEvent> iterator = list.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (p.match(event)) {
+				iterator.remove();
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the first event matching a predicate, without removing it.
+	 * 
+	 * @param p the predicate
+	 * @return the event, or <tt>null</tt> if no event matches
+	 */
+	public SimEvent findFirst(Predicate p) {
+		if (list.isEmpty()) {
+			return null;
+		}
+		if (p == CloudSim.SIM_ANY) {
+			return list.getFirst();
+		}
+		for (SimEvent event : list) {
+			if (p.match(event)) {
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Counts the events matching a predicate.
+	 * 
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(Predicate p) {
+		if (p == CloudSim.SIM_ANY) {
+			return list.size();
+		}
+		int count = 0;
+		for (SimEvent event : list) {
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	/**
 	 * Returns an iterator to the events in the queue.
 	 * 
@@ -83,6 +149,7 @@ public class DeferredQueue {
 	 */
 	public void clear() {
 		list.clear();
+		maxTime = -1;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,41 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * This interface assigns entities to partitions for the parallel execution of a clock tick, see
+ * {@link CloudSim#setParallelExecution(java.util.concurrent.ForkJoinPool, EntityPartitioner)}. The
+ * entities of a partition are run one after the other, in id order, on the same thread; different
+ * partitions are run concurrently. Entities of different partitions must therefore not read or
+ * change each other's state while they run, must change state shared with other entities only
+ * through {@link CloudSim#runOrdered(Runnable)}, and must take shared ids through
+ * {@link IdSequence#next(IdSequence.Receiver)}. Entities that do not satisfy this, such as entities
+ * that inspect other entities, must be assigned to {@link #EXCLUSIVE}.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim#setParallelExecution(java.util.concurrent.ForkJoinPool, EntityPartitioner)
+ */
+public interface EntityPartitioner {
+
+	/**
+	 * The partition of the entities that are run alone, after all the entities with a lower id have
+	 * been run and their effects applied, exactly as in a sequential clock tick.
+	 */
+	int EXCLUSIVE = -1;
+
+	/**
+	 * Gets the partition of an entity. It is called at every clock tick in which the entity is run,
+	 * and always from the thread running the simulation.
+	 *
+	 * @param entity the entity
+	 * @return the partition, a non-negative number, or {@link #EXCLUSIVE}
+	 */
+	int getPartition(SimEntity entity);
+
+}
@@ -0,0 +1,250 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim} as a d-ary min-heap stored
+ * in a flat array. Every event remembers its slot in the array, so that arbitrary events can be
+ * removed in O(log n) without searching. Events are ordered exactly as in a
+ * {@link SortedSetFutureQueue}.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim
+ * @see FutureQueue
+ */
+public class HeapFutureQueue implements FutureQueue {
+
+	/** The default arity of the heap. */
+	public static final int DEFAULT_ARITY = 4;
+
+	/** The initial capacity of the heap. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The number of children of every node. */
+	private final int arity;
+
+	/** The heap. */
+	private SimEvent[] heap = new SimEvent[INITIAL_CAPACITY];
+
+	/** The number of events in the heap. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/** The insertion counter, used to break ties between events added with the same serial. */
+	private long insertions = 0;
+
+	/**
+	 * Creates a 4-ary heap.
+	 */
+	public HeapFutureQueue() {
+		this(DEFAULT_ARITY);
+	}
+
+	/**
+	 * Creates a heap with the given number of children per node.
+	 *
+	 * @param arity the number of children per node, at least 2
+	 */
+	public HeapFutureQueue(int arity) {
+		if (arity < 2) {
+			throw new IllegalArgumentException("The arity of the heap should be at least 2, but is:" + arity);
+		}
+		this.arity = arity;
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		insert(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		insert(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return size == 0 ? null : heap[0];
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (size == 0) {
+			return null;
+		}
+		SimEvent first = heap[0];
+		removeAt(0);
+		return first;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return new SnapshotIterator(this, Arrays.copyOf(heap, size));
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		int index = event.getQueueIndex();
+		if (index < 0 || index >= size || heap[index] != event) {
+			return false;
+		}
+		removeAt(index);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			heap[i].setQueueIndex(-1);
+			heap[i] = null;
+		}
+		size = 0;
+	}
+
+	/**
+	 * Inserts an event whose serial has already been set.
+	 *
+	 * @param event the event
+	 */
+	private void insert(SimEvent event) {
+		event.setInsertionOrder(insertions++);
+		if (size == heap.length) {
+			heap = Arrays.copyOf(heap, heap.length * 2);
+		}
+		siftUp(size++, event);
+	}
+
+	/**
+	 * Removes the event stored at the given slot.
+	 *
+	 * @param index the slot
+	 */
+	private void removeAt(int index) {
+		SimEvent removed = heap[index];
+		removed.setQueueIndex(-1);
+		int last = --size;
+		SimEvent moved = heap[last];
+		heap[last] = null;
+		if (index == last) {
+			return;
+		}
+		siftDown(index, moved);
+		if (heap[index] == moved) {
+			siftUp(index, moved);
+		}
+	}
+
+	private void siftUp(int index, SimEvent event) {
+		while (index > 0) {
+			int parent = (index - 1) / arity;
+			SimEvent parentEvent = heap[parent];
+			if (event.compareFiringOrder(parentEvent) >= 0) {
+				break;
+			}
+			place(index, parentEvent);
+			index = parent;
+		}
+		place(index, event);
+	}
+
+	private void siftDown(int index, SimEvent event) {
+		while (true) {
+			int firstChild = index * arity + 1;
+			if (firstChild >= size) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + arity, size);
+			int smallest = firstChild;
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (heap[child].compareFiringOrder(heap[smallest]) < 0) {
+					smallest = child;
+				}
+			}
+			if (heap[smallest].compareFiringOrder(event) >= 0) {
+				break;
+			}
+			place(index, heap[smallest]);
+			index = smallest;
+		}
+		place(index, event);
+	}
+
+	private void place(int index, SimEvent event) {
+		heap[index] = event;
+		event.setQueueIndex(index);
+	}
+
+	/**
+	 * Iterates over a copy of the events of an array-backed queue. Removal through the iterator is
+	 * delegated to the queue, so that the copy is never invalidated.
+	 */
+	static class SnapshotIterator implements Iterator<SimEvent> {
+
+		private final FutureQueue queue;
+
+		private final SimEvent[] events;
+
+		private int next = 0;
+
+		private SimEvent last = null;
+
+		SnapshotIterator(FutureQueue queue, SimEvent[] events) {
+			this.queue = queue;
+			this.events = events;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < events.length;
+		}
+
+		@Override
+		public SimEvent next() {
+			if (next >= events.length) {
+				throw new NoSuchElementException();
+			}
+			last = events[next++];
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			queue.remove(last);
+			last = null;
+		}
+
+	}
+
+}
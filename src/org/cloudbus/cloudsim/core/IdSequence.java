@@ -0,0 +1,97 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * A sequence of ids for the objects created by the entities of a simulation, such as the ids of
+ * tuples. Entities running in a parallel clock tick cannot take an id right away, since the
+ * entities of the tick do not run in the sequential order. They pass a {@link Receiver} to
+ * {@link #next(Receiver)} instead, which is given its id with the actions of
+ * {@link CloudSim#runOrdered(Runnable)}, at the end of the tick in entity order. The ids are thus
+ * the same as in a sequential run.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim#setParallelExecution(java.util.concurrent.ForkJoinPool, EntityPartitioner)
+ */
+public class IdSequence {
+
+	/**
+	 * An object, or a field of an object, that is given an id.
+	 */
+	public interface Receiver {
+
+		/**
+		 * Receives the id.
+		 *
+		 * @param id the id
+		 */
+		void receive(int id);
+	}
+
+	/** The next id. */
+	private int next;
+
+	/**
+	 * Creates a sequence.
+	 *
+	 * @param first the first id
+	 */
+	public IdSequence(int first) {
+		next = first;
+	}
+
+	/**
+	 * Takes the next id, outside parallel clock ticks.
+	 *
+	 * @return the id
+	 * @throws IllegalStateException if called by an entity running in a parallel clock tick
+	 */
+	public int next() {
+		return CloudSim.getSimulationContext().nextId(this);
+	}
+
+	/**
+	 * Gives the next id to a receiver: right away, or at the end of the tick in entity order when
+	 * called by an entity running in a parallel clock tick.
+	 *
+	 * @param receiver the receiver
+	 */
+	public void next(final Receiver receiver) {
+		CloudSim.runOrdered(new Runnable() {
+
+			@Override
+			public void run() {
+				receiver.receive(next());
+			}
+		});
+	}
+
+	/**
+	 * Gets the next id.
+	 *
+	 * @return the next id
+	 */
+	public int getNext() {
+		return next;
+	}
+
+	/**
+	 * Sets the next id.
+	 *
+	 * @param next the next id
+	 */
+	public void setNext(int next) {
+		this.next = next;
+	}
+
+	int nextSequential() {
+		return next++;
+	}
+
+}
@@ -0,0 +1,270 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class decorates a {@link FutureQueue} with an index of its events by source entity and tag,
+ * so that the events scheduled by an entity with a given tag can be found and cancelled without
+ * scanning the whole queue. The events sharing a source and a tag are chained through links kept
+ * in the events themselves, in insertion order; the head of each chain is kept in a map per source.
+ * Events with a negative source are not indexed.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim#cancelAll(int, int)
+ * @see FutureQueue
+ */
+public class IndexedFutureQueue implements FutureQueue {
+
+	/** The decorated queue. */
+	private final FutureQueue queue;
+
+	/** For every source entity id, the head of the chain of its events by tag. */
+	private final List<Map<Integer, SimEvent>> chainsBySource = new ArrayList<Map<Integer, SimEvent>>();
+
+	/**
+	 * Creates an index over a future queue.
+	 *
+	 * @param queue the queue to be indexed, which must be empty
+	 */
+	public IndexedFutureQueue(FutureQueue queue) {
+		if (queue.size() > 0) {
+			throw new IllegalArgumentException("Only an empty future queue can be indexed.");
+		}
+		this.queue = queue;
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		queue.addEvent(newEvent);
+		link(newEvent);
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		queue.addEventFirst(newEvent);
+		link(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		return queue.peek();
+	}
+
+	@Override
+	public SimEvent poll() {
+		SimEvent first = queue.poll();
+		if (first != null) {
+			unlink(first);
+		}
+		return first;
+	}
+
+	@Override
+	public Iterator<SimEvent> iterator() {
+		final Iterator<SimEvent> iterator = queue.iterator();
+		return new Iterator<SimEvent>() {
+
+			private SimEvent last = null;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				iterator.remove();
+				unlink(last);
+				last = null;
+			}
+
+		};
+	}
+
+	@Override
+	public int size() {
+		return queue.size();
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		if (!queue.remove(event)) {
+			return false;
+		}
+		unlink(event);
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean changed = false;
+		for (SimEvent event : events) {
+			changed |= remove(event);
+		}
+		return changed;
+	}
+
+	@Override
+	public void clear() {
+		queue.clear();
+		chainsBySource.clear();
+	}
+
+	/**
+	 * Gets the first event, in firing order, scheduled by an entity with a given tag. The chains are
+	 * kept in insertion order, so this looks through the whole chain: its cost is linear in the
+	 * number of pending events of the entity with that tag.
+	 *
+	 * @param source the id of the entity that scheduled the event
+	 * @param tag the tag of the event
+	 * @return the event, or <tt>null</tt> if there is none
+	 */
+	public SimEvent getFirst(int source, int tag) {
+		Map<Integer, SimEvent> chains = getChains(source);
+		if (chains == null) {
+			return null;
+		}
+		SimEvent first = null;
+		for (SimEvent ev = chains.get(tag); ev != null; ev = ev.getIndexNext()) {
+			if (first == null || ev.compareFiringOrder(first) < 0) {
+				first = ev;
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Gets the events scheduled by an entity, in no particular order.
+	 *
+	 * @param source the id of the entity that scheduled the events
+	 * @return a new list with the events
+	 */
+	public List<SimEvent> getEvents(int source) {
+		List<SimEvent> events = new ArrayList<SimEvent>();
+		Map<Integer, SimEvent> chains = getChains(source);
+		if (chains != null) {
+			for (SimEvent head : chains.values()) {
+				for (SimEvent ev = head; ev != null; ev = ev.getIndexNext()) {
+					events.add(ev);
+				}
+			}
+		}
+		return events;
+	}
+
+	/**
+	 * Removes all the events scheduled by an entity with a given tag.
+	 *
+	 * @param source the id of the entity that scheduled the events
+	 * @param tag the tag of the events
+	 * @return true, if at least one event has been removed from the queue
+	 */
+	public boolean removeAll(int source, int tag) {
+		Map<Integer, SimEvent> chains = getChains(source);
+		if (chains == null) {
+			return false;
+		}
+		SimEvent ev = chains.remove(tag);
+		boolean removed = false;
+		while (ev != null) {
+			SimEvent next = ev.getIndexNext();
+			// as in remove(SimEvent), an event the queue no longer holds is not counted
+			removed |= queue.remove(ev);
+			ev.setIndexPrev(null);
+			ev.setIndexNext(null);
+			ev = next;
+		}
+		return removed;
+	}
+
+	private Map<Integer, SimEvent> getChains(int source) {
+		if (source < 0 || source >= chainsBySource.size()) {
+			return null;
+		}
+		return chainsBySource.get(source);
+	}
+
+	/**
+	 * Appends an event to the chain of its source and tag. The head of a chain keeps the tail of
+	 * the chain as its previous link, so that appending is O(1).
+	 *
+	 * @param event the event
+	 */
+	private void link(SimEvent event) {
+		int source = event.getSource();
+		if (source < 0) {
+			return;
+		}
+		while (chainsBySource.size() <= source) {
+			chainsBySource.add(null);
+		}
+		Map<Integer, SimEvent> chains = chainsBySource.get(source);
+		if (chains == null) {
+			chains = new HashMap<Integer, SimEvent>();
+			chainsBySource.set(source, chains);
+		}
+		SimEvent head = chains.get(event.getTag());
+		event.setIndexNext(null);
+		if (head == null) {
+			event.setIndexPrev(event);
+			chains.put(event.getTag(), event);
+		} else {
+			SimEvent tail = head.getIndexPrev();
+			tail.setIndexNext(event);
+			event.setIndexPrev(tail);
+			head.setIndexPrev(event);
+		}
+	}
+
+	/**
+	 * Removes an event from the chain of its source and tag.
+	 *
+	 * @param event the event
+	 */
+	private void unlink(SimEvent event) {
+		Map<Integer, SimEvent> chains = getChains(event.getSource());
+		if (chains == null || event.getIndexPrev() == null) {
+			return;
+		}
+		SimEvent head = chains.get(event.getTag());
+		SimEvent next = event.getIndexNext();
+		if (event == head) {
+			if (next == null) {
+				chains.remove(event.getTag());
+			} else {
+				next.setIndexPrev(event.getIndexPrev());
+				chains.put(event.getTag(), next);
+			}
+		} else {
+			SimEvent prev = event.getIndexPrev();
+			prev.setIndexNext(next);
+			if (next == null) {
+				head.setIndexPrev(prev);
+			} else {
+				next.setIndexPrev(prev);
+			}
+		}
+		event.setIndexPrev(null);
+		event.setIndexNext(null);
+	}
+
+}
@@ -40,6 +40,17 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 
 	private long serial = -1;
 
+	/** order in which the event entered its future queue, breaks ties between equal serials **/
+	private long insertionOrder = -1;
+
+	/** slot of the event in an array-backed future queue, or -1 **/
+	private int queueIndex = -1;
+
+	/** links to the events with the same source and tag, see {@link IndexedFutureQueue} **/
+	private SimEvent indexPrev;
+
+	private SimEvent indexNext;
+
 	// Internal event types
 
 	public static final int ENULL = 0;
@@ -82,10 +93,84 @@ public class SimEvent implements Cloneable, Comparable<SimEvent> {
 		data = null;
 	}
 
+	/**
+	 * Creates an event, as the simulation does when an entity schedules one. This is meant for code
+	 * feeding the queues of events directly, such as benchmarks of the queues.
+	 * 
+	 * @param evtype the type of the event
+	 * @param time the time the event fires at
+	 * @param src the id of the source entity
+	 * @param dest the id of the destination entity
+	 * @param tag the tag of the event
+	 * @param edata the data of the event
+	 * @return the event
+	 */
+	public static SimEvent create(int evtype, double time, int src, int dest, int tag, Object edata) {
+		return new SimEvent(evtype, time, src, dest, tag, edata);
+	}
+
 	protected void setSerial(long serial) {
 		this.serial = serial;
 	}
 
+	long getSerial() {
+		return serial;
+	}
+
+	void setInsertionOrder(long insertionOrder) {
+		this.insertionOrder = insertionOrder;
+	}
+
+	int getQueueIndex() {
+		return queueIndex;
+	}
+
+	void setQueueIndex(int queueIndex) {
+		this.queueIndex = queueIndex;
+	}
+
+	SimEvent getIndexPrev() {
+		return indexPrev;
+	}
+
+	void setIndexPrev(SimEvent indexPrev) {
+		this.indexPrev = indexPrev;
+	}
+
+	SimEvent getIndexNext() {
+		return indexNext;
+	}
+
+	void setIndexNext(SimEvent indexNext) {
+		this.indexNext = indexNext;
+	}
+
+	/**
+	 * Compares two events by firing order: time, then serial, then insertion order. This is the
+	 * order in which a {@link SortedSetFutureQueue} returns its events, made total so that it can be
+	 * used by the array-backed queues.
+	 * 
+	 * @param other the event to compare with
+	 * @return a negative number, zero or a positive number as this event fires before, together with
+	 *         or after the other event
+	 */
+	int compareFiringOrder(SimEvent other) {
+		if (time < other.time) {
+			return -1;
+		} else if (time > other.time) {
+			return 1;
+		} else if (serial < other.serial) {
+			return -1;
+		} else if (serial > other.serial) {
+			return 1;
+		} else if (insertionOrder < other.insertionOrder) {
+			return -1;
+		} else if (insertionOrder > other.insertionOrder) {
+			return 1;
+		}
+		return 0;
+	}
+
 	/**
 	 * Used to set the time at which this event finished waiting in the event
 	 * 
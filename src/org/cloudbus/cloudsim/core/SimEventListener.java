@@ -0,0 +1,26 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Listener of the events processed by a simulation, for instance to trace them.
+ * 
+ * @see SimulationContext#setEventListener(SimEventListener)
+ */
+public interface SimEventListener {
+
+	/**
+	 * Called when an event is taken from the future queue, after the clock is set to its time and
+	 * before it is delivered. It is called by the thread running the simulation.
+	 * 
+	 * @param e the event
+	 */
+	void eventProcessed(SimEvent e);
+
+}
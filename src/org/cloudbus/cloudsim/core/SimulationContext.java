@@ -0,0 +1,1611 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
+
+/**
+ * This class holds the state of one simulation: its entities, future event queue, clock and
+ * settings, along with the attributes that the layers built on CloudSim keep per simulation. The
+ * static methods of {@link CloudSim} act on the context of the calling thread, see
+ * {@link CloudSim#getSimulationContext()}; every {@link SimEntity} is bound to the context that was
+ * current when it was created. Since contexts share no state, independent simulations can run at
+ * the same time in one JVM, each on its own thread.
+ * 
+ * @since CloudSim Toolkit 3.0
+ * @see CloudSim
+ */
+public class SimulationContext {
+
+	/** The id of CIS entity. */
+	private int cisId = -1;
+
+	/** The id of CloudSimShutdown entity. */
+	@SuppressWarnings("unused")
+	private int shutdownId = -1;
+
+	/** The CIS object. */
+	private CloudInformationService cis = null;
+
+	/** The Constant NOT_FOUND. */
+	private static final int NOT_FOUND = -1;
+
+	/** The trace flag. */
+	@SuppressWarnings("unused")
+	private boolean traceFlag = false;
+
+	/** The calendar. */
+	private Calendar calendar = null;
+
+	/** The termination time. */
+	private double terminateAt = -1;
+
+	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
+	private double minTimeBetweenEvents = 0.1;
+
+	/** The implementation of the future event queue. */
+	private int futureQueueType = CloudSim.FUTURE_QUEUE_HEAP;
+
+	/** Whether a clock tick runs only the entities that received an event, instead of all of them. */
+	private boolean eventDrivenDispatch = true;
+
+	/** The pool running the partitions of a clock tick in parallel, or <tt>null</tt> to run ticks sequentially. */
+	private ForkJoinPool parallelPool = null;
+
+	/** The partitioner of the entities for the parallel clock ticks. */
+	private EntityPartitioner partitioner = null;
+
+	/** The attributes kept per simulation by the layers built on CloudSim. */
+	private final ConcurrentMap<Object, Object> attributes = new ConcurrentHashMap<Object, Object>();
+
+	/**
+	 * Creates a context with the default settings.
+	 */
+	public SimulationContext() {
+	}
+
+	/**
+	 * Creates a context with the settings of another one: the minimal time between events, the
+	 * future queue type, the dispatch of the entities and the parallel execution.
+	 * 
+	 * @param settings the context to copy the settings from
+	 */
+	public SimulationContext(SimulationContext settings) {
+		minTimeBetweenEvents = settings.minTimeBetweenEvents;
+		futureQueueType = settings.futureQueueType;
+		eventDrivenDispatch = settings.eventDrivenDispatch;
+		parallelPool = settings.parallelPool;
+		partitioner = settings.partitioner;
+	}
+
+	/**
+	 * Gets an attribute of this simulation.
+	 * 
+	 * @param key the key of the attribute, usually the class of its value
+	 * @return the value, or <tt>null</tt> if the attribute is not set
+	 */
+	public Object getAttribute(Object key) {
+		return attributes.get(key);
+	}
+
+	/**
+	 * Sets an attribute of this simulation.
+	 * 
+	 * @param key the key of the attribute, usually the class of its value
+	 * @param value the value
+	 */
+	public void setAttribute(Object key, Object value) {
+		attributes.put(key, value);
+	}
+
+	/**
+	 * Sets an attribute of this simulation unless it is already set. It is safe to call from
+	 * entities running in a parallel clock tick.
+	 * 
+	 * @param key the key of the attribute, usually the class of its value
+	 * @param value the value
+	 * @return the value of the attribute after the call
+	 */
+	public Object setAttributeIfAbsent(Object key, Object value) {
+		Object previous = attributes.putIfAbsent(key, value);
+		return previous == null ? value : previous;
+	}
+	
+	/**
+	 * Initialises all the common attributes.
+	 * 
+	 * @param _calendar the _calendar
+	 * @param _traceFlag the _trace flag
+	 * @param numUser number of users
+	 * @throws Exception This happens when creating this entity before initialising CloudSim package
+	 *             or this entity name is <tt>null</tt> or empty
+	 * @pre $none
+	 * @post $none
+	 */
+	private void initCommonVariable(Calendar _calendar, boolean _traceFlag, int numUser)
+			throws Exception {
+		initialize();
+		// NOTE: the order for the below 3 lines are important
+		traceFlag = _traceFlag;
+
+		// Set the current Wall clock time as the starting time of
+		// simulation
+		if (_calendar == null) {
+			calendar = Calendar.getInstance();
+		} else {
+			calendar = _calendar;
+		}
+
+		// creates a CloudSimShutdown object
+		CloudSimShutdown shutdown = new CloudSimShutdown("CloudSimShutdown", numUser);
+		shutdownId = shutdown.getId();
+	}
+
+	/**
+	 * Initialises CloudSim parameters.
+	 * 
+	 * @param numUser the number of User Entities created.
+	 * @param cal starting time for this simulation.
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @see CloudSim#init(int, Calendar, boolean)
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag) {
+		try {
+			initCommonVariable(cal, traceFlag, numUser);
+
+			// create a GIS object
+			cis = new CloudInformationService("CloudInformationService");
+
+			// set all the above entity IDs
+			cisId = cis.getId();
+		} catch (IllegalArgumentException s) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(s.getMessage());
+		} catch (Exception e) {
+			Log.printLine("CloudSim.init(): The simulation has been terminated due to an unexpected error");
+			Log.printLine(e.getMessage());
+		}
+	}
+
+	/**
+	 * Initialises CloudSim parameters.
+	 * 
+	 * @param numUser the number of User Entities created.
+	 * @param cal starting time for this simulation.
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events.
+	 * @see CloudSim#init(int, Calendar, boolean, double)
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents) {
+	    if (periodBetweenEvents <= 0) {
+		throw new IllegalArgumentException("The minimal time between events should be positive, but is:" + periodBetweenEvents);
+	    }
+	    
+	    // set before init, the calendar queue is sized by it
+	    minTimeBetweenEvents = periodBetweenEvents;
+	    init(numUser, cal, traceFlag);
+	}
+
+	/**
+	 * Initialises CloudSim parameters, selecting the implementation of the future event queue.
+	 * 
+	 * @param numUser the number of User Entities created
+	 * @param cal starting time for this simulation.
+	 * @param traceFlag <tt>true</tt> if CloudSim trace need to be written
+	 * @param periodBetweenEvents - the minimal period between events.
+	 * @param queueType one of {@link CloudSim#FUTURE_QUEUE_SORTED_SET},
+	 *            {@link CloudSim#FUTURE_QUEUE_HEAP} or {@link CloudSim#FUTURE_QUEUE_CALENDAR}
+	 * @see CloudSim#init(int, Calendar, boolean, double, int)
+	 */
+	public void init(int numUser, Calendar cal, boolean traceFlag, double periodBetweenEvents, int queueType) {
+		setFutureQueueType(queueType);
+		init(numUser, cal, traceFlag, periodBetweenEvents);
+	}
+
+	/**
+	 * Selects the implementation of the future event queue used by the next simulations.
+	 * 
+	 * @param queueType one of {@link CloudSim#FUTURE_QUEUE_SORTED_SET},
+	 *            {@link CloudSim#FUTURE_QUEUE_HEAP} or {@link CloudSim#FUTURE_QUEUE_CALENDAR}
+	 * @see CloudSim#setFutureQueueType(int)
+	 */
+	public void setFutureQueueType(int queueType) {
+		if (queueType != CloudSim.FUTURE_QUEUE_SORTED_SET && queueType != CloudSim.FUTURE_QUEUE_HEAP
+				&& queueType != CloudSim.FUTURE_QUEUE_CALENDAR) {
+			throw new IllegalArgumentException("Unknown future queue type: " + queueType);
+		}
+		futureQueueType = queueType;
+	}
+
+	/**
+	 * Gets the implementation of the future event queue used by the simulations.
+	 * 
+	 * @return the future queue type
+	 * @see CloudSim#getFutureQueueType()
+	 */
+	public int getFutureQueueType() {
+		return futureQueueType;
+	}
+
+	/**
+	 * Selects how entities are dispatched at each clock tick.
+	 * 
+	 * @param enabled <tt>true</tt> to run only the entities that have something to process
+	 * @see CloudSim#setEventDrivenDispatch(boolean)
+	 */
+	public void setEventDrivenDispatch(boolean enabled) {
+		eventDrivenDispatch = enabled;
+	}
+
+	/**
+	 * Checks whether only the entities that received an event are run at each clock tick.
+	 * 
+	 * @return <tt>true</tt> if the dispatch is event driven
+	 * @see CloudSim#isEventDrivenDispatch()
+	 */
+	public boolean isEventDrivenDispatch() {
+		return eventDrivenDispatch;
+	}
+
+	/**
+	 * Selects the parallel execution of the clock ticks.
+	 * 
+	 * @param pool the pool, or <tt>null</tt> to run the clock ticks sequentially
+	 * @param entityPartitioner the partitioner, or <tt>null</tt> to run the clock ticks
+	 *            sequentially
+	 * @see CloudSim#setParallelExecution(ForkJoinPool, EntityPartitioner)
+	 */
+	public void setParallelExecution(ForkJoinPool pool, EntityPartitioner entityPartitioner) {
+		if (pool == null || entityPartitioner == null) {
+			parallelPool = null;
+			partitioner = null;
+		} else {
+			parallelPool = pool;
+			partitioner = entityPartitioner;
+		}
+	}
+
+	/**
+	 * Checks whether the clock ticks are run in parallel.
+	 * 
+	 * @return <tt>true</tt> if the clock ticks are run in parallel
+	 * @see CloudSim#isParallelExecution()
+	 */
+	public boolean isParallelExecution() {
+		return parallelPool != null;
+	}
+
+	/**
+	 * Runs an action that changes state shared between entities, such as global statistics.
+	 * 
+	 * @param action the action
+	 * @see CloudSim#runOrdered(Runnable)
+	 */
+	public void runOrdered(Runnable action) {
+		if (parallelTick) {
+			getTickOutput().actions.add(action);
+		} else {
+			action.run();
+		}
+	}
+
+	/**
+	 * Takes the next id of a sequence, which entities running in a parallel clock tick cannot do.
+	 * 
+	 * @param sequence the sequence
+	 * @return the id
+	 * @see IdSequence#next()
+	 */
+	int nextId(IdSequence sequence) {
+		if (parallelTick) {
+			throw new IllegalStateException("Entities running in parallel clock ticks take ids through IdSequence.next(Receiver)");
+		}
+		return sequence.nextSequential();
+	}
+	
+	
+	
+	/**
+	 * Starts the execution of CloudSim simulation.
+	 * 
+	 * @return the double
+	 * @see CloudSim#startSimulation()
+	 */
+	public double startSimulation() throws NullPointerException {
+		Log.printLine("Starting CloudSim version " + CloudSim.CLOUDSIM_VERSION_STRING);
+		try {
+			double clock = run();
+
+			// reset all the variables
+			cisId = -1;
+			shutdownId = -1;
+			cis = null;
+			calendar = null;
+			traceFlag = false;
+
+			return clock;
+		} catch (IllegalArgumentException e) {
+			e.printStackTrace();
+			throw new NullPointerException("CloudSim.startCloudSimulation() :"
+					+ " Error - you haven't initialized CloudSim.");
+		}
+	}
+
+	/**
+	 * Stops Cloud Simulation (based on {@link Simulation#runStop()}).
+	 * 
+	 * @see CloudSim#stopSimulation()
+	 */
+	public void stopSimulation() throws NullPointerException {
+		try {
+			runStop();
+		} catch (IllegalArgumentException e) {
+			throw new NullPointerException("CloudSim.stopCloudSimulation() : "
+					+ "Error - can't stop Cloud Simulation.");
+		}
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation.
+	 * 
+	 * @return true, if successful; false otherwise.
+	 * @see CloudSim#terminateSimulation()
+	 */
+	public boolean terminateSimulation() {
+		running = false;
+		printMessage("Simulation: Reached termination time.");
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to terminate the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be terminated
+	 * @return true, if successful otherwise.
+	 * @see CloudSim#terminateSimulation(double)
+	 */
+	public boolean terminateSimulation(double time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			terminateAt = time;
+		}
+		return true;
+	}
+
+	
+	/**
+	 * Returns the minimum time between events.
+	 * 
+	 * @return the minimum time between events.
+	 * @see CloudSim#getMinTimeBetweenEvents()
+	 */
+	public double getMinTimeBetweenEvents() {
+	    return minTimeBetweenEvents;
+	}
+
+	/**
+	 * Gets a new copy of initial simulation Calendar.
+	 * 
+	 * @return a new copy of Calendar object or if CloudSim hasn't been initialized
+	 * @see CloudSim#getSimulationCalendar()
+	 */
+	public Calendar getSimulationCalendar() {
+		// make a new copy
+		Calendar clone = calendar;
+		if (calendar != null) {
+			clone = (Calendar) calendar.clone();
+		}
+
+		return clone;
+	}
+
+	/**
+	 * Gets the entity ID of <tt>CloudInformationService</tt>.
+	 * 
+	 * @return the Entity ID or if it is not found
+	 * @see CloudSim#getCloudInfoServiceEntityId()
+	 */
+	public int getCloudInfoServiceEntityId() {
+		return cisId;
+	}
+
+	/**
+	 * Sends a request to Cloud Information Service (GIS) entity to get the list of all Cloud
+	 * hostList.
+	 * 
+	 * @return A List containing CloudResource ID (as an Integer object) or if a CIS entity hasn't
+	 *            been created before
+	 * @see CloudSim#getCloudResourceList()
+	 */
+	public List<Integer> getCloudResourceList() {
+		if (cis == null) {
+			return null;
+		}
+
+		return cis.getList();
+	}
+
+	// ======== SIMULATION METHODS ===============//
+
+	/** The entities. */
+	private List<SimEntity> entities;
+
+	/** The future event queue, indexed by source and tag for cancellations. */
+	private IndexedFutureQueue future;
+
+	/** The simulation clock. */
+	private double clock;
+
+	/** The number of events taken from the future queue. */
+	private long numProcessedEvents;
+
+	/** The listener of the events processed, null if none. */
+	private SimEventListener eventListener;
+
+	/** Flag for checking if the simulation is running. */
+	private boolean running;
+
+	/** The entities by name. */
+	private Map<String, SimEntity> entitiesByName;
+
+	/** Whether the entities of the current clock tick are being run in parallel. */
+	private volatile boolean parallelTick = false;
+
+	/** The output of the entity run by the current thread during a parallel clock tick. */
+	private static final ThreadLocal<TickOutput> tickOutput = new ThreadLocal<TickOutput>();
+
+	/** The ids of the entities to be run at the next clock tick, when the dispatch is event driven. */
+	private BitSet readyEntities;
+
+	// The predicates used in entity wait methods
+	/** The wait predicates. */
+	private Map<Integer, Predicate> waitPredicates;
+
+	/** The paused. */
+	private boolean paused = false;
+
+	/** The pause at. */
+	private long pauseAt = -1;
+
+	/** The abrupt terminate. */
+	private boolean abruptTerminate = false;
+
+	/**
+	 * Initialise the simulation for stand alone simulations. This function should be called at the
+	 * start of the simulation.
+	 */
+	void initialize() {
+		Log.printLine("Initialising...");
+		entities = new ArrayList<SimEntity>();
+		entitiesByName = new LinkedHashMap<String, SimEntity>();
+		readyEntities = new BitSet();
+		future = new IndexedFutureQueue(createFutureQueue());
+		waitPredicates = new HashMap<Integer, Predicate>();
+		clock = 0;
+		numProcessedEvents = 0;
+		running = false;
+		CloudSim.future = future;
+		CloudSim.deferred = new EntitiesDeferredQueue();
+	}
+
+	/**
+	 * Creates the future event queue selected by {@link #setFutureQueueType(int)}.
+	 * 
+	 * @return the future queue
+	 */
+	private FutureQueue createFutureQueue() {
+		switch (futureQueueType) {
+			case CloudSim.FUTURE_QUEUE_SORTED_SET:
+				return new SortedSetFutureQueue();
+			case CloudSim.FUTURE_QUEUE_CALENDAR:
+				return new CalendarFutureQueue(minTimeBetweenEvents);
+			default:
+				return new HeapFutureQueue();
+		}
+	}
+
+	// Public access methods
+
+	/**
+	 * Get the current simulation time.
+	 * 
+	 * @return the simulation time
+	 * @see CloudSim#clock()
+	 */
+	public double clock() {
+		return clock;
+	}
+
+	/**
+	 * Get the number of events processed so far, that is taken from the future queue.
+	 * 
+	 * @return the number of events
+	 * @see CloudSim#getNumProcessedEvents()
+	 */
+	public long getNumProcessedEvents() {
+		return numProcessedEvents;
+	}
+
+	/**
+	 * Get the listener of the events processed.
+	 * 
+	 * @return the listener, null if none
+	 * @see CloudSim#getEventListener()
+	 */
+	public SimEventListener getEventListener() {
+		return eventListener;
+	}
+
+	/**
+	 * Set the listener of the events processed, which is called for every event taken from the future queue.
+	 * 
+	 * @param eventListener the listener, null for none
+	 * @see CloudSim#setEventListener(SimEventListener)
+	 */
+	public void setEventListener(SimEventListener eventListener) {
+		this.eventListener = eventListener;
+	}
+
+	/**
+	 * Get the current number of entities in the simulation.
+	 * 
+	 * @return The number of entities
+	 * @see CloudSim#getNumEntities()
+	 */
+	public int getNumEntities() {
+		return entities.size();
+	}
+
+	/**
+	 * Get the entity with a given id.
+	 * 
+	 * @param id the entity's unique id number
+	 * @return The entity, or if it could not be found
+	 * @see CloudSim#getEntity(int)
+	 */
+	public SimEntity getEntity(int id) {
+		return entities.get(id);
+	}
+
+	/**
+	 * Get the entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity
+	 * @see CloudSim#getEntity(String)
+	 */
+	public SimEntity getEntity(String name) {
+		return entitiesByName.get(name);
+	}
+
+	/**
+	 * Get the id of an entity with a given name.
+	 * 
+	 * @param name The entity's name
+	 * @return The entity's unique id number
+	 * @see CloudSim#getEntityId(String)
+	 */
+	public int getEntityId(String name) {
+		SimEntity obj = entitiesByName.get(name);
+		if (obj == null) {
+			return NOT_FOUND;
+		} else {
+			return obj.getId();
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @see CloudSim#getEntityName(int)
+	 */
+	public String getEntityName(int entityID) {
+		try {
+			return getEntity(entityID).getName();
+		} catch (IllegalArgumentException e) {
+			return null;
+		} catch (Exception e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Gets name of the entity given its entity ID.
+	 * 
+	 * @param entityID the entity ID
+	 * @return the Entity name or if this object does not have one
+	 * @see CloudSim#getEntityName(Integer)
+	 */
+	public String getEntityName(Integer entityID) {
+		if (entityID != null) {
+			return getEntityName(entityID.intValue());
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a list of entities created for the simulation.
+	 * 
+	 * @return the entity iterator
+	 * @see CloudSim#getEntityList()
+	 */
+	public List<SimEntity> getEntityList() {
+		// create a new list to prevent the user from changing
+		// the list of entities used by Simulation
+		List<SimEntity> list = new LinkedList<SimEntity>();
+		list.addAll(entities);
+		return list;
+	}
+
+	// Public update methods
+
+	/**
+	 * Add a new entity to the simulation.
+	 * 
+	 * @param e The new entity
+	 * @see CloudSim#addEntity(SimEntity)
+	 */
+	public void addEntity(SimEntity e) {
+		SimEvent evt;
+		if (parallelTick) {
+			throw new IllegalStateException("Entities can't be added during a parallel clock tick.");
+		}
+		if (running) {
+			// Post an event to make this entity
+			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
+			future.addEvent(evt);
+		}
+		if (e.getId() == -1) { // Only add once!
+			int id = entities.size();
+			e.setId(id);
+			entities.add(e);
+			entitiesByName.put(e.getName(), e);
+			readyEntities.set(id);
+		}
+	}
+
+	/**
+	 * Internal method used to add a new entity to the simulation when the simulation is running. It
+	 * should <b>not</b> be called from user simulations.
+	 * 
+	 * @param e The new entity
+	 */
+	void addEntityDynamically(SimEntity e) {
+		if (e == null) {
+			throw new IllegalArgumentException("Adding null entity.");
+		} else {
+			printMessage("Adding: " + e.getName());
+		}
+		e.startEntity();
+	}
+
+	/**
+	 * Internal method used to run one tick of the simulation.
+	 * 
+	 * @return true, if successful otherwise
+	 * @see CloudSim#runClockTick()
+	 */
+	public boolean runClockTick() {
+		SimEntity ent;
+		boolean queue_empty;
+		
+		int entities_size = entities.size();
+
+		if (parallelPool != null) {
+			List<SimEntity> ready = new ArrayList<SimEntity>();
+			if (eventDrivenDispatch) {
+				for (int i = readyEntities.nextSetBit(0); i >= 0 && i < entities_size; i = readyEntities.nextSetBit(i + 1)) {
+					readyEntities.clear(i);
+					ent = entities.get(i);
+					if (ent.getState() == SimEntity.RUNNABLE) {
+						ready.add(ent);
+					}
+				}
+			} else {
+				for (int i = 0; i < entities_size; i++) {
+					ent = entities.get(i);
+					if (ent.getState() == SimEntity.RUNNABLE) {
+						ready.add(ent);
+					}
+				}
+			}
+			runEntities(ready);
+		} else if (eventDrivenDispatch) {
+			// entities are still run in id order, as in the polling loop below
+			for (int i = readyEntities.nextSetBit(0); i >= 0 && i < entities_size; i = readyEntities.nextSetBit(i + 1)) {
+				readyEntities.clear(i);
+				ent = entities.get(i);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					ent.run();
+				}
+			}
+		} else {
+			for (int i = 0; i < entities_size; i++) {
+				ent = entities.get(i);
+				if (ent.getState() == SimEntity.RUNNABLE) {
+					ent.run();
+				}
+			}
+		}
+				
+		// If there are more future events then deal with them
+		if (future.size() > 0) {
+			queue_empty = false;
+			SimEvent first = future.poll();
+			processEvent(first);
+
+			// Check if next events are at same time...
+			SimEvent next = future.peek();
+			while (next != null && next.eventTime() == first.eventTime()) {
+				processEvent(future.poll());
+				next = future.peek();
+			}
+
+		} else {
+			queue_empty = true;
+			running = false;
+			printMessage("Simulation: No more future events");
+		}
+
+		return queue_empty;
+	}
+
+	/**
+	 * Internal method used to stop the simulation.
+	 * 
+	 * @see CloudSim#runStop()
+	 */
+	public void runStop() {
+		printMessage("Simulation completed.");
+	}
+
+	/**
+	 * Used to hold an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 * @see CloudSim#hold(int, long)
+	 */
+	public void hold(int src, long delay) {
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
+		addFutureEvent(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to pause an entity for some time.
+	 * 
+	 * @param src the src
+	 * @param delay the delay
+	 * @see CloudSim#pause(int, double)
+	 */
+	public void pause(int src, double delay) {
+		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
+		addFutureEvent(e, false);
+		entities.get(src).setState(SimEntity.HOLDING);
+	}
+
+	/**
+	 * Used to send an event from one entity to another.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @see CloudSim#send(int, int, double, int, Object)
+	 */
+	public void send(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		addFutureEvent(e, false);
+	}
+
+	/**
+	 * Used to send an event from one entity to another, with priority in the queue.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @see CloudSim#sendFirst(int, int, double, int, Object)
+	 */
+	public void sendFirst(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		addFutureEvent(e, true);
+	}
+
+	/**
+	 * Sets an entity's state to be waiting.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @see CloudSim#wait(int, Predicate)
+	 */
+	public void wait(int src, Predicate p) {
+		entities.get(src).setState(SimEntity.WAITING);
+		if (p != CloudSim.SIM_ANY) {
+			// If a predicate has been used store it in order to check it
+			synchronized (waitPredicates) {
+				waitPredicates.put(src, p);
+			}
+		}
+	}
+
+	/**
+	 * Checks if events for a specific entity are present in the deferred event queue.
+	 * 
+	 * @param d the d
+	 * @param p the p
+	 * @return the int
+	 * @see CloudSim#waiting(int, Predicate)
+	 */
+	public int waiting(int d, Predicate p) {
+		return entities.get(d).getDeferredQueue().count(p);
+	}
+
+	/**
+	 * Selects an event matching a predicate from the deferred queue of an entity.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event, or <tt>null</tt> if no event matches
+	 * @see CloudSim#select(int, Predicate)
+	 */
+	public SimEvent select(int src, Predicate p) {
+		return entities.get(src).getDeferredQueue().select(p);
+	}
+
+	/**
+	 * Find first deferred event matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event, or <tt>null</tt> if no event matches
+	 * @see CloudSim#findFirstDeferred(int, Predicate)
+	 */
+	public SimEvent findFirstDeferred(int src, Predicate p) {
+		return entities.get(src).getDeferredQueue().findFirst(p);
+	}
+
+	/**
+	 * Removes an event from the event queue.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 * @see CloudSim#cancel(int, Predicate)
+	 */
+	public SimEvent cancel(int src, Predicate p) {
+		if (parallelTick) {
+			return cancelDuringParallelTick(src, p);
+		}
+		SimEvent first = findFirstFuture(src, p);
+		if (first != null) {
+			future.remove(first);
+		}
+
+		return first;
+	}
+
+	/**
+	 * Finds the first event, in firing order, of the future queue scheduled by an entity and
+	 * matching a predicate.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event, or <tt>null</tt> if no event matches
+	 */
+	private SimEvent findFirstFuture(int src, Predicate p) {
+		// the future queue does not necessarily iterate in firing order, so look for the first match
+		SimEvent first = null;
+		if (src >= 0 && p instanceof PredicateType) {
+			for (int tag : ((PredicateType) p).getTags()) {
+				SimEvent ev = future.getFirst(src, tag);
+				if (ev != null && (first == null || ev.compareFiringOrder(first) < 0)) {
+					first = ev;
+				}
+			}
+		} else {
+			Iterator<SimEvent> iter = src >= 0 ? future.getEvents(src).iterator() : future.iterator();
+			while (iter.hasNext()) {
+				SimEvent ev = iter.next();
+				if (ev.getSource() == src && p.match(ev)
+						&& (first == null || ev.compareFiringOrder(first) < 0)) {
+					first = ev;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Removes the first matching event of an entity during a parallel clock tick, looking both in
+	 * the future queue and in the events sent by the entity at this tick.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return the sim event
+	 */
+	private SimEvent cancelDuringParallelTick(int src, Predicate p) {
+		TickOutput output = getTickOutput();
+		synchronized (future) {
+			SimEvent first = findFirstFuture(src, p);
+			int index = output.findFirst(src, p);
+			if (index >= 0 && (first == null || output.precedes(index, first))) {
+				return output.remove(index);
+			}
+			if (first != null) {
+				future.remove(first);
+			}
+			return first;
+		}
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue returns true if
+	 * at least one event has been cancelled; false otherwise.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if successful
+	 * @see CloudSim#cancelAll(int, Predicate)
+	 */
+	public boolean cancelAll(int src, Predicate p) {
+		if (parallelTick) {
+			boolean cancelled;
+			synchronized (future) {
+				cancelled = cancelAllFuture(src, p);
+			}
+			return getTickOutput().removeAll(src, p) || cancelled;
+		}
+		return cancelAllFuture(src, p);
+	}
+
+	/**
+	 * Removes all events that match a given predicate from the future event queue.
+	 * 
+	 * @param src the src
+	 * @param p the p
+	 * @return true, if at least one event has been cancelled
+	 */
+	private boolean cancelAllFuture(int src, Predicate p) {
+		if (src >= 0 && p instanceof PredicateType) {
+			boolean cancelled = false;
+			for (int tag : ((PredicateType) p).getTags()) {
+				cancelled |= future.removeAll(src, tag);
+			}
+			return cancelled;
+		}
+
+		SimEvent ev = null;
+		int previousSize = future.size();
+		Iterator<SimEvent> iter = src >= 0 ? future.getEvents(src).iterator() : future.iterator();
+		while (iter.hasNext()) {
+			ev = iter.next();
+			if (ev.getSource() == src && p.match(ev)) {
+				future.remove(ev);
+			}
+		}
+		return future.size() < previousSize;
+	}
+
+	/**
+	 * Removes all the events scheduled by an entity with a given tag from the future event queue.
+	 * 
+	 * @param src the id of the entity that scheduled the events
+	 * @param tag the tag of the events
+	 * @return true, if at least one event has been cancelled
+	 * @see CloudSim#cancelAll(int, int)
+	 */
+	public boolean cancelAll(int src, int tag) {
+		if (src < 0 || parallelTick) {
+			return cancelAll(src, new PredicateType(tag));
+		}
+		return future.removeAll(src, tag);
+	}
+
+	//
+	// Private internal methods
+	//
+
+	/**
+	 * Adds an event to the future queue or, during a parallel clock tick, to the output of the
+	 * entity being run.
+	 * 
+	 * @param e the event
+	 * @param first whether the event has priority in the queue
+	 */
+	private void addFutureEvent(SimEvent e, boolean first) {
+		if (parallelTick) {
+			getTickOutput().add(e, first);
+		} else if (first) {
+			future.addEventFirst(e);
+		} else {
+			future.addEvent(e);
+		}
+	}
+
+	/**
+	 * Gets the output of the entity run by the current thread during a parallel clock tick.
+	 * 
+	 * @return the output
+	 */
+	private TickOutput getTickOutput() {
+		TickOutput output = tickOutput.get();
+		if (output == null) {
+			throw new IllegalStateException("Only the entities being run can change the simulation during a parallel clock tick.");
+		}
+		return output;
+	}
+
+	/**
+	 * Runs the entities of a clock tick, given in id order, with the parallel pool. Consecutive
+	 * entities that are not {@link EntityPartitioner#EXCLUSIVE} form a batch whose partitions are
+	 * run concurrently; exclusive entities are run alone, once the preceding batch is applied.
+	 * 
+	 * @param ready the entities to run
+	 */
+	private void runEntities(List<SimEntity> ready) {
+		int size = ready.size();
+		int start = 0;
+		while (start < size) {
+			Map<Integer, List<Integer>> partitions = new LinkedHashMap<Integer, List<Integer>>();
+			int end = start;
+			for (; end < size; end++) {
+				int partition = partitioner.getPartition(ready.get(end));
+				if (partition == EntityPartitioner.EXCLUSIVE) {
+					break;
+				}
+				List<Integer> indices = partitions.get(partition);
+				if (indices == null) {
+					indices = new ArrayList<Integer>();
+					partitions.put(partition, indices);
+				}
+				indices.add(end - start);
+			}
+			List<SimEntity> batch = ready.subList(start, end);
+			if (partitions.size() > 1) {
+				runInParallel(batch, partitions.values());
+			} else {
+				// a single partition gains nothing from the pool
+				for (SimEntity ent : batch) {
+					ent.run();
+				}
+			}
+			if (end < size) {
+				ready.get(end).run();
+				end++;
+			}
+			start = end;
+		}
+	}
+
+	/**
+	 * Runs the partitions of a batch of entities concurrently, and then applies the output of the
+	 * entities in id order.
+	 * 
+	 * @param batch the entities, in id order
+	 * @param partitions the indices in the batch of the entities of every partition, in id order
+	 */
+	private void runInParallel(final List<SimEntity> batch, Collection<List<Integer>> partitions) {
+		final TickOutput[] outputs = new TickOutput[batch.size()];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitions.size());
+		for (final List<Integer> indices : partitions) {
+			tasks.add(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					// the entities use the static methods of CloudSim, which act on the current context
+					SimulationContext previous = CloudSim.swapSimulationContext(SimulationContext.this);
+					try {
+						for (int index : indices) {
+							TickOutput output = new TickOutput();
+							outputs[index] = output;
+							tickOutput.set(output);
+							batch.get(index).run();
+						}
+					} finally {
+						tickOutput.remove();
+						CloudSim.swapSimulationContext(previous);
+					}
+					return null;
+				}
+
+			});
+		}
+
+		parallelTick = true;
+		try {
+			for (Future<Void> result : parallelPool.invokeAll(tasks)) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while running a parallel clock tick.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			parallelTick = false;
+		}
+
+		for (TickOutput output : outputs) {
+			output.apply();
+		}
+	}
+
+	/**
+	 * Processes an event.
+	 * 
+	 * @param e the e
+	 */
+	private void processEvent(SimEvent e) {
+		int dest, src;
+		SimEntity dest_ent;
+		// Update the system's clock
+		if (e.eventTime() < clock) {
+			throw new IllegalArgumentException("Past event detected.");
+		}
+		clock = e.eventTime();
+		numProcessedEvents++;
+		if (eventListener != null) {
+			eventListener.eventProcessed(e);
+		}
+
+		// Ok now process it
+		switch (e.getType()) {
+			case SimEvent.ENULL:
+				throw new IllegalArgumentException("Event has a null type.");
+
+			case SimEvent.CREATE:
+				SimEntity newe = (SimEntity) e.getData();
+				addEntityDynamically(newe);
+				break;
+
+			case SimEvent.SEND:
+				// Check for matching wait
+				dest = e.getDestination();
+				if (dest < 0) {
+					throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+				} else {
+					int tag = e.getTag();
+					dest_ent = entities.get(dest);
+					if (dest_ent.getState() == SimEntity.WAITING) {
+						Integer destObj = Integer.valueOf(dest);
+						Predicate p = waitPredicates.get(destObj);
+						if ((p == null) || (tag == 9999) || (p.match(e))) {
+							dest_ent.setEventBuffer((SimEvent) e.clone());
+							dest_ent.setState(SimEntity.RUNNABLE);
+							waitPredicates.remove(destObj);
+						} else {
+							dest_ent.getDeferredQueue().addEvent(e);
+						}
+					} else {
+						dest_ent.getDeferredQueue().addEvent(e);
+					}
+					readyEntities.set(dest);
+				}
+				break;
+
+			case SimEvent.HOLD_DONE:
+				src = e.getSource();
+				if (src < 0) {
+					throw new IllegalArgumentException("Null entity holding.");
+				} else {
+					entities.get(src).setState(SimEntity.RUNNABLE);
+					readyEntities.set(src);
+				}
+				break;
+
+			default:
+				break;
+		}
+	}
+
+	/**
+	 * Internal method used to start the simulation.
+	 * 
+	 * @see CloudSim#runStart()
+	 */
+	public void runStart() {
+		running = true;
+		// Start all the entities
+		for (SimEntity ent : entities) {
+			ent.startEntity();
+		}
+
+		printMessage("Entities started.");
+	}
+
+	/**
+	 * Check if the simulation is still running.
+	 * 
+	 * @return if the simulation is still running, otherwise
+	 * @see CloudSim#running()
+	 */
+	public boolean running() {
+		return running;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation.
+	 * 
+	 * @return true, if successful otherwise.
+	 * @see CloudSim#pauseSimulation()
+	 */
+	public boolean pauseSimulation() {
+		paused = true;
+		return paused;
+	}
+
+	/**
+	 * This method is called if one wants to pause the simulation at a given time.
+	 * 
+	 * @param time the time at which the simulation has to be paused
+	 * @return true, if successful otherwise.
+	 * @see CloudSim#pauseSimulation(long)
+	 */
+	public boolean pauseSimulation(long time) {
+		if (time <= clock) {
+			return false;
+		} else {
+			pauseAt = time;
+		}
+		return true;
+	}
+
+	/**
+	 * This method is called if one wants to resume the simulation that has previously been paused.
+	 * 
+	 * @return if the simulation has been restarted or or otherwise.
+	 * @see CloudSim#resumeSimulation()
+	 */
+	public boolean resumeSimulation() {
+		paused = false;
+
+		if (pauseAt <= clock) {
+			pauseAt = -1;
+		}
+
+		return !paused;
+	}
+
+	/**
+	 * Start the simulation running.
+	 * 
+	 * @return the double last clock value
+	 * @see CloudSim#run()
+	 */
+	public double run() {
+		if (!running) {
+			runStart();
+		}
+		while (true) {
+			if (runClockTick() || abruptTerminate) {
+				break;
+			}
+
+			// this block allows termination of simulation at a specific time
+			if (terminateAt > 0.0 && clock >= terminateAt) {
+				terminateSimulation();
+				clock = terminateAt;
+				break;
+			}
+
+			if (pauseAt != -1
+					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.peek().eventTime())
+							|| future.size() == 0 && pauseAt <= clock)) {
+				pauseSimulation();
+				clock = pauseAt;
+			}
+
+			while (paused) {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		double clock = clock();
+
+		finishSimulation();
+		runStop();
+
+		return clock;
+	}
+
+	/**
+	 * Internal method that allows the entities to terminate.
+	 * 
+	 * @see CloudSim#finishSimulation()
+	 */
+	public void finishSimulation() {
+		// Allow all entities to exit their body method
+		if (!abruptTerminate) {
+			for (SimEntity ent : entities) {
+				if (ent.getState() != SimEntity.FINISHED) {
+					ent.run();
+				}
+			}
+		}
+
+		for (SimEntity ent : entities) {
+			ent.shutdownEntity();
+		}
+
+		// reset all the variables
+		// Private data members
+		entities = null;
+		entitiesByName = null;
+		readyEntities = null;
+		future = null;
+		clock = 0L;
+		running = false;
+
+		waitPredicates = null;
+		paused = false;
+		pauseAt = -1;
+		abruptTerminate = false;
+	}
+
+	/**
+	 * Abruptally terminate.
+	 * 
+	 * @see CloudSim#abruptallyTerminate()
+	 */
+	public void abruptallyTerminate() {
+		abruptTerminate = true;
+	}
+
+	/**
+	 * Prints a message about the progress of the simulation.
+	 * 
+	 * @param message the message
+	 */
+	private void printMessage(String message) {
+		Log.printLine(message);
+	}
+
+	/**
+	 * Checks if is paused.
+	 * 
+	 * @return true, if is paused
+	 * @see CloudSim#isPaused()
+	 */
+	public boolean isPaused() {
+		return paused;
+	}
+
+	/**
+	 * The events sent, and the ordered actions, of an entity during a parallel clock tick, kept
+	 * until the end of the tick.
+	 */
+	private class TickOutput {
+
+		/** The events, in the order they were sent. */
+		private final List<SimEvent> events = new ArrayList<SimEvent>();
+
+		/** The indices of the events sent with priority in the queue. */
+		private final BitSet first = new BitSet();
+
+		/** The ordered actions. */
+		private final List<Runnable> actions = new ArrayList<Runnable>();
+
+		void add(SimEvent e, boolean atHead) {
+			if (atHead) {
+				first.set(events.size());
+			}
+			events.add(e);
+		}
+
+		/**
+		 * Finds the first event, in firing order, sent by an entity and matching a predicate. Events
+		 * that will be added to the queue later are served later at the same time, unless they have
+		 * priority.
+		 */
+		int findFirst(int src, Predicate p) {
+			int found = -1;
+			for (int i = 0; i < events.size(); i++) {
+				SimEvent ev = events.get(i);
+				if (ev.getSource() != src || !p.match(ev)) {
+					continue;
+				}
+				if (found < 0) {
+					found = i;
+				} else {
+					SimEvent other = events.get(found);
+					if (ev.eventTime() < other.eventTime()
+							|| (ev.eventTime() == other.eventTime() && first.get(i) && !first.get(found))) {
+						found = i;
+					}
+				}
+			}
+			return found;
+		}
+
+		/**
+		 * Checks whether an event of this output will fire before an event already in the queue.
+		 */
+		boolean precedes(int index, SimEvent queued) {
+			SimEvent ev = events.get(index);
+			if (ev.eventTime() != queued.eventTime()) {
+				return ev.eventTime() < queued.eventTime();
+			}
+			return first.get(index) && queued.getSerial() != 0;
+		}
+
+		SimEvent remove(int index) {
+			for (int i = index; i < events.size(); i++) {
+				first.set(i, first.get(i + 1));
+			}
+			return events.remove(index);
+		}
+
+		boolean removeAll(int src, Predicate p) {
+			boolean removed = false;
+			for (int i = events.size() - 1; i >= 0; i--) {
+				SimEvent ev = events.get(i);
+				if (ev.getSource() == src && p.match(ev)) {
+					remove(i);
+					removed = true;
+				}
+			}
+			return removed;
+		}
+
+		/**
+		 * Adds the events to the future queue and runs the actions.
+		 */
+		void apply() {
+			for (int i = 0; i < events.size(); i++) {
+				if (first.get(i)) {
+					future.addEventFirst(events.get(i));
+				} else {
+					future.addEvent(events.get(i));
+				}
+			}
+			for (Runnable action : actions) {
+				action.run();
+			}
+		}
+
+	}
+
+
+	/**
+	 * The deferred events of all the entities, seen as a single deferred queue. It backs the
+	 * deprecated {@link CloudSim#deferred} field.
+	 */
+	private class EntitiesDeferredQueue extends DeferredQueue {
+
+		@Override
+		public void addEvent(SimEvent newEvent) {
+			int dest = newEvent.getDestination();
+			entities.get(dest).getDeferredQueue().addEvent(newEvent);
+			readyEntities.set(dest);
+		}
+
+		@Override
+		public SimEvent select(Predicate p) {
+			for (SimEntity entity : entities) {
+				SimEvent event = entity.getDeferredQueue().select(p);
+				if (event != null) {
+					return event;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public SimEvent findFirst(Predicate p) {
+			for (SimEntity entity : entities) {
+				SimEvent event = entity.getDeferredQueue().findFirst(p);
+				if (event != null) {
+					return event;
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public int count(Predicate p) {
+			int count = 0;
+			for (SimEntity entity : entities) {
+				count += entity.getDeferredQueue().count(p);
+			}
+			return count;
+		}
+
+		@Override
+		public Iterator<SimEvent> iterator() {
+			return new Iterator<SimEvent>() {
+
+				private int next = 0;
+
+				private Iterator<SimEvent> current = Collections.<SimEvent> emptyIterator();
+
+				@Override
+				public boolean hasNext() {
+					while (!current.hasNext() && next < entities.size()) {
+						current = entities.get(next++).getDeferredQueue().iterator();
+					}
+					return current.hasNext();
+				}
+
+				@Override
+				public SimEvent next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return current.next();
+				}
+
+				@Override
+				public void remove() {
+					current.remove();
+				}
+			};
+		}
+
+		@Override
+		public int size() {
+			return count(CloudSim.SIM_ANY);
+		}
+
+		@Override
+		public void clear() {
+			for (SimEntity entity : entities) {
+				entity.getDeferredQueue().clear();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * This class implements the future event queue used by {@link CloudSim}. The event queue uses a
+ * {@link TreeSet} in order to store the events. Each insertion and removal allocates or releases a
+ * tree node; {@link HeapFutureQueue} keeps the same ordering on a flat array.
+ * 
+ * @author Marcos Dias de Assuncao
+ * @since CloudSim Toolkit 1.0
+ * @see CloudSim
+ * @see java.util.TreeSet
+ */
+public class SortedSetFutureQueue implements FutureQueue {
+
+	/** The sorted set. */
+	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+
+	/** The serial. */
+	private long serial = 0;
+
+	/**
+	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
+	 * the events in the queue.
+	 * 
+	 * @param newEvent The event to be put in the queue.
+	 */
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		sortedSet.add(newEvent);
+	}
+
+	/**
+	 * Add a new event to the head of the queue.
+	 * 
+	 * @param newEvent The event to be put in the queue.
+	 */
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		sortedSet.add(newEvent);
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		return sortedSet.first();
+	}
+
+	@Override
+	public SimEvent poll() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		SimEvent first = sortedSet.first();
+		sortedSet.remove(first);
+		return first;
+	}
+
+	/**
+	 * Returns an iterator to the queue.
+	 * 
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		return sortedSet.iterator();
+	}
+
+	/**
+	 * Returns the size of this event queue.
+	 * 
+	 * @return the size
+	 */
+	@Override
+	public int size() {
+		return sortedSet.size();
+	}
+
+	/**
+	 * Removes the event from the queue.
+	 * 
+	 * @param event the event
+	 * @return true, if successful
+	 */
+	@Override
+	public boolean remove(SimEvent event) {
+		return sortedSet.remove(event);
+	}
+
+	/**
+	 * Removes all the events from the queue.
+	 * 
+	 * @param events the events
+	 * @return true, if successful
+	 */
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		return sortedSet.removeAll(events);
+	}
+
+	/**
+	 * Clears the queue.
+	 */
+	@Override
+	public void clear() {
+		sortedSet.clear();
+	}
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Adjacency arrays of a topological graph: the links leaving node i are the ones from
+ * offsets[i] to offsets[i + 1] (excluded) in targets and delays. As in DelayMatrix_Float, the last
+ * link added between two nodes replaces the others, and the links with a delay of 0 are not links.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+final class DelayGraph {
+
+	final int nodes;
+
+	final int[] offsets;
+
+	final int[] targets;
+
+	final float[] delays;
+
+	DelayGraph(TopologicalGraph graph, boolean directed) {
+		nodes = graph.getNumberOfNodes();
+
+		// the delays of the links, by their nodes
+		Map<Long, Float> links = new LinkedHashMap<Long, Float>();
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink link = itr.next();
+			int src = link.getSrcNodeID();
+			int dest = link.getDestNodeID();
+			if (src == dest) {
+				continue;
+			}
+			if (!directed && src > dest) {
+				src = dest;
+				dest = link.getSrcNodeID();
+			}
+			links.put(((long) src << 32) | dest, link.getLinkDelay());
+		}
+
+		offsets = new int[nodes + 1];
+		for (Map.Entry<Long, Float> link : links.entrySet()) {
+			if (link.getValue() != 0) {
+				offsets[(int) (link.getKey() >>> 32) + 1]++;
+				if (!directed) {
+					offsets[link.getKey().intValue() + 1]++;
+				}
+			}
+		}
+		for (int i = 0; i < nodes; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		targets = new int[offsets[nodes]];
+		delays = new float[offsets[nodes]];
+		int[] next = new int[nodes];
+		System.arraycopy(offsets, 0, next, 0, nodes);
+		for (Map.Entry<Long, Float> link : links.entrySet()) {
+			if (link.getValue() != 0) {
+				int src = (int) (link.getKey() >>> 32);
+				int dest = link.getKey().intValue();
+				add(next, src, dest, link.getValue());
+				if (!directed) {
+					add(next, dest, src, link.getValue());
+				}
+			}
+		}
+	}
+
+	private void add(int[] next, int src, int dest, float delay) {
+		int i = next[src]++;
+		targets[i] = dest;
+		delays[i] = delay;
+	}
+
+}
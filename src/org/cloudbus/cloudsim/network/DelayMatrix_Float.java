@@ -16,7 +16,7 @@ import java.util.Iterator;
  * @author Thomas Hohnstein
  * @since CloudSim Toolkit 1.0
  */
-public class DelayMatrix_Float {
+public class DelayMatrix_Float implements DelayProvider {
 
 	/**
 	 * matrix holding delay information between any two nodes
@@ -50,11 +50,25 @@ public class DelayMatrix_Float {
 		calculateShortestPath();
 	}
 
+	/**
+	 * this constructor creates an correct initialized Float-Delay-Matrix, whose delays are
+	 * calculated by FloydWarshall_Float.parallelAllPairsShortestPaths()
+	 * 
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 * @param threads the number of threads calculating the delays
+	 */
+	public DelayMatrix_Float(TopologicalGraph graph, boolean directed, int threads) {
+		createDelayMatrix(graph, directed);
+		FloydWarshall_Float.parallelAllPairsShortestPaths(mDelayMatrix, threads);
+	}
+
 	/**
 	 * @param srcID the id of the source-node
 	 * @param destID the id of the destination-node
 	 * @return the delay-count between the given two nodes
 	 */
+	@Override
 	public float getDelay(int srcID, int destID) {
 		// check the nodeIDs against internal array-boundarys
 		if (srcID > mTotalNodeNum || destID > mTotalNodeNum) {
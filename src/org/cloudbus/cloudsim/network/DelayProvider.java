@@ -0,0 +1,27 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+/**
+ * This interface abstracts the delays of the shortest paths between the nodes of a topological
+ * graph, whether they are all calculated beforehand or on demand.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public interface DelayProvider {
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay of the shortest path between the given two nodes, Float.MAX_VALUE if they
+	 *         are not connected
+	 */
+	float getDelay(int srcID, int destID);
+
+}
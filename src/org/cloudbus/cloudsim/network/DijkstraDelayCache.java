@@ -0,0 +1,159 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Delays of the shortest paths calculated on demand: the delays from a node to all the others are
+ * calculated by Dijkstra's algorithm the first time one of them is asked for, and the rows of
+ * delays of the nodes asked for last are kept, so that only the rows of the nodes actually sending
+ * events are calculated, in O(m log n) each, instead of the whole matrix in O(n^3).
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public class DijkstraDelayCache implements DelayProvider {
+
+	private final DelayGraph graph;
+
+	private final boolean directed;
+
+	private final Map<Integer, float[]> rows;
+
+	// priority queue of Dijkstra's algorithm: a binary heap of nodes, with their position in it
+	private int[] heap;
+
+	private int[] position;
+
+	private double[] distance;
+
+	/**
+	 * @param graph the topological graph
+	 * @param directed true if the links are one way, false otherwise
+	 * @param maxRows the number of rows of delays kept
+	 */
+	public DijkstraDelayCache(TopologicalGraph graph, boolean directed, final int maxRows) {
+		this.graph = new DelayGraph(graph, directed);
+		this.directed = directed;
+		rows = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+				return size() > maxRows;
+			}
+		};
+		int nodes = this.graph.nodes;
+		heap = new int[nodes];
+		position = new int[nodes];
+		distance = new double[nodes];
+	}
+
+	@Override
+	public synchronized float getDelay(int srcID, int destID) {
+		if (srcID >= graph.nodes || destID >= graph.nodes) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		float[] row = rows.get(srcID);
+		if (row == null && !directed) {
+			row = rows.get(destID);
+			if (row != null) {
+				return row[srcID];
+			}
+		}
+		if (row == null) {
+			row = shortestPaths(srcID);
+			rows.put(srcID, row);
+		}
+		return row[destID];
+	}
+
+	/**
+	 * @return the delays from a node to all the nodes, Float.MAX_VALUE for the ones not connected
+	 */
+	private float[] shortestPaths(int src) {
+		Arrays.fill(distance, Double.MAX_VALUE);
+		Arrays.fill(position, -1);
+		int size = 0;
+		distance[src] = 0;
+		heap[size] = src;
+		position[src] = size++;
+
+		float[] row = new float[graph.nodes];
+		Arrays.fill(row, Float.MAX_VALUE);
+		while (size > 0) {
+			int node = heap[0];
+			size--;
+			if (size > 0) {
+				heap[0] = heap[size];
+				position[heap[0]] = 0;
+				siftDown(0, size);
+			}
+			position[node] = -2; // settled
+			row[node] = (float) distance[node];
+
+			for (int i = graph.offsets[node]; i < graph.offsets[node + 1]; i++) {
+				int next = graph.targets[i];
+				if (position[next] == -2) {
+					continue;
+				}
+				double delay = distance[node] + graph.delays[i];
+				if (delay < distance[next]) {
+					distance[next] = delay;
+					if (position[next] < 0) {
+						heap[size] = next;
+						position[next] = size++;
+					}
+					siftUp(position[next]);
+				}
+			}
+		}
+		return row;
+	}
+
+	private void siftUp(int i) {
+		int node = heap[i];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (distance[heap[parent]] <= distance[node]) {
+				break;
+			}
+			heap[i] = heap[parent];
+			position[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+
+	private void siftDown(int i, int size) {
+		int node = heap[i];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && distance[heap[child + 1]] < distance[heap[child]]) {
+				child++;
+			}
+			if (distance[node] <= distance[heap[child]]) {
+				break;
+			}
+			heap[i] = heap[child];
+			position[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = node;
+		position[node] = i;
+	}
+
+}
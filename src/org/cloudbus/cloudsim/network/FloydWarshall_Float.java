@@ -8,6 +8,13 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 /**
  * FloydWarshall algorithm to calculate all pairs delay and predecessor matrix.
  * 
@@ -136,6 +143,125 @@ public class FloydWarshall_Float {
 		return Pk;
 	}
 
+	/**
+	 * Number of rows and columns of the blocks of parallelAllPairsShortestPaths()
+	 */
+	private static final int BLOCK_SIZE = 64;
+
+	/**
+	 * Calculates the delays of the shortest paths between all pairs of nodes in place, as
+	 * allPairsShortestPaths() does but without the predecessor matrix. The matrix is processed by
+	 * square blocks: for every block of the diagonal, the block itself, then the other blocks of its
+	 * row and column, and then all the other blocks, the blocks of the last two steps being computed
+	 * by several threads.
+	 * 
+	 * @param d the adjacency matrix, where 0 and Float.MAX_VALUE stand for no link, replaced by
+	 *        the delays
+	 * @param threads the number of threads
+	 */
+	public static void parallelAllPairsShortestPaths(final float[][] d, int threads) {
+		final int n = d.length;
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i == j) {
+					d[i][j] = 0;
+				} else if (d[i][j] == 0) {
+					d[i][j] = Float.MAX_VALUE;
+				}
+			}
+		}
+
+		int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads) : null;
+		try {
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			for (int kb = 0; kb < blocks; kb++) {
+				final int k0 = kb * BLOCK_SIZE;
+				final int k1 = Math.min(n, k0 + BLOCK_SIZE);
+				updateBlock(d, k0, k1, k0, k1, k0, k1);
+
+				tasks.clear();
+				for (int b = 0; b < blocks; b++) {
+					if (b == kb) {
+						continue;
+					}
+					final int b0 = b * BLOCK_SIZE;
+					final int b1 = Math.min(n, b0 + BLOCK_SIZE);
+					tasks.add(Executors.callable(new Runnable() {
+
+						@Override
+						public void run() {
+							updateBlock(d, k0, k1, b0, b1, k0, k1);
+							updateBlock(d, b0, b1, k0, k1, k0, k1);
+						}
+					}));
+				}
+				run(pool, tasks);
+
+				tasks.clear();
+				for (int ib = 0; ib < blocks; ib++) {
+					if (ib == kb) {
+						continue;
+					}
+					final int i0 = ib * BLOCK_SIZE;
+					final int i1 = Math.min(n, i0 + BLOCK_SIZE);
+					tasks.add(Executors.callable(new Runnable() {
+
+						@Override
+						public void run() {
+							updateBlock(d, i0, i1, 0, k0, k0, k1);
+							updateBlock(d, i0, i1, k1, n, k0, k1);
+						}
+					}));
+				}
+				run(pool, tasks);
+			}
+		} finally {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
+	}
+
+	private static void run(ExecutorService pool, List<Callable<Object>> tasks) {
+		try {
+			if (pool == null) {
+				for (Callable<Object> task : tasks) {
+					task.call();
+				}
+				return;
+			}
+			for (Future<Object> future : pool.invokeAll(tasks)) {
+				future.get();
+			}
+		} catch (Exception e) {
+			throw new IllegalStateException("Error in the calculation of the shortest paths", e);
+		}
+	}
+
+	/**
+	 * Relaxes the paths between the rows i0 to i1 (excluded) and the columns j0 to j1 through the
+	 * nodes k0 to k1.
+	 */
+	private static void updateBlock(float[][] d, int i0, int i1, int j0, int j1, int k0, int k1) {
+		for (int k = k0; k < k1; k++) {
+			float[] dk = d[k];
+			for (int i = i0; i < i1; i++) {
+				float[] di = d[i];
+				float dik = di[k];
+				if (dik == Float.MAX_VALUE) {
+					continue;
+				}
+				for (int j = j0; j < j1; j++) {
+					float delay = dik + dk[j];
+					if (delay < di[j]) {
+						di[j] = delay;
+					}
+				}
+			}
+		}
+	}
+
 
 /*
   public static void main (String[] argv)
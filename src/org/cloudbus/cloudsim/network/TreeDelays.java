@@ -0,0 +1,109 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+
+/**
+ * Delays of the shortest paths of an undirected topological graph without cycle, such as the
+ * hierarchies of fog devices: the only path between two nodes goes through their lowest common
+ * ancestor, which is found by going up from both nodes, in O(h) for a tree of height h, without
+ * storing anything but the parent of every node.
+ * 
+ * @since CloudSim Toolkit 3.0
+ */
+public class TreeDelays implements DelayProvider {
+
+	private final int[] parent;
+
+	private final float[] parentDelay;
+
+	private final int[] level;
+
+	private TreeDelays(int[] parent, float[] parentDelay, int[] level) {
+		this.parent = parent;
+		this.parentDelay = parentDelay;
+		this.level = level;
+	}
+
+	/**
+	 * @param graph the topological graph, whose links are both ways
+	 * @param maxHeight the maximum height of the trees
+	 * @return the delays of the graph, null if it has a cycle or a tree higher than maxHeight
+	 */
+	public static TreeDelays create(TopologicalGraph graph, int maxHeight) {
+		DelayGraph adjacency = new DelayGraph(graph, false);
+		int nodes = adjacency.nodes;
+		int[] parent = new int[nodes];
+		float[] parentDelay = new float[nodes];
+		int[] level = new int[nodes];
+		Arrays.fill(level, -1);
+
+		int[] queue = new int[nodes];
+		for (int root = 0; root < nodes; root++) {
+			if (level[root] >= 0) {
+				continue;
+			}
+			parent[root] = -1;
+			level[root] = 0;
+			int head = 0;
+			int tail = 0;
+			queue[tail++] = root;
+			while (head < tail) {
+				int node = queue[head++];
+				boolean parentSeen = false;
+				for (int i = adjacency.offsets[node]; i < adjacency.offsets[node + 1]; i++) {
+					int next = adjacency.targets[i];
+					if (next == parent[node] && !parentSeen) {
+						parentSeen = true;
+						continue;
+					}
+					if (level[next] >= 0 || level[node] == maxHeight) {
+						// a cycle, or a tree too high
+						return null;
+					}
+					parent[next] = node;
+					parentDelay[next] = adjacency.delays[i];
+					level[next] = level[node] + 1;
+					queue[tail++] = next;
+				}
+			}
+		}
+		return new TreeDelays(parent, parentDelay, level);
+	}
+
+	@Override
+	public float getDelay(int srcID, int destID) {
+		if (srcID >= parent.length || destID >= parent.length) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		double delay = 0;
+		int src = srcID;
+		int dest = destID;
+		while (level[src] > level[dest]) {
+			delay += parentDelay[src];
+			src = parent[src];
+		}
+		while (level[dest] > level[src]) {
+			delay += parentDelay[dest];
+			dest = parent[dest];
+		}
+		while (src != dest) {
+			if (parent[src] < 0) {
+				// in different trees
+				return Float.MAX_VALUE;
+			}
+			delay += parentDelay[src] + parentDelay[dest];
+			src = parent[src];
+			dest = parent[dest];
+		}
+		return (float) delay;
+	}
+
+}
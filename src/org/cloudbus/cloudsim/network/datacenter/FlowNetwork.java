@@ -0,0 +1,281 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network.datacenter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+
+/**
+ * Fluid model of the network of a NetworkDatacenter, used when NetworkConstants.FLUID_NETWORK is set
+ * instead of forwarding every packet through the switches. A packet sent to another host is a flow
+ * through the ports it would go through: the uplink of its host, the ports of the switches up to the
+ * lowest switch above both hosts and down to the edge switch of the receiving host, and the port of
+ * that switch to the host. The flows share the bandwidth of the ports max-min fairly, so their rates
+ * only change when a flow starts or finishes. A packet is delivered to its receiving host when its
+ * flow finishes plus the switching delays of its path, and the datacenter is only sent an event for
+ * the next flow finishing or packet being delivered.
+ *
+ * The size of a flow is 1000 times the data of its packet, as in the packet model on all the ports but
+ * the ones of the edge switches to their hosts, which take the data over the bandwidth. The bandwidth of
+ * these ports is thus 1000 times the one of their switch, so that each port takes the time of its hop
+ * in the packet model.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class FlowNetwork {
+
+	private static class Port {
+
+		double bandwidth;
+
+		List<Flow> flows = new ArrayList<Flow>();
+
+		// bandwidth left and number of flows whose rate is not set while allocating the rates
+		double left;
+
+		int unset;
+
+		Port(double bandwidth) {
+			this.bandwidth = bandwidth;
+		}
+	}
+
+	private static class Flow {
+
+		NetworkPacket pkt;
+
+		NetworkHost recvhost;
+
+		double latency;
+
+		List<Port> ports = new ArrayList<Port>();
+
+		double remaining;
+
+		double rate;
+
+		double finishtime;
+
+		double delivertime;
+
+		long seq;
+	}
+
+	private static final Comparator<Flow> DELIVERY_ORDER = new Comparator<Flow>() {
+		@Override
+		public int compare(Flow a, Flow b) {
+			int c = Double.compare(a.delivertime, b.delivertime);
+			return c != 0 ? c : Long.compare(a.seq, b.seq);
+		}
+	};
+
+	private final NetworkDatacenter dc;
+
+	private final Map<Long, Port> ports = new HashMap<Long, Port>();
+
+	private final List<Port> portlist = new ArrayList<Port>();
+
+	// flows running, in the order they started
+	private List<Flow> flows = new ArrayList<Flow>();
+
+	// flows finished whose packet is not delivered yet
+	private PriorityQueue<Flow> delivering = new PriorityQueue<Flow>(11, DELIVERY_ORDER);
+
+	private long nextseq;
+
+	private double lastupdate;
+
+	// time of the event scheduled for the next flow finishing or packet delivered, -1 if there is none
+	private double scheduledtime = -1;
+
+	public FlowNetwork(NetworkDatacenter dc) {
+		this.dc = dc;
+	}
+
+	public int getNumberOfFlows() {
+		return flows.size();
+	}
+
+	/**
+	 * Starts the flow of a packet sent by a host to a VM on another host.
+	 *
+	 * @param host the host sending the packet
+	 * @param hspkt the packet
+	 */
+	public void startFlow(NetworkHost host, NetworkPacket hspkt) {
+		update(CloudSim.clock());
+
+		int recvhostid = dc.VmtoHostlist.get(hspkt.recievervmid);
+		hspkt.recieverhostid = recvhostid;
+		Switch edge = host.sw;
+		Switch recvedge = (Switch) CloudSim.getEntity(dc.VmToSwitchid.get(hspkt.recievervmid));
+
+		Flow flow = new Flow();
+		flow.pkt = hspkt;
+		flow.recvhost = recvedge.hostlist.get(recvhostid);
+		flow.seq = nextseq++;
+		flow.remaining = 1000 * hspkt.pkt.data;
+		flow.ports.add(port(-1 - host.getId(), edge.getId(), host.bandwidth));
+		flow.latency = edge.switching_delay;
+		if (recvedge != edge) {
+			// ASSUMPTION EACH EDGE is Connected to one aggregate level switch
+			Switch agg = edge.uplinkswitches.get(0);
+			Switch recvagg = recvedge.uplinkswitches.get(0);
+			flow.ports.add(port(edge.getId(), agg.getId(), edge.uplinkbandwidth));
+			flow.latency += agg.switching_delay;
+			if (recvagg != agg) {
+				Switch root = agg.uplinkswitches.get(0);
+				flow.ports.add(port(agg.getId(), root.getId(), agg.uplinkbandwidth));
+				flow.ports.add(port(root.getId(), recvagg.getId(), root.downlinkbandwidth));
+				flow.latency += root.switching_delay + recvagg.latency;
+			}
+			flow.ports.add(port(recvagg.getId(), recvedge.getId(), recvagg.downlinkbandwidth));
+			flow.latency += recvedge.latency;
+		}
+		flow.ports.add(port(recvedge.getId(), -1 - recvhostid, 1000 * recvedge.downlinkbandwidth));
+
+		for (Port port : flow.ports) {
+			port.flows.add(flow);
+		}
+		flows.add(flow);
+		allocateRates();
+		scheduleNextFinish();
+	}
+
+	/**
+	 * Processes the event scheduled for the next flow finishing or packet delivered: gives the
+	 * bandwidth of the flows finished to the other flows, and delivers the packets due.
+	 */
+	public void processFlowEvent() {
+		double now = Math.max(scheduledtime, CloudSim.clock());
+		scheduledtime = -1;
+		update(now);
+
+		List<Flow> running = new ArrayList<Flow>(flows.size());
+		boolean finished = false;
+		for (Flow flow : flows) {
+			if (flow.finishtime > now) {
+				running.add(flow);
+				continue;
+			}
+			finished = true;
+			for (Port port : flow.ports) {
+				port.flows.remove(flow);
+			}
+			flow.delivertime = flow.finishtime + flow.latency;
+			delivering.add(flow);
+		}
+		flows = running;
+		if (finished) {
+			allocateRates();
+		}
+		while (!delivering.isEmpty() && delivering.peek().delivertime <= now) {
+			// as the edge switch of the receiving host in the packet model
+			Flow flow = delivering.poll();
+			flow.recvhost.packetrecieved.add(flow.pkt);
+		}
+		scheduleNextFinish();
+	}
+
+	private Port port(int from, int to, double bandwidth) {
+		Long key = ((long) from << 32) | (to & 0xffffffffL);
+		Port port = ports.get(key);
+		if (port == null) {
+			port = new Port(bandwidth);
+			ports.put(key, port);
+			portlist.add(port);
+		}
+		return port;
+	}
+
+	/**
+	 * Advances the flows to a time at their current rates.
+	 */
+	private void update(double time) {
+		double elapsed = time - lastupdate;
+		if (elapsed > 0) {
+			for (Flow flow : flows) {
+				flow.remaining = Math.max(0, flow.remaining - flow.rate * elapsed);
+			}
+		}
+		lastupdate = time;
+	}
+
+	/**
+	 * Gives the flows their max-min fair rates: the flows of the port where the flows whose rate is
+	 * not set get the smallest share are given that share, until every flow has its rate.
+	 */
+	private void allocateRates() {
+		for (Port port : portlist) {
+			port.left = port.bandwidth;
+			port.unset = port.flows.size();
+		}
+		for (Flow flow : flows) {
+			flow.rate = -1;
+		}
+		int unset = flows.size();
+		while (unset > 0) {
+			Port bottleneck = null;
+			double share = Double.MAX_VALUE;
+			for (Port port : portlist) {
+				if (port.unset > 0 && port.left / port.unset < share) {
+					share = port.left / port.unset;
+					bottleneck = port;
+				}
+			}
+			share = Math.max(0, share);
+			for (Flow flow : bottleneck.flows) {
+				if (flow.rate >= 0) {
+					continue;
+				}
+				flow.rate = share;
+				unset--;
+				for (Port port : flow.ports) {
+					port.left -= share;
+					port.unset--;
+				}
+			}
+		}
+		for (Flow flow : flows) {
+			flow.finishtime = flow.rate > 0 ? lastupdate + flow.remaining / flow.rate : Double.MAX_VALUE;
+		}
+	}
+
+	private void scheduleNextFinish() {
+		double next = delivering.isEmpty() ? -1 : delivering.peek().delivertime;
+		for (Flow flow : flows) {
+			if (flow.finishtime != Double.MAX_VALUE && (next < 0 || flow.finishtime < next)) {
+				next = flow.finishtime;
+			}
+		}
+		if (next == scheduledtime) {
+			return;
+		}
+		if (scheduledtime >= 0) {
+			CloudSim.cancelAll(dc.getId(), CloudSimTags.Network_Event_Flow);
+		}
+		scheduledtime = next;
+		if (next >= 0) {
+			CloudSim.send(
+					dc.getId(),
+					dc.getId(),
+					Math.max(0, next - CloudSim.clock()),
+					CloudSimTags.Network_Event_Flow,
+					null);
+		}
+	}
+
+}
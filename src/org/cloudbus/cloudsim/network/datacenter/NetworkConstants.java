@@ -55,6 +55,10 @@ public class NetworkConstants {
 
 	public static boolean logflag = false;
 
+	// packets between hosts are flows sharing the bandwidth of the switches (see FlowNetwork)
+	// instead of being forwarded one by one by the switches
+	public static boolean FLUID_NETWORK = false;
+
 	public static int iteration = 10;
 	public static int nexttime = 1000;
 
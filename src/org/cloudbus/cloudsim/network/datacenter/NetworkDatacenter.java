@@ -78,6 +78,7 @@ public class NetworkDatacenter extends Datacenter {
 		HostToSwitchid = new HashMap<Integer, Integer>();
 		VmtoHostlist = new HashMap<Integer, Integer>();
 		Switchlist = new HashMap<Integer, Switch>();
+		flownetwork = new FlowNetwork(this);
 	}
 
 	public Map<Integer, Integer> VmToSwitchid;
@@ -88,6 +89,16 @@ public class NetworkDatacenter extends Datacenter {
 
 	public Map<Integer, Integer> VmtoHostlist;
 
+	private FlowNetwork flownetwork;
+
+	/**
+	 * Get the fluid model of the network, used when NetworkConstants.FLUID_NETWORK is set.
+	 * 
+	 */
+	public FlowNetwork getFlowNetwork() {
+		return flownetwork;
+	}
+
 	/**
 	 * Get list of all EdgeSwitches in the Datacenter network One can design similar functions for
 	 * other type of switches.
@@ -218,4 +229,13 @@ public class NetworkDatacenter extends Datacenter {
 		checkCloudletCompletion();
 	}
 
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.Network_Event_Flow) {
+			flownetwork.processFlowEvent();
+			return;
+		}
+		super.processOtherEvent(ev);
+	}
+
 }
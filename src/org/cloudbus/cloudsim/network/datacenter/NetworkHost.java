@@ -186,6 +186,11 @@ public class NetworkHost extends Host {
 		packetTosendLocal.clear();
 		double avband = bandwidth / packetTosendGlobal.size();
 		for (NetworkPacket hs : packetTosendGlobal) {
+			if (NetworkConstants.FLUID_NETWORK) {
+				NetworkConstants.totaldatatransfer += hs.pkt.data;
+				((NetworkDatacenter) getDatacenter()).getFlowNetwork().startFlow(this, hs);
+				continue;
+			}
 			double delay = (1000 * hs.pkt.data) / avband;
 			NetworkConstants.totaldatatransfer += hs.pkt.data;
 
@@ -10,6 +10,7 @@ package org.cloudbus.cloudsim.sdn;
 
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -43,6 +44,12 @@ public class Channel {
 	private final int chId;
 	private final double requestedBandwidth;	// Requested by user
 	
+	// Used by NetworkOperatingSystem to keep the channels in a heap ordered by the time their next transmission finishes
+	long seq;
+	int queueIndex = -1;
+	double queueTime;
+	boolean touched;
+	
 	public Channel(int chId, int srcId, int dstId, List<Node> nodes, List<Link> links, double bandwidth) {
 		this.chId = chId;
 		this.srcId = srcId;
@@ -81,6 +88,16 @@ public class Channel {
 		nodes.get(nodes.size()-1).updateNetworkUtilization();
 	}
 	
+	/**
+	 * Adds to a set the channels going the same way as this channel through any of its links,
+	 * which are the channels whose bandwidth may depend on this channel.
+	 */
+	void addChannelsAlongLinks(Set<Channel> channels) {
+		for(int i=0; i<nodes.size()-1; i++) {
+			channels.addAll(links.get(i).getChannels(nodes.get(i)));
+		}
+	}
+	
 	private double getLowestSharedBandwidth() {
 		// Get the lowest bandwidth along links in the channel
 		double lowestSharedBw = Double.POSITIVE_INFINITY;
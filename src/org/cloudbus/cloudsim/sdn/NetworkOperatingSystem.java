@@ -16,9 +16,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Host;
@@ -80,6 +82,15 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	public static int resolutionPlaces = 5;
 	public static int timeUnit = 1;	// 1: sec, 1000: msec
 	
+	// Whether only the channels touched are adjusted and updated, see setUpdateAllChannels()
+	private boolean incremental = true;
+	// Channels with transmissions, in a binary heap ordered by the time their next transmission finishes
+	private List<Channel> channelQueue = new ArrayList<Channel>();
+	// Channels whose bandwidth or transmissions changed, to be updated by settleChannels()
+	private List<Channel> touchedChannels = new ArrayList<Channel>();
+	private long nextChannelSeq;
+	// Time of the internal event scheduled, -1 if there is none
+	private double scheduledTime = -1;
 
 
 
@@ -161,8 +172,13 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 
 		}
 		
-		sendInternalEvent();
-		
+		if(incremental) {
+			settleChannels();
+			scheduleInternalEvent();
+		}
+		else {
+			sendInternalEvent();
+		}
 	}
 
 	public void addPackageToChannel(Node sender, Package pkg) {
@@ -177,7 +193,10 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			return;
 		}
 		
-		updatePackageProcessing();
+		if(incremental)
+			processDueChannels(CloudSim.clock());
+		else
+			updatePackageProcessing();
 		
 		pkgTable.put(pkg,sender);
 		
@@ -193,22 +212,176 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 			addChannel(src, dst, flowId, channel);
 		}
 		
+		if(incremental) {
+			// credit the progress made at the bandwidth of the transmissions before this one
+			channel.updatePackageProcessing();
+		}
 		double eft = channel.addTransmission(new Transmission(pkg));
 		Log.printLine(CloudSim.clock() + ": " + getName() + ".addPackageToChannel ("+channel
 				+"): Transmission added:" + 
 				NetworkOperatingSystem.debugVmIdName.get(src) + "->"+
 				NetworkOperatingSystem.debugVmIdName.get(dst) + ", flow ="+flowId + " / eft="+eft);
 
-		sendInternalEvent();
+		if(incremental) {
+			touch(channel);
+			settleChannels();
+			scheduleInternalEvent();
+		}
+		else {
+			sendInternalEvent();
+		}
 	}
 	
 
 	private void internalPackageProcess() {
+		if(incremental) {
+			double due = Math.max(scheduledTime, CloudSim.clock());
+			scheduledTime = -1;
+			processDueChannels(due);
+			scheduleInternalEvent();
+			return;
+		}
 		if(updatePackageProcessing()) {
 			sendInternalEvent();
 		}
 	}
 	
+	/**
+	 * Schedules the internal event at the time the first transmission in the channel queue finishes,
+	 * unless it is already scheduled then.
+	 */
+	private void scheduleInternalEvent() {
+		double next = channelQueue.isEmpty() ? -1 : channelQueue.get(0).queueTime;
+		if(next == scheduledTime)
+			return;
+		if(scheduledTime >= 0)
+			CloudSim.cancelAll(getId(), Constants.SDN_INTERNAL_PACKAGE_PROCESS);
+		scheduledTime = next;
+		if(next >= 0) {
+			double delay = Math.max(0, next - CloudSim.clock());
+			Log.printLine(CloudSim.clock() + ": " + getName() + ".scheduleInternalEvent(): next finish time: "+ delay);
+			send(this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS);
+		}
+	}
+	
+	/**
+	 * Updates the channels whose next transmission finishes by a given time.
+	 */
+	private void processDueChannels(double due) {
+		while(!channelQueue.isEmpty() && channelQueue.get(0).queueTime <= due) {
+			Channel ch = channelQueue.get(0);
+			removeFromQueue(ch);
+			touch(ch);
+		}
+		settleChannels();
+	}
+	
+	private void touch(Channel ch) {
+		if(!ch.touched) {
+			ch.touched = true;
+			touchedChannels.add(ch);
+		}
+	}
+	
+	/**
+	 * Updates the channels touched, sends the packages they completed, removes the ones left without
+	 * transmission and puts the others back in the queue, until removing channels touches no other.
+	 */
+	private void settleChannels() {
+		while(!touchedChannels.isEmpty()) {
+			List<Channel> channels = new ArrayList<Channel>();
+			for(Channel ch:touchedChannels) {
+				ch.touched = false;
+				if(channelTable.get(getKey(ch)) == ch) {
+					ch.updatePackageProcessing();
+					channels.add(ch);
+				}
+			}
+			touchedChannels.clear();
+			
+			processCompletePackages(channels);
+			
+			for(Channel ch:channels) {
+				if(ch.getActiveTransmissionNum() == 0) {
+					// No more job in channel. Delete
+					removeChannel(getKey(ch));
+				}
+				else {
+					double delay = ch.nextFinishTime();
+					if(delay == Double.POSITIVE_INFINITY)
+						removeFromQueue(ch);
+					else
+						updateInQueue(ch, CloudSim.clock() + delay);
+				}
+			}
+		}
+	}
+	
+	private static boolean before(Channel a, Channel b) {
+		return a.queueTime < b.queueTime || (a.queueTime == b.queueTime && a.seq < b.seq);
+	}
+	
+	private void updateInQueue(Channel ch, double time) {
+		if(ch.queueIndex < 0) {
+			ch.queueIndex = channelQueue.size();
+			channelQueue.add(ch);
+		}
+		ch.queueTime = time;
+		siftDown(ch.queueIndex);
+		siftUp(ch.queueIndex);
+	}
+	
+	private void removeFromQueue(Channel ch) {
+		int i = ch.queueIndex;
+		if(i < 0)
+			return;
+		Channel last = channelQueue.remove(channelQueue.size() - 1);
+		ch.queueIndex = -1;
+		if(last != ch) {
+			channelQueue.set(i, last);
+			last.queueIndex = i;
+			siftDown(i);
+			siftUp(last.queueIndex);
+		}
+	}
+	
+	private void siftUp(int i) {
+		Channel ch = channelQueue.get(i);
+		while(i > 0) {
+			int parent = (i - 1) >>> 1;
+			Channel p = channelQueue.get(parent);
+			if(!before(ch, p))
+				break;
+			channelQueue.set(i, p);
+			p.queueIndex = i;
+			i = parent;
+		}
+		channelQueue.set(i, ch);
+		ch.queueIndex = i;
+	}
+	
+	private void siftDown(int i) {
+		Channel ch = channelQueue.get(i);
+		int size = channelQueue.size();
+		while(true) {
+			int child = 2 * i + 1;
+			if(child >= size)
+				break;
+			Channel c = channelQueue.get(child);
+			if(child + 1 < size && before(channelQueue.get(child + 1), c)) {
+				child++;
+				c = channelQueue.get(child);
+			}
+			if(!before(c, ch))
+				break;
+			channelQueue.set(i, c);
+			c.queueIndex = i;
+			i = child;
+		}
+		channelQueue.set(i, ch);
+		ch.queueIndex = i;
+	}
+	
 	private void sendInternalEvent() {
 		CloudSim.cancelAll(getId(), new PredicateType(Constants.SDN_INTERNAL_PACKAGE_PROCESS));
 		
@@ -296,17 +469,63 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
 		this.channelTable.put(getKey(src, dst, chId), ch);
 		ch.initialize();
-		adjustAllChannels();
+		if(incremental) {
+			ch.seq = nextChannelSeq++;
+			adjustChannelsAlongLinks(ch);
+		}
+		else {
+			adjustAllChannels();
+		}
 	}
 	
 	private Channel removeChannel(String key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
 		ch.terminate();
-		adjustAllChannels();
+		if(incremental) {
+			removeFromQueue(ch);
+			adjustChannelsAlongLinks(ch);
+		}
+		else {
+			adjustAllChannels();
+		}
 		return ch;
 	}
 	
+	/**
+	 * Adjusts the bandwidth of the channels which depends on a channel added or removed, as adjustAllChannels()
+	 * does for all of them: the dedicated channels going the same way through any of its links, and then
+	 * the shared channels going the same way through any of its links or through the links of a dedicated
+	 * channel whose bandwidth changed. The channels whose bandwidth changed are touched.
+	 */
+	private void adjustChannelsAlongLinks(Channel changed) {
+		Set<Channel> neighbours = new LinkedHashSet<Channel>();
+		changed.addChannelsAlongLinks(neighbours);
+		
+		Set<Channel> shared = new LinkedHashSet<Channel>();
+		for(Channel ch:neighbours) {
+			if(ch.getChId() == -1) {
+				shared.add(ch);
+				continue;
+			}
+			double bw = ch.getAllocatedBandwidth();
+			ch.adjustDedicatedBandwidthAlongLink();
+			if(ch.getAllocatedBandwidth() != bw) {
+				touch(ch);
+				// the bandwidth left to the shared channels along its links changed
+				ch.addChannelsAlongLinks(shared);
+			}
+		}
+		
+		for(Channel ch:shared) {
+			double bw = ch.getAllocatedBandwidth();
+			ch.adjustSharedBandwidthAlongLink();
+			if(ch.getAllocatedBandwidth() != bw) {
+				touch(ch);
+			}
+		}
+	}
+	
 	private void adjustAllChannels() {
 		for(Channel ch:this.channelTable.values()) {
 			if(ch.adjustDedicatedBandwidthAlongLink()) {
@@ -391,6 +610,10 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	private String getKey(int origin, int destination, int appId) {
 		return getKey(origin,destination)+"-"+appId;
 	}
+	
+	private String getKey(Channel ch) {
+		return getKey(ch.getSrcId(), ch.getDstId(), ch.getChId());
+	}
 
 
 	public void setDatacenter(SDNDatacenter dc) {
@@ -405,6 +628,24 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		return this.switches;
 	}
 
+	/**
+	 * Sets whether, as in the earlier versions, the bandwidth of every channel is adjusted when a channel is
+	 * added or removed, and every channel is updated when a package is sent or a transmission finishes.
+	 * Otherwise only the channels going the same way through a link as the channel added or removed are
+	 * adjusted, and a channel is only updated when its bandwidth or its transmissions change, the channels
+	 * being kept in a heap ordered by the time their next transmission finishes. It is not set by default,
+	 * and can only be changed while there are no channels.
+	 */
+	public void setUpdateAllChannels(boolean updateAllChannels) {
+		if(!channelTable.isEmpty())
+			throw new IllegalStateException("The channel updates cannot be changed once channels are created");
+		this.incremental = !updateAllChannels;
+	}
+
+	public boolean isUpdateAllChannels() {
+		return !incremental;
+	}
+
 	public boolean isApplicationDeployed() {
 		return isApplicationDeployed;
 	}
@@ -9,7 +9,6 @@
 package org.cloudbus.cloudsim.sdn.example;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -18,6 +17,7 @@ import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.VmMap;
 
 /**
  * VmSchedulerSpaceShared is a VMM allocation policy that allocates one or more Pe to a VM, and
@@ -31,7 +31,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 public class VmSchedulerSpaceSharedEnergy extends VmScheduler {
 
 	/** Map containing VM ID and a vector of PEs allocated to this VM. */
-	private Map<String, List<Pe>> peAllocationMap;
+	private VmMap<List<Pe>> peAllocationMap;
 
 	/** The free pes vector. */
 	private List<Pe> freePes;
@@ -43,7 +43,7 @@ public class VmSchedulerSpaceSharedEnergy extends VmScheduler {
 	 */
 	public VmSchedulerSpaceSharedEnergy(List<? extends Pe> pelist) {
 		super(pelist);
-		setPeAllocationMap(new HashMap<String, List<Pe>>());
+		setPeAllocationMap(new VmMap<List<Pe>>().asMap());
 		setFreePes(new ArrayList<Pe>());
 		getFreePes().addAll(pelist);
 	}
@@ -80,8 +80,8 @@ public class VmSchedulerSpaceSharedEnergy extends VmScheduler {
 
 		getFreePes().removeAll(selectedPes);
 
-		getPeAllocationMap().put(vm.getUid(), selectedPes);
-		getMipsMap().put(vm.getUid(), mipsShare);
+		getPeAllocationVmMap().put(vm, selectedPes);
+		getMipsVmMap().put(vm, mipsShare);
 		setAvailableMips(getAvailableMips() - totalMips);
 		return true;
 	}
@@ -92,33 +92,43 @@ public class VmSchedulerSpaceSharedEnergy extends VmScheduler {
 	 */
 	@Override
 	public void deallocatePesForVm(Vm vm) {
-		getFreePes().addAll(getPeAllocationMap().get(vm.getUid()));
-		getPeAllocationMap().remove(vm.getUid());
+		getFreePes().addAll(getPeAllocationVmMap().get(vm));
+		getPeAllocationVmMap().remove(vm);
 
 		double totalMips = 0;
-		for (double mips : getMipsMap().get(vm.getUid())) {
+		for (double mips : getMipsVmMap().get(vm)) {
 			totalMips += mips;
 		}
 		setAvailableMips(getAvailableMips() + totalMips);
 
-		getMipsMap().remove(vm.getUid());
+		getMipsVmMap().remove(vm);
 	}
 
 	/**
-	 * Sets the pe allocation map.
+	 * Sets the pe allocation map. Its entries are copied, unless it was returned by
+	 * {@link #getPeAllocationMap()}.
 	 * 
 	 * @param peAllocationMap the pe allocation map
 	 */
 	protected void setPeAllocationMap(Map<String, List<Pe>> peAllocationMap) {
-		this.peAllocationMap = peAllocationMap;
+		this.peAllocationMap = VmMap.fromMap(peAllocationMap);
 	}
 
 	/**
-	 * Gets the pe allocation map.
+	 * Gets the pe allocation map, keyed by the uids of the VMs.
 	 * 
 	 * @return the pe allocation map
 	 */
 	protected Map<String, List<Pe>> getPeAllocationMap() {
+		return peAllocationMap.asMap();
+	}
+
+	/**
+	 * Gets the pe allocation map, keyed by the IDs of the VMs.
+	 * 
+	 * @return the pe allocation map
+	 */
+	protected VmMap<List<Pe>> getPeAllocationVmMap() {
 		return peAllocationMap;
 	}
 
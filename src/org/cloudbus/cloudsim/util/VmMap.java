@@ -0,0 +1,515 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * A map from VMs to values, keyed by the user ID and the ID of the VMs, which identify a VM as its uid
+ * does, instead of the uid string. The VMs and their values are kept in dense arrays, in the order they
+ * were added, except that removing a VM moves the last one in its place, and the positions of the
+ * entries in these arrays are kept in an open addressing hash table of the IDs. A lookup thus neither
+ * builds nor hashes a string, and the entries can be iterated by position without an iterator:
+ *
+ * <pre>
+ * for (int i = 0; i &lt; map.size(); i++)
+ * 	use(map.getUserId(i), map.getVmId(i), map.getValue(i));
+ * </pre>
+ *
+ * Code written against the uid keyed maps of the schedulers and allocation policies can use the view
+ * returned by {@link #asMap()}, which parses the uids it is given.
+ *
+ * @param <V> the type of the values
+ * @since CloudSim Toolkit 3.0
+ */
+public class VmMap<V> {
+
+	/** The keys of the VMs, by position. */
+	private long[] keys = new long[8];
+
+	/** The values, by position. */
+	private Object[] values = new Object[8];
+
+	/** The number of entries. */
+	private int size;
+
+	/** The hash table of the positions of the entries plus one, 0 marking an empty bucket. */
+	private int[] table = new int[16];
+
+	/** The view of the map keyed by uid, created when first asked for. */
+	private Map<String, V> map;
+
+	/**
+	 * Gets the key of a VM.
+	 *
+	 * @param userId the user ID
+	 * @param vmId the VM ID
+	 * @return the key
+	 */
+	private static long key(int userId, int vmId) {
+		return ((long) userId << 32) | (vmId & 0xffffffffL);
+	}
+
+	private int bucket(long key) {
+		long hash = key * 0x9e3779b97f4a7c15L;
+		return (int) (hash >>> 32) & (table.length - 1);
+	}
+
+	/**
+	 * Gets the position of the entry of a key.
+	 *
+	 * @param key the key
+	 * @return the position, -1 if there is no entry for the key
+	 */
+	private int indexOf(long key) {
+		int mask = table.length - 1;
+		for (int b = bucket(key);; b = (b + 1) & mask) {
+			int index = table[b] - 1;
+			if (index < 0) {
+				return -1;
+			}
+			if (keys[index] == key) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Gets the bucket holding a position.
+	 *
+	 * @param index the position
+	 * @return the bucket
+	 */
+	private int bucketOf(int index) {
+		int mask = table.length - 1;
+		int b = bucket(keys[index]);
+		while (table[b] != index + 1) {
+			b = (b + 1) & mask;
+		}
+		return b;
+	}
+
+	/**
+	 * Gets the value of a VM.
+	 *
+	 * @param vm the VM
+	 * @return the value, null if there is none
+	 */
+	public V get(Vm vm) {
+		return get(vm.getUserId(), vm.getId());
+	}
+
+	/**
+	 * Gets the value of a VM.
+	 *
+	 * @param userId the user ID
+	 * @param vmId the VM ID
+	 * @return the value, null if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(int userId, int vmId) {
+		int index = indexOf(key(userId, vmId));
+		return index < 0 ? null : (V) values[index];
+	}
+
+	/**
+	 * Checks whether a VM has a value.
+	 *
+	 * @param vm the VM
+	 * @return true, if the VM has a value
+	 */
+	public boolean containsKey(Vm vm) {
+		return containsKey(vm.getUserId(), vm.getId());
+	}
+
+	/**
+	 * Checks whether a VM has a value.
+	 *
+	 * @param userId the user ID
+	 * @param vmId the VM ID
+	 * @return true, if the VM has a value
+	 */
+	public boolean containsKey(int userId, int vmId) {
+		return indexOf(key(userId, vmId)) >= 0;
+	}
+
+	/**
+	 * Sets the value of a VM.
+	 *
+	 * @param vm the VM
+	 * @param value the value
+	 * @return the previous value, null if there was none
+	 */
+	public V put(Vm vm, V value) {
+		return put(vm.getUserId(), vm.getId(), value);
+	}
+
+	/**
+	 * Sets the value of a VM.
+	 *
+	 * @param userId the user ID
+	 * @param vmId the VM ID
+	 * @param value the value
+	 * @return the previous value, null if there was none
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(int userId, int vmId, V value) {
+		long key = key(userId, vmId);
+		int index = indexOf(key);
+		if (index >= 0) {
+			V previous = (V) values[index];
+			values[index] = value;
+			return previous;
+		}
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			values = Arrays.copyOf(values, size * 2);
+		}
+		if ((size + 1) * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		keys[size] = key;
+		values[size] = value;
+		size++;
+		int mask = table.length - 1;
+		int b = bucket(key);
+		while (table[b] != 0) {
+			b = (b + 1) & mask;
+		}
+		table[b] = size;
+		return null;
+	}
+
+	/**
+	 * Removes the value of a VM.
+	 *
+	 * @param vm the VM
+	 * @return the value removed, null if there was none
+	 */
+	public V remove(Vm vm) {
+		return remove(vm.getUserId(), vm.getId());
+	}
+
+	/**
+	 * Removes the value of a VM.
+	 *
+	 * @param userId the user ID
+	 * @param vmId the VM ID
+	 * @return the value removed, null if there was none
+	 */
+	public V remove(int userId, int vmId) {
+		int index = indexOf(key(userId, vmId));
+		return index < 0 ? null : removeAt(index);
+	}
+
+	/**
+	 * Removes an entry, moving the last one in its place.
+	 *
+	 * @param index the position of the entry
+	 * @return the value removed
+	 */
+	@SuppressWarnings("unchecked")
+	private V removeAt(int index) {
+		V value = (V) values[index];
+		removeBucket(bucketOf(index));
+		int last = size - 1;
+		if (index != last) {
+			// moves the last entry in place of the removed one
+			table[bucketOf(last)] = index + 1;
+			keys[index] = keys[last];
+			values[index] = values[last];
+		}
+		values[last] = null;
+		size--;
+		return value;
+	}
+
+	/**
+	 * Empties a bucket, moving back the entries of the buckets after it which would not be found
+	 * otherwise.
+	 *
+	 * @param b the bucket
+	 */
+	private void removeBucket(int b) {
+		int mask = table.length - 1;
+		int hole = b;
+		for (int next = (hole + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+			int home = bucket(keys[table[next] - 1]);
+			// the entry can fill the hole if its home bucket is not between the hole and it
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				table[hole] = table[next];
+				hole = next;
+			}
+		}
+		table[hole] = 0;
+	}
+
+	private void rehash(int capacity) {
+		table = new int[capacity];
+		int mask = capacity - 1;
+		for (int index = 0; index < size; index++) {
+			int b = bucket(keys[index]);
+			while (table[b] != 0) {
+				b = (b + 1) & mask;
+			}
+			table[b] = index + 1;
+		}
+	}
+
+	/**
+	 * Removes all the entries.
+	 */
+	public void clear() {
+		if (size == 0) {
+			return;
+		}
+		Arrays.fill(values, 0, size, null);
+		Arrays.fill(table, 0);
+		size = 0;
+	}
+
+	/**
+	 * Gets the number of entries.
+	 *
+	 * @return the number of entries
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks whether the map is empty.
+	 *
+	 * @return true, if there is no entry
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the user ID of an entry.
+	 *
+	 * @param index the position of the entry, less than size()
+	 * @return the user ID
+	 */
+	public int getUserId(int index) {
+		return (int) (keys[index] >> 32);
+	}
+
+	/**
+	 * Gets the VM ID of an entry.
+	 *
+	 * @param index the position of the entry, less than size()
+	 * @return the VM ID
+	 */
+	public int getVmId(int index) {
+		return (int) keys[index];
+	}
+
+	/**
+	 * Gets the uid of the VM of an entry.
+	 *
+	 * @param index the position of the entry, less than size()
+	 * @return the uid
+	 */
+	public String getUid(int index) {
+		return Vm.getUid(getUserId(index), getVmId(index));
+	}
+
+	/**
+	 * Gets the value of an entry.
+	 *
+	 * @param index the position of the entry, less than size()
+	 * @return the value
+	 */
+	@SuppressWarnings("unchecked")
+	public V getValue(int index) {
+		return (V) values[index];
+	}
+
+	/**
+	 * Gets a view of the map keyed by the uids of the VMs, as returned by {@link Vm#getUid()}. Changes
+	 * to the view write through to the map. Keys which are not uids are treated as absent, and putting
+	 * one throws an IllegalArgumentException.
+	 *
+	 * @return the view
+	 */
+	public Map<String, V> asMap() {
+		if (map == null) {
+			map = new UidMap();
+		}
+		return map;
+	}
+
+	/**
+	 * Gets the map behind a uid keyed map, copying the entries of the latter in a new map unless it is a
+	 * view returned by {@link #asMap()}.
+	 *
+	 * @param map the uid keyed map
+	 * @return the map
+	 */
+	public static <V> VmMap<V> fromMap(Map<String, V> map) {
+		if (map instanceof VmMap.UidMap) {
+			return ((VmMap<V>.UidMap) map).getVmMap();
+		}
+		VmMap<V> vmMap = new VmMap<V>();
+		vmMap.asMap().putAll(map);
+		return vmMap;
+	}
+
+	/**
+	 * Parses a uid.
+	 *
+	 * @param uid the uid
+	 * @return the key, or null if the object is not a uid
+	 */
+	private static Long parseUid(Object uid) {
+		if (!(uid instanceof String)) {
+			return null;
+		}
+		String s = (String) uid;
+		// the user ID may be negative, so the separator is looked for after its first character
+		int separator = s.indexOf('-', 1);
+		if (separator < 0) {
+			return null;
+		}
+		try {
+			return key(Integer.parseInt(s.substring(0, separator)), Integer.parseInt(s.substring(separator + 1)));
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The view of the map keyed by uid.
+	 */
+	private class UidMap extends AbstractMap<String, V> {
+
+		private Set<Map.Entry<String, V>> entrySet;
+
+		VmMap<V> getVmMap() {
+			return VmMap.this;
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public boolean containsKey(Object uid) {
+			Long key = parseUid(uid);
+			return key != null && indexOf(key) >= 0;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(Object uid) {
+			Long key = parseUid(uid);
+			int index = key == null ? -1 : indexOf(key);
+			return index < 0 ? null : (V) values[index];
+		}
+
+		@Override
+		public V put(String uid, V value) {
+			Long key = parseUid(uid);
+			if (key == null) {
+				throw new IllegalArgumentException("Not a VM uid: " + uid);
+			}
+			return VmMap.this.put((int) (key >> 32), (int) key.longValue(), value);
+		}
+
+		@Override
+		public V remove(Object uid) {
+			Long key = parseUid(uid);
+			int index = key == null ? -1 : indexOf(key);
+			return index < 0 ? null : removeAt(index);
+		}
+
+		@Override
+		public void clear() {
+			VmMap.this.clear();
+		}
+
+		@Override
+		public Set<Map.Entry<String, V>> entrySet() {
+			if (entrySet == null) {
+				entrySet = new AbstractSet<Map.Entry<String, V>>() {
+
+					@Override
+					public int size() {
+						return size;
+					}
+
+					@Override
+					public void clear() {
+						VmMap.this.clear();
+					}
+
+					@Override
+					public Iterator<Map.Entry<String, V>> iterator() {
+						return new Iterator<Map.Entry<String, V>>() {
+
+							private int next;
+
+							private int last = -1;
+
+							@Override
+							public boolean hasNext() {
+								return next < size;
+							}
+
+							@Override
+							public Map.Entry<String, V> next() {
+								if (next >= size) {
+									throw new NoSuchElementException();
+								}
+								last = next++;
+								return new AbstractMap.SimpleEntry<String, V>(getUid(last), getValue(last)) {
+
+									private static final long serialVersionUID = 1L;
+
+									private final long key = keys[last];
+
+									@Override
+									public V setValue(V value) {
+										super.setValue(value);
+										return VmMap.this.put((int) (key >> 32), (int) key, value);
+									}
+								};
+							}
+
+							@Override
+							public void remove() {
+								if (last < 0) {
+									throw new IllegalStateException();
+								}
+								// the last entry moves in place of the removed one, which is thus visited next
+								removeAt(last);
+								next = last;
+								last = -1;
+							}
+						};
+					}
+				};
+			}
+			return entrySet;
+		}
+
+	}
+
+}
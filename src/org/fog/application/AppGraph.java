@@ -0,0 +1,225 @@
+package org.fog.application;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.selectivity.SelectivityModel;
+
+/**
+ * Dataflow graph of an application compiled into arrays indexed by vertex, so that the lookups done
+ * for every tuple (resultant tuples of a module, loops starting or ending with an edge) do not scan the
+ * edges and loops of the application. Vertices are the modules, sensors and actuators named by the edges
+ * and loops. The graph is immutable: the application compiles a new one when it is changed.
+ */
+public class AppGraph {
+
+	private static final AppLoop[] NO_LOOPS = new AppLoop[0];
+	private static final Output[] NO_OUTPUTS = new Output[0];
+
+	/**
+	 * Edge leaving a module for a given input tuple type, with the selectivity of the mapping
+	 */
+	public static class Output {
+		private final AppEdge edge;
+		private final SelectivityModel selectivityModel;
+
+		Output(AppEdge edge, SelectivityModel selectivityModel){
+			this.edge = edge;
+			this.selectivityModel = selectivityModel;
+		}
+		public AppEdge getEdge() {
+			return edge;
+		}
+		public SelectivityModel getSelectivityModel() {
+			return selectivityModel;
+		}
+	}
+
+	private final Map<String, Integer> vertexIds;
+	private final int numVertices;
+
+	/**
+	 * Indexed by source vertex * numVertices + destination vertex
+	 */
+	private final AppLoop[] firstLoops;
+	private final AppLoop[] firstEndingLoops;
+	private final AppLoop[][] startingLoops;
+
+	/**
+	 * Indexed by source vertex
+	 */
+	private final List<Map<String, Output[]>> outputs;
+	private final AppEdge[] lastEdges;
+
+	public AppGraph(Application application){
+		Map<String, Integer> vertexIds = new HashMap<String, Integer>();
+		for(AppModule module : application.getModules())
+			addVertex(vertexIds, module.getName());
+		for(AppEdge edge : application.getEdges()){
+			addVertex(vertexIds, edge.getSource());
+			addVertex(vertexIds, edge.getDestination());
+		}
+		for(AppLoop loop : application.getLoops())
+			for(String module : loop.getModules())
+				addVertex(vertexIds, module);
+		this.vertexIds = vertexIds;
+		numVertices = vertexIds.size();
+
+		List<AppLoop> loops = application.getLoops();
+		int[] loopStarts = new int[loops.size()];
+		int[] loopEnds = new int[loops.size()];
+		// loops having each edge, by source and destination vertex
+		BitSet[] edgeLoops = new BitSet[numVertices*numVertices];
+		for(int l=0;l<loops.size();l++){
+			List<String> modules = loops.get(l).getModules();
+			loopStarts[l] = getVertexId(modules.get(0));
+			loopEnds[l] = getVertexId(modules.get(modules.size()-1));
+			for(int i=0;i<modules.size()-1;i++){
+				int edge = getVertexId(modules.get(i))*numVertices + getVertexId(modules.get(i+1));
+				if(edgeLoops[edge] == null)
+					edgeLoops[edge] = new BitSet();
+				edgeLoops[edge].set(l);
+			}
+		}
+		firstLoops = new AppLoop[edgeLoops.length];
+		firstEndingLoops = new AppLoop[edgeLoops.length];
+		startingLoops = new AppLoop[edgeLoops.length][];
+		for(int edge=0;edge<edgeLoops.length;edge++){
+			startingLoops[edge] = NO_LOOPS;
+			if(edgeLoops[edge] == null)
+				continue;
+			int src = edge / numVertices, dest = edge % numVertices;
+			List<AppLoop> starting = new ArrayList<AppLoop>();
+			for(int l = edgeLoops[edge].nextSetBit(0); l >= 0; l = edgeLoops[edge].nextSetBit(l+1)){
+				if(firstLoops[edge] == null)
+					firstLoops[edge] = loops.get(l);
+				if(firstEndingLoops[edge] == null && loopEnds[l] == dest)
+					firstEndingLoops[edge] = loops.get(l);
+				if(loopStarts[l] == src)
+					starting.add(loops.get(l));
+			}
+			if(!starting.isEmpty())
+				startingLoops[edge] = starting.toArray(NO_LOOPS);
+		}
+
+		outputs = new ArrayList<Map<String, Output[]>>();
+		for(int i=0;i<numVertices;i++)
+			outputs.add(null);
+		lastEdges = new AppEdge[numVertices];
+		Map<Integer, Map<String, List<Output>>> moduleOutputs = new HashMap<Integer, Map<String, List<Output>>>();
+		for(AppEdge edge : application.getEdges()){
+			int src = getVertexId(edge.getSource());
+			lastEdges[src] = edge;
+			AppModule module = application.getModuleByName(edge.getSource());
+			if(module == null)
+				continue;
+			for(Pair<String, String> mapping : module.getSelectivityMap().keySet()){
+				SelectivityModel selectivityModel = module.getSelectivityMap().get(mapping);
+				if(!mapping.getSecond().equals(edge.getTupleType()) || selectivityModel == null)
+					continue;
+				if(!moduleOutputs.containsKey(src))
+					moduleOutputs.put(src, new HashMap<String, List<Output>>());
+				Map<String, List<Output>> byInput = moduleOutputs.get(src);
+				if(!byInput.containsKey(mapping.getFirst()))
+					byInput.put(mapping.getFirst(), new ArrayList<Output>());
+				byInput.get(mapping.getFirst()).add(new Output(edge, selectivityModel));
+			}
+		}
+		for(Integer src : moduleOutputs.keySet()){
+			Map<String, Output[]> byInput = new HashMap<String, Output[]>();
+			for(String inputTupleType : moduleOutputs.get(src).keySet())
+				byInput.put(inputTupleType, moduleOutputs.get(src).get(inputTupleType).toArray(NO_OUTPUTS));
+			outputs.set(src, byInput);
+		}
+	}
+
+	private static void addVertex(Map<String, Integer> vertexIds, String name){
+		if(!vertexIds.containsKey(name))
+			vertexIds.put(name, vertexIds.size());
+	}
+
+	/**
+	 * Gets the index of a module, sensor or actuator in the graph, or -1 if it is not in the graph.
+	 */
+	public int getVertexId(String name){
+		Integer id = vertexIds.get(name);
+		return id == null ? -1 : id;
+	}
+
+	/**
+	 * @return the number of vertices, which are numbered from 0
+	 */
+	public int getNumVertices(){
+		return numVertices;
+	}
+
+	private int getEdgeIndex(String src, String dest){
+		int srcId = getVertexId(src), destId = getVertexId(dest);
+		if(srcId < 0 || destId < 0)
+			return -1;
+		return srcId*numVertices + destId;
+	}
+
+	/**
+	 * Gets the first application loop, in the order of the loops of the application, having an edge.
+	 * @param src source of the edge
+	 * @param dest destination of the edge
+	 * @return the loop, or null if no loop has the edge
+	 */
+	public AppLoop getFirstLoopWithEdge(String src, String dest){
+		int edge = getEdgeIndex(src, dest);
+		return edge < 0 ? null : firstLoops[edge];
+	}
+
+	/**
+	 * Gets the first application loop having an edge and ending with its destination.
+	 * @param src source of the edge
+	 * @param dest destination of the edge
+	 * @return the loop, or null if there is none
+	 */
+	public AppLoop getFirstLoopEndingWithEdge(String src, String dest){
+		int edge = getEdgeIndex(src, dest);
+		return edge < 0 ? null : firstEndingLoops[edge];
+	}
+
+	/**
+	 * Gets the application loops having an edge and starting with its source, in the order of the
+	 * loops of the application. The returned array must not be modified.
+	 * @param src source of the edge
+	 * @param dest destination of the edge
+	 * @return the loops
+	 */
+	public AppLoop[] getLoopsStartingWithEdge(String src, String dest){
+		int edge = getEdgeIndex(src, dest);
+		return edge < 0 ? NO_LOOPS : startingLoops[edge];
+	}
+
+	/**
+	 * Gets the edges along which a module emits tuples upon execution of an incoming tuple type, in the
+	 * order of the edges of the application, with their selectivity. The returned array must not be modified.
+	 * @param moduleName name of the module
+	 * @param inputTupleType type of the incoming tuple
+	 * @return the outputs
+	 */
+	public Output[] getOutputs(String moduleName, String inputTupleType){
+		int src = getVertexId(moduleName);
+		if(src < 0 || outputs.get(src) == null)
+			return NO_OUTPUTS;
+		Output[] result = outputs.get(src).get(inputTupleType);
+		return result == null ? NO_OUTPUTS : result;
+	}
+
+	/**
+	 * Gets the last edge, in the order of the edges of the application, leaving a module or a sensor.
+	 * @param source name of the module, or tuple type of the sensor
+	 * @return the edge, or null if there is none
+	 */
+	public AppEdge getLastEdgeFrom(String source){
+		int src = getVertexId(source);
+		return src < 0 ? null : lastEdges[src];
+	}
+}
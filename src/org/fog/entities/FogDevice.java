@@ -5,7 +5,6 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.Cloudlet;
@@ -32,6 +31,7 @@ import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogSettings;
 import org.fog.utils.FogUtils;
 import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
@@ -39,8 +39,11 @@ import org.fog.utils.NetworkUsageMonitor;
 import org.fog.utils.TimeKeeper;
 
 public class FogDevice extends PowerDatacenter {
-	protected Queue<Tuple> northTupleQueue;
-	protected Queue<Pair<Tuple, Integer>> southTupleQueue;
+	/**
+	 * Link to the parent, and links to the children by child id, created on their first use
+	 */
+	protected TupleLink northLink;
+	protected Map<Integer, TupleLink> southLinks;
 	
 	protected List<String> activeApplications;
 	
@@ -69,16 +72,6 @@ public class FogDevice extends PowerDatacenter {
 
 	protected Map<Integer, List<String>> childToOperatorsMap;
 	
-	/**
-	 * Flag denoting whether the link southwards from this FogDevice is busy
-	 */
-	protected boolean isSouthLinkBusy;
-	
-	/**
-	 * Flag denoting whether the link northwards from this FogDevice is busy
-	 */
-	protected boolean isNorthLinkBusy;
-	
 	protected double uplinkBandwidth;
 	protected double downlinkBandwidth;
 	protected double uplinkLatency;
@@ -95,6 +88,16 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected Map<String, Map<String, Integer>> moduleInstanceCount;
 	
+	/**
+	 * Next hops towards the entities below this device, set by the controller
+	 */
+	protected RoutingTable routingTable;
+	
+	/**
+	 * Settings of the simulation the device belongs to
+	 */
+	protected final FogSettings settings = FogSettings.getInstance();
+	
 	public FogDevice(
 			String name, 
 			FogDeviceCharacteristics characteristics,
@@ -128,10 +131,7 @@ public class FogDevice extends PowerDatacenter {
 		
 		applicationMap = new HashMap<String, Application>();
 		appToModulesMap = new HashMap<String, List<String>>();
-		northTupleQueue = new LinkedList<Tuple>();
-		southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
-		setNorthLinkBusy(false);
-		setSouthLinkBusy(false);
+		southLinks = new HashMap<Integer, TupleLink>();
 		
 		
 		setChildrenIds(new ArrayList<Integer>());
@@ -212,10 +212,7 @@ public class FogDevice extends PowerDatacenter {
 		
 		applicationMap = new HashMap<String, Application>();
 		appToModulesMap = new HashMap<String, List<String>>();
-		northTupleQueue = new LinkedList<Tuple>();
-		southTupleQueue = new LinkedList<Pair<Tuple, Integer>>();
-		setNorthLinkBusy(false);
-		setSouthLinkBusy(false);
+		southLinks = new HashMap<Integer, TupleLink>();
 		
 		
 		setChildrenIds(new ArrayList<Integer>());
@@ -268,7 +265,7 @@ public class FogDevice extends PowerDatacenter {
 			updateNorthTupleQueue();
 			break;
 		case FogEvents.UPDATE_SOUTH_TUPLE_QUEUE:
-			updateSouthTupleQueue();
+			updateSouthTupleQueue(ev);
 			break;
 		case FogEvents.ACTIVE_APP_UPDATE:
 			updateActiveApplications(ev);
@@ -291,6 +288,7 @@ public class FogDevice extends PowerDatacenter {
 	 * @param ev
 	 */
 	private void manageResources(SimEvent ev) {
+		updateModulesProcessing();
 		updateEnergyConsumption();
 		send(getId(), Config.RESOURCE_MGMT_INTERVAL, FogEvents.RESOURCE_MGMT);
 	}
@@ -305,7 +303,7 @@ public class FogDevice extends PowerDatacenter {
 		if(!moduleInstanceCount.containsKey(appId))
 			moduleInstanceCount.put(appId, new HashMap<String, Integer>());
 		moduleInstanceCount.get(appId).put(config.getModule().getName(), config.getInstanceCount());
-		System.out.println(getName()+ " Creating "+config.getInstanceCount()+" instances of module "+config.getModule().getName());
+		Logger.info("{} Creating {} instances of module {}", getName(), config.getInstanceCount(), config.getModule().getName());
 	}
 
 	private AppModule getModuleByName(String moduleName){
@@ -464,11 +462,15 @@ public class FogDevice extends PowerDatacenter {
 						Tuple tuple = (Tuple)cl;
 						TimeKeeper.getInstance().tupleEndedExecution(tuple);
 						Application application = getApplicationMap().get(tuple.getAppId());
-						Logger.debug(getName(), "Completed execution of tuple "+tuple.getCloudletId()+"on "+tuple.getDestModuleName());
+						if(Logger.isDebugEnabled())
+							Logger.debug(getName(), "Completed execution of tuple {} on {}", tuple.getCloudletId(), tuple.getDestModuleName());
 						List<Tuple> resultantTuples = application.getResultantTuples(tuple.getDestModuleName(), tuple, getId(), vm.getId());
+						Map<String, Integer> moduleCopyMap = null;
 						for(Tuple resTuple : resultantTuples){
-							resTuple.setModuleCopyMap(new HashMap<String, Integer>(tuple.getModuleCopyMap()));
-							resTuple.getModuleCopyMap().put(((AppModule)vm).getName(), vm.getId());
+							// the resultant tuples share their module copy map
+							if(moduleCopyMap == null)
+								moduleCopyMap = tuple.getModuleCopyMap(((AppModule)vm).getName(), vm.getId());
+							resTuple.setModuleCopyMap(moduleCopyMap);
 							updateTimingsOnSending(resTuple);
 							sendToSelf(resTuple);
 						}
@@ -486,22 +488,17 @@ public class FogDevice extends PowerDatacenter {
 		// WILL NEED TO CHECK IF A NEW LOOP STARTS AND INSERT A UNIQUE TUPLE ID TO IT.
 		String srcModule = resTuple.getSrcModuleName();
 		String destModule = resTuple.getDestModuleName();
-		for(AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getLoops()){
-			if(loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)){
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				resTuple.setActualTupleId(tupleId);
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				
-				//Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
-				
-			}
+		for(AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getGraph().getLoopsStartingWithEdge(srcModule, destModule)){
+			TimeKeeper.getInstance().loopStarted(loop, resTuple);
+			
+			//Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
+			
 		}
 	}
 
 	protected int getChildIdWithRouteTo(int targetDeviceId){
+		if(getRoutingTable() != null)
+			return getRoutingTable().getNextHop(targetDeviceId);
 		for(Integer childId : getChildrenIds()){
 			if(targetDeviceId == childId)
 				return childId;
@@ -520,6 +517,19 @@ public class FogDevice extends PowerDatacenter {
 	}
 	
 	protected void updateAllocatedMips(String incomingOperator){
+		if(getHost().getVmScheduler() instanceof StreamOperatorScheduler){
+			// the requests that do not change are skipped, without the lists of the generic API
+			StreamOperatorScheduler scheduler = (StreamOperatorScheduler)getHost().getVmScheduler();
+			List<Vm> vms = getHost().getVmList();
+			for(int i=0;i<vms.size();i++){
+				Vm vm = vms.get(i);
+				boolean running = vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator);
+				scheduler.requestMips(vm, running ? getHost().getTotalMips() : 0.0);
+			}
+			updateModulesProcessing();
+			updateEnergyConsumption();
+			return;
+		}
 		getHost().getVmScheduler().deallocatePesForAllVms();
 		for(final Vm vm : getHost().getVmList()){
 			if(vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule)vm).getName().equals(incomingOperator)){
@@ -533,23 +543,35 @@ public class FogDevice extends PowerDatacenter {
 			}
 		}
 		
+		updateModulesProcessing();
 		updateEnergyConsumption();
 		
 	}
 	
-	private void updateEnergyConsumption() {
-		double totalMipsAllocated = 0;
+	/**
+	 * Updates the processing of the modules with the MIPS allocated to them.
+	 */
+	private void updateModulesProcessing() {
 		for(final Vm vm : getHost().getVmList()){
 			AppModule operator = (AppModule)vm;
 			operator.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(operator).getVmScheduler()
 					.getAllocatedMipsForVm(operator));
+		}
+	}
+	
+	/**
+	 * Accounts for the energy consumed and the cost incurred since the last update, at the utilization
+	 * of the host sampled then, and samples the current utilization. The power and the cost being constant
+	 * between two updates, they only need to be called when the MIPS allocated change.
+	 */
+	private void updateEnergyConsumption() {
+		double totalMipsAllocated = 0;
+		for(final Vm vm : getHost().getVmList()){
 			totalMipsAllocated += getHost().getTotalAllocatedMipsForVm(vm);
 		}
 		
 		double timeNow = CloudSim.clock();
-		double currentEnergyConsumption = getEnergyConsumption();
-		double newEnergyConsumption = currentEnergyConsumption + (timeNow-lastUtilizationUpdateTime)*getHost().getPowerModel().getPower(lastUtilization);
-		setEnergyConsumption(newEnergyConsumption);
+		energyConsumption = energyConsumption + (timeNow-lastUtilizationUpdateTime)*getHost().getPowerModel().getPower(lastUtilization);
 	
 		/*if(getName().equals("d-0")){
 			System.out.println("------------------------");
@@ -558,9 +580,7 @@ public class FogDevice extends PowerDatacenter {
 			System.out.println(timeNow-lastUtilizationUpdateTime);
 		}*/
 		
-		double currentCost = getTotalCost();
-		double newcost = currentCost + (timeNow-lastUtilizationUpdateTime)*getRatePerMips()*lastUtilization*getHost().getTotalMips();
-		setTotalCost(newcost);
+		totalCost = totalCost + (timeNow-lastUtilizationUpdateTime)*getRatePerMips()*lastUtilization*getHost().getTotalMips();
 		
 		lastUtilization = Math.min(1, totalMipsAllocated/getHost().getTotalMips());
 		lastUtilizationUpdateTime = timeNow;
@@ -608,9 +628,47 @@ public class FogDevice extends PowerDatacenter {
 				return;
 			}
 		}
-		for(int childId : getChildrenIds()){
+		if(isFloodingDown()){
+			sendDown(tuple, getChildrenIds());
+			return;
+		}
+		int childId = getRoutingTable().getNextHop(tuple.getActuatorId());
+		if(childId >= 0){
 			sendDown(tuple, childId);
+			return;
+		}
+		sendDown(tuple, getRoutingTable().getActuatorTypeHops(tuple.getDestModuleName()));
+	}
+	
+	/**
+	 * Whether the tuples going down are copied to every child instead of being routed, see FogSettings.isFloodDownTuples().
+	 * @return
+	 */
+	protected boolean isFloodingDown(){
+		return settings.isFloodDownTuples() || getRoutingTable() == null;
+	}
+	
+	/**
+	 * Sends down a tuple going to a module: to the child leading to the module instance the tuple is bound to,
+	 * if the tuple is bound to one below this device, else to the children leading to an instance of the module.
+	 * @param tuple
+	 */
+	protected void sendDownToModule(Tuple tuple){
+		if(isFloodingDown()){
+			sendDown(tuple, getChildrenIds());
+			return;
+		}
+		Integer vmId = tuple.getModuleCopyMap().get(tuple.getDestModuleName());
+		if(vmId != null){
+			int childId = getRoutingTable().getModuleInstanceHop(tuple.getAppId(), vmId);
+			if(childId >= 0){
+				sendDown(tuple, childId);
+				return;
+			}
+			Logger.error(getName(), "No route to instance {} of module {}, sending the tuple to all its instances below",
+					vmId, tuple.getDestModuleName());
 		}
+		sendDown(tuple, getRoutingTable().getModuleHops(tuple.getAppId(), tuple.getDestModuleName()));
 	}
 	int numClients=0;
 	protected void processTupleArrival(SimEvent ev){
@@ -623,11 +681,13 @@ public class FogDevice extends PowerDatacenter {
 		/*if(getName().equals("d-0") && tuple.getTupleType().equals("_SENSOR")){
 			System.out.println(++numClients);
 		}*/
-		Logger.debug(getName(), "Received tuple "+tuple.getCloudletId()+"with tupleType = "+tuple.getTupleType()+"\t| Source : "+
-		CloudSim.getEntityName(ev.getSource())+"|Dest : "+CloudSim.getEntityName(ev.getDestination()));
-		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
+		if(Logger.isDebugEnabled())
+			Logger.debug(getName(), "Received tuple {} with tupleType = {}\t| Source : {}\t| Dest : {}", tuple.getCloudletId(), tuple.getTupleType(),
+					CloudSim.getEntityName(ev.getSource()), CloudSim.getEntityName(ev.getDestination()));
+		if(settings.isPerTupleLinkEvents())
+			send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 		
-		if(FogUtils.appIdToGeoCoverageMap.containsKey(tuple.getAppId())){
+		if(FogUtils.getAppIdToGeoCoverageMap().containsKey(tuple.getAppId())){
 		}
 		
 		if(tuple.getDirection() == Tuple.ACTUATOR){
@@ -638,10 +698,16 @@ public class FogDevice extends PowerDatacenter {
 		if(getHost().getVmList().size() > 0){
 			final AppModule operator = (AppModule)getHost().getVmList().get(0);
 			if(CloudSim.clock() > 0){
-				getHost().getVmScheduler().deallocatePesForVm(operator);
-				getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>(){
-					protected static final long serialVersionUID = 1L;
-				{add((double) getHost().getTotalMips());}});
+				if(getHost().getVmScheduler() instanceof StreamOperatorScheduler){
+					((StreamOperatorScheduler)getHost().getVmScheduler()).requestMips(operator, getHost().getTotalMips());
+				}else{
+					getHost().getVmScheduler().deallocatePesForVm(operator);
+					getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>(){
+						protected static final long serialVersionUID = 1L;
+					{add((double) getHost().getTotalMips());}});
+				}
+				if(!settings.isPeriodicResourceMgmt())
+					updateEnergyConsumption();
 			}
 		}
 		
@@ -672,8 +738,7 @@ public class FogDevice extends PowerDatacenter {
 				if(tuple.getDirection() == Tuple.UP)
 					sendUp(tuple);
 				else if(tuple.getDirection() == Tuple.DOWN){
-					for(int childId : getChildrenIds())
-						sendDown(tuple, childId);
+					sendDownToModule(tuple);
 				}
 			}else{
 				sendUp(tuple);
@@ -682,8 +747,7 @@ public class FogDevice extends PowerDatacenter {
 			if(tuple.getDirection() == Tuple.UP)
 				sendUp(tuple);
 			else if(tuple.getDirection() == Tuple.DOWN){
-				for(int childId : getChildrenIds())
-					sendDown(tuple, childId);
+				sendDownToModule(tuple);
 			}
 		}
 	}
@@ -692,34 +756,18 @@ public class FogDevice extends PowerDatacenter {
 		Application app = getApplicationMap().get(tuple.getAppId());
 		String srcModule = tuple.getSrcModuleName();
 		String destModule = tuple.getDestModuleName();
-		List<AppLoop> loops = app.getLoops();
-		for(AppLoop loop : loops){
-			if(loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)){				
-				Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				if(startTime==null)
-					break;
-				if(!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())){
-					TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-					TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-				}
-				double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-				int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-				double delay = CloudSim.clock()- TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-				TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
-				TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-				TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount+1);
-				break;
-			}
-		}
+		AppLoop loop = app.getGraph().getFirstLoopEndingWithEdge(srcModule, destModule);
+		if(loop != null)
+			TimeKeeper.getInstance().loopEnded(loop, tuple.getActualTupleId());
 	}
 
 	protected void processSensorJoining(SimEvent ev){
-		send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
+		if(settings.isPerTupleLinkEvents())
+			send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
 	}
 	
 	protected void executeTuple(SimEvent ev, String moduleName){
-		Logger.debug(getName(), "Executing tuple on module "+moduleName);
+		Logger.debug(getName(), "Executing tuple on module {}", moduleName);
 		Tuple tuple = (Tuple)ev.getData();
 		
 		AppModule module = getModuleByName(moduleName);
@@ -763,6 +811,8 @@ public class FogDevice extends PowerDatacenter {
 		
 		module.updateVmProcessing(CloudSim.clock(), getVmAllocationPolicy().getHost(module).getVmScheduler()
 				.getAllocatedMipsForVm(module));
+		if(!settings.isPeriodicResourceMgmt())
+			updateEnergyConsumption();
 	}
 	
 	private void initializePeriodicTuples(AppModule module) {
@@ -776,21 +826,24 @@ public class FogDevice extends PowerDatacenter {
 
 	protected void processOperatorRelease(SimEvent ev){
 		this.processVmMigrate(ev, false);
+		if(!settings.isPeriodicResourceMgmt())
+			updateEnergyConsumption();
 	}
 	
 	
 	protected void updateNorthTupleQueue(){
-		if(!getNorthTupleQueue().isEmpty()){
-			Tuple tuple = getNorthTupleQueue().poll();
+		TupleLink link = getNorthLink();
+		if(!link.isQueueEmpty()){
+			Tuple tuple = link.dequeue();
 			sendUpFreeLink(tuple);
 		}else{
-			setNorthLinkBusy(false);
+			link.setBusy(false);
 		}
 	}
 	
 	protected void sendUpFreeLink(Tuple tuple){
-		double networkDelay = tuple.getCloudletFileSize()/getUplinkBandwidth();
-		setNorthLinkBusy(true);
+		double networkDelay = tuple.getCloudletFileSize()/getNorthLink().getBandwidth();
+		getNorthLink().setBusy(true);
 		send(getId(), networkDelay, FogEvents.UPDATE_NORTH_TUPLE_QUEUE);
 		send(parentId, networkDelay+getUplinkLatency(), FogEvents.TUPLE_ARRIVAL, tuple);
 		NetworkUsageMonitor.sendingTuple(getUplinkLatency(), tuple.getCloudletFileSize());
@@ -798,44 +851,110 @@ public class FogDevice extends PowerDatacenter {
 	
 	protected void sendUp(Tuple tuple){
 		if(parentId > 0){
-			if(!isNorthLinkBusy()){
+			if(!settings.isPerTupleLinkEvents()){
+				sendOverLink(getNorthLink(), tuple, parentId, getUplinkLatency());
+			}else if(!getNorthLink().isBusy()){
 				sendUpFreeLink(tuple);
 			}else{
-				northTupleQueue.add(tuple);
+				getNorthLink().enqueue(tuple, parentId);
 			}
 		}
 	}
 	
 	
-	protected void updateSouthTupleQueue(){
-		if(!getSouthTupleQueue().isEmpty()){
-			Pair<Tuple, Integer> pair = getSouthTupleQueue().poll(); 
-			sendDownFreeLink(pair.getFirst(), pair.getSecond());
+	/**
+	 * Sends the next tuple waiting for the link to a child that has become free, the link being the data of the event.
+	 * @param ev
+	 */
+	protected void updateSouthTupleQueue(SimEvent ev){
+		TupleLink link = (TupleLink)ev.getData();
+		if(!link.isQueueEmpty()){
+			int childId = link.peekDestination();
+			sendDownFreeLink(link.dequeue(), childId);
 		}else{
-			setSouthLinkBusy(false);
+			link.setBusy(false);
 		}
 	}
 	
 	protected void sendDownFreeLink(Tuple tuple, int childId){
-		double networkDelay = tuple.getCloudletFileSize()/getDownlinkBandwidth();
+		TupleLink link = getSouthLink(childId);
+		double networkDelay = tuple.getCloudletFileSize()/link.getBandwidth();
 		//Logger.debug(getName(), "Sending tuple with tupleType = "+tuple.getTupleType()+" DOWN");
-		setSouthLinkBusy(true);
+		link.setBusy(true);
 		double latency = getChildToLatencyMap().get(childId);
-		send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE);
+		send(getId(), networkDelay, FogEvents.UPDATE_SOUTH_TUPLE_QUEUE, link);
 		send(childId, networkDelay+latency, FogEvents.TUPLE_ARRIVAL, tuple);
 		NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
 	}
 	
+	/**
+	 * Sends a tuple down to several children, every child but the first receiving a copy of the tuple,
+	 * so that the devices below do not execute the same cloudlet.
+	 * @param tuple
+	 * @param childIds
+	 */
+	protected void sendDown(Tuple tuple, List<Integer> childIds){
+		boolean first = true;
+		for(int childId : childIds){
+			sendDown(first ? tuple : tuple.copy(), childId);
+			first = false;
+		}
+	}
+	
 	protected void sendDown(Tuple tuple, int childId){
-		if(getChildrenIds().contains(childId)){
-			if(!isSouthLinkBusy()){
+		if(getChildToLatencyMap().containsKey(childId)){
+			TupleLink link = getSouthLink(childId);
+			if(!settings.isPerTupleLinkEvents()){
+				sendOverLink(link, tuple, childId, getChildToLatencyMap().get(childId));
+			}else if(!link.isBusy()){
 				sendDownFreeLink(tuple, childId);
 			}else{
-				southTupleQueue.add(new Pair<Tuple, Integer>(tuple, childId));
+				link.enqueue(tuple, childId);
 			}
 		}
 	}
 	
+	/**
+	 * Sends a tuple over a link, scheduling its arrival once the tuples sent before it over the link and
+	 * the tuple itself are transmitted, see TupleLink.reserve().
+	 * @param link the link
+	 * @param tuple the tuple
+	 * @param destinationId the entity at the other end of the link
+	 * @param latency the latency of the link
+	 */
+	protected void sendOverLink(TupleLink link, Tuple tuple, int destinationId, double latency){
+		double now = CloudSim.clock();
+		double transmissionEnd = link.reserve(now, tuple.getCloudletFileSize()/link.getBandwidth());
+		send(destinationId, transmissionEnd-now+latency, FogEvents.TUPLE_ARRIVAL, tuple);
+		NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
+	}
+	
+	/**
+	 * Gets the link to the parent.
+	 * @return
+	 */
+	public TupleLink getNorthLink(){
+		if(northLink == null)
+			northLink = new TupleLink(getUplinkBandwidth());
+		return northLink;
+	}
+	
+	/**
+	 * Gets the link to a child: a link of its own, at the downlink bandwidth, unless the children share one
+	 * link (see FogSettings.isSharedSouthLink()).
+	 * @param childId
+	 * @return
+	 */
+	public TupleLink getSouthLink(int childId){
+		int linkId = settings.isSharedSouthLink() ? -1 : childId;
+		TupleLink link = southLinks.get(linkId);
+		if(link == null){
+			link = new TupleLink(getDownlinkBandwidth());
+			southLinks.put(linkId, link);
+		}
+		return link;
+	}
+	
 	
 	protected void sendToSelf(Tuple tuple){
 		send(getId(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ARRIVAL, tuple);
@@ -867,18 +986,6 @@ public class FogDevice extends PowerDatacenter {
 	public void setUplinkLatency(double uplinkLatency) {
 		this.uplinkLatency = uplinkLatency;
 	}
-	public boolean isSouthLinkBusy() {
-		return isSouthLinkBusy;
-	}
-	public boolean isNorthLinkBusy() {
-		return isNorthLinkBusy;
-	}
-	public void setSouthLinkBusy(boolean isSouthLinkBusy) {
-		this.isSouthLinkBusy = isSouthLinkBusy;
-	}
-	public void setNorthLinkBusy(boolean isNorthLinkBusy) {
-		this.isNorthLinkBusy = isNorthLinkBusy;
-	}
 	public int getControllerId() {
 		return controllerId;
 	}
@@ -906,22 +1013,6 @@ public class FogDevice extends PowerDatacenter {
 		this.applicationMap = applicationMap;
 	}
 
-	public Queue<Tuple> getNorthTupleQueue() {
-		return northTupleQueue;
-	}
-
-	public void setNorthTupleQueue(Queue<Tuple> northTupleQueue) {
-		this.northTupleQueue = northTupleQueue;
-	}
-
-	public Queue<Pair<Tuple, Integer>> getSouthTupleQueue() {
-		return southTupleQueue;
-	}
-
-	public void setSouthTupleQueue(Queue<Pair<Tuple, Integer>> southTupleQueue) {
-		this.southTupleQueue = southTupleQueue;
-	}
-
 	public double getDownlinkBandwidth() {
 		return downlinkBandwidth;
 	}
@@ -938,8 +1029,14 @@ public class FogDevice extends PowerDatacenter {
 		this.associatedActuatorIds = associatedActuatorIds;
 	}
 	
+	/**
+	 * @return the energy consumed until now, including the energy consumed since the last update
+	 * at the utilization then, unless the device is updated periodically (FogSettings.isPeriodicResourceMgmt())
+	 */
 	public double getEnergyConsumption() {
-		return energyConsumption;
+		if(settings.isPeriodicResourceMgmt())
+			return energyConsumption;
+		return energyConsumption + (CloudSim.clock()-lastUtilizationUpdateTime)*getHost().getPowerModel().getPower(lastUtilization);
 	}
 
 	public void setEnergyConsumption(double energyConsumption) {
@@ -968,8 +1065,13 @@ public class FogDevice extends PowerDatacenter {
 	public void setRatePerMips(double ratePerMips) {
 		this.ratePerMips = ratePerMips;
 	}
+	/**
+	 * @return the cost incurred until now, see getEnergyConsumption()
+	 */
 	public double getTotalCost() {
-		return totalCost;
+		if(settings.isPeriodicResourceMgmt())
+			return totalCost;
+		return totalCost + (CloudSim.clock()-lastUtilizationUpdateTime)*getRatePerMips()*lastUtilization*getHost().getTotalMips();
 	}
 
 	public void setTotalCost(double totalCost) {
@@ -984,4 +1086,12 @@ public class FogDevice extends PowerDatacenter {
 			Map<String, Map<String, Integer>> moduleInstanceCount) {
 		this.moduleInstanceCount = moduleInstanceCount;
 	}
+
+	public RoutingTable getRoutingTable() {
+		return routingTable;
+	}
+
+	public void setRoutingTable(RoutingTable routingTable) {
+		this.routingTable = routingTable;
+	}
 }
\ No newline at end of file
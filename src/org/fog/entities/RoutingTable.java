@@ -0,0 +1,138 @@
+package org.fog.entities;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Next hops of a fog device towards the entities below it, computed by the controller: the child leading to
+ * each fog device, actuator and module instance of the subtree, and the children leading to the actuators of
+ * each type and to the instances of each module. Tuples sent down are routed with it instead of being
+ * copied to every child.
+ */
+public class RoutingTable {
+
+	private static final List<Integer> NO_HOPS = new ArrayList<Integer>(0);
+
+	/**
+	 * Children of the device, whose order is kept by the lists of next hops
+	 */
+	private final List<Integer> childrenIds;
+	private Map<Integer, Integer> childPositions;
+	/**
+	 * Next hop by fog device or actuator id
+	 */
+	private Map<Integer, Integer> entityHops;
+	private Map<String, List<Integer>> actuatorTypeHops;
+	/**
+	 * Next hop by module instance id, then next hops by module name, by application id
+	 */
+	private Map<String, Map<Integer, Integer>> moduleInstanceHops;
+	private Map<String, Map<String, List<Integer>>> moduleHops;
+
+	public RoutingTable(List<Integer> childrenIds){
+		this.childrenIds = childrenIds;
+		childPositions = new HashMap<Integer, Integer>();
+		entityHops = new HashMap<Integer, Integer>();
+		actuatorTypeHops = new HashMap<String, List<Integer>>();
+		moduleInstanceHops = new HashMap<String, Map<Integer, Integer>>();
+		moduleHops = new HashMap<String, Map<String, List<Integer>>>();
+	}
+
+	/**
+	 * Adds a child to a list of next hops, keeping the order of the children.
+	 */
+	private void addHop(List<Integer> hops, int childId){
+		if(childPositions.size() != childrenIds.size()){
+			childPositions.clear();
+			for(int i=0;i<childrenIds.size();i++)
+				childPositions.put(childrenIds.get(i), i);
+		}
+		int position = getChildPosition(childId);
+		// binary search of the first hop after the child, the hops being mostly added in order
+		int low = 0, high = hops.size();
+		while(low < high){
+			int middle = (low + high) >>> 1;
+			int middlePosition = getChildPosition(hops.get(middle));
+			if(middlePosition == position)
+				return;
+			if(middlePosition < position)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		hops.add(low, childId);
+	}
+
+	private int getChildPosition(int childId){
+		Integer position = childPositions.get(childId);
+		return position == null ? Integer.MAX_VALUE : position;
+	}
+
+	public void addDeviceRoute(int deviceId, int childId){
+		entityHops.put(deviceId, childId);
+	}
+
+	public void addActuatorRoute(int actuatorId, String actuatorType, int childId){
+		entityHops.put(actuatorId, childId);
+		if(!actuatorTypeHops.containsKey(actuatorType))
+			actuatorTypeHops.put(actuatorType, new ArrayList<Integer>());
+		addHop(actuatorTypeHops.get(actuatorType), childId);
+	}
+
+	public void addModuleRoute(String appId, String moduleName, int vmId, int childId){
+		if(!moduleInstanceHops.containsKey(appId)){
+			moduleInstanceHops.put(appId, new HashMap<Integer, Integer>());
+			moduleHops.put(appId, new HashMap<String, List<Integer>>());
+		}
+		moduleInstanceHops.get(appId).put(vmId, childId);
+		if(!moduleHops.get(appId).containsKey(moduleName))
+			moduleHops.get(appId).put(moduleName, new ArrayList<Integer>());
+		addHop(moduleHops.get(appId).get(moduleName), childId);
+	}
+
+	/**
+	 * Gets the child leading to a fog device or an actuator.
+	 * @param entityId id of the fog device or of the actuator
+	 * @return the child id, or -1 if the entity is not below the device
+	 */
+	public int getNextHop(int entityId){
+		Integer childId = entityHops.get(entityId);
+		return childId == null ? -1 : childId;
+	}
+
+	/**
+	 * Gets the children leading to the actuators of a type. The returned list must not be modified.
+	 * @param actuatorType type of the actuators
+	 * @return the child ids, in the order of the children of the device
+	 */
+	public List<Integer> getActuatorTypeHops(String actuatorType){
+		List<Integer> hops = actuatorTypeHops.get(actuatorType);
+		return hops == null ? NO_HOPS : hops;
+	}
+
+	/**
+	 * Gets the child leading to an instance of a module.
+	 * @param appId id of the application
+	 * @param vmId id of the module instance
+	 * @return the child id, or -1 if the instance is not below the device
+	 */
+	public int getModuleInstanceHop(String appId, int vmId){
+		Map<Integer, Integer> hops = moduleInstanceHops.get(appId);
+		Integer childId = hops == null ? null : hops.get(vmId);
+		return childId == null ? -1 : childId;
+	}
+
+	/**
+	 * Gets the children leading to the instances of a module. The returned list must not be modified.
+	 * @param appId id of the application
+	 * @param moduleName name of the module
+	 * @return the child ids, in the order of the children of the device
+	 */
+	public List<Integer> getModuleHops(String appId, String moduleName){
+		Map<String, List<Integer>> hops = moduleHops.get(appId);
+		List<Integer> result = hops == null ? null : hops.get(moduleName);
+		return result == null ? NO_HOPS : result;
+	}
+}
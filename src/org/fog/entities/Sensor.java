@@ -1,7 +1,5 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
-
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -79,43 +77,39 @@ public class Sensor extends SimEntity{
 	}
 	
 	public void transmit(){
-		AppEdge _edge = null;
-		for(AppEdge edge : getApp().getEdges()){
-			if(edge.getSource().equals(getTupleType()))
-				_edge = edge;
-		}
+		AppEdge _edge = getApp().getGraph().getLastEdgeFrom(getTupleType());
 		long cpuLength = (long) _edge.getTupleCpuLength();
 		long nwLength = (long) _edge.getTupleNwLength();
 		
-		Tuple tuple = new Tuple(getAppId(), FogUtils.generateTupleId(), Tuple.UP, cpuLength, 1, nwLength, outputSize, 
-				new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+		final Tuple tuple = new Tuple(getAppId(), -1, Tuple.UP, cpuLength, 1, nwLength, outputSize, 
+				UtilizationModelFull.INSTANCE, UtilizationModelFull.INSTANCE, UtilizationModelFull.INSTANCE);
+		FogUtils.generateTupleId(tuple);
 		tuple.setUserId(getUserId());
 		tuple.setTupleType(getTupleType());
 		
 		tuple.setDestModuleName(_edge.getDestination());
 		tuple.setSrcModuleName(getSensorName());
-		Logger.debug(getName(), "Sending tuple with tupleId = "+tuple.getCloudletId());
+		if(Logger.isDebugEnabled()){
+			// the id is given at the end of the tick when running in parallel
+			CloudSim.runOrdered(new Runnable() {
+				@Override
+				public void run() {
+					Logger.debug(getName(), "Sending tuple with tupleId = {}", tuple.getCloudletId());
+				}
+			});
+		}
 
-		int actualTupleId = updateTimings(getSensorName(), tuple.getDestModuleName());
-		tuple.setActualTupleId(actualTupleId);
+		updateTimings(getSensorName(), tuple);
 		
 		send(gatewayDeviceId, getLatency(), FogEvents.TUPLE_ARRIVAL,tuple);
 	}
 	
-	private int updateTimings(String src, String dest){
-		Application application = getApp();
-		for(AppLoop loop : application.getLoops()){
-			if(loop.hasEdge(src, dest)){
-				
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				return tupleId;
-			}
-		}
-		return -1;
+	private void updateTimings(String src, Tuple tuple){
+		AppLoop loop = getApp().getGraph().getFirstLoopWithEdge(src, tuple.getDestModuleName());
+		if(loop != null)
+			TimeKeeper.getInstance().loopStarted(loop, tuple);
+		else
+			tuple.setActualTupleId(-1);
 	}
 	
 	@Override
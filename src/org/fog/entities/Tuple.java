@@ -1,5 +1,6 @@
 package org.fog.entities;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,7 +26,8 @@ public class Tuple extends Cloudlet{
 	/**
 	 * Map to keep track of which module instances has a tuple traversed.
 	 * 
-	 * Map from moduleName to vmId of a module instance
+	 * Map from moduleName to vmId of a module instance. It is shared by the tuples derived from
+	 * each other, so it is never modified in place, see getModuleCopyMap(String, int).
 	 */
 	private Map<String, Integer> moduleCopyMap;
 	
@@ -40,7 +42,36 @@ public class Tuple extends Cloudlet{
 		setAppId(appId);
 		setDirection(direction);
 		setSourceDeviceId(-1);
-		setModuleCopyMap(new HashMap<String, Integer>());
+		setModuleCopyMap(Collections.<String, Integer>emptyMap());
+	}
+
+	/**
+	 * Creates a tuple with the same ids, modules and sizes as this one, but with a cloudlet state of its own,
+	 * for one of several devices this tuple is sent to, which must not execute the same cloudlet.
+	 * @return the copy
+	 */
+	public Tuple copy(){
+		Tuple copy = new Tuple(getAppId(), getCloudletId(), getDirection(), getCloudletLength(), getNumberOfPes(),
+				getCloudletFileSize(), getCloudletOutputSize(), getUtilizationModelCpu(),
+				getUtilizationModelRam(), getUtilizationModelBw());
+		copy.setUserId(getUserId());
+		copy.setTupleType(getTupleType());
+		copy.setDestModuleName(getDestModuleName());
+		copy.setSrcModuleName(getSrcModuleName());
+		copy.setActualTupleId(getActualTupleId());
+		copy.setActuatorId(getActuatorId());
+		copy.setSourceDeviceId(getSourceDeviceId());
+		copy.setSourceModuleId(getSourceModuleId());
+		copy.setModuleCopyMap(getModuleCopyMap());
+		return copy;
+	}
+
+	/**
+	 * Sets the id of the tuple, see FogUtils.generateTupleId(Tuple).
+	 */
+	@Override
+	public void setCloudletId(int cloudletId) {
+		super.setCloudletId(cloudletId);
 	}
 
 	public int getActualTupleId() {
@@ -115,6 +146,22 @@ public class Tuple extends Cloudlet{
 		this.moduleCopyMap = moduleCopyMap;
 	}
 
+	/**
+	 * Gets the module copy map of the tuples resulting from the execution of this tuple by a module instance.
+	 * The map of this tuple is returned when it already holds the instance, a copy with the instance otherwise.
+	 * @param moduleName name of the module
+	 * @param vmId id of the module instance
+	 * @return the module copy map
+	 */
+	public Map<String, Integer> getModuleCopyMap(String moduleName, int vmId) {
+		Integer copyId = moduleCopyMap.get(moduleName);
+		if(copyId != null && copyId == vmId)
+			return moduleCopyMap;
+		Map<String, Integer> copyMap = new HashMap<String, Integer>(moduleCopyMap);
+		copyMap.put(moduleName, vmId);
+		return copyMap;
+	}
+
 	public int getSourceModuleId() {
 		return sourceModuleId;
 	}
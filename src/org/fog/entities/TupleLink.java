@@ -0,0 +1,111 @@
+package org.fog.entities;
+
+/**
+ * A network link of a fog device, towards its parent or its children, transmitting one tuple at a time at
+ * its bandwidth. The tuples waiting for the link are kept in a FIFO ring buffer along with the entity each
+ * of them is sent to, so that a link may be shared by several children. The latencies of the links are
+ * kept by the fog device, as the uplink latency and the latencies of its children.
+ */
+public class TupleLink {
+
+	private final double bandwidth;
+	private boolean busy;
+	/**
+	 * Time at which the transmissions reserved so far end
+	 */
+	private double freeAt;
+
+	private Tuple[] tuples = new Tuple[8];
+	private int[] destinations = new int[8];
+	private int head;
+	private int size;
+
+	/**
+	 * @param bandwidth bandwidth of the link
+	 */
+	public TupleLink(double bandwidth){
+		this.bandwidth = bandwidth;
+	}
+
+	public double getBandwidth() {
+		return bandwidth;
+	}
+
+	/**
+	 * @return true if a tuple is being transmitted on the link
+	 */
+	public boolean isBusy() {
+		return busy;
+	}
+
+	public void setBusy(boolean busy) {
+		this.busy = busy;
+	}
+
+	/**
+	 * Reserves the link for the transmission of a tuple, which starts once the transmissions reserved before
+	 * have ended. This computes the departure of the tuple as if it waited in the queue of the link, without
+	 * the events serving the queue.
+	 * @param now the current time
+	 * @param transmissionTime time taken to transmit the tuple
+	 * @return the time at which the transmission ends
+	 */
+	public double reserve(double now, double transmissionTime){
+		freeAt = Math.max(now, freeAt) + transmissionTime;
+		return freeAt;
+	}
+
+	public boolean isQueueEmpty() {
+		return size == 0;
+	}
+
+	public int getQueueLength() {
+		return size;
+	}
+
+	/**
+	 * Queues a tuple waiting for the link.
+	 * @param tuple the tuple
+	 * @param destinationId the entity the tuple is sent to
+	 */
+	public void enqueue(Tuple tuple, int destinationId){
+		if(size == tuples.length){
+			Tuple[] newTuples = new Tuple[2*size];
+			int[] newDestinations = new int[2*size];
+			for(int i=0;i<size;i++){
+				newTuples[i] = tuples[(head+i) % size];
+				newDestinations[i] = destinations[(head+i) % size];
+			}
+			tuples = newTuples;
+			destinations = newDestinations;
+			head = 0;
+		}
+		int tail = (head+size) % tuples.length;
+		tuples[tail] = tuple;
+		destinations[tail] = destinationId;
+		size++;
+	}
+
+	/**
+	 * @return the entity the first tuple of the queue is sent to
+	 */
+	public int peekDestination(){
+		if(size == 0)
+			throw new IllegalStateException("The queue of the link is empty");
+		return destinations[head];
+	}
+
+	/**
+	 * Removes the first tuple of the queue.
+	 * @return the tuple
+	 */
+	public Tuple dequeue(){
+		if(size == 0)
+			throw new IllegalStateException("The queue of the link is empty");
+		Tuple tuple = tuples[head];
+		tuples[head] = null;
+		head = (head+1) % tuples.length;
+		size--;
+		return tuple;
+	}
+}
@@ -14,17 +14,19 @@ import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.Actuator;
 import org.fog.entities.FogDevice;
+import org.fog.entities.RoutingTable;
 import org.fog.entities.Sensor;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
+import org.fog.utils.FogSettings;
 import org.fog.utils.FogUtils;
+import org.fog.utils.Logger;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.SimulationResults;
 import org.fog.utils.TimeKeeper;
 
 public class Controller extends SimEntity{
 	
-	public static boolean ONLY_CLOUD = false;
-		
 	private List<FogDevice> fogDevices;
 	private List<Sensor> sensors;
 	private List<Actuator> actuators;
@@ -34,6 +36,10 @@ public class Controller extends SimEntity{
 
 	private Map<String, ModulePlacement> appModulePlacementPolicy;
 	
+	// when unset, the results are kept and the simulation is terminated at the end instead of printing them and exiting the JVM
+	private boolean exitOnStop = true;
+	private SimulationResults results;
+	
 	public Controller(String name, List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators) {
 		super(name);
 		this.applications = new HashMap<String, Application>();
@@ -48,23 +54,62 @@ public class Controller extends SimEntity{
 		connectWithLatencies();
 	}
 
-	private FogDevice getFogDeviceById(int id){
-		for(FogDevice fogDevice : getFogDevices()){
-			if(id==fogDevice.getId())
-				return fogDevice;
-		}
-		return null;
-	}
-	
 	private void connectWithLatencies(){
+		Map<Integer, FogDevice> fogDevicesById = new HashMap<Integer, FogDevice>();
+		for(FogDevice fogDevice : getFogDevices())
+			fogDevicesById.put(fogDevice.getId(), fogDevice);
 		for(FogDevice fogDevice : getFogDevices()){
-			FogDevice parent = getFogDeviceById(fogDevice.getParentId());
+			FogDevice parent = fogDevicesById.get(fogDevice.getParentId());
 			if(parent == null)
 				continue;
 			double latency = fogDevice.getUplinkLatency();
 			parent.getChildToLatencyMap().put(fogDevice.getId(), latency);
 			parent.getChildrenIds().add(fogDevice.getId());
 		}
+		buildRoutingTables();
+	}
+	
+	/**
+	 * Gives every fog device the next hops towards the fog devices and actuators below it.
+	 */
+	private void buildRoutingTables(){
+		for(FogDevice fogDevice : getFogDevices())
+			fogDevice.setRoutingTable(new RoutingTable(fogDevice.getChildrenIds()));
+		for(FogDevice fogDevice : getFogDevices()){
+			int childId = fogDevice.getId();
+			for(FogDevice parent = getParent(fogDevice); parent != null && parent.getRoutingTable() != null; parent = getParent(parent)){
+				parent.getRoutingTable().addDeviceRoute(fogDevice.getId(), childId);
+				childId = parent.getId();
+			}
+		}
+		for(Actuator actuator : getActuators()){
+			SimEntity gateway = CloudSim.getEntity(actuator.getGatewayDeviceId());
+			if(!(gateway instanceof FogDevice))
+				continue;
+			int childId = gateway.getId();
+			for(FogDevice parent = getParent((FogDevice)gateway); parent != null && parent.getRoutingTable() != null; parent = getParent(parent)){
+				parent.getRoutingTable().addActuatorRoute(actuator.getId(), actuator.getActuatorType(), childId);
+				childId = parent.getId();
+			}
+		}
+	}
+	
+	/**
+	 * Gives the ancestors of the fog device hosting a module instance the next hop towards it.
+	 */
+	private void addModuleRoutes(int deviceId, AppModule module){
+		int childId = deviceId;
+		for(FogDevice parent = getParent((FogDevice)CloudSim.getEntity(deviceId)); parent != null && parent.getRoutingTable() != null; parent = getParent(parent)){
+			parent.getRoutingTable().addModuleRoute(module.getAppId(), module.getName(), module.getId(), childId);
+			childId = parent.getId();
+		}
+	}
+	
+	private FogDevice getParent(FogDevice fogDevice){
+		if(fogDevice.getParentId() < 0)
+			return null;
+		SimEntity parent = CloudSim.getEntity(fogDevice.getParentId());
+		return parent instanceof FogDevice ? (FogDevice)parent : null;
 	}
 	
 	@Override
@@ -80,8 +125,10 @@ public class Controller extends SimEntity{
 		
 		send(getId(), Config.MAX_SIMULATION_TIME, FogEvents.STOP_SIMULATION);
 		
-		for(FogDevice dev : getFogDevices())
-			sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		if(FogSettings.getInstance().isPeriodicResourceMgmt()){
+			for(FogDevice dev : getFogDevices())
+				sendNow(dev.getId(), FogEvents.RESOURCE_MGMT);
+		}
 
 	}
 
@@ -99,6 +146,11 @@ public class Controller extends SimEntity{
 			break;
 		case FogEvents.STOP_SIMULATION:
 			CloudSim.stopSimulation();
+			if(!isExitOnStop()){
+				setResults(collectResults());
+				CloudSim.abruptallyTerminate();
+				break;
+			}
 			printTimeDetails();
 			printPowerDetails();
 			printCostDetails();
@@ -148,17 +200,7 @@ public class Controller extends SimEntity{
 		System.out.println("=========================================");
 		System.out.println("APPLICATION LOOP DELAYS");
 		System.out.println("=========================================");
-		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToTupleIds().keySet()){
-			/*double average = 0, count = 0;
-			for(int tupleId : TimeKeeper.getInstance().getLoopIdToTupleIds().get(loopId)){
-				Double startTime = 	TimeKeeper.getInstance().getEmitTimes().get(tupleId);
-				Double endTime = 	TimeKeeper.getInstance().getEndTimes().get(tupleId);
-				if(startTime == null || endTime == null)
-					break;
-				average += endTime-startTime;
-				count += 1;
-			}
-			System.out.println(getStringForLoopId(loopId) + " ---> "+(average/count));*/
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToDelayHistogram().keySet()){
 			System.out.println(getStringForLoopId(loopId) + " ---> "+TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
 		}
 		System.out.println("=========================================");
@@ -172,6 +214,25 @@ public class Controller extends SimEntity{
 		System.out.println("=========================================");
 	}
 
+	private SimulationResults collectResults(){
+		SimulationResults results = new SimulationResults();
+		results.setExecutionTime(Calendar.getInstance().getTimeInMillis() - TimeKeeper.getInstance().getSimulationStartTime());
+		for(Integer loopId : TimeKeeper.getInstance().getLoopIdToDelayHistogram().keySet()){
+			results.getLoopDelays().put(getStringForLoopId(loopId), TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loopId));
+			results.getLoopDelayHistograms().put(getStringForLoopId(loopId), TimeKeeper.getInstance().getLoopIdToDelayHistogram().get(loopId));
+		}
+		for(String tupleType : TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().keySet()){
+			results.getTupleCpuDelays().put(tupleType, TimeKeeper.getInstance().getTupleTypeToAverageCpuTime().get(tupleType));
+			results.getTupleCpuDelayHistograms().put(tupleType, TimeKeeper.getInstance().getTupleTypeToCpuTimeHistogram().get(tupleType));
+		}
+		for(FogDevice fogDevice : getFogDevices())
+			results.getEnergyConsumptions().put(fogDevice.getName(), fogDevice.getEnergyConsumption());
+		results.setCloudCost(getCloud().getTotalCost());
+		results.setNetworkUsage(NetworkUsageMonitor.getNetworkUsage()/Config.MAX_SIMULATION_TIME);
+		results.setEventsProcessed(CloudSim.getNumProcessedEvents());
+		return results;
+	}
+
 	protected void manageResources(){
 		send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
 	}
@@ -184,7 +245,8 @@ public class Controller extends SimEntity{
 	}
 	
 	public void submitApplication(Application application, int delay, ModulePlacement modulePlacement){
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		application.getGraph(); // compiles the dataflow graph before the simulation starts
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		getAppLaunchDelays().put(application.getAppId(), delay);
 		getAppModulePlacementPolicy().put(application.getAppId(), modulePlacement);
@@ -218,8 +280,8 @@ public class Controller extends SimEntity{
 	}
 	
 	private void processAppSubmit(Application application){
-		System.out.println(CloudSim.clock()+" Submitted application "+ application.getAppId());
-		FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+		Logger.info("{} Submitted application {}", CloudSim.clock(), application.getAppId());
+		FogUtils.getAppIdToGeoCoverageMap().put(application.getAppId(), application.getGeoCoverage());
 		getApplications().put(application.getAppId(), application);
 		
 		ModulePlacement modulePlacement = getAppModulePlacementPolicy().get(application.getAppId());
@@ -230,6 +292,7 @@ public class Controller extends SimEntity{
 		Map<Integer, List<AppModule>> deviceToModuleMap = modulePlacement.getDeviceToModuleMap();
 		for(Integer deviceId : deviceToModuleMap.keySet()){
 			for(AppModule module : deviceToModuleMap.get(deviceId)){
+				addModuleRoutes(deviceId, module);
 				sendNow(deviceId, FogEvents.APP_SUBMIT, application);
 				sendNow(deviceId, FogEvents.LAUNCH_MODULE, module);
 			}
@@ -285,4 +348,20 @@ public class Controller extends SimEntity{
 	public void setAppModulePlacementPolicy(Map<String, ModulePlacement> appModulePlacementPolicy) {
 		this.appModulePlacementPolicy = appModulePlacementPolicy;
 	}
+
+	public boolean isExitOnStop() {
+		return exitOnStop;
+	}
+
+	public void setExitOnStop(boolean exitOnStop) {
+		this.exitOnStop = exitOnStop;
+	}
+
+	public SimulationResults getResults() {
+		return results;
+	}
+
+	public void setResults(SimulationResults results) {
+		this.results = results;
+	}
 }
\ No newline at end of file
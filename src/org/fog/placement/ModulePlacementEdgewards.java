@@ -1,6 +1,8 @@
 package org.fog.placement;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -8,6 +10,7 @@ import java.util.Map;
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.fog.application.AppEdge;
+import org.fog.application.AppGraph;
 import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.application.selectivity.SelectivityModel;
@@ -31,6 +34,23 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	protected Map<Integer, Map<String, Double>> currentModuleLoadMap;
 	protected Map<Integer, Map<String, Integer>> currentModuleInstanceNum;
 	
+	/*
+	 * Indexes built once per placement: sensors and actuators by gateway, rates of the sensor types,
+	 * application edges by module, and the modules that must be placed before each module, by id
+	 * of the module in the dataflow graph of the application
+	 */
+	private Map<Integer, Map<String, Integer>> gatewayToSensorCounts;
+	private Map<Integer, Map<String, Integer>> gatewayToActuatorCounts;
+	private Map<String, Double> sensorTypeToRate;
+	private Map<String, List<AppEdge>> incomingEdges;
+	private Map<String, List<AppEdge>> outgoingEdges;
+	private int[][] requiredModules;
+	/**
+	 * Rates of the application edges by the sensors met so far along a path, that is the sensor counts
+	 * of the devices having sensors, in the order of the path
+	 */
+	private Map<List<Map<String, Integer>>, Map<AppEdge, Double>> edgeRates;
+	
 	public ModulePlacementEdgewards(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators, 
 			Application application, ModuleMapping moduleMapping){
 		this.setFogDevices(fogDevices);
@@ -67,11 +87,13 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 			}
 		}
 		
-		List<List<Integer>> leafToRootPaths = getLeafToRootPaths();
-		
-		for(List<Integer> path : leafToRootPaths){
-			placeModulesInPath(path);
+		indexApplication();
+		FogDevice cloud=null;
+		for(FogDevice device : getFogDevices()){
+			if(device.getName().equals("cloud"))
+				cloud = device;
 		}
+		placeModulesInLeafToRootPaths(cloud.getId(), new ArrayList<Integer>());
 		
 		for(int deviceId : getCurrentModuleMap().keySet()){
 			for(String module : getCurrentModuleMap().get(deviceId)){
@@ -80,104 +102,214 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		}
 	}
 	
+	/**
+	 * Builds the indexes used along the paths, so that the placement in a path does not scan the sensors,
+	 * actuators and edges of the application.
+	 */
+	private void indexApplication(){
+		gatewayToSensorCounts = new HashMap<Integer, Map<String, Integer>>();
+		sensorTypeToRate = new HashMap<String, Double>();
+		for(Sensor sensor : getSensors()){
+			if(!gatewayToSensorCounts.containsKey(sensor.getGatewayDeviceId()))
+				gatewayToSensorCounts.put(sensor.getGatewayDeviceId(), new HashMap<String, Integer>());
+			Map<String, Integer> endpoints = gatewayToSensorCounts.get(sensor.getGatewayDeviceId());
+			if(!endpoints.containsKey(sensor.getTupleType()))
+				endpoints.put(sensor.getTupleType(), 0);
+			endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+1);
+			if(!sensorTypeToRate.containsKey(sensor.getTupleType()))
+				sensorTypeToRate.put(sensor.getTupleType(), 1/sensor.getTransmitDistribution().getMeanInterTransmitTime());
+		}
+		gatewayToActuatorCounts = new HashMap<Integer, Map<String, Integer>>();
+		for(Actuator actuator : getActuators()){
+			if(!gatewayToActuatorCounts.containsKey(actuator.getGatewayDeviceId()))
+				gatewayToActuatorCounts.put(actuator.getGatewayDeviceId(), new HashMap<String, Integer>());
+			Map<String, Integer> endpoints = gatewayToActuatorCounts.get(actuator.getGatewayDeviceId());
+			if(!endpoints.containsKey(actuator.getActuatorType()))
+				endpoints.put(actuator.getActuatorType(), 0);
+			endpoints.put(actuator.getActuatorType(), endpoints.get(actuator.getActuatorType())+1);
+		}
+		
+		Application app = getApplication();
+		AppGraph graph = app.getGraph();
+		incomingEdges = new HashMap<String, List<AppEdge>>();
+		outgoingEdges = new HashMap<String, List<AppEdge>>();
+		List<List<Integer>> required = new ArrayList<List<Integer>>();
+		for(int i=0;i<graph.getNumVertices();i++)
+			required.add(new ArrayList<Integer>());
+		for(AppEdge edge : app.getEdges()){
+			if(!incomingEdges.containsKey(edge.getDestination()))
+				incomingEdges.put(edge.getDestination(), new ArrayList<AppEdge>());
+			incomingEdges.get(edge.getDestination()).add(edge);
+			if(!outgoingEdges.containsKey(edge.getSource()))
+				outgoingEdges.put(edge.getSource(), new ArrayList<AppEdge>());
+			outgoingEdges.get(edge.getSource()).add(edge);
+			/*
+			 * Modules lower in physical topology are placed first: the destinations of the outgoing DOWN
+			 * edges and the sources of the incoming UP edges of a module
+			 */
+			if(edge.getDirection()==Tuple.DOWN)
+				required.get(graph.getVertexId(edge.getSource())).add(graph.getVertexId(edge.getDestination()));
+			if(edge.getDirection()==Tuple.UP)
+				required.get(graph.getVertexId(edge.getDestination())).add(graph.getVertexId(edge.getSource()));
+		}
+		requiredModules = new int[graph.getNumVertices()][];
+		for(int i=0;i<requiredModules.length;i++){
+			requiredModules[i] = new int[required.get(i).size()];
+			for(int j=0;j<requiredModules[i].length;j++)
+				requiredModules[i][j] = required.get(i).get(j);
+		}
+		edgeRates = new HashMap<List<Map<String, Integer>>, Map<AppEdge, Double>>();
+	}
+	
+	private List<AppEdge> getIncomingEdges(String moduleName){
+		List<AppEdge> edges = incomingEdges.get(moduleName);
+		return edges == null ? Collections.<AppEdge>emptyList() : edges;
+	}
+	
+	private List<AppEdge> getOutgoingEdges(String moduleName){
+		List<AppEdge> edges = outgoingEdges.get(moduleName);
+		return edges == null ? Collections.<AppEdge>emptyList() : edges;
+	}
+	
+	/**
+	 * Marks a module, sensor or actuator as placed in the current path.
+	 */
+	private void setPlaced(BitSet placedModules, String name){
+		int id = getApplication().getGraph().getVertexId(name);
+		if(id >= 0)
+			placedModules.set(id);
+	}
+	
 	/**
 	 * Get the list of modules that are ready to be placed 
-	 * @param placedModules Modules that have already been placed in current path
+	 * @param placedModules ids of the modules that have already been placed in current path
 	 * @return list of modules ready to be placed
 	 */
-	private List<String> getModulesToPlace(List<String> placedModules){
-		Application app = getApplication();
-		List<String> modulesToPlace_1 = new ArrayList<String>();
+	private List<String> getModulesToPlace(BitSet placedModules){
+		AppGraph graph = getApplication().getGraph();
 		List<String> modulesToPlace = new ArrayList<String>();
-		for(AppModule module : app.getModules()){
-			if(!placedModules.contains(module.getName()))
-				modulesToPlace_1.add(module.getName());
-		}
-		/*
-		 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
-		 */
-		for(String moduleName : modulesToPlace_1){
+		for(AppModule module : getApplication().getModules()){
+			int id = graph.getVertexId(module.getName());
+			if(placedModules.get(id))
+				continue;
+			/*
+			 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
+			 */
 			boolean toBePlaced = true;
-			
-			for(AppEdge edge : app.getEdges()){
-				//CHECK IF OUTGOING DOWN EDGES ARE PLACED
-				if(edge.getSource().equals(moduleName) && edge.getDirection()==Tuple.DOWN && !placedModules.contains(edge.getDestination()))
-					toBePlaced = false;
-				//CHECK IF INCOMING UP EDGES ARE PLACED
-				if(edge.getDestination().equals(moduleName) && edge.getDirection()==Tuple.UP && !placedModules.contains(edge.getSource()))
+			for(int requiredModule : requiredModules[id]){
+				if(!placedModules.get(requiredModule))
 					toBePlaced = false;
 			}
 			if(toBePlaced)
-				modulesToPlace.add(moduleName);
+				modulesToPlace.add(module.getName());
 		}
-
 		return modulesToPlace;
 	}
 	
 	protected double getRateOfSensor(String sensorType){
-		for(Sensor sensor : getSensors()){
-			if(sensor.getTupleType().equals(sensorType))
-				return 1/sensor.getTransmitDistribution().getMeanInterTransmitTime();
+		Double rate = sensorTypeToRate.get(sensorType);
+		return rate == null ? 0 : rate;
+	}
+	
+	/**
+	 * Places the modules in the paths from the leaves of the subtree of a device to the root, in the order
+	 * of the children of the devices.
+	 * @param deviceId the device
+	 * @param rootToDevicePath the devices from the root to the parent of the device, restored on return
+	 */
+	private void placeModulesInLeafToRootPaths(int deviceId, List<Integer> rootToDevicePath){
+		rootToDevicePath.add(deviceId);
+		List<Integer> childrenIds = getFogDeviceById(deviceId).getChildrenIds();
+		if(childrenIds.size() == 0){
+			List<Integer> path = new ArrayList<Integer>(rootToDevicePath);
+			Collections.reverse(path);
+			placeModulesInPath(path);
 		}
-		return 0;
+		for(int childId : childrenIds)
+			placeModulesInLeafToRootPaths(childId, rootToDevicePath);
+		rootToDevicePath.remove(rootToDevicePath.size()-1);
 	}
 	
-	private void placeModulesInPath(List<Integer> path) {
-		if(path.size()==0)return;
-		List<String> placedModules = new ArrayList<String>();
+	/**
+	 * Gets the rates of the application edges once the sensors met along a path are known. The rates only
+	 * depend on these sensors, so they are computed once for all the paths meeting the same sensors.
+	 * @param sensorsMet the sensor counts of the devices having sensors met so far, in the order of the path
+	 * @return the rates, which must not be modified
+	 */
+	private Map<AppEdge, Double> getEdgeRates(List<Map<String, Integer>> sensorsMet){
+		Map<AppEdge, Double> rates = edgeRates.get(sensorsMet);
+		if(rates != null)
+			return rates;
 		Map<AppEdge, Double> appEdgeToRate = new HashMap<AppEdge, Double>();
-		
-		/**
-		 * Periodic edges have a fixed periodicity of tuples, so setting the tuple rate beforehand
-		 */
-		for(AppEdge edge : getApplication().getEdges()){
-			if(edge.isPeriodic()){
-				appEdgeToRate.put(edge, 1/edge.getPeriodicity());
+		if(sensorsMet.isEmpty()){
+			/**
+			 * Periodic edges have a fixed periodicity of tuples, so setting the tuple rate beforehand
+			 */
+			for(AppEdge edge : getApplication().getEdges()){
+				if(edge.isPeriodic()){
+					appEdgeToRate.put(edge, 1/edge.getPeriodicity());
+				}
 			}
-		}
-		
-		for(Integer deviceId : path){
-			FogDevice device = getFogDeviceById(deviceId);
-			Map<String, Integer> sensorsAssociated = getAssociatedSensors(device);
-			Map<String, Integer> actuatorsAssociated = getAssociatedActuators(device);
-			placedModules.addAll(sensorsAssociated.keySet()); // ADDING ALL SENSORS TO PLACED LIST
-			placedModules.addAll(actuatorsAssociated.keySet()); // ADDING ALL ACTUATORS TO PLACED LIST
-			
+		}else{
+			appEdgeToRate.putAll(getEdgeRates(sensorsMet.subList(0, sensorsMet.size()-1)));
+			Map<String, Integer> sensorsAssociated = sensorsMet.get(sensorsMet.size()-1);
 			/*
 			 * Setting the rates of application edges emanating from sensors
 			 */
 			for(String sensor : sensorsAssociated.keySet()){
-				for(AppEdge edge : getApplication().getEdges()){
-					if(edge.getSource().equals(sensor)){
-						appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
-					}
+				for(AppEdge edge : getOutgoingEdges(sensor)){
+					appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
 				}
 			}
-						
-			/*
-			 * Updating the AppEdge rates for the entire application based on knowledge so far
-			 */
-			boolean changed = true;
-			while(changed){		//Loop runs as long as some new information is added
-				changed=false;
-				Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
-				for(AppEdge edge : rateMap.keySet()){
-					AppModule destModule = getApplication().getModuleByName(edge.getDestination());
-					if(destModule == null)continue;
-					Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
-					for(Pair<String, String> pair : map.keySet()){
-						if(pair.getFirst().equals(edge.getTupleType())){
-							double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
-							AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
-							if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
-								// if some new information is available
-								changed = true;
-							}
-							appEdgeToRate.put(outputEdge, outputRate);
+		}
+		
+		/*
+		 * Updating the AppEdge rates for the entire application based on knowledge so far
+		 */
+		boolean changed = true;
+		while(changed){		//Loop runs as long as some new information is added
+			changed=false;
+			Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
+			for(AppEdge edge : rateMap.keySet()){
+				AppModule destModule = getApplication().getModuleByName(edge.getDestination());
+				if(destModule == null)continue;
+				Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
+				for(Pair<String, String> pair : map.keySet()){
+					if(pair.getFirst().equals(edge.getTupleType())){
+						double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
+						AppEdge outputEdge = getApplication().getEdgeMap().get(pair.getSecond());
+						if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
+							// if some new information is available
+							changed = true;
 						}
+						appEdgeToRate.put(outputEdge, outputRate);
 					}
 				}
 			}
+		}
+		edgeRates.put(new ArrayList<Map<String, Integer>>(sensorsMet), appEdgeToRate);
+		return appEdgeToRate;
+	}
+	
+	private void placeModulesInPath(List<Integer> path) {
+		if(path.size()==0)return;
+		BitSet placedModules = new BitSet();
+		List<Map<String, Integer>> sensorsMet = new ArrayList<Map<String, Integer>>();
+		Map<AppEdge, Double> appEdgeToRate = getEdgeRates(sensorsMet);
+		
+		for(Integer deviceId : path){
+			FogDevice device = getFogDeviceById(deviceId);
+			Map<String, Integer> sensorsAssociated = getAssociatedSensors(device);
+			Map<String, Integer> actuatorsAssociated = getAssociatedActuators(device);
+			for(String sensor : sensorsAssociated.keySet())
+				setPlaced(placedModules, sensor); // ADDING ALL SENSORS TO PLACED LIST
+			for(String actuator : actuatorsAssociated.keySet())
+				setPlaced(placedModules, actuator); // ADDING ALL ACTUATORS TO PLACED LIST
+			
+			if(!sensorsAssociated.isEmpty()){
+				sensorsMet.add(sensorsAssociated);
+				appEdgeToRate = getEdgeRates(sensorsMet);
+			}
 			
 			/*
 			 * Getting the list of modules ready to be placed on current device on path
@@ -192,59 +324,56 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 				int upsteamDeviceId = isPlacedUpstream(moduleName, path);
 				if(upsteamDeviceId > 0){
 					if(upsteamDeviceId==deviceId){
-						placedModules.add(moduleName);
+						setPlaced(placedModules, moduleName);
 						modulesToPlace = getModulesToPlace(placedModules);
 						
 						// NOW THE MODULE TO PLACE IS IN THE CURRENT DEVICE. CHECK IF THE NODE CAN SUSTAIN THE MODULE
-						for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-							if(edge.getDestination().equals(moduleName)){
-								double rate = appEdgeToRate.get(edge);
-								totalCpuLoad += rate*edge.getTupleCpuLength();
-							}
+						for(AppEdge edge : getIncomingEdges(moduleName)){		// take all incoming edges
+							double rate = appEdgeToRate.get(edge);
+							totalCpuLoad += rate*edge.getTupleCpuLength();
 						}
 						if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
-							Logger.debug("ModulePlacementEdgeward", "Need to shift module "+moduleName+" upstream from device " + device.getName());
+							Logger.debug("ModulePlacementEdgeward", "Need to shift module {} upstream from device {}", moduleName, device.getName());
 							List<String> _placedOperators = shiftModuleNorth(moduleName, totalCpuLoad, deviceId, modulesToPlace);
 							for(String placedOperator : _placedOperators){
-								if(!placedModules.contains(placedOperator))
-									placedModules.add(placedOperator);
+								setPlaced(placedModules, placedOperator);
 							}
 						} else{
-							placedModules.add(moduleName);
+							setPlaced(placedModules, moduleName);
 							getCurrentCpuLoad().put(deviceId, getCurrentCpuLoad().get(deviceId)+totalCpuLoad);
 							getCurrentModuleInstanceNum().get(deviceId).put(moduleName, getCurrentModuleInstanceNum().get(deviceId).get(moduleName)+1);
-							Logger.debug("ModulePlacementEdgeward", "AppModule "+moduleName+" can be created on device "+device.getName());
+							Logger.debug("ModulePlacementEdgeward", "AppModule {} can be created on device {}", moduleName, device.getName());
 						}
 					}
 				}else{
 					// FINDING OUT WHETHER PLACEMENT OF OPERATOR ON DEVICE IS POSSIBLE
-					for(AppEdge edge : getApplication().getEdges()){		// take all incoming edges
-						if(edge.getDestination().equals(moduleName)){
-							double rate = appEdgeToRate.get(edge);
-							totalCpuLoad += rate*edge.getTupleCpuLength();
-						}
+					for(AppEdge edge : getIncomingEdges(moduleName)){		// take all incoming edges
+						double rate = appEdgeToRate.get(edge);
+						totalCpuLoad += rate*edge.getTupleCpuLength();
 					}
 						
 					if(totalCpuLoad + getCurrentCpuLoad().get(deviceId) > device.getHost().getTotalMips()){
-						Logger.debug("ModulePlacementEdgeward", "Placement of operator "+moduleName+ "NOT POSSIBLE on device "+device.getName());
+						Logger.debug("ModulePlacementEdgeward", "Placement of operator {} NOT POSSIBLE on device {}", moduleName, device.getName());
 					}
 					else{
-						Logger.debug("ModulePlacementEdgeward", "Placement of operator "+moduleName+ " on device "+device.getName() + " successful.");
+						Logger.debug("ModulePlacementEdgeward", "Placement of operator {} on device {} successful.", moduleName, device.getName());
 						getCurrentCpuLoad().put(deviceId, totalCpuLoad + getCurrentCpuLoad().get(deviceId));
-						System.out.println("Placement of operator "+moduleName+ " on device "+device.getName() + " successful.");
+						Logger.info("Placement of operator {} on device {} successful.", moduleName, device.getName());
 
 						if(!currentModuleMap.containsKey(deviceId))
 							currentModuleMap.put(deviceId, new ArrayList<String>());
 						currentModuleMap.get(deviceId).add(moduleName);
-						placedModules.add(moduleName);
+						setPlaced(placedModules, moduleName);
 						modulesToPlace = getModulesToPlace(placedModules);
 						getCurrentModuleLoadMap().get(device.getId()).put(moduleName, totalCpuLoad);
 						
 						int max = 1;
-						for(AppEdge edge : getApplication().getEdges()){
-							if(edge.getSource().equals(moduleName) && actuatorsAssociated.containsKey(edge.getDestination()))
+						for(AppEdge edge : getOutgoingEdges(moduleName)){
+							if(actuatorsAssociated.containsKey(edge.getDestination()))
 								max = Math.max(actuatorsAssociated.get(edge.getDestination()), max);
-							if(edge.getDestination().equals(moduleName) && sensorsAssociated.containsKey(edge.getSource()))
+						}
+						for(AppEdge edge : getIncomingEdges(moduleName)){
+							if(sensorsAssociated.containsKey(edge.getSource()))
 								max = Math.max(sensorsAssociated.get(edge.getSource()), max);
 						}
 						getCurrentModuleInstanceNum().get(deviceId).put(moduleName, max);
@@ -266,7 +395,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @param deviceId
 	 */
 	private List<String> shiftModuleNorth(String moduleName, double cpuLoad, Integer deviceId, List<String> operatorsToPlace) {
-		System.out.println(CloudSim.getEntityName(deviceId)+" is shifting "+moduleName+" north.");
+		Logger.info("{} is shifting {} north.", CloudSim.getEntityName(deviceId), moduleName);
 		List<String> modulesToShift = findModulesToShift(moduleName, deviceId);
 		
 		Map<String, Integer> moduleToNumInstances = new HashMap<String, Integer>(); // Map of number of instances of modules that need to be shifted
@@ -289,7 +418,7 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 		while(true){ // Loop iterates over all devices in path upstream from current device. Tries to place modules (to be shifted northwards) on each of them.
 			if(id==-1){
 				// Loop has reached the apex fog device in hierarchy, and still could not place modules. 
-				Logger.debug("ModulePlacementEdgeward", "Could not place modules "+modulesToShift+" northwards.");
+				Logger.debug("ModulePlacementEdgeward", "Could not place modules {} northwards.", modulesToShift);
 				break;
 			}
 			FogDevice fogDevice = getFogDeviceById(id);
@@ -410,15 +539,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @return map from sensor type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedSensors(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Sensor sensor : getSensors()){
-			if(sensor.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(sensor.getTupleType()))
-					endpoints.put(sensor.getTupleType(), 0);
-				endpoints.put(sensor.getTupleType(), endpoints.get(sensor.getTupleType())+1);
-			}
-		}
-		return endpoints;
+		Map<String, Integer> endpoints = gatewayToSensorCounts.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	/**
@@ -427,42 +549,8 @@ public class ModulePlacementEdgewards extends ModulePlacement{
 	 * @return map from actuator type to number of such sensors
 	 */
 	private Map<String, Integer> getAssociatedActuators(FogDevice device) {
-		Map<String, Integer> endpoints = new HashMap<String, Integer>();
-		for(Actuator actuator : getActuators()){
-			if(actuator.getGatewayDeviceId()==device.getId()){
-				if(!endpoints.containsKey(actuator.getActuatorType()))
-					endpoints.put(actuator.getActuatorType(), 0);
-				endpoints.put(actuator.getActuatorType(), endpoints.get(actuator.getActuatorType())+1);
-			}
-		}
-		return endpoints;
-	}
-	
-	@SuppressWarnings("serial")
-	protected List<List<Integer>> getPaths(final int fogDeviceId){
-		FogDevice device = (FogDevice)CloudSim.getEntity(fogDeviceId); 
-		if(device.getChildrenIds().size() == 0){		
-			final List<Integer> path =  (new ArrayList<Integer>(){{add(fogDeviceId);}});
-			List<List<Integer>> paths = (new ArrayList<List<Integer>>(){{add(path);}});
-			return paths;
-		}
-		List<List<Integer>> paths = new ArrayList<List<Integer>>();
-		for(int childId : device.getChildrenIds()){
-			List<List<Integer>> childPaths = getPaths(childId);
-			for(List<Integer> childPath : childPaths)
-				childPath.add(fogDeviceId);
-			paths.addAll(childPaths);
-		}
-		return paths;
-	}
-	
-	protected List<List<Integer>> getLeafToRootPaths(){
-		FogDevice cloud=null;
-		for(FogDevice device : getFogDevices()){
-			if(device.getName().equals("cloud"))
-				cloud = device;
-		}
-		return getPaths(cloud.getId());
+		Map<String, Integer> endpoints = gatewayToActuatorCounts.get(device.getId());
+		return endpoints == null ? Collections.<String, Integer>emptyMap() : endpoints;
 	}
 	
 	public ModuleMapping getModuleMapping() {
@@ -1,16 +1,291 @@
 package org.fog.scheduler;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.Pe;
-import org.cloudbus.cloudsim.VmSchedulerTimeShared;
-import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.sdn.overbooking.VmSchedulerTimeSharedOverbookingEnergy;
+import org.cloudbus.cloudsim.util.VmMap;
 
+/**
+ * Time-shared VM scheduler of the fog devices, allowing over-subscription. The MIPS requested by and
+ * allocated to every VM are kept in double arrays, in a slot per VM found by the IDs of the VM, instead of
+ * the maps of lists of the parent schedulers. Requests only mark the allocation as dirty, and the MIPS are
+ * allocated again when the allocation is next read, so that a host reallocating the MIPS of all its VMs
+ * computes the allocation once, and a request that does not change anything costs nothing.
+ *
+ * A VM deallocated loses its slot, which is kept for the next VM requesting MIPS, as hosts deallocate and
+ * allocate again all their VMs at every update of their processing.
+ *
+ * The allocation is the one of VmSchedulerTimeSharedOverSubscription: every VM is allocated the MIPS it
+ * requests, capped to the capacity of a PE, unless the host is over-subscribed, in which case they are
+ * scaled down proportionally.
+ */
 public class StreamOperatorScheduler extends VmSchedulerTimeSharedOverbookingEnergy{
 
+	/**
+	 * MIPS requested by and allocated to a VM
+	 */
+	private static class Slot {
+		private Vm vm;
+		private String vmUid;
+		private boolean requested;
+		private double[] requestedMips = new double[1];
+		private double[] allocatedMips = new double[1];
+		private int numPes;
+		/**
+		 * Lists of the MIPS allocated, returned by getAllocatedMipsForVm(), and the ones allocated before,
+		 * kept as hosts usually alternate between two allocations
+		 */
+		private List<Double> share;
+		private List<Double> previousShare;
+
+		private void setVm(Vm vm){
+			this.vm = vm;
+			this.vmUid = vm == null ? null : vm.getUid();
+			requested = false;
+		}
+
+		private void request(double mips){
+			requested = true;
+			numPes = 1;
+			requestedMips[0] = mips;
+		}
+
+		private void request(List<Double> mips){
+			requested = true;
+			numPes = mips.size();
+			if(requestedMips.length < numPes){
+				requestedMips = new double[numPes];
+				allocatedMips = new double[numPes];
+			}
+			for(int i=0;i<numPes;i++)
+				requestedMips[i] = mips.get(i);
+		}
+
+		private List<Double> getShare(){
+			if(!requested)
+				return null;
+			if(isShareOf(share))
+				return share;
+			List<Double> newShare;
+			if(isShareOf(previousShare)){
+				newShare = previousShare;
+			}else{
+				newShare = new ArrayList<Double>(numPes);
+				for(int i=0;i<numPes;i++)
+					newShare.add(allocatedMips[i]);
+				newShare = Collections.unmodifiableList(newShare);
+			}
+			previousShare = share;
+			share = newShare;
+			return share;
+		}
+
+		private boolean isShareOf(List<Double> share){
+			if(share == null || share.size() != numPes)
+				return false;
+			for(int i=0;i<numPes;i++){
+				if(share.get(i) != allocatedMips[i])
+					return false;
+			}
+			return true;
+		}
+	}
+
+	private VmMap<Slot> slots = new VmMap<Slot>();
+	/**
+	 * Slots of the VMs deallocated
+	 */
+	private List<Slot> freeSlots = new ArrayList<Slot>();
+	private boolean dirty;
+	private boolean peProvisioningDirty;
+
 	public StreamOperatorScheduler(List<? extends Pe> pelist) {
 		super(pelist);
 	}
+
+	private Slot getSlot(Vm vm){
+		Slot slot = slots.get(vm);
+		if(slot == null){
+			slot = freeSlots.isEmpty() ? new Slot() : freeSlots.remove(freeSlots.size() - 1);
+			slot.setVm(vm);
+			slots.put(vm, slot);
+		}
+		return slot;
+	}
+
+	/**
+	 * Requests MIPS for a VM with a single virtual PE, replacing its previous request, as
+	 * allocatePesForVm() does with a list holding them.
+	 * @param vm the VM
+	 * @param mips the MIPS requested
+	 */
+	public void requestMips(Vm vm, double mips){
+		Slot slot = getSlot(vm);
+		if(slot.requested && slot.numPes == 1 && slot.requestedMips[0] == mips)
+			return;
+		updateMigrationState(slot);
+		slot.request(mips);
+		dirty = true;
+	}
+
+	@Override
+	public boolean allocatePesForVm(Vm vm, List<Double> mipsShareRequested) {
+		Slot slot = getSlot(vm);
+		updateMigrationState(slot);
+		slot.request(mipsShareRequested);
+		dirty = true;
+		return true;
+	}
+
+	private void updateMigrationState(Slot slot){
+		if (slot.vm.isInMigration()) {
+			if (!getVmsMigratingIn().contains(slot.vmUid) && !getVmsMigratingOut().contains(slot.vmUid)) {
+				getVmsMigratingOut().add(slot.vmUid);
+			}
+		} else if (!getVmsMigratingOut().isEmpty()) {
+			getVmsMigratingOut().remove(slot.vmUid);
+		}
+	}
+
+	@Override
+	public void deallocatePesForVm(Vm vm) {
+		Slot slot = slots.remove(vm);
+		if(slot != null){
+			if(slot.requested)
+				dirty = true;
+			slot.setVm(null);
+			freeSlots.add(slot);
+		}
+	}
+
+	@Override
+	public void deallocatePesForAllVms() {
+		for(int i=0;i<slots.size();i++)
+			slots.getValue(i).requested = false;
+		dirty = true;
+	}
+
+	/**
+	 * Allocates the MIPS requested if they changed since the last allocation.
+	 */
+	private void reallocate(){
+		if(!dirty)
+			return;
+		dirty = false;
+		peProvisioningDirty = true;
+		double peMips = getPeCapacity();
+		double totalMips = 0;
+		for(int i=0;i<getPeList().size();i++)
+			totalMips += getPeList().get(i).getMips();
+		boolean migrating = !getVmsMigratingIn().isEmpty() || !getVmsMigratingOut().isEmpty();
+
+		double totalRequestedMips = 0;
+		int pesInUse = 0;
+		for(int i=0;i<slots.size();i++){
+			Slot slot = slots.getValue(i);
+			if(!slot.requested)
+				continue;
+			double requestedMips = 0;
+			for(int pe=0;pe<slot.numPes;pe++)
+				requestedMips += Math.min(slot.requestedMips[pe], peMips);
+			if(migrating && getVmsMigratingIn().contains(slot.vmUid)){
+				// the destination host only experience 10% of the migrating VM's MIPS
+				requestedMips *= 0.1;
+			}
+			totalRequestedMips += requestedMips;
+			pesInUse += slot.numPes;
+		}
+		setPesInUse(pesInUse);
+
+		boolean overSubscribed = totalRequestedMips > totalMips;
+		double scalingFactor = totalMips / totalRequestedMips;
+		for(int i=0;i<slots.size();i++){
+			Slot slot = slots.getValue(i);
+			if(!slot.requested)
+				continue;
+			boolean migratingOut = migrating && getVmsMigratingOut().contains(slot.vmUid);
+			boolean migratingIn = migrating && !migratingOut && getVmsMigratingIn().contains(slot.vmUid);
+			for(int pe=0;pe<slot.numPes;pe++){
+				double mips = Math.min(slot.requestedMips[pe], peMips);
+				if(overSubscribed){
+					if (migratingOut) {
+						// the original amount is scaled, performance degradation due to migration = 10% MIPS
+						mips = mips * scalingFactor * 0.9;
+					} else if (migratingIn) {
+						// the final 10% of the requested MIPS are scaled
+						mips = mips * 0.1 * scalingFactor;
+					} else {
+						mips *= scalingFactor;
+					}
+					mips = Math.floor(mips);
+				}else if (migratingOut) {
+					mips *= 0.9;
+				}else if (migratingIn) {
+					mips *= 0.1;
+				}
+				slot.allocatedMips[pe] = mips;
+			}
+		}
+		double availableMips = overSubscribed ? 0 : totalMips - totalRequestedMips;
+		if(availableMips != super.getAvailableMips())
+			setAvailableMips(availableMips);
+	}
+
+	@Override
+	public List<Double> getAllocatedMipsForVm(Vm vm) {
+		reallocate();
+		Slot slot = slots.get(vm);
+		return slot == null ? null : slot.getShare();
+	}
+
+	@Override
+	public double getTotalAllocatedMipsForVm(Vm vm) {
+		reallocate();
+		Slot slot = slots.get(vm);
+		double allocated = 0;
+		if(slot != null && slot.requested){
+			for(int pe=0;pe<slot.numPes;pe++)
+				allocated += slot.allocatedMips[pe];
+		}
+		return allocated;
+	}
+
+	@Override
+	public double getAvailableMips() {
+		reallocate();
+		return super.getAvailableMips();
+	}
+
+	@Override
+	public double getMaxAvailableMips() {
+		return getAvailableMips();
+	}
+
+	@Override
+	public List<Pe> getPesAllocatedForVM(Vm vm) {
+		reallocate();
+		if(peProvisioningDirty)
+			updatePeProvisioning();
+		return super.getPesAllocatedForVM(vm);
+	}
+
+	/**
+	 * Allocates the MIPS of the PEs to the VMs. This is only done when the PEs allocated to a VM are queried.
+	 */
+	@Override
+	protected void updatePeProvisioning() {
+		reallocate();
+		peProvisioningDirty = false;
+		getMipsVmMap().clear();
+		for(int i=0;i<slots.size();i++){
+			Slot slot = slots.getValue(i);
+			if(slot.requested)
+				getMipsVmMap().put(slot.vm, slot.getShare());
+		}
+		super.updatePeProvisioning();
+	}
 }
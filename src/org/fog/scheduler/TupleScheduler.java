@@ -1,18 +1,90 @@
 package org.fog.scheduler;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.ResCloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.utils.FogSettings;
+import org.fog.utils.Logger;
 
+/**
+ * Processor sharing scheduler of the tuples of a module. Unless FogSettings.isPerTupleProgress() is set, the
+ * progress of the tuples is not advanced at every update: the scheduler keeps a virtual time, the work
+ * given to each tuple since the tuples started being run, and every tuple is given, when it is submitted,
+ * the virtual time at which it finishes. As the tuples running share the capacity equally, they finish in
+ * the order of their virtual finish times, and they are kept in a binary heap ordered by them, so that an
+ * update only looks at the tuples finishing. The heap is the exec list of the parent scheduler, so that
+ * the methods which only go through that list are left as they are.
+ *
+ * The virtual time is counted in millionths of MI and advanced at every update by the work the parent
+ * scheduler gives each tuple, truncated as it truncates it, so that the tuples finish at the same updates
+ * as with per-tuple progress. The work truncated depending on the number of PEs of the tuples, a module
+ * given tuples with different numbers of PEs goes back to per-tuple progress.
+ *
+ * The progress of a tuple is only written to it when it stops running.
+ */
 public class TupleScheduler extends CloudletSchedulerTimeShared{
 
+	/**
+	 * Tuple in the heap of the tuples running
+	 */
+	private static class Job extends ResCloudlet {
+		/** Virtual time when the tuple started running */
+		private long startTag;
+		/** Virtual time when less than 1 MI of the tuple remains */
+		private long finishTag;
+		/** Progress written to the tuple, in millionths of MI */
+		private long finishedSoFar;
+		/** Order in which the tuples started running, which is the one of the exec list of the parent scheduler */
+		private long seq;
+		/** Index of the tuple in the heap */
+		private int index;
+
+		private Job(Cloudlet cloudlet) {
+			super(cloudlet);
+		}
+
+		private void updateProgress(long virtualTime) {
+			updateCloudletFinishedSoFar(virtualTime - startTag);
+			finishedSoFar += virtualTime - startTag;
+		}
+
+		private boolean before(Job other) {
+			return finishTag < other.finishTag || (finishTag == other.finishTag && seq < other.seq);
+		}
+	}
+
+	private static final Comparator<Job> SEQ_ORDER = new Comparator<Job>() {
+		@Override
+		public int compare(Job a, Job b) {
+			return Long.compare(a.seq, b.seq);
+		}
+	};
+
+	private boolean perTupleProgress;
+	/** Work given to each tuple running, in millionths of MI */
+	private long virtualTime;
+	/** Number of PEs of the tuples running */
+	private int tuplePes;
+	private long nextSeq;
+	private int pesInUse;
+	private List<Job> finished = new ArrayList<Job>();
+
 	public TupleScheduler(double mips, int numberOfPes) {
 		//super(mips, numberOfPes);
 		super();
+		perTupleProgress = FogSettings.getInstance().isPerTupleProgress();
 	}
 
 	/**
 	 * Get estimated cloudlet completion time.
-	 * 
+	 *
 	 * @param rcl the rcl
 	 * @param time the time
 	 * @return the estimated finish time
@@ -20,25 +92,278 @@ public class TupleScheduler extends CloudletSchedulerTimeShared{
 	public double getEstimatedFinishTime(ResCloudlet rcl, double time) {
 		//System.out.println("REMAINING CLOUDLET LENGTH : "+rcl.getRemainingCloudletLength()+"\tCLOUDLET LENGTH"+rcl.getCloudletLength());
 		//System.out.println("CURRENT ALLOC MIPS FOR CLOUDLET : "+getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
-		
+
 		/*>>>>>>>>>>>>>>>>>>>>*/
 		/* edit made by HARSHIT GUPTA */
-		
-		System.out.println("ALLOCATED MIPS FOR CLOUDLET = "+getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
+
+		if(Logger.isDebugEnabled())
+			Logger.debug("TupleScheduler", "ALLOCATED MIPS FOR CLOUDLET = {}", getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
 		return time
-				+ ((rcl.getRemainingCloudletLength()) / getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
-		
-		
-				
+				+ ((getRemainingLength(rcl)) / getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
+
+
+
 		//return ((rcl.getRemainingCloudletLength()) / getTotalCurrentAllocatedMipsForCloudlet(rcl, time));
 		/*end of edit*/
 		/*<<<<<<<<<<<<<<<<<<<<<*/
 	}
-	
+
 //	public void cloudletFinish(ResCloudlet rcl) {
 //		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 //		rcl.finalizeCloudlet();
 //		getCloudletFinishedList().add(rcl);
 //	}
-	
+
+	/**
+	 * @return the remaining length of a tuple, in MI, as ResCloudlet.getRemainingCloudletLength()
+	 */
+	private long getRemainingLength(ResCloudlet rcl) {
+		if(rcl instanceof Job && ((Job) rcl).index >= 0){
+			Job job = (Job) rcl;
+			long remaining = job.finishTag + Consts.MILLION - virtualTime;
+			return remaining <= 0 ? 0 : remaining / Consts.MILLION;
+		}
+		return rcl.getRemainingCloudletLength();
+	}
+
+	@Override
+	public double updateVmProcessing(double currentTime, List<Double> mipsShare) {
+		if(perTupleProgress)
+			return super.updateVmProcessing(currentTime, mipsShare);
+		setCurrentMipsShare(mipsShare);
+		List<Job> heap = getCloudletExecList();
+		if(heap.isEmpty()){
+			virtualTime = 0;
+			setPreviousTime(currentTime);
+			return 0.0;
+		}
+		virtualTime += (long) (getCapacity(mipsShare) * (currentTime - getPreviousTime()) * tuplePes * Consts.MILLION);
+
+		// a tuple is finished when less than 1 MI of it remains
+		while(!heap.isEmpty() && heap.get(0).finishTag < virtualTime){
+			Job job = heap.get(0);
+			remove(job);
+			finished.add(job);
+		}
+		if(finished.size() > 1)
+			Collections.sort(finished, SEQ_ORDER);
+		for(Job job : finished)
+			cloudletFinish(job);
+		finished.clear();
+
+		setPreviousTime(currentTime);
+		if(heap.isEmpty()){
+			virtualTime = 0;
+			return Double.MAX_VALUE;
+		}
+		Job next = heap.get(0);
+		double estimatedFinishTime = currentTime
+				+ (getRemainingLength(next) / (getCapacity(mipsShare) * next.getNumberOfPes()));
+		if (estimatedFinishTime - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+			estimatedFinishTime = currentTime + CloudSim.getMinTimeBetweenEvents();
+		}
+		return estimatedFinishTime;
+	}
+
+	@Override
+	protected double getCapacity(List<Double> mipsShare) {
+		if(perTupleProgress)
+			return super.getCapacity(mipsShare);
+		double capacity = 0.0;
+		int cpus = 0;
+		for (Double mips : mipsShare) {
+			capacity += mips;
+			if (mips > 0.0) {
+				cpus++;
+			}
+		}
+		currentCPUs = cpus;
+		return capacity / Math.max(pesInUse, cpus);
+	}
+
+	@Override
+	public double cloudletSubmit(Cloudlet cloudlet, double fileTransferTime) {
+		if(!perTupleProgress)
+			checkPes(cloudlet.getNumberOfPes());
+		if(perTupleProgress)
+			return super.cloudletSubmit(cloudlet, fileTransferTime);
+		Job job = new Job(cloudlet);
+		job.setCloudletStatus(Cloudlet.INEXEC);
+		for (int i = 0; i < cloudlet.getNumberOfPes(); i++) {
+			job.setMachineAndPeId(0, i);
+		}
+		pesInUse += cloudlet.getNumberOfPes();
+
+		// use the current capacity to estimate the extra amount of
+		// time to file transferring. It must be added to the cloudlet length
+		double capacity = getCapacity(getCurrentMipsShare());
+		long length = (long) (cloudlet.getCloudletLength() + capacity * fileTransferTime);
+		cloudlet.setCloudletLength(length);
+		add(job);
+		return cloudlet.getCloudletLength() / capacity;
+	}
+
+	@Override
+	public double cloudletResume(int cloudletId) {
+		if(!perTupleProgress){
+			for (ResCloudlet rcl : getCloudletPausedList()) {
+				if (rcl.getCloudletId() == cloudletId)
+					checkPes(rcl.getNumberOfPes());
+			}
+		}
+		if(perTupleProgress)
+			return super.cloudletResume(cloudletId);
+		List<Job> paused = getCloudletPausedList();
+		for (int i = 0; i < paused.size(); i++) {
+			Job job = paused.get(i);
+			if (job.getCloudletId() == cloudletId) {
+				paused.remove(i);
+				job.setCloudletStatus(Cloudlet.INEXEC);
+				pesInUse += job.getNumberOfPes();
+				add(job);
+				return CloudSim.clock()
+						+ (job.getRemainingCloudletLength() / (getCapacity(getCurrentMipsShare()) * job.getNumberOfPes()));
+			}
+		}
+		return 0.0;
+	}
+
+	@Override
+	public boolean cloudletPause(int cloudletId) {
+		if(perTupleProgress)
+			return super.cloudletPause(cloudletId);
+		Job job = findRunning(cloudletId);
+		if (job == null)
+			return false;
+		remove(job);
+		if (job.getRemainingCloudletLength() == 0) {
+			cloudletFinish(job);
+		} else {
+			job.setCloudletStatus(Cloudlet.PAUSED);
+			getCloudletPausedList().add(job);
+		}
+		return true;
+	}
+
+	@Override
+	public Cloudlet cloudletCancel(int cloudletId) {
+		if(perTupleProgress)
+			return super.cloudletCancel(cloudletId);
+		Job job = findRunning(cloudletId);
+		if (job == null)
+			// the tuple is finished or paused, which the parent scheduler looks for without the exec list
+			return super.cloudletCancel(cloudletId);
+		remove(job);
+		if (job.getRemainingCloudletLength() == 0) {
+			cloudletFinish(job);
+		} else {
+			job.setCloudletStatus(Cloudlet.CANCELED);
+		}
+		return job.getCloudlet();
+	}
+
+	@Override
+	public Cloudlet migrateCloudlet() {
+		if(perTupleProgress)
+			return super.migrateCloudlet();
+		Job job = (Job) getCloudletExecList().get(0);
+		remove(job);
+		job.finalizeCloudlet();
+		return job.getCloudlet();
+	}
+
+	private Job findRunning(int cloudletId) {
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if (rcl.getCloudletId() == cloudletId)
+				return (Job) rcl;
+		}
+		return null;
+	}
+
+	/**
+	 * Goes back to per-tuple progress if a tuple does not have the number of PEs of the tuples running.
+	 */
+	private void checkPes(int pes) {
+		List<Job> heap = getCloudletExecList();
+		if(heap.isEmpty() || pes == tuplePes)
+			return;
+		for(Job job : heap){
+			job.updateProgress(virtualTime);
+			job.index = -1;
+		}
+		Collections.sort(heap, SEQ_ORDER);
+		perTupleProgress = true;
+	}
+
+	/**
+	 * Starts running a tuple, whose PEs are already counted in pesInUse.
+	 */
+	private void add(Job job) {
+		List<Job> heap = getCloudletExecList();
+		if(heap.isEmpty())
+			tuplePes = job.getNumberOfPes();
+		job.startTag = virtualTime;
+		job.finishTag = virtualTime + job.getCloudlet().getCloudletTotalLength() * Consts.MILLION
+				- job.finishedSoFar - Consts.MILLION;
+		job.seq = nextSeq++;
+		job.index = heap.size();
+		heap.add(job);
+		siftUp(heap, job.index);
+	}
+
+	/**
+	 * Stops running a tuple, writing its progress to it.
+	 */
+	private void remove(Job job) {
+		List<Job> heap = getCloudletExecList();
+		job.updateProgress(virtualTime);
+		pesInUse -= job.getNumberOfPes();
+
+		int i = job.index;
+		Job last = heap.remove(heap.size() - 1);
+		job.index = -1;
+		if (last != job) {
+			heap.set(i, last);
+			last.index = i;
+			siftDown(heap, i);
+			siftUp(heap, last.index);
+		}
+	}
+
+	private static void siftUp(List<Job> heap, int i) {
+		Job job = heap.get(i);
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			Job p = heap.get(parent);
+			if (!job.before(p))
+				break;
+			heap.set(i, p);
+			p.index = i;
+			i = parent;
+		}
+		heap.set(i, job);
+		job.index = i;
+	}
+
+	private static void siftDown(List<Job> heap, int i) {
+		Job job = heap.get(i);
+		int size = heap.size();
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size)
+				break;
+			Job c = heap.get(child);
+			if (child + 1 < size && heap.get(child + 1).before(c)) {
+				child++;
+				c = heap.get(child);
+			}
+			if (!c.before(job))
+				break;
+			heap.set(i, c);
+			c.index = i;
+			i = child;
+		}
+		heap.set(i, job);
+		job.index = i;
+	}
 }
@@ -31,17 +31,26 @@ import java.util.LinkedList;
 import java.util.List;
 
 public class CameraDisplayFog {
-    static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-    static List<Sensor> sensors = new ArrayList<Sensor>();
-    static List<Actuator> actuators = new ArrayList<Actuator>();
+    private List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+    private List<Sensor> sensors = new ArrayList<Sensor>();
+    private List<Actuator> actuators = new ArrayList<Actuator>();
 
-    static boolean CLOUD = false;
+    private boolean cloud = false;
 
-    static int numOfDepts = 1;
-    static int numOfMobilesPerDept = 4;
+    private int numOfDepts = 1;
+    private int numOfMobilesPerDept = 4;
     static double IMAGE_TRANSMISSION_TIME = 5.1;
     //static double IMAGE_TRANSMISSION_TIME = 10;
 
+    public CameraDisplayFog() {
+    }
+
+    public CameraDisplayFog(int numOfDepts, int numOfMobilesPerDept, boolean cloud) {
+        this.numOfDepts = numOfDepts;
+        this.numOfMobilesPerDept = numOfMobilesPerDept;
+        this.cloud = cloud;
+    }
+
     public static void main(String[] args) {
 
         Log.printLine("Starting CameraDisplayFog...");
@@ -54,53 +63,64 @@ public class CameraDisplayFog {
 
             CloudSim.init(num_user, calendar, trace_flag);
 
-            String appId = "cam_display"; // identifier of the application
+            new CameraDisplayFog().createSimulation();
 
-            FogBroker broker = new FogBroker("broker");
+            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
-            Application application = createApplication(appId, broker.getId());
-            application.setUserId(broker.getId());
+            CloudSim.startSimulation();
 
-            createFogDevices(broker.getId(), appId);
+            CloudSim.stopSimulation();
 
-            ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+            Log.printLine("VRGame finished!");
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Unwanted errors happen");
+        }
+    }
 
-            if (CLOUD) {
-                moduleMapping.addModuleToDevice("classifier", "cloud"); // fixing all instances of the classifier module to the Cloud
-                for (FogDevice device : fogDevices) {
-                    if (device.getName().startsWith("m")) {
-                        moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
-                    }
-                }
-            } else {
-                moduleMapping.addModuleToDevice("classifier", "d-0"); // fixing all instances of classifier to edge computer
-            }
+    /**
+     * Creates the entities of the simulation in the simulation context of the current thread,
+     * and submits the application to the controller.
+     * @return the controller of the simulation
+     */
+    public Controller createSimulation() throws Exception {
+        String appId = "cam_display"; // identifier of the application
 
+        FogBroker broker = new FogBroker("broker");
+
+        Application application = createApplication(appId, broker.getId());
+        application.setUserId(broker.getId());
+
+        createFogDevices(broker.getId(), appId);
+
+        ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+
+        if (cloud) {
+            moduleMapping.addModuleToDevice("classifier", "cloud"); // fixing all instances of the classifier module to the Cloud
             for (FogDevice device : fogDevices) {
                 if (device.getName().startsWith("m")) {
                     moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
                 }
             }
+        } else {
+            moduleMapping.addModuleToDevice("classifier", "d-0"); // fixing all instances of classifier to edge computer
+        }
 
+        for (FogDevice device : fogDevices) {
+            if (device.getName().startsWith("m")) {
+                moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
+            }
+        }
 
-            Controller controller = new Controller("master-controller", fogDevices, sensors,
-                    actuators);
 
-            controller.submitApplication(application, 0,
-                    (CLOUD) ? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
-                            : (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+        Controller controller = new Controller("master-controller", fogDevices, sensors,
+                actuators);
 
-            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+        controller.submitApplication(application, 0,
+                (cloud) ? (new ModulePlacementMapping(fogDevices, application, moduleMapping))
+                        : (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
 
-            CloudSim.startSimulation();
-
-            CloudSim.stopSimulation();
-
-            Log.printLine("VRGame finished!");
-        } catch (Exception e) {
-            e.printStackTrace();
-            Log.printLine("Unwanted errors happen");
-        }
+        return controller;
     }
 
     /**
@@ -109,7 +129,7 @@ public class CameraDisplayFog {
      * @param userId
      * @param appId
      */
-    private static void createFogDevices(int userId, String appId) {
+    private void createFogDevices(int userId, String appId) {
         FogDevice cloud = createFogDevice("cloud", 1000, 40000, 100, 10000, 0, 0.01, 16 * 103, 16 * 83.25); // creates the fog device Cloud at the apex of the hierarchy with level=0
         cloud.setParentId(-1);
         FogDevice proxy = createFogDevice("proxy-server", 1000, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333); // creates the fog device Proxy Server (level=1)
@@ -125,7 +145,7 @@ public class CameraDisplayFog {
 
     }
 
-    private static FogDevice addGw(String id, int userId, String appId, int parentId) {
+    private FogDevice addGw(String id, int userId, String appId, int parentId) {
         FogDevice dept = createEdgeComputer(id);
         fogDevices.add(dept);
         dept.setParentId(parentId);
@@ -139,11 +159,11 @@ public class CameraDisplayFog {
         return dept;
     }
 
-    private static FogDevice createEdgeComputer(String id) {
+    private FogDevice createEdgeComputer(String id) {
         return createFogDevice("d-" + id, 7314, 4000, 10000, 10000, 1, 0.0, 80, 8);
     }
 
-    private static FogDevice addMobile(String id, int userId, String appId, int parentId) {
+    private FogDevice addMobile(String id, int userId, String appId, int parentId) {
         FogDevice mobile = createMobileDevice(id);
         mobile.setParentId(parentId);
         Sensor cameraSensor = new Sensor("s-" + id, "CAMERA", userId, appId, new DeterministicDistribution(IMAGE_TRANSMISSION_TIME)); // inter-transmission time of EEG sensor follows a deterministic distribution
@@ -158,7 +178,7 @@ public class CameraDisplayFog {
         return mobile;
     }
 
-    private static FogDevice createMobileDevice(String id) {
+    private FogDevice createMobileDevice(String id) {
         return createFogDevice("m-" + id, 10000, 4096, 10000, 270, 3, 0, 10, 4);
     }
 
@@ -176,7 +196,7 @@ public class CameraDisplayFog {
      * @param idlePower
      * @return
      */
-    private static FogDevice createFogDevice(String nodeName, long mips,
+    private FogDevice createFogDevice(String nodeName, long mips,
                                              int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
 
         List<Pe> peList = new ArrayList<Pe>();
@@ -237,7 +257,7 @@ public class CameraDisplayFog {
      * @return
      */
     @SuppressWarnings({"serial"})
-    private static Application createApplication(String appId, int userId) {
+    private Application createApplication(String appId, int userId) {
 
         Application application = Application.createApplication(appId, userId);
         application.addAppModule("client", 10);
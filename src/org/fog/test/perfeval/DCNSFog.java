@@ -41,14 +41,23 @@ import org.fog.utils.distribution.DeterministicDistribution;
  *
  */
 public class DCNSFog {
-	static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-	static List<Sensor> sensors = new ArrayList<Sensor>();
-	static List<Actuator> actuators = new ArrayList<Actuator>();
-	static int numOfAreas = 1;
-	static int numOfCamerasPerArea = 4;
+	private List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private List<Sensor> sensors = new ArrayList<Sensor>();
+	private List<Actuator> actuators = new ArrayList<Actuator>();
+	private int numOfAreas = 1;
+	private int numOfCamerasPerArea = 4;
 	
-	private static boolean CLOUD = false;
+	private boolean cloud = false;
 	
+	public DCNSFog() {
+	}
+
+	public DCNSFog(int numOfAreas, int numOfCamerasPerArea, boolean cloud) {
+		this.numOfAreas = numOfAreas;
+		this.numOfCamerasPerArea = numOfCamerasPerArea;
+		this.cloud = cloud;
+	}
+
 	public static void main(String[] args) {
 
 		Log.printLine("Starting DCNS...");
@@ -61,37 +70,8 @@ public class DCNSFog {
 
 			CloudSim.init(num_user, calendar, trace_flag);
 
-			String appId = "dcns"; // identifier of the application
-			
-			FogBroker broker = new FogBroker("broker");
-			
-			Application application = createApplication(appId, broker.getId());
-			application.setUserId(broker.getId());
-			
-			createFogDevices(broker.getId(), appId);
-			
-			Controller controller = null;
-			
-			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
-			for(FogDevice device : fogDevices){
-				if(device.getName().startsWith("m")){ // names of all Smart Cameras start with 'm' 
-					moduleMapping.addModuleToDevice("motion_detector", device.getName());  // fixing 1 instance of the Motion Detector module to each Smart Camera
-				}
-			}
-			moduleMapping.addModuleToDevice("user_interface", "cloud"); // fixing instances of User Interface module in the Cloud
-			if(CLOUD){
-				// if the mode of deployment is cloud-based
-				moduleMapping.addModuleToDevice("object_detector", "cloud"); // placing all instances of Object Detector module in the Cloud
-				moduleMapping.addModuleToDevice("object_tracker", "cloud"); // placing all instances of Object Tracker module in the Cloud
-			}
-			
-			controller = new Controller("master-controller", fogDevices, sensors, 
-					actuators);
-			
-			controller.submitApplication(application, 
-					(CLOUD)?(new ModulePlacementMapping(fogDevices, application, moduleMapping))
-							:(new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
-			
+			new DCNSFog().createSimulation();
+
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 			
 			CloudSim.startSimulation();
@@ -104,13 +84,53 @@ public class DCNSFog {
 			Log.printLine("Unwanted errors happen");
 		}
 	}
+
+	/**
+	 * Creates the entities of the simulation in the simulation context of the current thread,
+	 * and submits the application to the controller.
+	 * @return the controller of the simulation
+	 */
+	public Controller createSimulation() throws Exception {
+		String appId = "dcns"; // identifier of the application
+
+		FogBroker broker = new FogBroker("broker");
+
+		Application application = createApplication(appId, broker.getId());
+		application.setUserId(broker.getId());
+
+		createFogDevices(broker.getId(), appId);
+
+		Controller controller = null;
+
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+		for(FogDevice device : fogDevices){
+			if(device.getName().startsWith("m")){ // names of all Smart Cameras start with 'm' 
+				moduleMapping.addModuleToDevice("motion_detector", device.getName());  // fixing 1 instance of the Motion Detector module to each Smart Camera
+			}
+		}
+		moduleMapping.addModuleToDevice("user_interface", "cloud"); // fixing instances of User Interface module in the Cloud
+		if(cloud){
+			// if the mode of deployment is cloud-based
+			moduleMapping.addModuleToDevice("object_detector", "cloud"); // placing all instances of Object Detector module in the Cloud
+			moduleMapping.addModuleToDevice("object_tracker", "cloud"); // placing all instances of Object Tracker module in the Cloud
+		}
+
+		controller = new Controller("master-controller", fogDevices, sensors, 
+				actuators);
+
+		controller.submitApplication(application, 
+				(cloud)?(new ModulePlacementMapping(fogDevices, application, moduleMapping))
+						:(new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+
+		return controller;
+	}
 	
 	/**
 	 * Creates the fog devices in the physical topology of the simulation.
 	 * @param userId
 	 * @param appId
 	 */
-	private static void createFogDevices(int userId, String appId) {
+	private void createFogDevices(int userId, String appId) {
 		FogDevice cloud = createFogDevice("cloud", 44800, 40000, 100, 10000, 0, 0.01, 16*103, 16*83.25);
 		cloud.setParentId(-1);
 		fogDevices.add(cloud);
@@ -123,7 +143,7 @@ public class DCNSFog {
 		}
 	}
 
-	private static FogDevice addArea(String id, int userId, String appId, int parentId){
+	private FogDevice addArea(String id, int userId, String appId, int parentId){
 		FogDevice router = createFogDevice("d-"+id, 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333);
 		fogDevices.add(router);
 		router.setUplinkLatency(2); // latency of connection between router and proxy server is 2 ms
@@ -137,7 +157,7 @@ public class DCNSFog {
 		return router;
 	}
 	
-	private static FogDevice addCamera(String id, int userId, String appId, int parentId){
+	private FogDevice addCamera(String id, int userId, String appId, int parentId){
 		FogDevice camera = createFogDevice("m-"+id, 500, 1000, 10000, 10000, 3, 0, 87.53, 82.44);
 		camera.setParentId(parentId);
 		Sensor sensor = new Sensor("s-"+id, "CAMERA", userId, appId, new DeterministicDistribution(5)); // inter-transmission time of camera (sensor) follows a deterministic distribution
@@ -164,7 +184,7 @@ public class DCNSFog {
 	 * @param idlePower
 	 * @return
 	 */
-	private static FogDevice createFogDevice(String nodeName, long mips,
+	private FogDevice createFogDevice(String nodeName, long mips,
 			int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
 		
 		List<Pe> peList = new ArrayList<Pe>();
@@ -224,7 +244,7 @@ public class DCNSFog {
 	 * @return
 	 */
 	@SuppressWarnings({"serial" })
-	private static Application createApplication(String appId, int userId){
+	private Application createApplication(String appId, int userId){
 		
 		Application application = Application.createApplication(appId, userId);
 		/*
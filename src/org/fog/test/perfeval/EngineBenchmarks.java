@@ -0,0 +1,460 @@
+package org.fog.test.perfeval;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.UtilizationModelFull;
+import org.cloudbus.cloudsim.core.CalendarFutureQueue;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.DeferredQueue;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.HeapFutureQueue;
+import org.cloudbus.cloudsim.core.IndexedFutureQueue;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SortedSetFutureQueue;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.Tuple;
+import org.fog.placement.Controller;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.Config;
+import org.fog.utils.Logger;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Microbenchmarks of the hot paths of the simulation engine: the future queues (add and poll of a queue
+ * holding a constant number of events), the deferred queue (insertion of events mostly in time order),
+ * CloudSim.runClockTick() on a running VRGameFog simulation, FogDevice.processTupleArrival() during a
+ * VRGameFog simulation, Application.getResultantTuples() and TupleScheduler.updateVmProcessing().
+ *
+ * Every benchmark is run for warm-up iterations, then for measured iterations, and a line of CSV is
+ * printed for it: benchmark,param,ops,ns_per_op (median over the measured iterations),ns_per_op_min and
+ * bytes_per_op, the bytes allocated by the thread per operation (-1 when the JVM does not measure them).
+ *
+ * Arguments: a filter on the names of the benchmarks (all by default), the number of warm-up iterations
+ * (5 by default) and the number of measured iterations (10 by default).
+ */
+public class EngineBenchmarks {
+
+	/**
+	 * Keeps the results of the operations, so that the JIT does not remove them
+	 */
+	static volatile long sink;
+
+	/**
+	 * A benchmark, whose iterations each run a number of operations.
+	 */
+	static abstract class MicroBenchmark {
+		final String name;
+		final String param;
+		/**
+		 * Time and bytes allocated measured by the last iteration itself, when it does not measure all its
+		 * operations, -1 otherwise
+		 */
+		long measuredNanos = -1;
+		long measuredBytes = -1;
+
+		MicroBenchmark(String name, String param){
+			this.name = name;
+			this.param = param;
+		}
+
+		void setup() throws Exception {
+		}
+
+		/**
+		 * Prepares an iteration, which is not measured.
+		 */
+		void setupIteration() throws Exception {
+		}
+
+		/**
+		 * @return the number of operations run
+		 */
+		abstract long iteration() throws Exception;
+
+		void teardown() {
+		}
+	}
+
+	/**
+	 * @return the bytes allocated so far by the current thread, or -1 if the JVM does not measure them
+	 */
+	static long allocatedBytes(){
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if(threads instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+		return -1;
+	}
+
+	public static void main(String[] args) throws Exception {
+		String filter = args.length > 0 ? args[0] : "";
+		int warmups = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+
+		List<MicroBenchmark> benchmarks = new ArrayList<MicroBenchmark>();
+		for(int size : new int[]{1000, 100000}){
+			benchmarks.add(new FutureQueueHold("sorted_set", size));
+			benchmarks.add(new FutureQueueHold("heap", size));
+			benchmarks.add(new FutureQueueHold("calendar", size));
+			benchmarks.add(new FutureQueueHold("indexed_heap", size));
+		}
+		benchmarks.add(new DeferredQueueInsertion(0));
+		benchmarks.add(new DeferredQueueInsertion(8));
+		benchmarks.add(new RunClockTick());
+		benchmarks.add(new ProcessTupleArrival());
+		benchmarks.add(new GetResultantTuples());
+		benchmarks.add(new UpdateVmProcessing(10));
+		benchmarks.add(new UpdateVmProcessing(100));
+		benchmarks.add(new UpdateVmProcessing(1000));
+
+		System.out.println("benchmark,param,ops,ns_per_op,ns_per_op_min,bytes_per_op");
+		for(MicroBenchmark benchmark : benchmarks){
+			if(benchmark.name.contains(filter))
+				run(benchmark, warmups, iterations);
+		}
+	}
+
+	private static void run(MicroBenchmark benchmark, int warmups, int iterations) throws Exception {
+		benchmark.setup();
+		try{
+			for(int i=0;i<warmups;i++){
+				benchmark.setupIteration();
+				benchmark.iteration();
+			}
+			double[] nsPerOp = new double[iterations];
+			long ops = 0;
+			long bytes = 0;
+			for(int i=0;i<iterations;i++){
+				benchmark.setupIteration();
+				benchmark.measuredNanos = -1;
+				benchmark.measuredBytes = -1;
+				long startBytes = allocatedBytes();
+				long start = System.nanoTime();
+				long iterationOps = benchmark.iteration();
+				long time = System.nanoTime() - start;
+				long iterationBytes = allocatedBytes() - startBytes;
+				if(benchmark.measuredNanos >= 0){
+					time = benchmark.measuredNanos;
+					iterationBytes = benchmark.measuredBytes;
+				}
+				nsPerOp[i] = (double) time / Math.max(1, iterationOps);
+				ops += iterationOps;
+				bytes += iterationBytes;
+			}
+			Arrays.sort(nsPerOp);
+			System.out.println(benchmark.name+","+benchmark.param+","+ops/iterations+","+nsPerOp[iterations/2]+","+nsPerOp[0]+","
+					+(allocatedBytes() >= 0 ? (double) bytes / Math.max(1, ops) : -1));
+		}finally{
+			benchmark.teardown();
+		}
+	}
+
+	private static SimEvent newEvent(double time) {
+		return SimEvent.create(SimEvent.SEND, time, 0, 0, 0, null);
+	}
+
+	/**
+	 * Hold model: the queue holds a number of events, and every operation polls the first event and adds an
+	 * event at an exponentially distributed time after it.
+	 */
+	static class FutureQueueHold extends MicroBenchmark {
+		private static final int OPS = 200000;
+		private final int size;
+		private SimEvent[] initialEvents;
+		private SimEvent[] addedEvents;
+		private FutureQueue queue;
+
+		FutureQueueHold(String queueType, int size){
+			super("future_queue_hold_"+queueType, ""+size);
+			this.size = size;
+		}
+
+		@Override
+		void setup() throws Exception {
+			Random random = new Random(1);
+			PriorityQueue<Double> times = new PriorityQueue<Double>();
+			initialEvents = new SimEvent[size];
+			for(int i=0;i<size;i++){
+				double time = -Math.log(1 - random.nextDouble()) * size;
+				times.add(time);
+				initialEvents[i] = newEvent(time);
+			}
+			addedEvents = new SimEvent[OPS];
+			for(int i=0;i<OPS;i++){
+				double time = times.poll() - Math.log(1 - random.nextDouble()) * size;
+				times.add(time);
+				addedEvents[i] = newEvent(time);
+			}
+		}
+
+		@Override
+		void setupIteration() {
+			if(name.endsWith("sorted_set"))
+				queue = new SortedSetFutureQueue();
+			else if(name.endsWith("indexed_heap"))
+				queue = new IndexedFutureQueue(new HeapFutureQueue());
+			else if(name.endsWith("heap"))
+				queue = new HeapFutureQueue();
+			else
+				queue = new CalendarFutureQueue(1.0);
+			for(SimEvent event : initialEvents)
+				queue.addEvent(event);
+		}
+
+		@Override
+		long iteration() {
+			double sum = 0;
+			for(int i=0;i<OPS;i++){
+				sum += queue.poll().eventTime();
+				queue.addEvent(addedEvents[i]);
+			}
+			sink += (long) sum;
+			return OPS;
+		}
+	}
+
+	/**
+	 * Insertion of events in a deferred queue, cleared every 64 events as entities process their deferred
+	 * events at every tick. The events are in time order, or each up to a number of time units early.
+	 */
+	static class DeferredQueueInsertion extends MicroBenchmark {
+		private static final int OPS = 200000;
+		private final int jitter;
+		private SimEvent[] events;
+
+		DeferredQueueInsertion(int jitter){
+			super("deferred_queue_insertion", "jitter="+jitter);
+			this.jitter = jitter;
+		}
+
+		@Override
+		void setup() throws Exception {
+			Random random = new Random(1);
+			events = new SimEvent[OPS];
+			for(int i=0;i<OPS;i++)
+				events[i] = newEvent(i - random.nextDouble() * jitter);
+		}
+
+		@Override
+		long iteration() {
+			DeferredQueue queue = new DeferredQueue();
+			long size = 0;
+			for(int i=0;i<OPS;i++){
+				queue.addEvent(events[i]);
+				if(i % 64 == 63){
+					size += queue.size();
+					queue.clear();
+				}
+			}
+			sink += size;
+			return OPS;
+		}
+	}
+
+	/**
+	 * Ticks of a running VRGameFog simulation, with 4 departments of 4 mobiles. A new simulation is started
+	 * when the previous one ends.
+	 */
+	static class RunClockTick extends MicroBenchmark {
+		private static final int OPS = 20000;
+		private boolean running;
+
+		RunClockTick(){
+			super("run_clock_tick", "VRGameFog_4x4");
+		}
+
+		@Override
+		void setupIteration() throws Exception {
+			if(running)
+				return;
+			CloudSim.setSimulationContext(null);
+			CloudSim.init(1, Calendar.getInstance(), false);
+			Controller controller = new VRGameFog(4, 4, false).createSimulation();
+			controller.setExitOnStop(false);
+			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+			CloudSim.runStart();
+			running = true;
+			// the placement of the modules
+			for(int i=0;i<1000 && running;i++)
+				running = !CloudSim.runClockTick();
+		}
+
+		@Override
+		long iteration() {
+			int ticks = 0;
+			while(ticks < OPS && running){
+				running = !CloudSim.runClockTick();
+				ticks++;
+			}
+			return ticks;
+		}
+
+		@Override
+		void teardown() {
+			CloudSim.setSimulationContext(null);
+		}
+	}
+
+	/**
+	 * Tuple arrivals processed by the fog devices during a VRGameFog simulation with 4 departments of 4
+	 * mobiles, lasting 2000 time units. Only the time taken by processTupleArrival() is measured.
+	 */
+	static class ProcessTupleArrival extends MicroBenchmark {
+		private static long nanos;
+		private static long bytes;
+		private static long arrivals;
+
+		ProcessTupleArrival(){
+			super("process_tuple_arrival", "VRGameFog_4x4");
+		}
+
+		private static class TimedFogDevice extends FogDevice {
+			TimedFogDevice(String name, FogDeviceCharacteristics characteristics, AppModuleAllocationPolicy allocationPolicy,
+					List<Storage> storageList, long upBw, long downBw, double ratePerMips) throws Exception {
+				super(name, characteristics, allocationPolicy, storageList, 10, upBw, downBw, 0, ratePerMips);
+			}
+
+			@Override
+			protected void processTupleArrival(SimEvent ev) {
+				long startBytes = allocatedBytes();
+				long start = System.nanoTime();
+				super.processTupleArrival(ev);
+				nanos += System.nanoTime() - start;
+				bytes += allocatedBytes() - startBytes;
+				arrivals++;
+			}
+		}
+
+		@Override
+		long iteration() throws Exception {
+			nanos = bytes = arrivals = 0;
+			int maxSimulationTime = Config.MAX_SIMULATION_TIME;
+			Config.MAX_SIMULATION_TIME = 2000;
+			try{
+				CloudSim.init(1, Calendar.getInstance(), false);
+				Controller controller = new VRGameFog(4, 4, false){
+					@Override
+					protected FogDevice newFogDevice(String nodeName, FogDeviceCharacteristics characteristics,
+							AppModuleAllocationPolicy allocationPolicy, List<Storage> storageList, long upBw, long downBw,
+							double ratePerMips) throws Exception {
+						return new TimedFogDevice(nodeName, characteristics, allocationPolicy, storageList, upBw, downBw, ratePerMips);
+					}
+				}.createSimulation();
+				controller.setExitOnStop(false);
+				TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+				CloudSim.startSimulation();
+				CloudSim.stopSimulation();
+			}finally{
+				Config.MAX_SIMULATION_TIME = maxSimulationTime;
+				CloudSim.setSimulationContext(null);
+			}
+			measuredNanos = nanos;
+			measuredBytes = bytes;
+			return arrivals;
+		}
+	}
+
+	/**
+	 * Tuples emitted by the client and the concentration calculator of the VRGame application, for the
+	 * tuples they receive from the EEG sensor and the client.
+	 */
+	static class GetResultantTuples extends MicroBenchmark {
+		private static final int OPS = 200000;
+		private Application application;
+		private Tuple eeg;
+		private Tuple sensor;
+
+		GetResultantTuples(){
+			super("get_resultant_tuples", "vr_game");
+		}
+
+		@Override
+		void setup() {
+			application = new VRGameFog().createApplication("vr_game", 1);
+			eeg = newTuple("EEG", "client");
+			sensor = newTuple("_SENSOR", "concentration_calculator");
+		}
+
+		private static Tuple newTuple(String tupleType, String destModule){
+			Tuple tuple = new Tuple("vr_game", 0, Tuple.UP, 3000, 1, 500, 500,
+					new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+			tuple.setTupleType(tupleType);
+			tuple.setDestModuleName(destModule);
+			return tuple;
+		}
+
+		@Override
+		long iteration() {
+			long tuples = 0;
+			for(int i=0;i<OPS;i+=2){
+				tuples += application.getResultantTuples("client", eeg, 0, 0).size();
+				tuples += application.getResultantTuples("concentration_calculator", sensor, 0, 0).size();
+			}
+			sink += tuples;
+			return OPS;
+		}
+	}
+
+	/**
+	 * Updates of the processing of a module running a number of tuples that do not finish. With
+	 * FogSettings.isPerTupleProgress() set, an update takes a time quadratic in the number of tuples, so there are
+	 * fewer updates per iteration for more tuples.
+	 */
+	static class UpdateVmProcessing extends MicroBenchmark {
+		private final int cloudlets;
+		private final int ops;
+		private TupleScheduler scheduler;
+		private List<Double> mipsShare = Arrays.asList(1000.0);
+		private double time;
+
+		UpdateVmProcessing(int cloudlets){
+			super("update_vm_processing", "cloudlets="+cloudlets);
+			this.cloudlets = cloudlets;
+			ops = 200000 / cloudlets;
+		}
+
+		@Override
+		void setup() {
+			CloudSim.init(1, Calendar.getInstance(), false);
+			scheduler = new TupleScheduler(1000, 1);
+			scheduler.updateVmProcessing(0, mipsShare);
+			for(int i=0;i<cloudlets;i++){
+				Cloudlet cloudlet = new Cloudlet(i, 1000000000L, 1, 300, 300,
+						new UtilizationModelFull(), new UtilizationModelFull(), new UtilizationModelFull());
+				// as done by the datacenter, otherwise the cloudlet is taken as already finished
+				cloudlet.setResourceParameter(0, 0);
+				scheduler.cloudletSubmit(cloudlet);
+			}
+		}
+
+		@Override
+		long iteration() {
+			double next = 0;
+			for(int i=0;i<ops;i++){
+				time += 0.01;
+				next += scheduler.updateVmProcessing(time, mipsShare);
+			}
+			sink += (long) next;
+			return ops;
+		}
+
+		@Override
+		void teardown() {
+			CloudSim.setSimulationContext(null);
+		}
+	}
+}
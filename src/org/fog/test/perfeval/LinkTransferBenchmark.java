@@ -0,0 +1,65 @@
+package org.fog.test.perfeval;
+
+import java.io.PrintStream;
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.placement.Controller;
+import org.fog.utils.Config;
+import org.fog.utils.FogSettings;
+import org.fog.utils.Logger;
+import org.fog.utils.SimulationResults;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Compares the number of events processed per simulated second, and the time taken, when the links of the
+ * fog devices schedule an event for every transmission and acknowledge every tuple, and when the departures
+ * of the tuples are computed when they are sent (see FogSettings.isPerTupleLinkEvents()).
+ *
+ * Arguments: the scenario (VRGameFog by default, or DCNSFog, CameraDisplayFog), the number of groups
+ * (2 by default) and the number of mobiles per group (4 by default).
+ */
+public class LinkTransferBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String scenario = args.length > 0 ? args[0] : "VRGameFog";
+		int groups = args.length > 1 ? Integer.parseInt(args[1]) : 2;
+		int perGroup = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+		PrintStream out = System.out;
+		out.println("mode,events,events_per_sim_second,time_ms");
+		long[] events = new long[2];
+		for(int mode=0;mode<2;mode++){
+			long start = System.nanoTime();
+			SimulationResults results = run(scenario, groups, perGroup, mode == 0);
+			long time = System.nanoTime() - start;
+			events[mode] = results.getEventsProcessed();
+			out.println((mode == 0 ? "per_tuple" : "coalesced")+","+events[mode]+","
+					+events[mode]/Config.MAX_SIMULATION_TIME+","+time/1000000);
+		}
+		out.println("reduction,"+(100.0*(events[0]-events[1])/events[0])+"%");
+	}
+
+	private static SimulationResults run(String scenario, int groups, int perGroup, boolean perTupleLinkEvents) throws Exception {
+		try{
+			CloudSim.init(1, Calendar.getInstance(), false);
+			FogSettings.getInstance().setPerTupleLinkEvents(perTupleLinkEvents);
+			Controller controller;
+			if(scenario.equals("DCNSFog"))
+				controller = new DCNSFog(groups, perGroup, false).createSimulation();
+			else if(scenario.equals("CameraDisplayFog"))
+				controller = new CameraDisplayFog(groups, perGroup, false).createSimulation();
+			else
+				controller = new VRGameFog(groups, perGroup, false).createSimulation();
+			controller.setExitOnStop(false);
+			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+			CloudSim.startSimulation();
+			CloudSim.stopSimulation();
+			return controller.getResults();
+		}finally{
+			CloudSim.setSimulationContext(null);
+		}
+	}
+}
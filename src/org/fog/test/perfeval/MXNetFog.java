@@ -34,13 +34,21 @@ import java.util.List;
  * @author Harshit Gupta
  */
 public class MXNetFog {
-    static List<FogDevice> fogDevices = new ArrayList<>();
-    static List<Sensor> sensors = new ArrayList<>();
-    static List<Actuator> actuators = new ArrayList<>();
+    private List<FogDevice> fogDevices = new ArrayList<>();
+    private List<Sensor> sensors = new ArrayList<>();
+    private List<Actuator> actuators = new ArrayList<>();
 
 
-    static int numOfServices = 1;
-    static int numOfPisPerService = 4;
+    private int numOfServices = 1;
+    private int numOfPisPerService = 4;
+
+    public MXNetFog() {
+    }
+
+    public MXNetFog(int numOfServices, int numOfPisPerService) {
+        this.numOfServices = numOfServices;
+        this.numOfPisPerService = numOfPisPerService;
+    }
 
     public static void main(String[] args) {
 
@@ -54,49 +62,60 @@ public class MXNetFog {
 
             CloudSim.init(num_user, calendar, trace_flag);
 
-            String appId = "mx_net"; // identifier of the application
+            new MXNetFog().createSimulation();
 
-            FogBroker broker = new FogBroker("broker");
+            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
-            Application application = createApplication(appId, broker.getId());
-            application.setUserId(broker.getId());
+            CloudSim.startSimulation();
 
-            createFogDevices(broker.getId(), appId);
+            CloudSim.stopSimulation();
 
-            ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+            Log.printLine("MXNet finished!");
+        } catch (Exception e) {
+            e.printStackTrace();
+            Log.printLine("Unwanted errors happen");
+        }
+    }
 
-            final String client = "client";
-            final String mxnetService = "mxnet_service";
+    /**
+     * Creates the entities of the simulation in the simulation context of the current thread,
+     * and submits the application to the controller.
+     * @return the controller of the simulation
+     */
+    public Controller createSimulation() throws Exception {
+        String appId = "mx_net"; // identifier of the application
 
-            for (FogDevice device: fogDevices) {
-                if (device.getName().startsWith("pi")) {
-                    moduleMapping.addModuleToDevice(client, device.getName());
-                }
-            }
+        FogBroker broker = new FogBroker("broker");
 
-            for (FogDevice device: fogDevices) {
-                if (device.getName().startsWith("s")) {
-                    moduleMapping.addModuleToDevice(mxnetService, device.getName());
-                }
-            }
+        Application application = createApplication(appId, broker.getId());
+        application.setUserId(broker.getId());
 
-            Controller controller = new Controller("master-controller", fogDevices, sensors,
-                    actuators);
+        createFogDevices(broker.getId(), appId);
 
-            controller.submitApplication(application, 0,
-                    (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+        ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
 
-            TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
-
-            CloudSim.startSimulation();
+        final String client = "client";
+        final String mxnetService = "mxnet_service";
 
-            CloudSim.stopSimulation();
+        for (FogDevice device: fogDevices) {
+            if (device.getName().startsWith("pi")) {
+                moduleMapping.addModuleToDevice(client, device.getName());
+            }
+        }
 
-            Log.printLine("MXNet finished!");
-        } catch (Exception e) {
-            e.printStackTrace();
-            Log.printLine("Unwanted errors happen");
+        for (FogDevice device: fogDevices) {
+            if (device.getName().startsWith("s")) {
+                moduleMapping.addModuleToDevice(mxnetService, device.getName());
+            }
         }
+
+        Controller controller = new Controller("master-controller", fogDevices, sensors,
+                actuators);
+
+        controller.submitApplication(application, 0,
+                (new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+
+        return controller;
     }
 
     /**
@@ -105,7 +124,7 @@ public class MXNetFog {
      * @param userId
      * @param appId
      */
-    private static void createFogDevices(int userId, String appId) {
+    private void createFogDevices(int userId, String appId) {
         // cloud is necessary, otherwise NPE is thrown
         FogDevice cloud = createFogDevice("cloud", 1000, 40000, 100, 10000, 0, 0.01, 16*103, 16*83.25); // creates the fog device Cloud at the apex of the hierarchy with level=0
         cloud.setParentId(-1);
@@ -123,7 +142,7 @@ public class MXNetFog {
 
     }
 
-    private static FogDevice addService(String id, int userId, String appId, int proxyId) {
+    private FogDevice addService(String id, int userId, String appId, int proxyId) {
         FogDevice service = createFogDevice("s-" + id, FogConfig.serviceConfig(id));
         fogDevices.add(service);
         service.setParentId(proxyId);
@@ -136,7 +155,7 @@ public class MXNetFog {
         return service;
     }
 
-    private static FogDevice addPi(String id, int userId, String appId, int parentId) {
+    private FogDevice addPi(String id, int userId, String appId, int parentId) {
         FogDevice pi = createFogDevice("pi-" + id, FogConfig.piConfig(id));
         pi.setParentId(parentId);
         return pi;
@@ -144,7 +163,7 @@ public class MXNetFog {
 
 
 
-    private static FogDevice createFogDevice(String nodeName, FogConfig config) {
+    private FogDevice createFogDevice(String nodeName, FogConfig config) {
         return createFogDevice(nodeName, config.getMips(),config.getRam(),config.getUpBw(),config.getDownBw(),config.getLevel(),
                 config.getRaterPerMips(),config.getBusyPower(),config.getIdlePower());
     }
@@ -163,7 +182,7 @@ public class MXNetFog {
      * @param idlePower
      * @return
      */
-    private static FogDevice createFogDevice(String nodeName, long mips,
+    private FogDevice createFogDevice(String nodeName, long mips,
                                              int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
 
         List<Pe> peList = new ArrayList<Pe>();
@@ -224,7 +243,7 @@ public class MXNetFog {
      * @return
      */
     @SuppressWarnings({"serial"})
-    private static Application createApplication(String appId, int userId) {
+    private Application createApplication(String appId, int userId) {
 
         Application application = Application.createApplication(appId, userId); // creates an empty application model (empty directed graph)
 
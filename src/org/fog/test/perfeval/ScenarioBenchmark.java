@@ -0,0 +1,157 @@
+package org.fog.test.perfeval;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.placement.Controller;
+import org.fog.utils.Config;
+import org.fog.utils.Logger;
+import org.fog.utils.SimulationResults;
+import org.fog.utils.TimeKeeper;
+
+/**
+ * Runs the VRGameFog and DCNSFog scenarios at several scales, and prints for each of them a line of CSV:
+ * scenario,groups,per_group,events,wall_ms,events_per_s,alloc_mb,alloc_mb_per_s, where the events are
+ * the ones processed by the engine, the time is the wall time taken to create and run the simulation, and
+ * the allocations are the megabytes allocated by the thread running it. Every scale is run a number of
+ * times and the run with the median wall time is printed, after a run of the first scale warming up the JIT.
+ *
+ * The arguments are key=value, lists being comma separated: scenarios (VRGameFog,DCNSFog), scales as
+ * groups x mobiles or cameras per group (2x4,4x8,8x16), placement (edgewards or cloud), repeat (3) and
+ * time (Config.MAX_SIMULATION_TIME). When baseline is set to the output of an earlier run, the wall times
+ * and the allocations are compared to it, and the benchmark exits with status 1 if any of them grew by
+ * more than tolerance (0.2, that is 20%).
+ */
+public class ScenarioBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("scenarios", "VRGameFog,DCNSFog");
+		params.put("scales", "2x4,4x8,8x16");
+		params.put("placement", SweepRunner.EDGEWARDS);
+		params.put("repeat", "3");
+		params.put("time", ""+Config.MAX_SIMULATION_TIME);
+		params.put("baseline", "");
+		params.put("tolerance", "0.2");
+		for(String arg : args){
+			int i = arg.indexOf('=');
+			if(i < 0 || !params.containsKey(arg.substring(0, i)))
+				throw new IllegalArgumentException("Unknown argument: "+arg);
+			params.put(arg.substring(0, i), arg.substring(i+1));
+		}
+		Config.MAX_SIMULATION_TIME = Integer.parseInt(params.get("time"));
+		boolean cloud = params.get("placement").equals(SweepRunner.CLOUD);
+		int repeat = Integer.parseInt(params.get("repeat"));
+		String[] scenarios = params.get("scenarios").split(",");
+		String[] scales = params.get("scales").split(",");
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+
+		Map<String, double[]> baseline = params.get("baseline").isEmpty() ? null : readBaseline(params.get("baseline"));
+		double tolerance = Double.parseDouble(params.get("tolerance"));
+		boolean regression = false;
+
+		int[] firstScale = parseScale(scales[0]);
+		run(scenarios[0], firstScale[0], firstScale[1], cloud);
+		System.out.println("scenario,groups,per_group,events,wall_ms,events_per_s,alloc_mb,alloc_mb_per_s");
+		for(String scenario : scenarios){
+			for(String scale : scales){
+				int[] size = parseScale(scale);
+				Run[] runs = new Run[repeat];
+				for(int i=0;i<repeat;i++)
+					runs[i] = run(scenario, size[0], size[1], cloud);
+				Arrays.sort(runs);
+				Run median = runs[repeat/2];
+				String key = scenario+","+size[0]+","+size[1];
+				double wallMs = median.nanos/1e6;
+				double allocMb = median.bytes/1e6;
+				System.out.println(key+","+median.events+","+wallMs+","+median.events/(median.nanos/1e9)+","
+						+allocMb+","+allocMb/(median.nanos/1e9));
+				double[] base = baseline == null ? null : baseline.get(key);
+				if(base != null){
+					if(wallMs > base[0]*(1 + tolerance)){
+						System.err.println(key+": wall time "+wallMs+" ms against "+base[0]+" ms in the baseline");
+						regression = true;
+					}
+					if(allocMb > base[1]*(1 + tolerance)){
+						System.err.println(key+": allocated "+allocMb+" MB against "+base[1]+" MB in the baseline");
+						regression = true;
+					}
+				}
+			}
+		}
+		if(regression)
+			System.exit(1);
+	}
+
+	private static int[] parseScale(String scale){
+		String[] size = scale.split("x");
+		return new int[]{Integer.parseInt(size[0]), Integer.parseInt(size[1])};
+	}
+
+	/**
+	 * @return the wall times and the allocations of the lines of an earlier output, by scenario and scale
+	 */
+	private static Map<String, double[]> readBaseline(String file) throws IOException {
+		Map<String, double[]> baseline = new HashMap<String, double[]>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try{
+			reader.readLine();
+			for(String line = reader.readLine(); line != null; line = reader.readLine()){
+				String[] fields = line.split(",");
+				if(fields.length < 8)
+					continue;
+				baseline.put(fields[0]+","+fields[1]+","+fields[2],
+						new double[]{Double.parseDouble(fields[4]), Double.parseDouble(fields[6])});
+			}
+		}finally{
+			reader.close();
+		}
+		return baseline;
+	}
+
+	private static class Run implements Comparable<Run> {
+		private long nanos;
+		private long bytes;
+		private long events;
+
+		@Override
+		public int compareTo(Run other) {
+			return Long.compare(nanos, other.nanos);
+		}
+	}
+
+	private static Run run(String scenario, int groups, int perGroup, boolean cloud) throws Exception {
+		Run run = new Run();
+		long startBytes = EngineBenchmarks.allocatedBytes();
+		long start = System.nanoTime();
+		try{
+			CloudSim.init(1, Calendar.getInstance(), false);
+			Controller controller;
+			if(scenario.equals("DCNSFog"))
+				controller = new DCNSFog(groups, perGroup, cloud).createSimulation();
+			else if(scenario.equals("VRGameFog"))
+				controller = new VRGameFog(groups, perGroup, cloud).createSimulation();
+			else
+				throw new IllegalArgumentException("Unknown scenario: "+scenario);
+			controller.setExitOnStop(false);
+			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+			CloudSim.startSimulation();
+			CloudSim.stopSimulation();
+			SimulationResults results = controller.getResults();
+			run.events = results.getEventsProcessed();
+		}finally{
+			CloudSim.setSimulationContext(null);
+		}
+		run.nanos = System.nanoTime() - start;
+		run.bytes = EngineBenchmarks.allocatedBytes() - startBytes;
+		return run;
+	}
+}
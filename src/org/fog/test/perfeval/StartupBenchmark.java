@@ -0,0 +1,51 @@
+package org.fog.test.perfeval;
+
+import java.io.PrintStream;
+import java.util.Calendar;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.utils.Logger;
+
+/**
+ * Measures the time taken to set up the VRGame scenario with the edgewards placement, that is to create the
+ * topology, the controller and to place the modules, for growing numbers of mobiles, to check that it scales
+ * about linearly with the size of the topology.
+ *
+ * Arguments: the number of departments (10 by default) followed by the numbers of mobiles per department
+ * to measure (50 100 200 500 by default).
+ */
+public class StartupBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		int depts = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int[] mobilesPerDept = {50, 100, 200, 500};
+		if(args.length > 1){
+			mobilesPerDept = new int[args.length-1];
+			for(int i=1;i<args.length;i++)
+				mobilesPerDept[i-1] = Integer.parseInt(args[i]);
+		}
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+		PrintStream out = System.out;
+		// warms up the JIT on a small topology
+		measure(depts, mobilesPerDept[0]);
+		out.println("mobiles,startup_ms,us_per_mobile");
+		for(int perDept : mobilesPerDept){
+			long time = measure(depts, perDept);
+			int mobiles = depts*perDept;
+			out.println(mobiles+","+time/1000000+","+time/1000/mobiles);
+		}
+	}
+
+	private static long measure(int depts, int perDept) throws Exception {
+		try{
+			CloudSim.init(1, Calendar.getInstance(), false);
+			long start = System.nanoTime();
+			new VRGameFog(depts, perDept, false).createSimulation();
+			return System.nanoTime() - start;
+		}finally{
+			CloudSim.setSimulationContext(null);
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package org.fog.test.perfeval;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.placement.Controller;
+import org.fog.utils.Config;
+import org.fog.utils.LatencyHistogram;
+import org.fog.utils.Logger;
+import org.fog.utils.SimulationResults;
+import org.fog.utils.TimeKeeper;
+import org.fog.utils.TraceSink;
+
+/**
+ * Runs the perfeval scenarios over a grid of topology sizes and placements, each point as a separate
+ * simulation of the same JVM, spread over a pool of threads, and writes the results of all of them
+ * to a single CSV table with one row per metric: scenario,placement,groups,per_group,metric,key,value.
+ * Loop delays and tuple CPU delays come with their 50th, 95th and 99th percentiles and their maximum.
+ *
+ * The grid is given as key=value arguments, lists being comma separated:
+ * scenarios (VRGameFog,DCNSFog,TwoApps,MXNetFog,CameraDisplayFog), groups (1,2,4) and perGroup (4),
+ * the number of gateways (areas, services) and of end devices under each of them, placements
+ * (cloud,edgewards), threads (number of processors), time (Config.MAX_SIMULATION_TIME) and out (sweep.csv).
+ * When trace is set to a directory, the events processed by every simulation are written to a file of it,
+ * named after the point, in traceFormat (csv or binary, see TraceSink).
+ * TwoApps maps its modules to the cloud and MXNetFog places them edgewards, so they are only run with
+ * that placement.
+ */
+public class SweepRunner {
+
+	static final String CLOUD = "cloud";
+	static final String EDGEWARDS = "edgewards";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		Map<String, String> params = new HashMap<String, String>();
+		params.put("scenarios", "VRGameFog,DCNSFog,TwoApps,MXNetFog,CameraDisplayFog");
+		params.put("groups", "1,2,4");
+		params.put("perGroup", "4");
+		params.put("placements", CLOUD+","+EDGEWARDS);
+		params.put("threads", ""+Runtime.getRuntime().availableProcessors());
+		params.put("time", ""+Config.MAX_SIMULATION_TIME);
+		params.put("out", "sweep.csv");
+		params.put("trace", "");
+		params.put("traceFormat", "csv");
+		for(String arg : args){
+			int i = arg.indexOf('=');
+			if(i < 0 || !params.containsKey(arg.substring(0, i)))
+				throw new IllegalArgumentException("Unknown argument: "+arg);
+			params.put(arg.substring(0, i), arg.substring(i+1));
+		}
+		Config.MAX_SIMULATION_TIME = Integer.parseInt(params.get("time"));
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+		TraceSink.Format traceFormat = TraceSink.Format.valueOf(params.get("traceFormat").toUpperCase());
+		File traceDir = params.get("trace").isEmpty() ? null : new File(params.get("trace"));
+		if(traceDir != null)
+			traceDir.mkdirs();
+
+		List<SweepPoint> points = new ArrayList<SweepPoint>();
+		for(String scenario : split(params.get("scenarios")))
+			for(String groups : split(params.get("groups")))
+				for(String perGroup : split(params.get("perGroup")))
+					for(String placement : split(params.get("placements"))){
+						if(!placement.equals(CLOUD) && !placement.equals(EDGEWARDS))
+							throw new IllegalArgumentException("Unknown placement: "+placement);
+						SweepPoint point = new SweepPoint(scenario, Integer.parseInt(groups), Integer.parseInt(perGroup), placement);
+						if(traceDir != null)
+							point.setTrace(new File(traceDir, scenario+"_"+placement+"_"+groups+"_"+perGroup
+									+(traceFormat == TraceSink.Format.BINARY ? ".bin" : ".csv")), traceFormat);
+						if(point.isSupported())
+							points.add(point);
+					}
+
+		ExecutorService executor = Executors.newFixedThreadPool(Integer.parseInt(params.get("threads")));
+		List<Future<SimulationResults>> futures = new ArrayList<Future<SimulationResults>>();
+		for(SweepPoint point : points)
+			futures.add(executor.submit(point));
+		executor.shutdown();
+
+		PrintWriter out = new PrintWriter(new FileWriter(params.get("out")));
+		try{
+			out.println("scenario,placement,groups,per_group,metric,key,value");
+			for(int i=0;i<points.size();i++){
+				SweepPoint point = points.get(i);
+				try{
+					write(out, point, futures.get(i).get());
+				}catch(ExecutionException e){
+					System.err.println(point+" failed");
+					e.getCause().printStackTrace();
+					writeRow(out, point, "error", "", csv(String.valueOf(e.getCause())));
+				}
+			}
+		}finally{
+			out.close();
+		}
+		System.err.println(points.size()+" simulations written to "+params.get("out"));
+	}
+
+	private static List<String> split(String list){
+		return Arrays.asList(list.split(","));
+	}
+
+	private static void write(PrintWriter out, SweepPoint point, SimulationResults results){
+		writeRow(out, point, "execution_time", "", ""+results.getExecutionTime());
+		for(String loop : results.getLoopDelays().keySet()){
+			writeRow(out, point, "loop_delay", loop, ""+results.getLoopDelays().get(loop));
+			writePercentiles(out, point, "loop_delay", loop, results.getLoopDelayHistograms().get(loop));
+		}
+		for(String tupleType : results.getTupleCpuDelays().keySet()){
+			writeRow(out, point, "tuple_cpu_delay", tupleType, ""+results.getTupleCpuDelays().get(tupleType));
+			writePercentiles(out, point, "tuple_cpu_delay", tupleType, results.getTupleCpuDelayHistograms().get(tupleType));
+		}
+		double totalEnergy = 0;
+		for(String device : results.getEnergyConsumptions().keySet()){
+			writeRow(out, point, "energy", device, ""+results.getEnergyConsumptions().get(device));
+			totalEnergy += results.getEnergyConsumptions().get(device);
+		}
+		writeRow(out, point, "total_energy", "", ""+totalEnergy);
+		writeRow(out, point, "cloud_cost", "", ""+results.getCloudCost());
+		writeRow(out, point, "network_usage", "", ""+results.getNetworkUsage());
+		writeRow(out, point, "events", "", ""+results.getEventsProcessed());
+		writeRow(out, point, "events_per_sim_second", "", ""+results.getEventsProcessed()/Config.MAX_SIMULATION_TIME);
+	}
+
+	private static void writePercentiles(PrintWriter out, SweepPoint point, String metric, String key, LatencyHistogram histogram){
+		if(histogram == null || histogram.getCount() == 0)
+			return;
+		writeRow(out, point, metric+"_p50", key, ""+histogram.getValueAtPercentile(50));
+		writeRow(out, point, metric+"_p95", key, ""+histogram.getValueAtPercentile(95));
+		writeRow(out, point, metric+"_p99", key, ""+histogram.getValueAtPercentile(99));
+		writeRow(out, point, metric+"_max", key, ""+histogram.getMax());
+	}
+
+	private static void writeRow(PrintWriter out, SweepPoint point, String metric, String key, String value){
+		out.println(point.scenario+","+point.placement+","+point.groups+","+point.perGroup+","+metric+","+csv(key)+","+value);
+	}
+
+	private static String csv(String field){
+		if(field.indexOf(',') < 0 && field.indexOf('"') < 0)
+			return field;
+		return "\""+field.replace("\"", "\"\"")+"\"";
+	}
+
+	/**
+	 * A point of the grid, run as a simulation of its own on the thread of the executor.
+	 */
+	static class SweepPoint implements Callable<SimulationResults> {
+		private String scenario;
+		private int groups;
+		private int perGroup;
+		private String placement;
+		private File traceFile;
+		private TraceSink.Format traceFormat;
+
+		SweepPoint(String scenario, int groups, int perGroup, String placement){
+			this.scenario = scenario;
+			this.groups = groups;
+			this.perGroup = perGroup;
+			this.placement = placement;
+		}
+
+		void setTrace(File traceFile, TraceSink.Format traceFormat){
+			this.traceFile = traceFile;
+			this.traceFormat = traceFormat;
+		}
+
+		boolean isSupported(){
+			if(scenario.equals("TwoApps"))
+				return placement.equals(CLOUD);
+			if(scenario.equals("MXNetFog"))
+				return placement.equals(EDGEWARDS);
+			return true;
+		}
+
+		private Controller createSimulation() throws Exception {
+			boolean cloud = placement.equals(CLOUD);
+			if(scenario.equals("VRGameFog"))
+				return new VRGameFog(groups, perGroup, cloud).createSimulation();
+			if(scenario.equals("DCNSFog"))
+				return new DCNSFog(groups, perGroup, cloud).createSimulation();
+			if(scenario.equals("CameraDisplayFog"))
+				return new CameraDisplayFog(groups, perGroup, cloud).createSimulation();
+			if(scenario.equals("TwoApps"))
+				return new TwoApps(groups, perGroup).createSimulation();
+			if(scenario.equals("MXNetFog"))
+				return new MXNetFog(groups, perGroup).createSimulation();
+			throw new IllegalArgumentException("Unknown scenario: "+scenario);
+		}
+
+		@Override
+		public SimulationResults call() throws Exception {
+			TraceSink trace = null;
+			try{
+				CloudSim.init(1, Calendar.getInstance(), false);
+				Controller controller = createSimulation();
+				controller.setExitOnStop(false);
+				if(traceFile != null){
+					trace = new TraceSink(new FileOutputStream(traceFile), traceFormat);
+					trace.attach();
+				}
+				TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
+				CloudSim.startSimulation();
+				CloudSim.stopSimulation();
+				System.err.println(this+" done");
+				return controller.getResults();
+			}finally{
+				if(trace != null)
+					trace.close();
+				// releases the simulation kept by the thread
+				CloudSim.setSimulationContext(null);
+			}
+		}
+
+		@Override
+		public String toString(){
+			return scenario+" "+placement+" "+groups+"x"+perGroup;
+		}
+	}
+}
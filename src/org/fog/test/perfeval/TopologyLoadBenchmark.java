@@ -0,0 +1,153 @@
+package org.fog.test.perfeval;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Calendar;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.entities.PhysicalTopology;
+import org.fog.utils.BinaryTopology;
+import org.fog.utils.JsonToTopology;
+import org.fog.utils.Logger;
+import org.fog.utils.TopologyHandler;
+import org.fog.utils.distribution.Distribution;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+
+/**
+ * Compares the time taken to load a topology from JSON and from the binary format, for a topology of the
+ * topologies/ directory scaled up by copying it, with the entities of every copy renamed. For each size, it
+ * prints the sizes of the files, the time taken to only parse them, and the time taken to load them, which
+ * includes creating the entities.
+ *
+ * Arguments: the topology (topologies/vr_game_topo by default) and the numbers of nodes, separated by
+ * commas (1000,10000,100000 by default). The scaled topologies are written to the temporary directory.
+ */
+public class TopologyLoadBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String topology = args.length > 0 ? args[0] : "topologies/vr_game_topo";
+		String[] sizes = (args.length > 1 ? args[1] : "1000,10000,100000").split(",");
+		Log.disable();
+		Logger.INFO_ENABLED = false;
+		JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(topology));
+		System.out.println("nodes,json_bytes,binary_bytes,json_parse_ms,binary_parse_ms,json_load_ms,binary_load_ms");
+		for(String size : sizes){
+			int nodes = Integer.parseInt(size.trim());
+			File json = File.createTempFile("topology", ".json");
+			File binary = File.createTempFile("topology", ".bin");
+			try{
+				int nodesPerCopy = ((List<?>) doc.get("nodes")).size();
+				int copies = Math.max(1, (nodes + nodesPerCopy - 1) / nodesPerCopy);
+				writeScaled(doc, copies, json);
+				JsonToTopology.convertToBinary(json.getPath(), binary.getPath());
+				long jsonParse = parse(json, false);
+				long binaryParse = parse(binary, true);
+				long jsonLoad = load(json);
+				long binaryLoad = load(binary);
+				System.out.println(nodes+","+json.length()+","+binary.length()+","+jsonParse/1000000+","+binaryParse/1000000
+						+","+jsonLoad/1000000+","+binaryLoad/1000000);
+			}finally{
+				json.delete();
+				binary.delete();
+			}
+		}
+	}
+
+	/**
+	 * Writes copies of a topology, suffixing the names of the entities of every copy with its number.
+	 */
+	@SuppressWarnings("unchecked")
+	private static void writeScaled(JSONObject doc, int copies, File file) throws IOException {
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)), 1 << 16);
+		try{
+			out.write("{\"nodes\":[");
+			String separator = "";
+			for(int copy=0;copy<copies;copy++){
+				for(Object node : (JSONArray) doc.get("nodes")){
+					JSONObject renamed = new JSONObject((JSONObject) node);
+					renamed.put("name", renamed.get("name")+"_"+copy);
+					out.write(separator);
+					out.write(renamed.toJSONString());
+					separator = ",";
+				}
+			}
+			out.write("],\"links\":[");
+			separator = "";
+			for(int copy=0;copy<copies;copy++){
+				for(Object link : (JSONArray) doc.get("links")){
+					JSONObject renamed = new JSONObject((JSONObject) link);
+					renamed.put("source", renamed.get("source")+"_"+copy);
+					renamed.put("destination", renamed.get("destination")+"_"+copy);
+					out.write(separator);
+					out.write(renamed.toJSONString());
+					separator = ",";
+				}
+			}
+			out.write("]}");
+		}finally{
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the time taken to parse a topology, without creating its entities
+	 */
+	private static long parse(File file, boolean binary) throws Exception {
+		TopologyHandler handler = new TopologyHandler() {
+			@Override
+			public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) {
+			}
+			@Override
+			public void sensor(String name, String sensorType, Distribution distribution) {
+			}
+			@Override
+			public void actuator(String name, String actuatorType) {
+			}
+			@Override
+			public void link(String source, String destination, double latency) {
+			}
+			@Override
+			public void end() {
+			}
+		};
+		long start = System.nanoTime();
+		FileInputStream in = new FileInputStream(file);
+		try{
+			if(binary)
+				BinaryTopology.read(in, handler);
+			else
+				JsonToTopology.parse(new InputStreamReader(in), handler);
+		}finally{
+			in.close();
+		}
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * @return the time taken to load a topology in a new simulation
+	 */
+	private static long load(File file) throws Exception {
+		try{
+			CloudSim.init(1, Calendar.getInstance(), false);
+			long start = System.nanoTime();
+			PhysicalTopology topology = JsonToTopology.getPhysicalTopology(0, "app", file.getPath());
+			long time = System.nanoTime() - start;
+			if(topology.getFogDevices().isEmpty())
+				throw new IllegalStateException("No fog device was loaded from " + file);
+			return time;
+		}finally{
+			CloudSim.setSimulationContext(null);
+		}
+	}
+}
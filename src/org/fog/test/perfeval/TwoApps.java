@@ -40,16 +40,24 @@ import org.fog.utils.distribution.DeterministicDistribution;
  *
  */
 public class TwoApps {
-	static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-	static List<FogDevice> mobiles = new ArrayList<FogDevice>();
-	static List<Sensor> sensors = new ArrayList<Sensor>();
-	static List<Actuator> actuators = new ArrayList<Actuator>();
+	private List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private List<FogDevice> mobiles = new ArrayList<FogDevice>();
+	private List<Sensor> sensors = new ArrayList<Sensor>();
+	private List<Actuator> actuators = new ArrayList<Actuator>();
 	
-	static int numOfDepts = 1;
-	static int numOfMobilesPerDept = 4;
+	private int numOfDepts = 1;
+	private int numOfMobilesPerDept = 4;
 	static double EEG_TRANSMISSION_TIME = 5.1;
 	//static double EEG_TRANSMISSION_TIME = 10;
 	
+	public TwoApps() {
+	}
+
+	public TwoApps(int numOfDepts, int numOfMobilesPerDept) {
+		this.numOfDepts = numOfDepts;
+		this.numOfMobilesPerDept = numOfMobilesPerDept;
+	}
+
 	public static void main(String[] args) {
 
 		Log.printLine("Starting TwoApps...");
@@ -62,42 +70,7 @@ public class TwoApps {
 
 			CloudSim.init(num_user, calendar, trace_flag);
 
-			String appId0 = "vr_game_0";
-			String appId1 = "vr_game_1";
-			
-			FogBroker broker0 = new FogBroker("broker_0");
-			FogBroker broker1 = new FogBroker("broker_1");
-			
-			
-			Application application0 = createApplication0(appId0, broker0.getId());
-			Application application1 = createApplication1(appId1, broker1.getId());
-			application0.setUserId(broker0.getId());
-			application1.setUserId(broker1.getId());
-			
-			createFogDevices();
-			
-			createEdgeDevices0(broker0.getId(), appId0);
-			createEdgeDevices1(broker1.getId(), appId1);
-			
-			ModuleMapping moduleMapping_0 = ModuleMapping.createModuleMapping(); // initializing a module mapping
-			ModuleMapping moduleMapping_1 = ModuleMapping.createModuleMapping(); // initializing a module mapping
-			
-			moduleMapping_0.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
-			moduleMapping_0.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
-			moduleMapping_1.addModuleToDevice("connector_1", "cloud"); // fixing all instances of the Connector module to the Cloud
-			moduleMapping_1.addModuleToDevice("concentration_calculator_1", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
-			for(FogDevice device : fogDevices){
-				if(device.getName().startsWith("m")){
-					moduleMapping_0.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
-					moduleMapping_1.addModuleToDevice("client_1", device.getName());  // fixing all instances of the Client module to the Smartphones
-				}
-			}
-			
-			Controller controller = new Controller("master-controller", fogDevices, sensors, 
-					actuators);
-			
-			controller.submitApplication(application0, new ModulePlacementMapping(fogDevices, application0, moduleMapping_0));
-			controller.submitApplication(application1, 1000, new ModulePlacementMapping(fogDevices, application1, moduleMapping_1));
+			new TwoApps().createSimulation();
 
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
@@ -112,7 +85,53 @@ public class TwoApps {
 		}
 	}
 
-	private static void createEdgeDevices0(int userId, String appId) {
+	/**
+	 * Creates the entities of the simulation in the simulation context of the current thread,
+	 * and submits the application to the controller.
+	 * @return the controller of the simulation
+	 */
+	public Controller createSimulation() throws Exception {
+		String appId0 = "vr_game_0";
+		String appId1 = "vr_game_1";
+
+		FogBroker broker0 = new FogBroker("broker_0");
+		FogBroker broker1 = new FogBroker("broker_1");
+
+		
+		Application application0 = createApplication0(appId0, broker0.getId());
+		Application application1 = createApplication1(appId1, broker1.getId());
+		application0.setUserId(broker0.getId());
+		application1.setUserId(broker1.getId());
+
+		createFogDevices();
+
+		createEdgeDevices0(broker0.getId(), appId0);
+		createEdgeDevices1(broker1.getId(), appId1);
+
+		ModuleMapping moduleMapping_0 = ModuleMapping.createModuleMapping(); // initializing a module mapping
+		ModuleMapping moduleMapping_1 = ModuleMapping.createModuleMapping(); // initializing a module mapping
+
+		moduleMapping_0.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
+		moduleMapping_0.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
+		moduleMapping_1.addModuleToDevice("connector_1", "cloud"); // fixing all instances of the Connector module to the Cloud
+		moduleMapping_1.addModuleToDevice("concentration_calculator_1", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
+		for(FogDevice device : fogDevices){
+			if(device.getName().startsWith("m")){
+				moduleMapping_0.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
+				moduleMapping_1.addModuleToDevice("client_1", device.getName());  // fixing all instances of the Client module to the Smartphones
+			}
+		}
+
+		Controller controller = new Controller("master-controller", fogDevices, sensors, 
+				actuators);
+
+		controller.submitApplication(application0, new ModulePlacementMapping(fogDevices, application0, moduleMapping_0));
+		controller.submitApplication(application1, 1000, new ModulePlacementMapping(fogDevices, application1, moduleMapping_1));
+
+		return controller;
+	}
+
+	private void createEdgeDevices0(int userId, String appId) {
 		for(FogDevice mobile : mobiles){
 			String id = mobile.getName();
 			Sensor eegSensor = new Sensor("s-"+appId+"-"+id, "EEG", userId, appId, new DeterministicDistribution(EEG_TRANSMISSION_TIME)); // inter-transmission time of EEG sensor follows a deterministic distribution
@@ -126,7 +145,7 @@ public class TwoApps {
 		}
 	}
 	
-	private static void createEdgeDevices1(int userId, String appId) {
+	private void createEdgeDevices1(int userId, String appId) {
 		for(FogDevice mobile : mobiles){
 			String id = mobile.getName();
 			Sensor eegSensor = new Sensor("s-"+appId+"-"+id, "EEG_1", userId, appId, new DeterministicDistribution(EEG_TRANSMISSION_TIME)); // inter-transmission time of EEG sensor follows a deterministic distribution
@@ -145,7 +164,7 @@ public class TwoApps {
 	 * @param userId
 	 * @param appId
 	 */
-	private static void createFogDevices() {
+	private void createFogDevices() {
 		FogDevice cloud = createFogDevice("cloud", 44800, 40000, 100, 10000, 0, 0.01, 16*103, 16*83.25); // creates the fog device Cloud at the apex of the hierarchy with level=0
 		cloud.setParentId(-1);
 		FogDevice proxy = createFogDevice("proxy-server", 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333); // creates the fog device Proxy Server (level=1)
@@ -161,7 +180,7 @@ public class TwoApps {
 		
 	}
 
-	private static FogDevice addGw(String id, int parentId){
+	private FogDevice addGw(String id, int parentId){
 		FogDevice dept = createFogDevice("d-"+id, 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333);
 		fogDevices.add(dept);
 		dept.setParentId(parentId);
@@ -176,7 +195,7 @@ public class TwoApps {
 		return dept;
 	}
 	
-	private static FogDevice addMobile(String id, int parentId){
+	private FogDevice addMobile(String id, int parentId){
 		FogDevice mobile = createFogDevice("m-"+id, 1000, 1000, 10000, 270, 3, 0, 87.53, 82.44);
 		mobile.setParentId(parentId);
 		mobiles.add(mobile);
@@ -204,7 +223,7 @@ public class TwoApps {
 	 * @param idlePower
 	 * @return
 	 */
-	private static FogDevice createFogDevice(String nodeName, long mips,
+	private FogDevice createFogDevice(String nodeName, long mips,
 			int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
 		
 		List<Pe> peList = new ArrayList<Pe>();
@@ -264,7 +283,7 @@ public class TwoApps {
 	 * @return
 	 */
 	@SuppressWarnings({"serial" })
-	private static Application createApplication0(String appId, int userId){
+	private Application createApplication0(String appId, int userId){
 		
 		Application application = Application.createApplication(appId, userId); // creates an empty application model (empty directed graph)
 		
@@ -309,7 +328,7 @@ public class TwoApps {
 	}
 	
 	@SuppressWarnings({"serial" })
-	private static Application createApplication1(String appId, int userId){
+	private Application createApplication1(String appId, int userId){
 		
 		Application application = Application.createApplication(appId, userId); // creates an empty application model (empty directed graph)
 		
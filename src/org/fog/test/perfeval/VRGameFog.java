@@ -41,17 +41,26 @@ import org.fog.utils.distribution.DeterministicDistribution;
  *
  */
 public class VRGameFog {
-	static List<FogDevice> fogDevices = new ArrayList<FogDevice>();
-	static List<Sensor> sensors = new ArrayList<Sensor>();
-	static List<Actuator> actuators = new ArrayList<Actuator>();
+	private List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private List<Sensor> sensors = new ArrayList<Sensor>();
+	private List<Actuator> actuators = new ArrayList<Actuator>();
 	
-	static boolean CLOUD = false;
+	private boolean cloud = false;
 	
-	static int numOfDepts = 4;
-	static int numOfMobilesPerDept = 6;
+	private int numOfDepts = 4;
+	private int numOfMobilesPerDept = 6;
 	static double EEG_TRANSMISSION_TIME = 5.1;
 	//static double EEG_TRANSMISSION_TIME = 10;
 	
+	public VRGameFog() {
+	}
+
+	public VRGameFog(int numOfDepts, int numOfMobilesPerDept, boolean cloud) {
+		this.numOfDepts = numOfDepts;
+		this.numOfMobilesPerDept = numOfMobilesPerDept;
+		this.cloud = cloud;
+	}
+
 	public static void main(String[] args) {
 
 		Log.printLine("Starting VRGame...");
@@ -64,43 +73,7 @@ public class VRGameFog {
 
 			CloudSim.init(num_user, calendar, trace_flag);
 
-			String appId = "vr_game"; // identifier of the application
-			
-			FogBroker broker = new FogBroker("broker");
-			
-			Application application = createApplication(appId, broker.getId());
-			application.setUserId(broker.getId());
-			
-			createFogDevices(broker.getId(), appId);
-			
-			ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
-			
-			if(CLOUD){
-				// if the mode of deployment is cloud-based
-				/*moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
-				moduleMapping.addModuleToDevice("concentration_calculator", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Concentration Calculator module to the Cloud
-*/				moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
-				moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
-				for(FogDevice device : fogDevices){
-					if(device.getName().startsWith("m")){
-						//moduleMapping.addModuleToDevice("client", device.getName(), 1);  // fixing all instances of the Client module to the Smartphones
-						moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
-					}
-				}
-			}else{
-				// if the mode of deployment is cloud-based
-				//moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
-				moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
-				// rest of the modules will be placed by the Edge-ward placement policy
-			}
-			
-			
-			Controller controller = new Controller("master-controller", fogDevices, sensors, 
-					actuators);
-			
-			controller.submitApplication(application, 0, 
-					(CLOUD)?(new ModulePlacementMapping(fogDevices, application, moduleMapping))
-							:(new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+			new VRGameFog().createSimulation();
 
 			TimeKeeper.getInstance().setSimulationStartTime(Calendar.getInstance().getTimeInMillis());
 
@@ -115,12 +88,59 @@ public class VRGameFog {
 		}
 	}
 
+	/**
+	 * Creates the entities of the simulation in the simulation context of the current thread,
+	 * and submits the application to the controller.
+	 * @return the controller of the simulation
+	 */
+	public Controller createSimulation() throws Exception {
+		String appId = "vr_game"; // identifier of the application
+
+		FogBroker broker = new FogBroker("broker");
+
+		Application application = createApplication(appId, broker.getId());
+		application.setUserId(broker.getId());
+
+		createFogDevices(broker.getId(), appId);
+
+		ModuleMapping moduleMapping = ModuleMapping.createModuleMapping(); // initializing a module mapping
+
+		if(cloud){
+			// if the mode of deployment is cloud-based
+			/*moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
+			moduleMapping.addModuleToDevice("concentration_calculator", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Concentration Calculator module to the Cloud
+*/				moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
+			moduleMapping.addModuleToDevice("concentration_calculator", "cloud"); // fixing all instances of the Concentration Calculator module to the Cloud
+			for(FogDevice device : fogDevices){
+				if(device.getName().startsWith("m")){
+					//moduleMapping.addModuleToDevice("client", device.getName(), 1);  // fixing all instances of the Client module to the Smartphones
+					moduleMapping.addModuleToDevice("client", device.getName());  // fixing all instances of the Client module to the Smartphones
+				}
+			}
+		}else{
+			// if the mode of deployment is cloud-based
+			//moduleMapping.addModuleToDevice("connector", "cloud", numOfDepts*numOfMobilesPerDept); // fixing all instances of the Connector module to the Cloud
+			moduleMapping.addModuleToDevice("connector", "cloud"); // fixing all instances of the Connector module to the Cloud
+			// rest of the modules will be placed by the Edge-ward placement policy
+		}
+
+		
+		Controller controller = new Controller("master-controller", fogDevices, sensors, 
+				actuators);
+
+		controller.submitApplication(application, 0, 
+				(cloud)?(new ModulePlacementMapping(fogDevices, application, moduleMapping))
+						:(new ModulePlacementEdgewards(fogDevices, sensors, actuators, application, moduleMapping)));
+
+		return controller;
+	}
+
 	/**
 	 * Creates the fog devices in the physical topology of the simulation.
 	 * @param userId
 	 * @param appId
 	 */
-	private static void createFogDevices(int userId, String appId) {
+	private void createFogDevices(int userId, String appId) {
 		FogDevice cloud = createFogDevice("cloud", 44800, 40000, 100, 10000, 0, 0.01, 16*103, 16*83.25); // creates the fog device Cloud at the apex of the hierarchy with level=0
 		cloud.setParentId(-1);
 		FogDevice proxy = createFogDevice("proxy-server", 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333); // creates the fog device Proxy Server (level=1)
@@ -136,7 +156,7 @@ public class VRGameFog {
 		
 	}
 
-	private static FogDevice addGw(String id, int userId, String appId, int parentId){
+	private FogDevice addGw(String id, int userId, String appId, int parentId){
 		FogDevice dept = createFogDevice("d-"+id, 2800, 4000, 10000, 10000, 1, 0.0, 107.339, 83.4333);
 		fogDevices.add(dept);
 		dept.setParentId(parentId);
@@ -150,7 +170,7 @@ public class VRGameFog {
 		return dept;
 	}
 	
-	private static FogDevice addMobile(String id, int userId, String appId, int parentId){
+	private FogDevice addMobile(String id, int userId, String appId, int parentId){
 		FogDevice mobile = createFogDevice("m-"+id, 1000, 1000, 10000, 270, 3, 0, 87.53, 82.44);
 		mobile.setParentId(parentId);
 		Sensor eegSensor = new Sensor("s-"+id, "EEG", userId, appId, new DeterministicDistribution(EEG_TRANSMISSION_TIME)); // inter-transmission time of EEG sensor follows a deterministic distribution
@@ -177,7 +197,7 @@ public class VRGameFog {
 	 * @param idlePower
 	 * @return
 	 */
-	private static FogDevice createFogDevice(String nodeName, long mips,
+	private FogDevice createFogDevice(String nodeName, long mips,
 			int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
 		
 		List<Pe> peList = new ArrayList<Pe>();
@@ -220,8 +240,8 @@ public class VRGameFog {
 
 		FogDevice fogdevice = null;
 		try {
-			fogdevice = new FogDevice(nodeName, characteristics, 
-					new AppModuleAllocationPolicy(hostList), storageList, 10, upBw, downBw, 0, ratePerMips);
+			fogdevice = newFogDevice(nodeName, characteristics, 
+					new AppModuleAllocationPolicy(hostList), storageList, upBw, downBw, ratePerMips);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -230,6 +250,14 @@ public class VRGameFog {
 		return fogdevice;
 	}
 
+	/**
+	 * Instantiates a fog device of the topology, which benchmarks may replace by a subclass.
+	 */
+	protected FogDevice newFogDevice(String nodeName, FogDeviceCharacteristics characteristics,
+			AppModuleAllocationPolicy allocationPolicy, List<Storage> storageList, long upBw, long downBw, double ratePerMips) throws Exception {
+		return new FogDevice(nodeName, characteristics, allocationPolicy, storageList, 10, upBw, downBw, 0, ratePerMips);
+	}
+
 	/**
 	 * Function to create the EEG Tractor Beam game application in the DDF model. 
 	 * @param appId unique identifier of the application
@@ -237,7 +265,7 @@ public class VRGameFog {
 	 * @return
 	 */
 	@SuppressWarnings({"serial" })
-	private static Application createApplication(String appId, int userId){
+	Application createApplication(String appId, int userId){
 		
 		Application application = Application.createApplication(appId, userId); // creates an empty application model (empty directed graph)
 		
@@ -0,0 +1,242 @@
+package org.fog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+
+/**
+ * Compact binary format of the physical topologies, for generated topologies too large to be loaded from
+ * JSON quickly. A topology is a magic number and a version, followed by records each starting with a tag:
+ * the entities, numbered in order, then the links, which refer to the entities by their number. The names
+ * of the types of the sensors and actuators are written once, and referred to by their number afterwards.
+ * The numbers are written as ints and longs, and the strings with DataOutput.writeUTF().
+ */
+public class BinaryTopology {
+
+	public static final int MAGIC = 0x464f4754;
+	public static final int VERSION = 1;
+
+	private static final int END = 0;
+	private static final int FOG_DEVICE = 1;
+	private static final int SENSOR = 2;
+	private static final int ACTUATOR = 3;
+	private static final int LINK = 4;
+	private static final int TYPE = 5;
+
+	/**
+	 * @param in the stream, at the beginning of a topology
+	 * @return true if the stream holds a binary topology; the stream is left where it was
+	 * @throws IOException
+	 */
+	public static boolean isBinaryTopology(BufferedInputStream in) throws IOException {
+		in.mark(4);
+		int magic = 0;
+		for(int i=0;i<4;i++){
+			int b = in.read();
+			if(b < 0){
+				in.reset();
+				return false;
+			}
+			magic = magic << 8 | b;
+		}
+		in.reset();
+		return magic == MAGIC;
+	}
+
+	/**
+	 * Reads a topology, passing its entities and links to a handler.
+	 * @param in the stream, which is not closed
+	 * @param handler the handler
+	 * @throws IOException if the stream could not be read or does not hold a binary topology
+	 */
+	public static void read(InputStream in, TopologyHandler handler) throws IOException {
+		DataInputStream data = new DataInputStream(in instanceof BufferedInputStream ? in : new BufferedInputStream(in, 1 << 16));
+		if(data.readInt() != MAGIC)
+			throw new IOException("Not a binary topology");
+		int version = data.readInt();
+		if(version != VERSION)
+			throw new IOException("Unsupported version of the binary topologies: " + version);
+		String[] names = new String[1024];
+		int numNames = 0;
+		List<String> types = new ArrayList<String>();
+		for(int tag = data.readByte(); tag != END; tag = data.readByte()){
+			switch(tag){
+			case FOG_DEVICE:
+			case SENSOR:
+			case ACTUATOR:
+				String name = data.readUTF();
+				if(numNames == names.length)
+					names = Arrays.copyOf(names, 2*numNames);
+				names[numNames++] = name;
+				if(tag == FOG_DEVICE){
+					long mips = data.readLong();
+					int ram = data.readInt();
+					long upBw = data.readLong();
+					long downBw = data.readLong();
+					int level = data.readInt();
+					double ratePerMips = data.readDouble();
+					handler.fogDevice(name, mips, ram, upBw, downBw, level, ratePerMips);
+				}else if(tag == SENSOR){
+					String sensorType = types.get(data.readInt());
+					handler.sensor(name, sensorType, readDistribution(data));
+				}else{
+					handler.actuator(name, types.get(data.readInt()));
+				}
+				break;
+			case LINK:
+				int source = data.readInt();
+				int destination = data.readInt();
+				double latency = data.readDouble();
+				if(source >= numNames || destination >= numNames)
+					throw new IOException("Link between unknown entities: " + source + " and " + destination);
+				handler.link(names[source], names[destination], latency);
+				break;
+			case TYPE:
+				types.add(data.readUTF());
+				break;
+			default:
+				throw new IOException("Unknown record in the binary topology: " + tag);
+			}
+		}
+		handler.end();
+	}
+
+	private static Distribution readDistribution(DataInputStream data) throws IOException {
+		int distType = data.readByte();
+		if(distType == Distribution.DETERMINISTIC)
+			return new DeterministicDistribution(data.readDouble());
+		else if(distType == Distribution.NORMAL)
+			return new NormalDistribution(data.readDouble(), data.readDouble());
+		else if(distType == Distribution.UNIFORM)
+			return new UniformDistribution(data.readDouble(), data.readDouble());
+		return null;
+	}
+
+	/**
+	 * Writes the topology it receives. The links are kept until end(), as they are written once all the
+	 * entities are numbered; the links between entities that are not in the topology are left out, as they
+	 * would be ignored when loading it.
+	 */
+	public static class Writer implements TopologyHandler {
+
+		private final DataOutputStream data;
+		/**
+		 * Number of the first entity with a name, ignoring case, as the links refer to it
+		 */
+		private Map<String, Integer> entities = new HashMap<String, Integer>();
+		private int numEntities;
+		private Map<String, Integer> types = new HashMap<String, Integer>();
+		private List<String> linkEnds = new ArrayList<String>();
+		private double[] linkLatencies = new double[16];
+		private int numLinks;
+
+		/**
+		 * @param out the stream, closed by end()
+		 * @throws IOException
+		 */
+		public Writer(OutputStream out) throws IOException {
+			data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+			data.writeInt(MAGIC);
+			data.writeInt(VERSION);
+		}
+
+		private void writeEntity(int tag, String name) throws IOException {
+			data.writeByte(tag);
+			data.writeUTF(name);
+			String key = name.toLowerCase(Locale.ENGLISH);
+			if(!entities.containsKey(key))
+				entities.put(key, numEntities);
+			numEntities++;
+		}
+
+		private int type(String type) throws IOException {
+			Integer index = types.get(type);
+			if(index == null){
+				index = types.size();
+				types.put(type, index);
+				data.writeByte(TYPE);
+				data.writeUTF(type);
+			}
+			return index;
+		}
+
+		@Override
+		public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) throws IOException {
+			writeEntity(FOG_DEVICE, name);
+			data.writeLong(mips);
+			data.writeInt(ram);
+			data.writeLong(upBw);
+			data.writeLong(downBw);
+			data.writeInt(level);
+			data.writeDouble(ratePerMips);
+		}
+
+		@Override
+		public void sensor(String name, String sensorType, Distribution distribution) throws IOException {
+			int type = type(sensorType);
+			writeEntity(SENSOR, name);
+			data.writeInt(type);
+			if(distribution instanceof DeterministicDistribution){
+				data.writeByte(Distribution.DETERMINISTIC);
+				data.writeDouble(((DeterministicDistribution)distribution).getValue());
+			}else if(distribution instanceof NormalDistribution){
+				data.writeByte(Distribution.NORMAL);
+				data.writeDouble(((NormalDistribution)distribution).getMean());
+				data.writeDouble(((NormalDistribution)distribution).getStdDev());
+			}else if(distribution instanceof UniformDistribution){
+				data.writeByte(Distribution.UNIFORM);
+				data.writeDouble(((UniformDistribution)distribution).getMin());
+				data.writeDouble(((UniformDistribution)distribution).getMax());
+			}else{
+				data.writeByte(0);
+			}
+		}
+
+		@Override
+		public void actuator(String name, String actuatorType) throws IOException {
+			int type = type(actuatorType);
+			writeEntity(ACTUATOR, name);
+			data.writeInt(type);
+		}
+
+		@Override
+		public void link(String source, String destination, double latency) {
+			if(numLinks == linkLatencies.length)
+				linkLatencies = Arrays.copyOf(linkLatencies, 2*numLinks);
+			linkEnds.add(source);
+			linkEnds.add(destination);
+			linkLatencies[numLinks++] = latency;
+		}
+
+		@Override
+		public void end() throws IOException {
+			for(int i=0;i<numLinks;i++){
+				Integer source = entities.get(linkEnds.get(2*i).toLowerCase(Locale.ENGLISH));
+				Integer destination = entities.get(linkEnds.get(2*i+1).toLowerCase(Locale.ENGLISH));
+				if(source == null || destination == null)
+					continue;
+				data.writeByte(LINK);
+				data.writeInt(source);
+				data.writeInt(destination);
+				data.writeDouble(linkLatencies[i]);
+			}
+			data.writeByte(END);
+			data.close();
+		}
+	}
+}
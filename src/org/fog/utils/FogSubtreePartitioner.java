@@ -0,0 +1,108 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EntityPartitioner;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogBroker;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+
+/**
+ * Partitions the entities of a fog topology by subtree, for the parallel execution of clock ticks.
+ * Every fog device at the given depth below the root (2 by default, that is the children of the
+ * proxy-server under the cloud) is the root of a partition holding its whole subtree, together with
+ * the sensors and actuators attached to it. Devices closer to the root each form a partition of their own.
+ * Fog devices, sensors and actuators only touch shared statistics through {@link TimeKeeper} and
+ * {@link NetworkUsageMonitor}, which are safe for parallel ticks. The fog broker, which ignores the
+ * cloudlets returned to it by every device, forms a partition of its own. Any other entity, such as
+ * the controller, is run exclusively, splitting the batches of the tick.
+ *
+ * Usage: CloudSim.setParallelExecution(new ForkJoinPool(), new FogSubtreePartitioner());
+ */
+public class FogSubtreePartitioner implements EntityPartitioner {
+
+	public static final int DEFAULT_DEPTH = 2;
+
+	private int depth;
+
+	// cache, by entity id, of the partitions; the entity is kept to notice a new simulation
+	private SimEntity[] entities = new SimEntity[0];
+	private int[] partitions = new int[0];
+
+	public FogSubtreePartitioner(){
+		this(DEFAULT_DEPTH);
+	}
+
+	public FogSubtreePartitioner(int depth){
+		if(depth < 0)
+			throw new IllegalArgumentException("The depth of the partition roots should not be negative, but is:" + depth);
+		this.depth = depth;
+	}
+
+	@Override
+	public int getPartition(SimEntity entity) {
+		int id = entity.getId();
+		if(id >= entities.length){
+			int length = Math.max(id+1, 2*entities.length);
+			entities = Arrays.copyOf(entities, length);
+			partitions = Arrays.copyOf(partitions, length);
+		}
+		if(entities[id] != entity){
+			entities[id] = entity;
+			partitions[id] = computePartition(entity);
+		}
+		return partitions[id];
+	}
+
+	private int computePartition(SimEntity entity){
+		if(entity instanceof FogDevice)
+			return getSubtreeRootId((FogDevice)entity);
+		if(entity instanceof Sensor)
+			return getGatewayPartition(((Sensor)entity).getGatewayDeviceId());
+		if(entity instanceof Actuator)
+			return getGatewayPartition(((Actuator)entity).getGatewayDeviceId());
+		if(entity.getClass() == FogBroker.class)
+			return entity.getId();
+		return EXCLUSIVE;
+	}
+
+	private int getGatewayPartition(int gatewayDeviceId){
+		if(gatewayDeviceId < 0 || gatewayDeviceId >= CloudSim.getNumEntities())
+			return EXCLUSIVE;
+		SimEntity gateway = CloudSim.getEntity(gatewayDeviceId);
+		if(!(gateway instanceof FogDevice))
+			return EXCLUSIVE;
+		return getSubtreeRootId((FogDevice)gateway);
+	}
+
+	/**
+	 * Gets the id of the ancestor of a device lying at the depth of the partition roots, or the id
+	 * of the device itself if it is closer to the root.
+	 */
+	private int getSubtreeRootId(FogDevice device){
+		// path from the device up to the root, the device first
+		int[] path = new int[8];
+		int length = 0;
+		FogDevice current = device;
+		while(current != null){
+			if(length == path.length)
+				path = Arrays.copyOf(path, 2*length);
+			path[length++] = current.getId();
+			current = getParent(current);
+		}
+		if(length <= depth)
+			return device.getId();
+		return path[length-1-depth];
+	}
+
+	private FogDevice getParent(FogDevice device){
+		int parentId = device.getParentId();
+		if(parentId < 0 || parentId >= CloudSim.getNumEntities() || parentId == device.getId())
+			return null;
+		SimEntity parent = CloudSim.getEntity(parentId);
+		return parent instanceof FogDevice ? (FogDevice)parent : null;
+	}
+}
@@ -0,0 +1,257 @@
+package org.fog.utils;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.fog.entities.PhysicalTopology;
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+
+/**
+ * Generates fog hierarchies: trees of fog devices whose levels each have their fan-out and ranges of MIPS
+ * and bandwidths, with sensors and actuators attached to every device of the last level. The MIPS and the
+ * bandwidths of every device are drawn uniformly in the ranges of its level, with a random number generator
+ * seeded by the seed of the generator, so that a generator gives the same topology every time.
+ *
+ * The root is named "cloud", and the other devices "d-" followed by the index of each of their ancestors
+ * among its siblings, such as d-0-3 for the 4th child of the 1st child of the root. The sensors and the
+ * actuators are named "s-" and "a-" followed by the index of their device and their own index.
+ *
+ * The topology is passed to a TopologyHandler, which creates it in the current simulation (generate(int,
+ * String)), or writes it as JSON (writeJson()) or in the binary format (writeBinary()).
+ */
+public class FogTopologyGenerator {
+
+	/**
+	 * Fog devices of a level of the hierarchy
+	 */
+	public static class Level {
+		private final int fanOut;
+		private final long minMips;
+		private final long maxMips;
+		private final int ram;
+		private final long minUpBw;
+		private final long maxUpBw;
+		private final long minDownBw;
+		private final long maxDownBw;
+		private final double ratePerMips;
+		private final double uplinkLatency;
+
+		/**
+		 * @param fanOut number of devices of the level per device of the level above, 1 for the root
+		 * @param minMips
+		 * @param maxMips
+		 * @param ram
+		 * @param minUpBw
+		 * @param maxUpBw
+		 * @param minDownBw
+		 * @param maxDownBw
+		 * @param ratePerMips
+		 * @param uplinkLatency latency of the link of the devices to their parent, ignored for the root
+		 */
+		public Level(int fanOut, long minMips, long maxMips, int ram, long minUpBw, long maxUpBw,
+				long minDownBw, long maxDownBw, double ratePerMips, double uplinkLatency){
+			if(fanOut <= 0 || minMips > maxMips || minUpBw > maxUpBw || minDownBw > maxDownBw)
+				throw new IllegalArgumentException("The fan-out should be positive, and the ranges should not be empty");
+			this.fanOut = fanOut;
+			this.minMips = minMips;
+			this.maxMips = maxMips;
+			this.ram = ram;
+			this.minUpBw = minUpBw;
+			this.maxUpBw = maxUpBw;
+			this.minDownBw = minDownBw;
+			this.maxDownBw = maxDownBw;
+			this.ratePerMips = ratePerMips;
+			this.uplinkLatency = uplinkLatency;
+		}
+
+		public Level(int fanOut, long mips, int ram, long upBw, long downBw, double ratePerMips, double uplinkLatency){
+			this(fanOut, mips, mips, ram, upBw, upBw, downBw, downBw, ratePerMips, uplinkLatency);
+		}
+	}
+
+	private static class Endpoint {
+		private final String type;
+		private final Distribution distribution;
+		private final double latency;
+
+		private Endpoint(String type, Distribution distribution, double latency){
+			this.type = type;
+			this.distribution = distribution;
+			this.latency = latency;
+		}
+	}
+
+	private final long seed;
+	private List<Level> levels = new ArrayList<Level>();
+	private List<Endpoint> sensors = new ArrayList<Endpoint>();
+	private List<Endpoint> actuators = new ArrayList<Endpoint>();
+	private Random random;
+
+	public FogTopologyGenerator(long seed){
+		this.seed = seed;
+	}
+
+	/**
+	 * Adds a level below the levels added before; the first level added is the one of the root.
+	 * @return this generator
+	 */
+	public FogTopologyGenerator addLevel(Level level){
+		levels.add(level);
+		return this;
+	}
+
+	/**
+	 * Attaches a sensor to every device of the last level.
+	 * @param sensorType the type of the tuples emitted by the sensor
+	 * @param distribution distribution of the inter-transmission time, copied for every sensor
+	 * @param latency latency of the link of the sensor to its device
+	 * @return this generator
+	 */
+	public FogTopologyGenerator addSensor(String sensorType, Distribution distribution, double latency){
+		sensors.add(new Endpoint(sensorType, distribution, latency));
+		return this;
+	}
+
+	/**
+	 * Attaches an actuator to every device of the last level.
+	 * @return this generator
+	 */
+	public FogTopologyGenerator addActuator(String actuatorType, double latency){
+		actuators.add(new Endpoint(actuatorType, null, latency));
+		return this;
+	}
+
+	/**
+	 * @return the number of fog devices generated
+	 */
+	public long getNumFogDevices(){
+		long devices = 0;
+		long levelDevices = 1;
+		for(int i=0;i<levels.size();i++){
+			if(i > 0)
+				levelDevices *= levels.get(i).fanOut;
+			devices += levelDevices;
+		}
+		return devices;
+	}
+
+	/**
+	 * Passes the topology to a handler: every device, followed by the devices below it, and then by its
+	 * sensors and actuators if it is in the last level.
+	 */
+	public void generate(TopologyHandler handler) throws IOException {
+		if(levels.isEmpty())
+			throw new IllegalStateException("The topology has no level");
+		random = new Random(seed);
+		generate(handler, 0, "cloud", null);
+		handler.end();
+	}
+
+	private void generate(TopologyHandler handler, int depth, String name, String parent) throws IOException {
+		Level level = levels.get(depth);
+		handler.fogDevice(name, draw(level.minMips, level.maxMips), level.ram, draw(level.minUpBw, level.maxUpBw),
+				draw(level.minDownBw, level.maxDownBw), depth, level.ratePerMips);
+		if(parent != null)
+			handler.link(parent, name, level.uplinkLatency);
+		if(depth < levels.size() - 1){
+			String prefix = parent == null ? "d" : name;
+			for(int i=0;i<levels.get(depth+1).fanOut;i++)
+				generate(handler, depth+1, prefix + "-" + i, name);
+			return;
+		}
+		String id = parent == null ? "" : name.substring(1);
+		for(int i=0;i<sensors.size();i++){
+			Endpoint sensor = sensors.get(i);
+			String sensorName = "s" + id + "-" + i;
+			handler.sensor(sensorName, sensor.type, copy(sensor.distribution));
+			handler.link(name, sensorName, sensor.latency);
+		}
+		for(int i=0;i<actuators.size();i++){
+			Endpoint actuator = actuators.get(i);
+			String actuatorName = "a" + id + "-" + i;
+			handler.actuator(actuatorName, actuator.type);
+			handler.link(name, actuatorName, actuator.latency);
+		}
+	}
+
+	private long draw(long min, long max){
+		if(min == max)
+			return min;
+		return min + (long)(random.nextDouble()*(max - min + 1));
+	}
+
+	private static Distribution copy(Distribution distribution){
+		if(distribution instanceof DeterministicDistribution)
+			return new DeterministicDistribution(((DeterministicDistribution)distribution).getValue());
+		else if(distribution instanceof NormalDistribution)
+			return new NormalDistribution(((NormalDistribution)distribution).getMean(), ((NormalDistribution)distribution).getStdDev());
+		else if(distribution instanceof UniformDistribution)
+			return new UniformDistribution(((UniformDistribution)distribution).getMin(), ((UniformDistribution)distribution).getMax());
+		return distribution;
+	}
+
+	/**
+	 * Creates the entities of the topology in the current simulation.
+	 */
+	public PhysicalTopology generate(int userId, String appId){
+		TopologyBuilder builder = new TopologyBuilder(userId, appId);
+		try {
+			generate(builder);
+		} catch (IOException e) {
+			// the builder does not write anything
+			throw new IllegalStateException(e);
+		}
+		return builder.getPhysicalTopology();
+	}
+
+	public void writeJson(String file) throws IOException {
+		generate(new JsonTopologyWriter(new FileOutputStream(file)));
+	}
+
+	public void writeBinary(String file) throws IOException {
+		generate(new BinaryTopology.Writer(new FileOutputStream(file)));
+	}
+
+	/**
+	 * Generates a hierarchy shaped like the one of VRGameFog, a cloud, a proxy server, gateways and mobiles
+	 * with an EEG sensor and a display each, with the MIPS and the bandwidths of the devices varying by
+	 * up to 50% around the ones of VRGameFog.
+	 * @param gateways number of gateways
+	 * @param mobilesPerGateway number of mobiles per gateway
+	 * @param seed
+	 */
+	public static FogTopologyGenerator vrGame(int gateways, int mobilesPerGateway, long seed){
+		return new FogTopologyGenerator(seed)
+			.addLevel(new Level(1, 44800, 40000, 100, 10000, 0.01, 0))
+			.addLevel(new Level(1, 2800, 4000, 10000, 10000, 0.0, 100))
+			.addLevel(new Level(gateways, 1400, 4200, 4000, 5000, 15000, 5000, 15000, 0.0, 4))
+			.addLevel(new Level(mobilesPerGateway, 500, 1500, 1000, 5000, 15000, 135, 405, 0.0, 2))
+			.addSensor("EEG", new DeterministicDistribution(5.1), 6)
+			.addActuator("DISPLAY", 1);
+	}
+
+	/**
+	 * Writes a hierarchy shaped like the one of VRGameFog (see vrGame()).
+	 *
+	 * Arguments: the number of gateways, the number of mobiles per gateway, the seed, and the file, written
+	 * in the binary format if its name ends with .bin, and as JSON otherwise.
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 4){
+			System.out.println("Usage: FogTopologyGenerator <gateways> <mobiles per gateway> <seed> <file>");
+			return;
+		}
+		FogTopologyGenerator generator = vrGame(Integer.parseInt(args[0]), Integer.parseInt(args[1]), Long.parseLong(args[2]));
+		if(args[3].endsWith(".bin"))
+			generator.writeBinary(args[3]);
+		else
+			generator.writeJson(args[3]);
+		System.out.println("Generated " + generator.getNumFogDevices() + " fog devices in " + args[3]);
+	}
+}
@@ -3,13 +3,49 @@ package org.fog.utils;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.IdSequence;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.entities.Tuple;
+
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+	
+	/**
+	 * Ids and application coverages, kept per simulation (see CloudSim.getSimulationContext()).
+	 * The ids are taken from IdSequences, as tuples are also created by entities running in parallel clock
+	 * ticks, which get their ids at the end of the tick.
+	 */
+	private static class State {
+		private final IdSequence tupleId = new IdSequence(1);
+		private final IdSequence entityId = new IdSequence(1);
+		private final IdSequence actualTupleId = new IdSequence(1);
+		private final Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
+	}
+	
+	private static State getState(){
+		SimulationContext context = CloudSim.getSimulationContext();
+		State state = (State) context.getAttribute(State.class);
+		if(state == null)
+			state = (State) context.setAttributeIfAbsent(State.class, new State());
+		return state;
+	}
 	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return getState().tupleId.next();
+	}
+	
+	/**
+	 * Gives a tuple the next tuple id, at the end of the clock tick when the tuple is created by an entity
+	 * running in a parallel clock tick (see IdSequence.next(Receiver)), so that the ids follow the sequential order.
+	 * @param tuple the tuple, created with the id -1
+	 */
+	public static void generateTupleId(final Tuple tuple){
+		getState().tupleId.next(new IdSequence.Receiver() {
+			@Override
+			public void receive(int id) {
+				tuple.setCloudletId(id);
+			}
+		});
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -17,17 +53,19 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return getState().entityId.next();
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return getState().actualTupleId.next();
+	}
+	
+	public static Map<String, GeoCoverage> getAppIdToGeoCoverageMap(){
+		return getState().appIdToGeoCoverageMap;
 	}
 	
 	public static int USER_ID = 1;
 	
 	//public static int MAX = 10000000;
 	public static int MAX = 10000000;
-	
-	public static Map<String, GeoCoverage> appIdToGeoCoverageMap = new HashMap<String, GeoCoverage>();
 }
@@ -0,0 +1,153 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to double values that does not box them, for the bookkeeping kept per tuple.
+ * It uses open addressing with linear probing; removals free their slot and the table shrinks back when
+ * it empties, so the memory used follows the number of entries present rather than the number ever added.
+ */
+public class IntDoubleMap {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private int[] keys;
+	private double[] values;
+	private boolean[] used;
+	private int size;
+
+	public IntDoubleMap(){
+		allocate(MIN_CAPACITY);
+	}
+
+	private void allocate(int capacity){
+		keys = new int[capacity];
+		values = new double[capacity];
+		used = new boolean[capacity];
+		size = 0;
+	}
+
+	private int slot(int key){
+		int h = key * 0x9E3779B9;
+		return (h ^ (h >>> 16)) & (keys.length - 1);
+	}
+
+	private int find(int key){
+		for(int i = slot(key); used[i]; i = (i + 1) & (keys.length - 1)){
+			if(keys[i] == key)
+				return i;
+		}
+		return -1;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public boolean containsKey(int key){
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Gets the value of a key.
+	 * @param key the key
+	 * @param defaultValue the value returned if the key is not present
+	 * @return the value
+	 */
+	public double get(int key, double defaultValue){
+		int i = find(key);
+		return i < 0 ? defaultValue : values[i];
+	}
+
+	public void put(int key, double value){
+		int i = slot(key);
+		while(used[i]){
+			if(keys[i] == key){
+				values[i] = value;
+				return;
+			}
+			i = (i + 1) & (keys.length - 1);
+		}
+		used[i] = true;
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		if(size > keys.length / 2)
+			rehash(keys.length * 2);
+	}
+
+	/**
+	 * Removes a key.
+	 * @param key the key
+	 * @return true if the key was present
+	 */
+	public boolean remove(int key){
+		int i = find(key);
+		if(i < 0)
+			return false;
+		used[i] = false;
+		size--;
+		// shifts back the entries of the probe sequence that follows the freed slot
+		int mask = keys.length - 1;
+		for(int j = (i + 1) & mask; used[j]; j = (j + 1) & mask){
+			int k = slot(keys[j]);
+			boolean reachable = (i <= j) ? (i < k && k <= j) : (i < k || k <= j);
+			if(reachable)
+				continue;
+			keys[i] = keys[j];
+			values[i] = values[j];
+			used[i] = true;
+			used[j] = false;
+			i = j;
+		}
+		if(keys.length > MIN_CAPACITY && size < keys.length / 8)
+			rehash(keys.length / 2);
+		return true;
+	}
+
+	/**
+	 * Removes the entries whose value is lower than a threshold.
+	 * @param threshold the threshold
+	 * @return the number of entries removed
+	 */
+	public int removeValuesBelow(double threshold){
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		int oldSize = size;
+		int remaining = 0;
+		for(int i=0;i<oldKeys.length;i++){
+			if(oldUsed[i] && oldValues[i] >= threshold)
+				remaining++;
+		}
+		int capacity = MIN_CAPACITY;
+		while(capacity / 2 < remaining)
+			capacity *= 2;
+		allocate(capacity);
+		for(int i=0;i<oldKeys.length;i++){
+			if(oldUsed[i] && oldValues[i] >= threshold)
+				put(oldKeys[i], oldValues[i]);
+		}
+		return oldSize - size;
+	}
+
+	public void clear(){
+		if(keys.length > MIN_CAPACITY){
+			allocate(MIN_CAPACITY);
+		}else{
+			Arrays.fill(used, false);
+			size = 0;
+		}
+	}
+
+	private void rehash(int capacity){
+		int[] oldKeys = keys;
+		double[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(capacity);
+		for(int i=0;i<oldKeys.length;i++){
+			if(oldUsed[i])
+				put(oldKeys[i], oldValues[i]);
+		}
+	}
+}
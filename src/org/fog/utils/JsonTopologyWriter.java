@@ -0,0 +1,109 @@
+package org.fog.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+import org.json.simple.JSONValue;
+
+/**
+ * Writes the topology it receives as the JSON read by JsonToTopology. The nodes are written as they are
+ * received; the links are kept until end(), as they follow the nodes in the document.
+ */
+public class JsonTopologyWriter implements TopologyHandler {
+
+	private final Writer out;
+	private boolean firstNode = true;
+	private StringBuilder links = new StringBuilder();
+
+	/**
+	 * @param out the stream, closed by end()
+	 * @throws IOException
+	 */
+	public JsonTopologyWriter(OutputStream out) throws IOException {
+		this.out = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+		this.out.write("{\"nodes\":[");
+	}
+
+	private void startNode(String name, String type) throws IOException {
+		if(!firstNode)
+			out.write(',');
+		firstNode = false;
+		out.write("{\"name\":\"");
+		out.write(JSONValue.escape(name));
+		out.write("\",\"type\":\"");
+		out.write(type);
+		out.write('"');
+	}
+
+	private void field(String key, String value) throws IOException {
+		out.write(",\"");
+		out.write(key);
+		out.write("\":");
+		out.write(value);
+	}
+
+	@Override
+	public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) throws IOException {
+		startNode(name, "FOG_DEVICE");
+		field("mips", Long.toString(mips));
+		field("ram", Integer.toString(ram));
+		field("upBw", Long.toString(upBw));
+		field("downBw", Long.toString(downBw));
+		field("level", Integer.toString(level));
+		field("ratePerMips", Double.toString(ratePerMips));
+		out.write('}');
+	}
+
+	@Override
+	public void sensor(String name, String sensorType, Distribution distribution) throws IOException {
+		startNode(name, "SENSOR");
+		field("sensorType", "\"" + JSONValue.escape(sensorType) + "\"");
+		if(distribution instanceof DeterministicDistribution){
+			field("distribution", Integer.toString(Distribution.DETERMINISTIC));
+			field("value", Double.toString(((DeterministicDistribution)distribution).getValue()));
+		}else if(distribution instanceof NormalDistribution){
+			field("distribution", Integer.toString(Distribution.NORMAL));
+			field("mean", Double.toString(((NormalDistribution)distribution).getMean()));
+			field("stdDev", Double.toString(((NormalDistribution)distribution).getStdDev()));
+		}else if(distribution instanceof UniformDistribution){
+			field("distribution", Integer.toString(Distribution.UNIFORM));
+			field("min", Double.toString(((UniformDistribution)distribution).getMin()));
+			field("max", Double.toString(((UniformDistribution)distribution).getMax()));
+		}else{
+			field("distribution", "0");
+		}
+		out.write('}');
+	}
+
+	@Override
+	public void actuator(String name, String actuatorType) throws IOException {
+		startNode(name, "ACTUATOR");
+		field("actuatorType", "\"" + JSONValue.escape(actuatorType) + "\"");
+		out.write('}');
+	}
+
+	@Override
+	public void link(String source, String destination, double latency) {
+		if(links.length() > 0)
+			links.append(',');
+		links.append("{\"source\":\"").append(JSONValue.escape(source))
+			.append("\",\"destination\":\"").append(JSONValue.escape(destination))
+			.append("\",\"latency\":").append(latency).append('}');
+	}
+
+	@Override
+	public void end() throws IOException {
+		out.write("],\"links\":[");
+		out.append(links);
+		out.write("]}");
+		out.close();
+		links = null;
+	}
+}
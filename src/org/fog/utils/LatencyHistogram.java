@@ -0,0 +1,117 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of latencies with a bounded relative error, in the manner of HdrHistogram. Values are counted in
+ * buckets of the resolution up to 256 units, then in buckets whose width doubles every 128 buckets, so that
+ * percentiles are reported within 1/128 of the actual value whatever the range of the values, using memory
+ * that only grows with the logarithm of the largest value. Minimum, maximum and mean are exact.
+ */
+public class LatencyHistogram {
+
+	public static final double DEFAULT_RESOLUTION = 0.001;
+
+	private static final int SUB_BUCKETS = 256;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+	private final double resolution;
+	private long[] counts = new long[SUB_BUCKETS];
+	private long count;
+	private double sum;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	public LatencyHistogram(){
+		this(DEFAULT_RESOLUTION);
+	}
+
+	/**
+	 * @param resolution smallest difference between values the histogram tells apart
+	 */
+	public LatencyHistogram(double resolution){
+		if(resolution <= 0)
+			throw new IllegalArgumentException("The resolution should be positive, but is:" + resolution);
+		this.resolution = resolution;
+	}
+
+	private static int getBucket(long units){
+		if(units < SUB_BUCKETS)
+			return (int) units;
+		int shift = 64 - Long.numberOfLeadingZeros(units) - 8;
+		return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) ((units >>> shift) - HALF_SUB_BUCKETS);
+	}
+
+	/**
+	 * Gets the first unit past a bucket.
+	 */
+	private static long getBucketEnd(int bucket){
+		if(bucket < SUB_BUCKETS)
+			return bucket + 1;
+		int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+		long top = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return (top + 1) << shift;
+	}
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 * @param value the value
+	 */
+	public void record(double value){
+		value = Math.max(0, value);
+		int bucket = getBucket((long) (value / resolution));
+		if(bucket >= counts.length)
+			counts = Arrays.copyOf(counts, Math.max(bucket + 1, 2 * counts.length));
+		counts[bucket]++;
+		count++;
+		sum += value;
+		if(count == 1 || value < min)
+			min = value;
+		if(count == 1 || value > max)
+			max = value;
+	}
+
+	public long getCount(){
+		return count;
+	}
+
+	/**
+	 * @return the mean of the values, NaN if there is none
+	 */
+	public double getMean(){
+		return count == 0 ? Double.NaN : sum / count;
+	}
+
+	/**
+	 * @return the smallest value, NaN if there is none
+	 */
+	public double getMin(){
+		return min;
+	}
+
+	/**
+	 * @return the largest value, NaN if there is none
+	 */
+	public double getMax(){
+		return max;
+	}
+
+	/**
+	 * Gets the value below which a given percentage of the values lie, that is the upper bound of the bucket
+	 * holding it, but no more than the largest value.
+	 * @param percentile the percentage, between 0 and 100
+	 * @return the value, NaN if there is none
+	 */
+	public double getValueAtPercentile(double percentile){
+		if(count == 0)
+			return Double.NaN;
+		long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * count));
+		long seen = 0;
+		for(int bucket=0;bucket<counts.length;bucket++){
+			seen += counts[bucket];
+			if(seen >= rank)
+				return Math.min(max, getBucketEnd(bucket) * resolution);
+		}
+		return max;
+	}
+}
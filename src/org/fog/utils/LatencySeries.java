@@ -0,0 +1,117 @@
+package org.fog.utils;
+
+import java.util.Arrays;
+
+/**
+ * Count, mean and maximum of latencies per window of simulated time. Only the most recent windows are kept,
+ * so that the memory used does not depend on the simulated duration.
+ */
+public class LatencySeries {
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final double windowLength;
+	private final long[] counts;
+	private final double[] sums;
+	private final double[] maxs;
+	/**
+	 * Window of the most recent value recorded, -1 if none
+	 */
+	private long lastWindow = -1;
+
+	public LatencySeries(double windowLength){
+		this(windowLength, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param windowLength length of a window, in simulated time
+	 * @param capacity number of windows kept
+	 */
+	public LatencySeries(double windowLength, int capacity){
+		if(windowLength <= 0 || capacity <= 0)
+			throw new IllegalArgumentException("The window length and the capacity should be positive, but are:" + windowLength + " and " + capacity);
+		this.windowLength = windowLength;
+		counts = new long[capacity];
+		sums = new double[capacity];
+		maxs = new double[capacity];
+	}
+
+	/**
+	 * Records a value in the window of a time. Values older than the windows kept are ignored.
+	 * @param time the time
+	 * @param value the value
+	 */
+	public void record(double time, double value){
+		long window = (long) Math.floor(time / windowLength);
+		if(window <= lastWindow - counts.length)
+			return;
+		if(window > lastWindow){
+			// clears the slots of the windows that are dropped
+			long cleared = Math.min(window - lastWindow, counts.length);
+			for(long w = window - cleared + 1; w <= window; w++){
+				int slot = slot(w);
+				counts[slot] = 0;
+				sums[slot] = 0;
+				maxs[slot] = 0;
+			}
+			lastWindow = window;
+		}
+		int slot = slot(window);
+		if(counts[slot] == 0 || value > maxs[slot])
+			maxs[slot] = value;
+		counts[slot]++;
+		sums[slot] += value;
+	}
+
+	private int slot(long window){
+		return (int) (window % counts.length);
+	}
+
+	public double getWindowLength(){
+		return windowLength;
+	}
+
+	/**
+	 * @return the oldest window kept, 0 if no value was recorded; a window w covers the times
+	 * from w*windowLength, inclusive, to (w+1)*windowLength
+	 */
+	public long getFirstWindow(){
+		return Math.max(0, lastWindow - counts.length + 1);
+	}
+
+	/**
+	 * @return the most recent window with a value, -1 if none
+	 */
+	public long getLastWindow(){
+		return lastWindow;
+	}
+
+	private boolean isKept(long window){
+		return window >= getFirstWindow() && window <= lastWindow;
+	}
+
+	public long getCount(long window){
+		return isKept(window) ? counts[slot(window)] : 0;
+	}
+
+	/**
+	 * @return the mean of the values of a window, NaN if there is none
+	 */
+	public double getMean(long window){
+		long count = getCount(window);
+		return count == 0 ? Double.NaN : sums[slot(window)] / count;
+	}
+
+	/**
+	 * @return the largest value of a window, NaN if there is none
+	 */
+	public double getMax(long window){
+		return getCount(window) == 0 ? Double.NaN : maxs[slot(window)];
+	}
+
+	@Override
+	public String toString(){
+		return "LatencySeries[windowLength=" + windowLength + ", windows=" + getFirstWindow() + ".." + lastWindow
+				+ ", counts=" + Arrays.toString(counts) + "]";
+	}
+}
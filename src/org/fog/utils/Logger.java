@@ -4,6 +4,12 @@ import java.text.DecimalFormat;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 
+/**
+ * Logging of the fog entities. Messages can be given as a pattern whose {} are replaced by the arguments,
+ * which is only formatted when the message is printed. When computing the arguments themselves costs
+ * something, or they are primitives boxed on every call, the call should be guarded by isDebugEnabled()
+ * or isErrorEnabled().
+ */
 public class Logger {
 	
 	public static final int ERROR = 1;
@@ -14,21 +20,97 @@ public class Logger {
 
 	public static boolean ENABLED = false;;
 	
+	/**
+	 * Whether the progress of the placement and of the deployment of the modules is printed, which does
+	 * not depend on ENABLED and LOG_LEVEL
+	 */
+	public static boolean INFO_ENABLED = true;
+	
 	public static void setLogLevel(int level){
 		Logger.LOG_LEVEL = level;
 	}
 	
+	public static boolean isDebugEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.DEBUG;
+	}
+
+	public static boolean isErrorEnabled(){
+		return ENABLED && Logger.LOG_LEVEL <= Logger.ERROR;
+	}
+
 	public static void debug(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.DEBUG)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+		if(isDebugEnabled())
+			print(name, message);
+	}
+	public static void debug(String name, String pattern, Object arg){
+		if(isDebugEnabled())
+			print(name, format(pattern, new Object[]{arg}));
 	}
+	public static void debug(String name, String pattern, Object arg1, Object arg2){
+		if(isDebugEnabled())
+			print(name, format(pattern, new Object[]{arg1, arg2}));
+	}
+	public static void debug(String name, String pattern, Object... args){
+		if(isDebugEnabled())
+			print(name, format(pattern, args));
+	}
+
 	public static void error(String name, String message){
-		if(!ENABLED)
-			return;
-		if(Logger.LOG_LEVEL <= Logger.ERROR)
-			System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
+		if(isErrorEnabled())
+			print(name, message);
+	}
+	public static void error(String name, String pattern, Object arg){
+		if(isErrorEnabled())
+			print(name, format(pattern, new Object[]{arg}));
+	}
+	public static void error(String name, String pattern, Object arg1, Object arg2){
+		if(isErrorEnabled())
+			print(name, format(pattern, new Object[]{arg1, arg2}));
+	}
+	public static void error(String name, String pattern, Object... args){
+		if(isErrorEnabled())
+			print(name, format(pattern, args));
+	}
+
+	/**
+	 * Prints a progress message, without the time and the name of the entity.
+	 */
+	public static void info(String message){
+		if(INFO_ENABLED)
+			System.out.println(message);
+	}
+	public static void info(String pattern, Object arg){
+		if(INFO_ENABLED)
+			System.out.println(format(pattern, new Object[]{arg}));
+	}
+	public static void info(String pattern, Object arg1, Object arg2){
+		if(INFO_ENABLED)
+			System.out.println(format(pattern, new Object[]{arg1, arg2}));
+	}
+	public static void info(String pattern, Object... args){
+		if(INFO_ENABLED)
+			System.out.println(format(pattern, args));
+	}
+
+	/**
+	 * Replaces the {} of a pattern by the arguments, in order. The {} left without argument are kept.
+	 */
+	static String format(String pattern, Object[] args){
+		StringBuilder message = new StringBuilder(pattern.length() + 16*args.length);
+		int start = 0;
+		for(Object arg : args){
+			int i = pattern.indexOf("{}", start);
+			if(i < 0)
+				break;
+			message.append(pattern, start, i).append(arg);
+			start = i + 2;
+		}
+		return message.append(pattern, start, pattern.length()).toString();
+	}
+
+	// DecimalFormat is not thread-safe, and entities may log from parallel clock ticks
+	private static synchronized void print(String name, String message){
+		System.out.println(df.format(CloudSim.clock())+" : "+name+" : "+message);
 	}
 	
 }
@@ -1,14 +1,32 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
 public class NetworkUsageMonitor {
 
-	private static double networkUsage = 0.0;
+	// kept per simulation, see CloudSim.getSimulationContext()
+	private double networkUsage = 0.0;
+	
+	private static NetworkUsageMonitor getInstance(){
+		SimulationContext context = CloudSim.getSimulationContext();
+		NetworkUsageMonitor instance = (NetworkUsageMonitor) context.getAttribute(NetworkUsageMonitor.class);
+		if(instance == null)
+			instance = (NetworkUsageMonitor) context.setAttributeIfAbsent(NetworkUsageMonitor.class, new NetworkUsageMonitor());
+		return instance;
+	}
 	
-	public static void sendingTuple(double latency, double tupleNwSize){
-		networkUsage += latency*tupleNwSize;
+	public static void sendingTuple(final double latency, final double tupleNwSize){
+		final NetworkUsageMonitor monitor = getInstance();
+		CloudSim.runOrdered(new Runnable() {
+			@Override
+			public void run() {
+				monitor.networkUsage += latency*tupleNwSize;
+			}
+		});
 	}
 	
 	public static double getNetworkUsage(){
-		return networkUsage;
+		return getInstance().networkUsage;
 	}
 }
@@ -0,0 +1,100 @@
+package org.fog.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The results of a simulation, as printed by the controller when the simulation stops.
+ * Kept by the controller instead of being printed when several simulations are run in one JVM.
+ */
+public class SimulationResults {
+
+	private long executionTime;
+	private Map<String, Double> loopDelays = new LinkedHashMap<String, Double>();
+	private Map<String, Double> tupleCpuDelays = new LinkedHashMap<String, Double>();
+	private Map<String, LatencyHistogram> loopDelayHistograms = new LinkedHashMap<String, LatencyHistogram>();
+	private Map<String, LatencyHistogram> tupleCpuDelayHistograms = new LinkedHashMap<String, LatencyHistogram>();
+	private Map<String, Double> energyConsumptions = new LinkedHashMap<String, Double>();
+	private double cloudCost;
+	private double networkUsage;
+	private long eventsProcessed;
+
+	/**
+	 * Wall clock time taken by the simulation, in milliseconds.
+	 */
+	public long getExecutionTime() {
+		return executionTime;
+	}
+	public void setExecutionTime(long executionTime) {
+		this.executionTime = executionTime;
+	}
+	/**
+	 * Average delay of every application loop, by the modules of the loop.
+	 */
+	public Map<String, Double> getLoopDelays() {
+		return loopDelays;
+	}
+	public void setLoopDelays(Map<String, Double> loopDelays) {
+		this.loopDelays = loopDelays;
+	}
+	/**
+	 * Average CPU execution time, by tuple type.
+	 */
+	public Map<String, Double> getTupleCpuDelays() {
+		return tupleCpuDelays;
+	}
+	public void setTupleCpuDelays(Map<String, Double> tupleCpuDelays) {
+		this.tupleCpuDelays = tupleCpuDelays;
+	}
+	/**
+	 * Distribution of the delays of every application loop, by the modules of the loop.
+	 */
+	public Map<String, LatencyHistogram> getLoopDelayHistograms() {
+		return loopDelayHistograms;
+	}
+	public void setLoopDelayHistograms(Map<String, LatencyHistogram> loopDelayHistograms) {
+		this.loopDelayHistograms = loopDelayHistograms;
+	}
+	/**
+	 * Distribution of the CPU execution times, by tuple type.
+	 */
+	public Map<String, LatencyHistogram> getTupleCpuDelayHistograms() {
+		return tupleCpuDelayHistograms;
+	}
+	public void setTupleCpuDelayHistograms(Map<String, LatencyHistogram> tupleCpuDelayHistograms) {
+		this.tupleCpuDelayHistograms = tupleCpuDelayHistograms;
+	}
+	/**
+	 * Energy consumed, by fog device name.
+	 */
+	public Map<String, Double> getEnergyConsumptions() {
+		return energyConsumptions;
+	}
+	public void setEnergyConsumptions(Map<String, Double> energyConsumptions) {
+		this.energyConsumptions = energyConsumptions;
+	}
+	public double getCloudCost() {
+		return cloudCost;
+	}
+	public void setCloudCost(double cloudCost) {
+		this.cloudCost = cloudCost;
+	}
+	/**
+	 * Network usage per unit of simulated time.
+	 */
+	public double getNetworkUsage() {
+		return networkUsage;
+	}
+	public void setNetworkUsage(double networkUsage) {
+		this.networkUsage = networkUsage;
+	}
+	/**
+	 * Number of events processed by the simulation engine.
+	 */
+	public long getEventsProcessed() {
+		return eventsProcessed;
+	}
+	public void setEventsProcessed(long eventsProcessed) {
+		this.eventsProcessed = eventsProcessed;
+	}
+}
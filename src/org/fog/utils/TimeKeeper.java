@@ -1,102 +1,258 @@
 package org.fog.utils;
 
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.IdSequence;
+import org.cloudbus.cloudsim.core.SimulationContext;
+import org.fog.application.AppLoop;
 import org.fog.entities.Tuple;
 
+/**
+ * Latency statistics of a simulation: delays of the application loops and CPU execution times of the tuple
+ * types, as running averages and as histograms giving their percentiles. The times kept for the tuples in
+ * flight are removed when the tuples complete, so that the memory used does not grow with the simulated
+ * duration; see setMaxLoopDelay() for the tuples that never complete their loop.
+ */
 public class TimeKeeper {
 
-	private static TimeKeeper instance;
-	
+	/**
+	 * Number of emission times kept from which those older than the maximum loop delay are looked for
+	 */
+	private static final int MIN_EXPIRY_SIZE = 1024;
+	/**
+	 * Maximum loop delay by default, in multiples of the longest loop delay observed
+	 */
+	private static final double LOOP_DELAY_EXPIRY_FACTOR = 10;
+
 	private long simulationStartTime;
-	private int count; 
-	private Map<Integer, Double> emitTimes;
-	private Map<Integer, Double> endTimes;
-	private Map<Integer, List<Integer>> loopIdToTupleIds;
-	private Map<Integer, Double> tupleIdToCpuStartTime;
+	private IdSequence count; 
+	/**
+	 * Emission times of the tuples that started a loop, by actual tuple id
+	 */
+	private IntDoubleMap emitTimes;
+	/**
+	 * Start of the latest execution of the tuples being executed, and number of their executions in
+	 * progress, by tuple id (a tuple sent down is executed on each of the devices it reaches)
+	 */
+	private IntDoubleMap tupleIdToCpuStartTime;
+	private IntIntMap tupleIdToCpuExecutions;
 	private Map<String, Double> tupleTypeToAverageCpuTime;
 	private Map<String, Integer> tupleTypeToExecutedTupleCount;
+	private Map<String, LatencyHistogram> tupleTypeToCpuTimeHistogram;
 	
 	private Map<Integer, Double> loopIdToCurrentAverage;
 	private Map<Integer, Integer> loopIdToCurrentNum;
+	/**
+	 * Has an entry for every loop that started
+	 */
+	private Map<Integer, LatencyHistogram> loopIdToDelayHistogram;
+	private Map<Integer, LatencySeries> loopIdToDelaySeries;
+	
+	/**
+	 * Maximum loop delay set, 0 if it is derived from the longest loop delay observed
+	 */
+	private double maxLoopDelay;
+	private double longestLoopDelay;
+	private int expirySize;
+	private long expiredLoopTuples;
+	private double delaySeriesWindow;
 	
+	/**
+	 * Gets the time keeper of the simulation of the current thread, see CloudSim.getSimulationContext().
+	 */
 	public static TimeKeeper getInstance(){
+		SimulationContext context = CloudSim.getSimulationContext();
+		TimeKeeper instance = (TimeKeeper) context.getAttribute(TimeKeeper.class);
 		if(instance == null)
-			instance = new TimeKeeper();
+			instance = (TimeKeeper) context.setAttributeIfAbsent(TimeKeeper.class, new TimeKeeper());
 		return instance;
 	}
 	
 	public int getUniqueId(){
-		return count++;
+		return count.next();
 	}
 	
+	/*
+	 * The statistics below are shared by all the entities, so they are updated through
+	 * CloudSim.runOrdered(), which keeps the sequential order of the updates in parallel clock ticks.
+	 */
+	
 	public void tupleStartedExecution(Tuple tuple){
-		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+		final int tupleId = tuple.getCloudletId();
+		final double time = CloudSim.clock();
+		CloudSim.runOrdered(new Runnable() {
+			@Override
+			public void run() {
+				tupleIdToCpuStartTime.put(tupleId, time);
+				tupleIdToCpuExecutions.put(tupleId, tupleIdToCpuExecutions.get(tupleId, 0)+1);
+			}
+		});
 	}
 	
 	public void tupleEndedExecution(Tuple tuple){
-		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
-			return;
-		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
-		if(!tupleTypeToAverageCpuTime.containsKey(tuple.getTupleType())){
-			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), executionTime);
-			tupleTypeToExecutedTupleCount.put(tuple.getTupleType(), 1);
-		} else{
-			double currentAverage = tupleTypeToAverageCpuTime.get(tuple.getTupleType());
-			int currentCount = tupleTypeToExecutedTupleCount.get(tuple.getTupleType());
-			tupleTypeToAverageCpuTime.put(tuple.getTupleType(), (currentAverage*currentCount+executionTime)/(currentCount+1));
-		}
+		final int tupleId = tuple.getCloudletId();
+		final String tupleType = tuple.getTupleType();
+		final double time = CloudSim.clock();
+		CloudSim.runOrdered(new Runnable() {
+			@Override
+			public void run() {
+				if(!tupleIdToCpuStartTime.containsKey(tupleId))
+					return;
+				double executionTime = time - tupleIdToCpuStartTime.get(tupleId, 0);
+				int executions = tupleIdToCpuExecutions.get(tupleId, 0)-1;
+				if(executions > 0){
+					tupleIdToCpuExecutions.put(tupleId, executions);
+				}else{
+					tupleIdToCpuStartTime.remove(tupleId);
+					tupleIdToCpuExecutions.remove(tupleId);
+				}
+				if(!tupleTypeToAverageCpuTime.containsKey(tupleType)){
+					tupleTypeToAverageCpuTime.put(tupleType, executionTime);
+					tupleTypeToExecutedTupleCount.put(tupleType, 1);
+					tupleTypeToCpuTimeHistogram.put(tupleType, new LatencyHistogram());
+				} else{
+					double currentAverage = tupleTypeToAverageCpuTime.get(tupleType);
+					int currentCount = tupleTypeToExecutedTupleCount.get(tupleType);
+					tupleTypeToAverageCpuTime.put(tupleType, (currentAverage*currentCount+executionTime)/(currentCount+1));
+				}
+				tupleTypeToCpuTimeHistogram.get(tupleType).record(executionTime);
+			}
+		});
+	}
+	
+	/**
+	 * Records the emission of a tuple starting an application loop, giving the tuple the actual tuple id
+	 * identifying it along the loop. In a parallel clock tick, the id is given at the end of the tick.
+	 * @param loop the loop started by the tuple
+	 * @param tuple the tuple
+	 */
+	public void loopStarted(final AppLoop loop, final Tuple tuple){
+		final double time = CloudSim.clock();
+		CloudSim.runOrdered(new Runnable() {
+			@Override
+			public void run() {
+				int tupleId = getUniqueId();
+				tuple.setActualTupleId(tupleId);
+				if(!loopIdToDelayHistogram.containsKey(loop.getLoopId())){
+					loopIdToDelayHistogram.put(loop.getLoopId(), new LatencyHistogram());
+					if(delaySeriesWindow > 0)
+						loopIdToDelaySeries.put(loop.getLoopId(), new LatencySeries(delaySeriesWindow));
+				}
+				emitTimes.put(tupleId, time);
+				if(emitTimes.size() >= expirySize){
+					expiredLoopTuples += emitTimes.removeValuesBelow(time - getMaxLoopDelay());
+					expirySize = Math.max(MIN_EXPIRY_SIZE, 2*emitTimes.size());
+				}
+			}
+		});
 	}
 	
-	public Map<Integer, List<Integer>> loopIdToTupleIds(){
-		return getInstance().getLoopIdToTupleIds();
+	/**
+	 * Records the arrival of a tuple at the end of an application loop, updating the average delay of the loop.
+	 * @param loop the loop ended by the tuple
+	 * @param actualTupleId the actual tuple id given when the loop started
+	 */
+	public void loopEnded(final AppLoop loop, final int actualTupleId){
+		final double time = CloudSim.clock();
+		CloudSim.runOrdered(new Runnable() {
+			@Override
+			public void run() {
+				if(!emitTimes.containsKey(actualTupleId))
+					return;
+				double startTime = emitTimes.get(actualTupleId, 0);
+				if(!loopIdToCurrentAverage.containsKey(loop.getLoopId())){
+					loopIdToCurrentAverage.put(loop.getLoopId(), 0.0);
+					loopIdToCurrentNum.put(loop.getLoopId(), 0);
+				}
+				double currentAverage = loopIdToCurrentAverage.get(loop.getLoopId());
+				int currentCount = loopIdToCurrentNum.get(loop.getLoopId());
+				double delay = time - startTime;
+				emitTimes.remove(actualTupleId);
+				longestLoopDelay = Math.max(longestLoopDelay, delay);
+				double newAverage = (currentAverage*currentCount + delay)/(currentCount+1);
+				loopIdToCurrentAverage.put(loop.getLoopId(), newAverage);
+				loopIdToCurrentNum.put(loop.getLoopId(), currentCount+1);
+				loopIdToDelayHistogram.get(loop.getLoopId()).record(delay);
+				if(loopIdToDelaySeries.containsKey(loop.getLoopId()))
+					loopIdToDelaySeries.get(loop.getLoopId()).record(time, delay);
+			}
+		});
 	}
 	
 	private TimeKeeper(){
-		count = 1;
-		setEmitTimes(new HashMap<Integer, Double>());
-		setEndTimes(new HashMap<Integer, Double>());
-		setLoopIdToTupleIds(new HashMap<Integer, List<Integer>>());
+		count = new IdSequence(1);
+		emitTimes = new IntDoubleMap();
+		tupleIdToCpuStartTime = new IntDoubleMap();
+		tupleIdToCpuExecutions = new IntIntMap();
 		setTupleTypeToAverageCpuTime(new HashMap<String, Double>());
 		setTupleTypeToExecutedTupleCount(new HashMap<String, Integer>());
-		setTupleIdToCpuStartTime(new HashMap<Integer, Double>());
+		tupleTypeToCpuTimeHistogram = new HashMap<String, LatencyHistogram>();
 		setLoopIdToCurrentAverage(new HashMap<Integer, Double>());
 		setLoopIdToCurrentNum(new HashMap<Integer, Integer>());
+		loopIdToDelayHistogram = new HashMap<Integer, LatencyHistogram>();
+		loopIdToDelaySeries = new HashMap<Integer, LatencySeries>();
+		setMaxLoopDelay(0);
 	}
 	
 	public int getCount() {
-		return count;
+		return count.getNext();
 	}
 
 	public void setCount(int count) {
-		this.count = count;
+		this.count.setNext(count);
 	}
 
-	public Map<Integer, Double> getEmitTimes() {
-		return emitTimes;
+	/**
+	 * @return the number of tuples that started a loop and have not ended it yet
+	 */
+	public int getPendingLoopTuples() {
+		return emitTimes.size();
 	}
 
-	public void setEmitTimes(Map<Integer, Double> emitTimes) {
-		this.emitTimes = emitTimes;
+	/**
+	 * @return the number of tuples that started a loop and were forgotten by the time keeper after
+	 * the maximum loop delay
+	 */
+	public long getExpiredLoopTuples() {
+		return expiredLoopTuples;
 	}
 
-	public Map<Integer, Double> getEndTimes() {
-		return endTimes;
+	/**
+	 * @return the time after which a tuple that started a loop is no longer expected to end it, infinite
+	 * when it is derived from the loop delays and no loop has ended yet
+	 */
+	public double getMaxLoopDelay() {
+		if(maxLoopDelay > 0)
+			return maxLoopDelay;
+		return longestLoopDelay > 0 ? LOOP_DELAY_EXPIRY_FACTOR*longestLoopDelay : Double.POSITIVE_INFINITY;
 	}
 
-	public void setEndTimes(Map<Integer, Double> endTimes) {
-		this.endTimes = endTimes;
+	/**
+	 * Sets the time after which a tuple that started a loop is no longer expected to end it. A tuple
+	 * may never end its loop, when it is dropped by a selectivity model along the way; its emission time
+	 * is only forgotten past this delay. By default, or when set to 0, it is 10 times the longest loop
+	 * delay observed so far. An infinite delay keeps the emission times of such tuples for the whole
+	 * simulation.
+	 * @param maxLoopDelay the delay
+	 */
+	public void setMaxLoopDelay(double maxLoopDelay) {
+		this.maxLoopDelay = maxLoopDelay;
+		expirySize = Double.isInfinite(maxLoopDelay) ? Integer.MAX_VALUE : MIN_EXPIRY_SIZE;
 	}
 
-	public Map<Integer, List<Integer>> getLoopIdToTupleIds() {
-		return loopIdToTupleIds;
+	public double getDelaySeriesWindow() {
+		return delaySeriesWindow;
 	}
 
-	public void setLoopIdToTupleIds(Map<Integer, List<Integer>> loopIdToTupleIds) {
-		this.loopIdToTupleIds = loopIdToTupleIds;
+	/**
+	 * Sets the window of the series of loop delays, see getLoopIdToDelaySeries(). No series is kept when 0,
+	 * the default. Only applies to the loops starting afterwards.
+	 * @param delaySeriesWindow the window, in simulated time
+	 */
+	public void setDelaySeriesWindow(double delaySeriesWindow) {
+		this.delaySeriesWindow = delaySeriesWindow;
 	}
 
 	public Map<String, Double> getTupleTypeToAverageCpuTime() {
@@ -117,12 +273,11 @@ public class TimeKeeper {
 		this.tupleTypeToExecutedTupleCount = tupleTypeToExecutedTupleCount;
 	}
 
-	public Map<Integer, Double> getTupleIdToCpuStartTime() {
-		return tupleIdToCpuStartTime;
-	}
-
-	public void setTupleIdToCpuStartTime(Map<Integer, Double> tupleIdToCpuStartTime) {
-		this.tupleIdToCpuStartTime = tupleIdToCpuStartTime;
+	/**
+	 * @return the histograms of the CPU execution times, by tuple type
+	 */
+	public Map<String, LatencyHistogram> getTupleTypeToCpuTimeHistogram() {
+		return tupleTypeToCpuTimeHistogram;
 	}
 
 	public long getSimulationStartTime() {
@@ -148,6 +303,20 @@ public class TimeKeeper {
 	public void setLoopIdToCurrentNum(Map<Integer, Integer> loopIdToCurrentNum) {
 		this.loopIdToCurrentNum = loopIdToCurrentNum;
 	}
+
+	/**
+	 * @return the histograms of the loop delays, by loop id, with an entry for every loop that started
+	 */
+	public Map<Integer, LatencyHistogram> getLoopIdToDelayHistogram() {
+		return loopIdToDelayHistogram;
+	}
+
+	/**
+	 * @return the series of the loop delays over simulated time, by loop id, when a window is set
+	 */
+	public Map<Integer, LatencySeries> getLoopIdToDelaySeries() {
+		return loopIdToDelaySeries;
+	}
 	
 	
 }
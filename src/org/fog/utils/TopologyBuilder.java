@@ -0,0 +1,204 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.models.PowerModelLinear;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.entities.PhysicalTopology;
+import org.fog.entities.Sensor;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.utils.distribution.Distribution;
+
+/**
+ * Creates the entities of a physical topology as they are read, in the current simulation. The entities
+ * are indexed by their name, ignoring case, and the links are kept until the whole topology has been read,
+ * as they may refer to entities read after them. When several entities have the same name, the links
+ * refer to the first of them.
+ */
+public class TopologyBuilder implements TopologyHandler {
+
+	private final int userId;
+	private final String appId;
+
+	private List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private List<Sensor> sensors = new ArrayList<Sensor>();
+	private List<Actuator> actuators = new ArrayList<Actuator>();
+	private Map<String, FogDevice> fogDevicesByName = new HashMap<String, FogDevice>();
+	private Map<String, Sensor> sensorsByName = new HashMap<String, Sensor>();
+	private Map<String, Actuator> actuatorsByName = new HashMap<String, Actuator>();
+
+	private String[] linkSources = new String[16];
+	private String[] linkDestinations = new String[16];
+	private double[] linkLatencies = new double[16];
+	private int numLinks;
+
+	public TopologyBuilder(int userId, String appId){
+		this.userId = userId;
+		this.appId = appId;
+	}
+
+	private static String key(String name){
+		return name.toLowerCase(Locale.ENGLISH);
+	}
+
+	@Override
+	public void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) {
+		FogDevice fogDevice = createFogDevice(name, mips, ram, upBw, downBw, level, ratePerMips);
+		fogDevice.setParentId(-1);
+		fogDevices.add(fogDevice);
+		String key = key(name);
+		if(!fogDevicesByName.containsKey(key))
+			fogDevicesByName.put(key, fogDevice);
+	}
+
+	@Override
+	public void sensor(String name, String sensorType, Distribution distribution) {
+		Logger.info("Sensor type : {}", sensorType);
+		Sensor sensor = new Sensor(name, sensorType, userId, appId, distribution);
+		sensors.add(sensor);
+		String key = key(name);
+		if(!sensorsByName.containsKey(key))
+			sensorsByName.put(key, sensor);
+	}
+
+	@Override
+	public void actuator(String name, String actuatorType) {
+		Actuator actuator = new Actuator(name, userId, appId, actuatorType);
+		actuators.add(actuator);
+		String key = key(name);
+		if(!actuatorsByName.containsKey(key))
+			actuatorsByName.put(key, actuator);
+	}
+
+	@Override
+	public void link(String source, String destination, double latency) {
+		if(numLinks == linkSources.length){
+			linkSources = Arrays.copyOf(linkSources, 2*numLinks);
+			linkDestinations = Arrays.copyOf(linkDestinations, 2*numLinks);
+			linkLatencies = Arrays.copyOf(linkLatencies, 2*numLinks);
+		}
+		linkSources[numLinks] = source;
+		linkDestinations[numLinks] = destination;
+		linkLatencies[numLinks] = latency;
+		numLinks++;
+	}
+
+	@Override
+	public void end() {
+		for(int i=0;i<numLinks;i++)
+			connectEntities(linkSources[i], linkDestinations[i], linkLatencies[i]);
+		linkSources = new String[0];
+		linkDestinations = new String[0];
+		linkLatencies = new double[0];
+		numLinks = 0;
+	}
+
+	/**
+	 * @return the topology built, once end() was called
+	 */
+	public PhysicalTopology getPhysicalTopology(){
+		PhysicalTopology physicalTopology = new PhysicalTopology();
+		physicalTopology.setFogDevices(fogDevices);
+		physicalTopology.setActuators(actuators);
+		physicalTopology.setSensors(sensors);
+		return physicalTopology;
+	}
+
+	private void connectEntities(String src, String dst, double lat) {
+		String srcKey = key(src);
+		String dstKey = key(dst);
+		FogDevice srcDev = fogDevicesByName.get(srcKey);
+		FogDevice dstDev = fogDevicesByName.get(dstKey);
+		if(srcDev != null && dstDev != null){
+			FogDevice southernDev = (srcDev.getLevel() > dstDev.getLevel())?srcDev:dstDev;
+			FogDevice northernDev = (srcDev.getLevel() > dstDev.getLevel())?dstDev:srcDev;
+			southernDev.setUplinkLatency(lat);
+			southernDev.setParentId(northernDev.getId());
+		} else if(srcDev != null && sensorsByName.containsKey(dstKey)){
+			Sensor sensor = sensorsByName.get(dstKey);
+			sensor.setLatency(lat);
+			sensor.setGatewayDeviceId(srcDev.getId());
+		} else if(sensorsByName.containsKey(srcKey) && dstDev != null){
+			Sensor sensor = sensorsByName.get(srcKey);
+			sensor.setLatency(lat);
+			sensor.setGatewayDeviceId(dstDev.getId());
+		} else if(srcDev != null && actuatorsByName.containsKey(dstKey)){
+			Actuator actuator = actuatorsByName.get(dstKey);
+			actuator.setLatency(lat);
+			actuator.setGatewayDeviceId(srcDev.getId());
+		} else if(actuatorsByName.containsKey(srcKey) && dstDev != null){
+			Actuator actuator = actuatorsByName.get(srcKey);
+			actuator.setLatency(lat);
+			actuator.setGatewayDeviceId(dstDev.getId());
+		}
+	}
+
+	private static FogDevice createFogDevice(String nodeName, long mips,
+			int ram, long upBw, long downBw, int level, double ratePerMips) {
+
+		List<Pe> peList = new ArrayList<Pe>();
+
+		// 3. Create PEs and add these into a list.
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips))); // need to store Pe id and MIPS Rating
+
+		int hostId = FogUtils.generateEntityId();
+		long storage = 1000000; // host storage
+		int bw = 10000;
+
+		PowerHost host = new PowerHost(
+				hostId,
+				new RamProvisionerSimple(ram),
+				new BwProvisionerOverbooking(bw),
+				storage,
+				peList,
+				new StreamOperatorScheduler(peList),
+				new PowerModelLinear(107.339, 83.4333)
+			);
+
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+
+		String arch = "x86"; // system architecture
+		String os = "Linux"; // operating system
+		String vmm = "Xen";
+		double time_zone = 10.0; // time zone this resource located
+		double cost = 3.0; // the cost of using processing in this resource
+		double costPerMem = 0.05; // the cost of using memory in this resource
+		double costPerStorage = 0.001; // the cost of using storage in this
+										// resource
+		double costPerBw = 0.0; // the cost of using bw in this resource
+		LinkedList<Storage> storageList = new LinkedList<Storage>(); // we are not adding SAN
+													// devices by now
+
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+				arch, os, vmm, host, time_zone, cost, costPerMem,
+				costPerStorage, costPerBw);
+
+		FogDevice fogdevice = null;
+		try {
+			fogdevice = new FogDevice(nodeName, characteristics,
+					new AppModuleAllocationPolicy(hostList), storageList, 10, upBw, downBw, 0, ratePerMips);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		fogdevice.setLevel(level);
+		return fogdevice;
+	}
+}
@@ -0,0 +1,26 @@
+package org.fog.utils;
+
+import java.io.IOException;
+
+import org.fog.utils.distribution.Distribution;
+
+/**
+ * Receives the entities and the links of a physical topology as they are read, one at a time, so that a
+ * topology can be loaded or converted without keeping its description in memory. Links may be received
+ * before the entities they connect; end() is called once the whole topology has been read.
+ */
+public interface TopologyHandler {
+
+	void fogDevice(String name, long mips, int ram, long upBw, long downBw, int level, double ratePerMips) throws IOException;
+
+	/**
+	 * @param distribution distribution of the inter-transmission time, null if it is not known
+	 */
+	void sensor(String name, String sensorType, Distribution distribution) throws IOException;
+
+	void actuator(String name, String actuatorType) throws IOException;
+
+	void link(String source, String destination, double latency) throws IOException;
+
+	void end() throws IOException;
+}
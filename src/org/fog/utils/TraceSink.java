@@ -0,0 +1,250 @@
+package org.fog.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.SimEventListener;
+import org.cloudbus.cloudsim.core.SimulationContext;
+
+/**
+ * Writes the events processed by a simulation to a stream, as CSV (time,type,tag,source,destination) or as
+ * binary records of a double and four ints (DataOutputStream, big-endian). The events are copied into
+ * batches of primitive arrays, written by a thread of the sink, so that the simulation neither formats nor
+ * writes them. The batches are taken from a fixed pool, which bounds the memory used. When the writer falls
+ * behind and the pool is empty, the simulation waits for a batch, or, if the sink is not blocking, the
+ * events of the current batch are dropped and counted.
+ *
+ * The sink is set on the current simulation by attach(), and must be closed once the simulation ends.
+ */
+public class TraceSink implements SimEventListener {
+
+	public enum Format {CSV, BINARY}
+
+	public static final int DEFAULT_BATCH_SIZE = 4096;
+	public static final int DEFAULT_NUM_BATCHES = 16;
+
+	private static class Batch {
+		private final double[] times;
+		private final int[] types;
+		private final int[] tags;
+		private final int[] sources;
+		private final int[] destinations;
+		private int size;
+
+		private Batch(int capacity){
+			times = new double[capacity];
+			types = new int[capacity];
+			tags = new int[capacity];
+			sources = new int[capacity];
+			destinations = new int[capacity];
+		}
+	}
+
+	/**
+	 * Batch handed to the writer to stop it
+	 */
+	private static final Batch END = new Batch(0);
+
+	private final Format format;
+	private final boolean blocking;
+	private final BlockingQueue<Batch> freeBatches;
+	private final BlockingQueue<Batch> fullBatches;
+	private final Thread writer;
+	private Batch batch;
+	private long droppedEvents;
+	private volatile IOException writeError;
+	private boolean closed;
+	private SimulationContext context;
+
+	/**
+	 * Creates a blocking sink with the default batches.
+	 * @param out the stream, closed with the sink
+	 * @param format format of the events
+	 */
+	public TraceSink(OutputStream out, Format format){
+		this(out, format, true, DEFAULT_BATCH_SIZE, DEFAULT_NUM_BATCHES);
+	}
+
+	/**
+	 * @param out the stream, closed with the sink
+	 * @param format format of the events
+	 * @param blocking whether the simulation waits for the writer when all batches are full, instead of
+	 * dropping events
+	 * @param batchSize number of events per batch
+	 * @param numBatches number of batches, at least 2
+	 */
+	public TraceSink(OutputStream out, Format format, boolean blocking, int batchSize, int numBatches){
+		if(batchSize <= 0 || numBatches < 2)
+			throw new IllegalArgumentException("The batch size should be positive and there should be at least 2 batches, but they are:" + batchSize + " and " + numBatches);
+		this.format = format;
+		this.blocking = blocking;
+		freeBatches = new ArrayBlockingQueue<Batch>(numBatches);
+		fullBatches = new ArrayBlockingQueue<Batch>(numBatches + 1);
+		for(int i=1;i<numBatches;i++)
+			freeBatches.add(new Batch(batchSize));
+		batch = new Batch(batchSize);
+		writer = new Thread(new EventWriter(out), "TraceSink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Sets the sink as the event listener of the current simulation.
+	 */
+	public void attach(){
+		context = CloudSim.getSimulationContext();
+		context.setEventListener(this);
+	}
+
+	@Override
+	public void eventProcessed(SimEvent e) {
+		Batch batch = this.batch;
+		int i = batch.size++;
+		batch.times[i] = e.eventTime();
+		batch.types[i] = e.getType();
+		batch.tags[i] = e.getTag();
+		batch.sources[i] = e.getSource();
+		batch.destinations[i] = e.getDestination();
+		if(batch.size == batch.times.length)
+			flush();
+	}
+
+	/**
+	 * Hands the current batch to the writer and takes a free one.
+	 */
+	private void flush(){
+		Batch next = freeBatches.poll();
+		if(next == null){
+			if(!blocking){
+				droppedEvents += batch.size;
+				batch.size = 0;
+				return;
+			}
+			next = take(freeBatches);
+		}
+		fullBatches.add(batch);
+		batch = next;
+	}
+
+	private static Batch take(BlockingQueue<Batch> batches){
+		boolean interrupted = false;
+		try{
+			while(true){
+				try{
+					return batches.take();
+				}catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		}finally{
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the number of events dropped as all the batches were full, always 0 for a blocking sink
+	 */
+	public long getDroppedEvents(){
+		return droppedEvents;
+	}
+
+	/**
+	 * Writes the remaining events, waits for the writer and closes the stream. Detaches the sink from the
+	 * simulation it was attached to.
+	 * @throws IOException if the events could not be written
+	 */
+	public void close() throws IOException {
+		if(closed)
+			return;
+		closed = true;
+		if(context != null && context.getEventListener() == this)
+			context.setEventListener(null);
+		if(batch.size > 0)
+			fullBatches.add(batch);
+		fullBatches.add(END);
+		boolean interrupted = false;
+		while(writer.isAlive()){
+			try{
+				writer.join();
+			}catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		if(writeError != null)
+			throw writeError;
+	}
+
+	private class EventWriter implements Runnable {
+		private final OutputStream out;
+		private DataOutputStream data;
+		private OutputStreamWriter csv;
+		private StringBuilder line = new StringBuilder(64);
+
+		private EventWriter(OutputStream out){
+			this.out = out;
+		}
+
+		@Override
+		public void run() {
+			if(format == Format.BINARY)
+				data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+			else
+				csv = new OutputStreamWriter(new BufferedOutputStream(out, 1 << 16), Charset.forName("US-ASCII"));
+			try{
+				if(csv != null)
+					csv.write("time,type,tag,source,destination\n");
+			}catch(IOException e){
+				writeError = e;
+			}
+			for(Batch batch = take(fullBatches); batch != END; batch = take(fullBatches)){
+				// once writing failed, the batches are only recycled so that the simulation does not wait
+				if(writeError == null){
+					try{
+						write(batch);
+					}catch(IOException e){
+						writeError = e;
+					}
+				}
+				batch.size = 0;
+				freeBatches.add(batch);
+			}
+			try{
+				if(data != null)
+					data.close();
+				else
+					csv.close();
+			}catch(IOException e){
+				if(writeError == null)
+					writeError = e;
+			}
+		}
+
+		private void write(Batch batch) throws IOException {
+			for(int i=0;i<batch.size;i++){
+				if(data != null){
+					data.writeDouble(batch.times[i]);
+					data.writeInt(batch.types[i]);
+					data.writeInt(batch.tags[i]);
+					data.writeInt(batch.sources[i]);
+					data.writeInt(batch.destinations[i]);
+				}else{
+					line.setLength(0);
+					line.append(batch.times[i]).append(',').append(batch.types[i]).append(',').append(batch.tags[i])
+						.append(',').append(batch.sources[i]).append(',').append(batch.destinations[i]).append('\n');
+					csv.append(line);
+				}
+			}
+		}
+	}
+}